@@ -0,0 +1,126 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.crypto;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.X509EncodedKeySpec;
+
+import java.nio.ByteBuffer;
+
+import lombok.Value;
+
+import javax.annotation.Nullable;
+
+/**
+ * Bounded caches for decoded public keys and for verified signatures. The same keys and signed data are received
+ * many times (e.g. the owner key of an offer at each RefreshOfferMessage or re-broadcast), so we decode each key
+ * only once and re-validating a known signature costs one hash lookup.
+ * <p>
+ * Only successful results are cached. All methods are thread safe.
+ */
+public final class CryptoCache {
+    private static final int MAX_PUBLIC_KEYS = 10_000;
+    private static final int MAX_VERIFIED_SIGNATURES = 50_000;
+
+    @Value
+    private static class EncodedPublicKey {
+        String algorithm;
+        byte[] encoded;
+    }
+
+    private static final Cache<EncodedPublicKey, PublicKey> PUBLIC_KEYS = CacheBuilder.newBuilder()
+            .maximumSize(MAX_PUBLIC_KEYS)
+            .recordStats()
+            .build();
+
+    // The key is the SHA-256 hash of the public key, the data and the signature
+    private static final Cache<ByteBuffer, Boolean> VERIFIED_SIGNATURES = CacheBuilder.newBuilder()
+            .maximumSize(MAX_VERIFIED_SIGNATURES)
+            .recordStats()
+            .build();
+
+    private CryptoCache() {
+    }
+
+    static PublicKey getPublicKey(String algorithm, byte[] encoded)
+            throws InvalidKeySpecException, NoSuchAlgorithmException {
+        EncodedPublicKey encodedPublicKey = new EncodedPublicKey(algorithm, encoded);
+        PublicKey publicKey = PUBLIC_KEYS.getIfPresent(encodedPublicKey);
+        if (publicKey == null) {
+            publicKey = KeyFactory.getInstance(algorithm).generatePublic(new X509EncodedKeySpec(encoded));
+            // We must not keep a reference to the array of the caller
+            PUBLIC_KEYS.put(new EncodedPublicKey(algorithm, encoded.clone()), publicKey);
+        }
+        return publicKey;
+    }
+
+    static boolean isVerifiedSignature(PublicKey publicKey, byte[] data, byte[] signature) {
+        ByteBuffer signatureKey = getSignatureKey(publicKey, data, signature);
+        return signatureKey != null && VERIFIED_SIGNATURES.getIfPresent(signatureKey) != null;
+    }
+
+    static void addVerifiedSignature(PublicKey publicKey, byte[] data, byte[] signature) {
+        ByteBuffer signatureKey = getSignatureKey(publicKey, data, signature);
+        if (signatureKey != null) {
+            VERIFIED_SIGNATURES.put(signatureKey, Boolean.TRUE);
+        }
+    }
+
+    public static String getStatistics() {
+        return "publicKeys: " + toString(PUBLIC_KEYS.stats(), PUBLIC_KEYS.size()) +
+                ", verifiedSignatures: " + toString(VERIFIED_SIGNATURES.stats(), VERIFIED_SIGNATURES.size());
+    }
+
+    private static String toString(CacheStats stats, long size) {
+        return String.format("size=%d, hits=%d, misses=%d, hitRate=%.2f",
+                size, stats.hitCount(), stats.missCount(), stats.hitRate());
+    }
+
+    // Returns null if the key does not support encoding
+    @Nullable
+    private static ByteBuffer getSignatureKey(PublicKey publicKey, byte[] data, byte[] signature) {
+        byte[] encodedPublicKey = publicKey.getEncoded();
+        if (encodedPublicKey == null) {
+            return null;
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            // We add the lengths so that different splits of the same bytes do not result in the same key
+            digest.update(ByteBuffer.allocate(12)
+                    .putInt(encodedPublicKey.length)
+                    .putInt(data.length)
+                    .putInt(signature.length)
+                    .array());
+            digest.update(encodedPublicKey);
+            digest.update(data);
+            digest.update(signature);
+            return ByteBuffer.wrap(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -23,7 +23,6 @@ import bisq.common.util.Utilities;
 import com.google.common.base.Charsets;
 
 import java.security.InvalidKeyException;
-import java.security.KeyFactory;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
@@ -101,11 +100,20 @@ public class Sig {
      * @return
      */
     public static boolean verify(PublicKey publicKey, byte[] data, byte[] signature) throws CryptoException {
+        // Verification is deterministic, so we can use the result of a previous successful verification
+        if (CryptoCache.isVerifiedSignature(publicKey, data, signature)) {
+            return true;
+        }
+
         try {
             Signature sig = Signature.getInstance(ALGO);
             sig.initVerify(publicKey);
             sig.update(data);
-            return sig.verify(signature);
+            boolean result = sig.verify(signature);
+            if (result) {
+                CryptoCache.addVerifiedSignature(publicKey, data, signature);
+            }
+            return result;
         } catch (SignatureException | InvalidKeyException | NoSuchAlgorithmException e) {
             throw new CryptoException("Signature verification failed", e);
         }
@@ -127,7 +135,7 @@ public class Sig {
      */
     public static PublicKey getPublicKeyFromBytes(byte[] sigPublicKeyBytes) {
         try {
-            return KeyFactory.getInstance(Sig.KEY_ALGO).generatePublic(new X509EncodedKeySpec(sigPublicKeyBytes));
+            return CryptoCache.getPublicKey(Sig.KEY_ALGO, sigPublicKeyBytes);
         } catch (InvalidKeySpecException | NoSuchAlgorithmException e) {
             log.error("Error creating sigPublicKey from bytes. sigPublicKeyBytes as hex={}, error={}", Utilities.bytesAsHexString(sigPublicKeyBytes), e);
             e.printStackTrace();
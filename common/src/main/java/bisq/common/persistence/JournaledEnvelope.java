@@ -0,0 +1,36 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.persistence;
+
+import bisq.common.proto.persistable.PersistableEnvelope;
+
+/**
+ * A persistable which supports the journaled mode of the {@link PersistenceManager}. Instead of writing the whole
+ * persistable at each change, the changes are appended as small delta records to a journal file. From time to time
+ * the journal gets compacted by writing the whole persistable.
+ * <p>
+ * A delta is an instance of the same type which contains only the changed data. At read the deltas are applied to
+ * the persisted data in the order they have been appended. After a crash between writing the whole persistable and
+ * clearing the journal, deltas which are already contained in the persisted data get applied again, so applying a
+ * delta must not revert newer data.
+ *
+ * @param <T>   The type of the persistable and its deltas
+ */
+public interface JournaledEnvelope<T extends JournaledEnvelope<T>> extends PersistableEnvelope {
+    void applyDelta(T delta);
+}
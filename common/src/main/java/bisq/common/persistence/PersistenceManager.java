@@ -32,7 +32,9 @@ import com.google.inject.Inject;
 
 import javax.inject.Named;
 
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -41,12 +43,17 @@ import java.io.IOException;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -70,6 +77,17 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * the write operations got triggered way too often specially for the very frequent changes at SequenceNumberMap and
  * the very large DaoState (at dao blockchain sync that slowed down sync).
  *
+ * Persistables implementing {@link JournaledEnvelope} can use the journaled mode for very frequent small changes. The
+ * changes are passed to appendDelta and get appended to a journal file next to the storage file. All deltas which are
+ * pending at a write are synced to disk together. After MAX_JOURNAL_RECORDS deltas we request a write of the whole
+ * persistable which clears the journal. At read the journal is applied to the persisted data.
+ *
+ * Large persistables implementing {@link SnapshotEnvelope} provide an immutable snapshot on the user thread which
+ * gets serialized on the write to disk thread. All other persistables are serialized on the user thread.
+ *
+ * Data which is written separately from the persistable (e.g. an append-only log of a store) can be written on the
+ * write to disk thread with executeOnWriteToDiskThread. The tasks added with addFlushTask write it at shut down.
+ *
  *
  * @param <T>   The type of the {@link PersistableEnvelope} to be written or read from disk
  */
@@ -83,6 +101,8 @@ public class PersistenceManager<T extends PersistableEnvelope> {
     public static final Map<String, PersistenceManager<?>> ALL_PERSISTENCE_MANAGERS = new HashMap<>();
     private static boolean flushAtShutdownCalled;
     private static final AtomicBoolean allServicesInitialized = new AtomicBoolean(false);
+    private static final String JOURNAL_POSTFIX = "_journal";
+    private static final int MAX_JOURNAL_RECORDS = 1000;
 
     public static void onAllServicesInitialized() {
         allServicesInitialized.set(true);
@@ -136,23 +156,27 @@ public class PersistenceManager<T extends PersistableEnvelope> {
             }
 
             new HashSet<>(ALL_PERSISTENCE_MANAGERS.values()).forEach(persistenceManager -> {
-                // For Priority.HIGH data we want to write to disk in any case to be on the safe side if we might have missed
-                // a requestPersistence call after an important state update. Those are usually rather small data stores.
-                // Otherwise we only persist if requestPersistence was called since the last persist call.
-                // We also check if we have called read already to avoid a very early write attempt before we have ever
-                // read the data, which would lead to a write of empty data
-                // (fixes https://github.com/bisq-network/bisq/issues/4844).
-                if (persistenceManager.readCalled.get() &&
-                        (persistenceManager.source.flushAtShutDown || persistenceManager.persistenceRequested)) {
-                    // We always get our completeHandler called even if exceptions happen. In case a file write fails
-                    // we still call our shutdown and count down routine as the completeHandler is triggered in any case.
-
-                    // We get our result handler called from the write thread so we map back to user thread.
-                    persistenceManager.persistNow(() ->
-                            UserThread.execute(() -> onWriteCompleted(completeHandler, openInstances, persistenceManager, doShutdown)));
-                } else {
-                    onWriteCompleted(completeHandler, openInstances, persistenceManager, doShutdown);
-                }
+                // Data which is written by the flush tasks (e.g. an append-only log) does not depend on
+                // persistenceRequested, so we run them in any case before the write of the whole persistable.
+                persistenceManager.runFlushTasks(() -> {
+                    // For Priority.HIGH data we want to write to disk in any case to be on the safe side if we might have missed
+                    // a requestPersistence call after an important state update. Those are usually rather small data stores.
+                    // Otherwise we only persist if requestPersistence was called since the last persist call.
+                    // We also check if we have called read already to avoid a very early write attempt before we have ever
+                    // read the data, which would lead to a write of empty data
+                    // (fixes https://github.com/bisq-network/bisq/issues/4844).
+                    if (persistenceManager.readCalled.get() &&
+                            (persistenceManager.source.flushAtShutDown || persistenceManager.persistenceRequested)) {
+                        // We always get our completeHandler called even if exceptions happen. In case a file write fails
+                        // we still call our shutdown and count down routine as the completeHandler is triggered in any case.
+
+                        // We get our result handler called from the write thread so we map back to user thread.
+                        persistenceManager.persistNow(() ->
+                                UserThread.execute(() -> onWriteCompleted(completeHandler, openInstances, persistenceManager, doShutdown)));
+                    } else {
+                        onWriteCompleted(completeHandler, openInstances, persistenceManager, doShutdown);
+                    }
+                });
             });
         });
     }
@@ -221,6 +245,16 @@ public class PersistenceManager<T extends PersistableEnvelope> {
     private ExecutorService writeToDiskExecutor;
     public final AtomicBoolean initCalled = new AtomicBoolean(false);
     public final AtomicBoolean readCalled = new AtomicBoolean(false);
+    // Run on the write to disk thread at flushAllDataToDisk
+    private final List<Runnable> flushTasks = new CopyOnWriteArrayList<>();
+
+    // Only used in journaled mode. Deltas and writes of the whole persistable are processed in the order they have
+    // been added by the write to disk thread.
+    private final Queue<JournalItem> journalQueue = new ConcurrentLinkedQueue<>();
+    private int numJournalRecords;
+    // Only accessed from the write to disk thread
+    @Nullable
+    private FileOutputStream journalOutputStream;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -344,7 +378,8 @@ public class PersistenceManager<T extends PersistableEnvelope> {
 
         File storageFile = new File(dir, fileName);
         if (!storageFile.exists()) {
-            return null;
+            // In journaled mode the deltas might have been written before the whole persistable got written once
+            return isJournaled() ? readJournal(fileName, null) : null;
         }
 
         long ts = System.currentTimeMillis();
@@ -353,7 +388,7 @@ public class PersistenceManager<T extends PersistableEnvelope> {
             //noinspection unchecked
             T persistableEnvelope = (T) persistenceProtoResolver.fromProto(proto);
             log.info("Reading {} completed in {} ms", fileName, System.currentTimeMillis() - ts);
-            return persistableEnvelope;
+            return isJournaled() ? readJournal(fileName, persistableEnvelope) : persistableEnvelope;
         } catch (Throwable t) {
             log.error("Reading {} failed with {}.", fileName, t.getMessage());
             try {
@@ -372,6 +407,52 @@ public class PersistenceManager<T extends PersistableEnvelope> {
         return null;
     }
 
+    /**
+     * Applies the deltas of the journal to the persisted data. If the last record is incomplete (e.g. after a crash)
+     * we ignore it and truncate the journal so that later deltas get appended after the last complete record.
+     */
+    @Nullable
+    private T readJournal(String fileName, @Nullable T persisted) {
+        File journalFile = new File(dir, fileName + JOURNAL_POSTFIX);
+        if (!journalFile.exists()) {
+            return persisted;
+        }
+
+        long ts = System.currentTimeMillis();
+        int numRecords = 0;
+        long validLength = 0;
+        try (FileInputStream fileInputStream = new FileInputStream(journalFile)) {
+            protobuf.PersistableEnvelope proto;
+            while ((proto = protobuf.PersistableEnvelope.parseDelimitedFrom(fileInputStream)) != null) {
+                //noinspection unchecked
+                T delta = (T) persistenceProtoResolver.fromProto(proto);
+                if (persisted == null) {
+                    persisted = delta;
+                } else {
+                    //noinspection unchecked
+                    ((JournaledEnvelope) persisted).applyDelta((JournaledEnvelope) delta);
+                }
+                numRecords++;
+                validLength = fileInputStream.getChannel().position();
+            }
+        } catch (Throwable t) {
+            log.warn("Reading the journal of {} failed after {} records. We ignore the remaining data. {}",
+                    fileName, numRecords, t.toString());
+            truncateJournal(journalFile, validLength);
+        }
+        log.info("Applying {} journal records to {} completed in {} ms",
+                numRecords, fileName, System.currentTimeMillis() - ts);
+        return persisted;
+    }
+
+    private void truncateJournal(File journalFile, long validLength) {
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(validLength);
+        } catch (IOException e) {
+            log.error("Truncating the journal {} failed.", journalFile, e);
+        }
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Write file to disk
@@ -394,6 +475,55 @@ public class PersistenceManager<T extends PersistableEnvelope> {
         maybeStartTimerForPersistence();
     }
 
+    /**
+     * Appends a delta to the journal instead of writing the whole persistable. The delta is an instance of the
+     * persistable's type which contains only the changed data. If the persistable does not support the journaled
+     * mode or if we are not initialized yet we request the persistence of the whole persistable instead.
+     */
+    public void appendDelta(T delta) {
+        if (flushAtShutdownCalled) {
+            log.warn("We have started the shut down routine already. We ignore that appendDelta call.");
+            return;
+        }
+
+        if (!isJournaled() || !allServicesInitialized.get()) {
+            requestPersistence();
+            return;
+        }
+
+        // The delta is small, so we serialize it on the user thread as we do with the whole persistable.
+        protobuf.PersistableEnvelope serialized = (protobuf.PersistableEnvelope) delta.toPersistableMessage();
+        journalQueue.add(JournalItem.delta(serialized));
+        getWriteToDiskExecutor().execute(this::processJournalQueue);
+
+        // We compact the journal by writing the whole persistable. We use the delay of the source to not write
+        // the whole persistable immediately at a burst of changes.
+        if (++numJournalRecords >= MAX_JOURNAL_RECORDS) {
+            requestPersistence();
+        }
+    }
+
+    /**
+     * Runs the task on the write to disk thread, so it is ordered with the writes of the persistable. Used for data
+     * which is written separately from the persistable, e.g. an append-only log of a store.
+     */
+    public void executeOnWriteToDiskThread(Runnable task) {
+        if (flushAtShutdownCalled) {
+            log.warn("We have started the shut down routine already. We ignore that executeOnWriteToDiskThread call.");
+            return;
+        }
+
+        getWriteToDiskExecutor().execute(task);
+    }
+
+    /**
+     * Adds a task which gets run on the write to disk thread when all data gets flushed to disk, e.g. at shut down.
+     * It must write the pending data which was passed to executeOnWriteToDiskThread and release open files.
+     */
+    public void addFlushTask(Runnable flushTask) {
+        flushTasks.add(flushTask);
+    }
+
     private void maybeStartTimerForPersistence() {
         // We write to disk with a delay to avoid frequent write operations. Depending on the priority those delays
         // can be rather long.
@@ -406,16 +536,40 @@ public class PersistenceManager<T extends PersistableEnvelope> {
     }
 
     public void persistNow(@Nullable Runnable completeHandler) {
+        persistNow(completeHandler, null);
+    }
+
+    /**
+     * @param completeHandler   Called after the write attempt, also if it failed or was skipped.
+     * @param successHandler    Called only if the data was written to disk.
+     */
+    public void persistNow(@Nullable Runnable completeHandler, @Nullable Runnable successHandler) {
         long ts = System.currentTimeMillis();
         try {
-            // The serialisation is done on the user thread to avoid threading issue with potential mutations of the
-            // persistable object. Keeping it on the user thread we are in a synchronize model.
-            protobuf.PersistableEnvelope serialized = (protobuf.PersistableEnvelope) persistable.toPersistableMessage();
+            Supplier<protobuf.PersistableEnvelope> serializer;
+            if (persistable instanceof SnapshotEnvelope) {
+                // The snapshot does not get mutated anymore, so we can serialize it on the write to disk thread.
+                PersistableEnvelope snapshot = ((SnapshotEnvelope) persistable).getSnapshot();
+                serializer = () -> (protobuf.PersistableEnvelope) snapshot.toPersistableMessage();
+            } else {
+                // The serialisation is done on the user thread to avoid threading issue with potential mutations of the
+                // persistable object. Keeping it on the user thread we are in a synchronize model.
+                protobuf.PersistableEnvelope serialized = (protobuf.PersistableEnvelope) persistable.toPersistableMessage();
+                serializer = () -> serialized;
+            }
 
             // For the write to disk task we use a thread. We do not have any issues anymore if the persistable objects
-            // gets mutated while the thread is running as we have serialized it already and do not operate on the
-            // reference to the persistable object.
-            getWriteToDiskExecutor().execute(() -> writeToDisk(serialized, completeHandler));
+            // gets mutated while the thread is running as we have serialized it already or use an immutable snapshot
+            // and do not operate on the reference to the persistable object.
+            if (isJournaled()) {
+                // The written data contains all deltas appended so far, so the journal gets cleared after the
+                // write. We use the journal queue to keep the order with the deltas which are not written yet.
+                numJournalRecords = 0;
+                journalQueue.add(JournalItem.snapshot(() -> serializeAndWriteToDisk(serializer, completeHandler, successHandler, true)));
+                getWriteToDiskExecutor().execute(this::processJournalQueue);
+            } else {
+                getWriteToDiskExecutor().execute(() -> serializeAndWriteToDisk(serializer, completeHandler, successHandler, false));
+            }
 
             long duration = System.currentTimeMillis() - ts;
             if (duration > 100) {
@@ -429,6 +583,37 @@ public class PersistenceManager<T extends PersistableEnvelope> {
     }
 
     public void writeToDisk(protobuf.PersistableEnvelope serialized, @Nullable Runnable completeHandler) {
+        writeToDisk(serialized, completeHandler, null, false);
+    }
+
+    private void serializeAndWriteToDisk(Supplier<protobuf.PersistableEnvelope> serializer,
+                                         @Nullable Runnable completeHandler,
+                                         @Nullable Runnable successHandler,
+                                         boolean clearJournal) {
+        long ts = System.currentTimeMillis();
+        protobuf.PersistableEnvelope serialized;
+        try {
+            serialized = serializer.get();
+        } catch (Throwable t) {
+            // We must not throw here as the completeHandler is expected to get called in any case
+            log.error("Error at serializing {} on the write to disk thread", fileName, t);
+            if (completeHandler != null) {
+                UserThread.execute(completeHandler);
+            }
+            return;
+        }
+
+        long duration = System.currentTimeMillis() - ts;
+        if (duration > 100) {
+            log.info("Serializing {} on the write to disk thread took {} msec", fileName, duration);
+        }
+        writeToDisk(serialized, completeHandler, successHandler, clearJournal);
+    }
+
+    private void writeToDisk(protobuf.PersistableEnvelope serialized,
+                             @Nullable Runnable completeHandler,
+                             @Nullable Runnable successHandler,
+                             boolean clearJournal) {
         if (!allServicesInitialized.get()) {
             log.warn("Application has not completed start up yet so we do not permit writing data to disk.");
             UserThread.execute(completeHandler);
@@ -438,6 +623,7 @@ public class PersistenceManager<T extends PersistableEnvelope> {
         long ts = System.currentTimeMillis();
         File tempFile = null;
         FileOutputStream fileOutputStream = null;
+        boolean written = false;
 
         try {
             // Before we write we backup existing file
@@ -467,6 +653,12 @@ public class PersistenceManager<T extends PersistableEnvelope> {
 
             FileUtil.renameFile(tempFile, storageFile);
             usedTempFilePath = tempFile.toPath();
+            written = true;
+
+            // We clear the journal before we notify the handlers as the shut down might follow.
+            if (clearJournal) {
+                clearJournal();
+            }
         } catch (Throwable t) {
             // If an error occurred, don't attempt to reuse this path again, in case temp file cleanup fails.
             usedTempFilePath = null;
@@ -493,12 +685,110 @@ public class PersistenceManager<T extends PersistableEnvelope> {
                 log.info("Writing the serialized {} completed in {} msec", fileName, duration);
             }
             persistenceRequested = false;
+            if (written && successHandler != null) {
+                UserThread.execute(successHandler);
+            }
             if (completeHandler != null) {
                 UserThread.execute(completeHandler);
             }
         }
     }
 
+    // Runs the flush tasks on the write to disk thread and calls the completeHandler on the user thread afterwards
+    private void runFlushTasks(Runnable completeHandler) {
+        if (flushTasks.isEmpty()) {
+            completeHandler.run();
+            return;
+        }
+
+        getWriteToDiskExecutor().execute(() -> {
+            flushTasks.forEach(flushTask -> {
+                try {
+                    flushTask.run();
+                } catch (Throwable t) {
+                    // We must not throw here as the completeHandler is expected to get called in any case
+                    log.error("Error at running a flush task of {}", fileName, t);
+                }
+            });
+            UserThread.execute(completeHandler);
+        });
+    }
+
+    // Runs on the write to disk thread. All deltas which got added while the previous write was in progress get
+    // synced to disk together.
+    private void processJournalQueue() {
+        boolean requiresSync = false;
+        JournalItem item;
+        while ((item = journalQueue.poll()) != null) {
+            if (item.delta != null) {
+                requiresSync |= appendToJournal(item.delta);
+            } else {
+                if (requiresSync) {
+                    syncJournal();
+                    requiresSync = false;
+                }
+                checkNotNull(item.snapshotWriter).run();
+            }
+        }
+        if (requiresSync) {
+            syncJournal();
+        }
+    }
+
+    private boolean appendToJournal(protobuf.PersistableEnvelope delta) {
+        try {
+            if (journalOutputStream == null) {
+                journalOutputStream = new FileOutputStream(new File(dir, fileName + JOURNAL_POSTFIX), true);
+            }
+            delta.writeDelimitedTo(journalOutputStream);
+            return true;
+        } catch (Throwable t) {
+            log.error("Appending to the journal of {} failed. We request persistence of the whole data.", fileName, t);
+            closeJournal();
+            UserThread.execute(this::requestPersistence);
+            return false;
+        }
+    }
+
+    private void syncJournal() {
+        if (journalOutputStream == null) {
+            return;
+        }
+
+        try {
+            journalOutputStream.flush();
+            journalOutputStream.getFD().sync();
+        } catch (IOException e) {
+            log.error("Syncing the journal of {} failed. We request persistence of the whole data.", fileName, e);
+            closeJournal();
+            UserThread.execute(this::requestPersistence);
+        }
+    }
+
+    private void clearJournal() {
+        closeJournal();
+        File journalFile = new File(dir, fileName + JOURNAL_POSTFIX);
+        if (journalFile.exists() && !journalFile.delete()) {
+            // The next deltas get appended to the old ones. That is safe as applying a delta must not revert newer data.
+            log.warn("Could not delete journal {}", journalFile);
+        }
+    }
+
+    private void closeJournal() {
+        if (journalOutputStream != null) {
+            try {
+                journalOutputStream.close();
+            } catch (IOException e) {
+                log.error("Closing the journal of {} failed.", fileName, e);
+            }
+            journalOutputStream = null;
+        }
+    }
+
+    private boolean isJournaled() {
+        return persistable instanceof JournaledEnvelope;
+    }
+
     private ExecutorService getWriteToDiskExecutor() {
         if (writeToDiskExecutor == null) {
             String name = "Write-" + fileName + "_to-disk";
@@ -507,6 +797,27 @@ public class PersistenceManager<T extends PersistableEnvelope> {
         return writeToDiskExecutor;
     }
 
+    // Either a delta which gets appended to the journal or a write of the whole persistable
+    private static final class JournalItem {
+        @Nullable
+        private final protobuf.PersistableEnvelope delta;
+        @Nullable
+        private final Runnable snapshotWriter;
+
+        private JournalItem(@Nullable protobuf.PersistableEnvelope delta, @Nullable Runnable snapshotWriter) {
+            this.delta = delta;
+            this.snapshotWriter = snapshotWriter;
+        }
+
+        static JournalItem delta(protobuf.PersistableEnvelope delta) {
+            return new JournalItem(delta, null);
+        }
+
+        static JournalItem snapshot(Runnable snapshotWriter) {
+            return new JournalItem(null, snapshotWriter);
+        }
+    }
+
     @Override
     public String toString() {
         return "PersistenceManager{" +
@@ -0,0 +1,34 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.persistence;
+
+import bisq.common.proto.persistable.PersistableEnvelope;
+
+/**
+ * A persistable which can provide a snapshot of its current state at low costs, e.g. by sharing immutable data or
+ * data which gets replaced instead of mutated. The {@link PersistenceManager} gets the snapshot on the user thread
+ * and serializes it on the write to disk thread, so the user thread is not blocked by the serialisation of large
+ * data.
+ */
+public interface SnapshotEnvelope extends PersistableEnvelope {
+    /**
+     * Called on the user thread. The returned envelope and all the data it references must not be mutated
+     * afterwards.
+     */
+    PersistableEnvelope getSnapshot();
+}
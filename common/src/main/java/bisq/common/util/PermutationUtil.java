@@ -17,10 +17,15 @@
 
 package bisq.common.util;
 
+import com.google.common.math.LongMath;
+import com.google.common.primitives.Ints;
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 
@@ -120,6 +125,144 @@ public class PermutationUtil {
         return new ArrayList<>();
     }
 
+    /**
+     * Searches the same variations as {@link #findMatchingPermutation(Object, List, BiFunction, int)} but tests the
+     * variations of each level in parallel on the given pool. A level is split into one task per first removed index.
+     * Each task gets the exact share of maxIterations which the sequential search would spend on its variations, so
+     * the tested variations and the returned result are the same as with the sequential search, independent of the
+     * scheduling of the tasks. The predicate must be thread safe.
+     */
+    public static <T, R> List<T> findMatchingPermutationInParallel(R targetValue,
+                                                                   List<T> list,
+                                                                   BiFunction<R, List<T>, Boolean> predicate,
+                                                                   int maxIterations,
+                                                                   ForkJoinPool forkJoinPool) {
+        if (predicate.apply(targetValue, list)) {
+            return list;
+        }
+
+        int remainingIterations = maxIterations;
+        // Like at findMatchingPermutation we keep at least one item
+        for (int numRemoved = 1; numRemoved < list.size() && remainingIterations > 0; numRemoved++) {
+            // The sequential search tests the variations of a level in lexicographic order of the removed indices.
+            // The variations with a given first removed index are a contiguous range of that order, so we can assign
+            // each task the part of the remaining iterations which falls into its range.
+            AtomicInteger matchingFirstIndex = new AtomicInteger(Integer.MAX_VALUE);
+            List<RemoveItemsTask<T, R>> tasks = new ArrayList<>();
+            int budgetOfPreviousTasks = 0;
+            for (int firstIndex = 0; firstIndex <= list.size() - numRemoved; firstIndex++) {
+                int numVariations = getNumVariations(list.size() - 1 - firstIndex, numRemoved - 1);
+                int budget = Math.min(numVariations, remainingIterations - budgetOfPreviousTasks);
+                if (budget <= 0) {
+                    break;
+                }
+                tasks.add(new RemoveItemsTask<>(targetValue, list, predicate, numRemoved, firstIndex, budget,
+                        matchingFirstIndex));
+                budgetOfPreviousTasks += budget;
+            }
+            forkJoinPool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+
+            // If several tasks found a match we use the one with the lowest first index as the sequential search
+            // would have found that first.
+            for (RemoveItemsTask<T, R> task : tasks) {
+                if (task.getMatchingVariation() != null) {
+                    return task.getMatchingVariation();
+                }
+            }
+            remainingIterations -= budgetOfPreviousTasks;
+        }
+        return new ArrayList<>();
+    }
+
+    // Number of ways to choose k items out of n, capped at Integer.MAX_VALUE
+    private static int getNumVariations(int n, int k) {
+        return Ints.saturatedCast(LongMath.binomial(n, k));
+    }
+
+    // Tests the variations of a level which have firstIndex as the lowest removed index in lexicographic order until
+    // its budget is used up, a match is found or a task with a lower first index has found a match.
+    private static final class RemoveItemsTask<T, R> extends RecursiveAction {
+        private final R targetValue;
+        private final List<T> list;
+        private final BiFunction<R, List<T>, Boolean> predicate;
+        private final int[] removedIndices;
+        private final AtomicInteger matchingFirstIndex;
+        private int remainingIterations;
+        private List<T> matchingVariation;
+
+        RemoveItemsTask(R targetValue,
+                        List<T> list,
+                        BiFunction<R, List<T>, Boolean> predicate,
+                        int numRemoved,
+                        int firstIndex,
+                        int budget,
+                        AtomicInteger matchingFirstIndex) {
+            this.targetValue = targetValue;
+            this.list = list;
+            this.predicate = predicate;
+            this.remainingIterations = budget;
+            this.matchingFirstIndex = matchingFirstIndex;
+            removedIndices = new int[numRemoved];
+            removedIndices[0] = firstIndex;
+        }
+
+        @Override
+        protected void compute() {
+            search(1);
+        }
+
+        // Only read after the task has completed
+        List<T> getMatchingVariation() {
+            return matchingVariation;
+        }
+
+        private void search(int numSelected) {
+            if (isStopped()) {
+                return;
+            }
+            if (numSelected == removedIndices.length) {
+                test();
+                return;
+            }
+            int numStillToRemove = removedIndices.length - numSelected;
+            for (int index = removedIndices[numSelected - 1] + 1; index <= list.size() - numStillToRemove; index++) {
+                removedIndices[numSelected] = index;
+                search(numSelected + 1);
+                if (isStopped()) {
+                    return;
+                }
+            }
+        }
+
+        private void test() {
+            remainingIterations--;
+            List<T> variation = new ArrayList<>(list.size() - removedIndices.length);
+            int next = 0;
+            for (int i = 0; i < list.size(); i++) {
+                if (next < removedIndices.length && removedIndices[next] == i) {
+                    next++;
+                } else {
+                    variation.add(list.get(i));
+                }
+            }
+            if (predicate.apply(targetValue, variation)) {
+                matchingVariation = variation;
+                matchingFirstIndex.accumulateAndGet(removedIndices[0], Math::min);
+            }
+        }
+
+        private boolean isStopped() {
+            return matchingVariation != null ||
+                    remainingIterations <= 0 ||
+                    matchingFirstIndex.get() < removedIndices[0];
+        }
+    }
+
     //TODO optimize algorithm so that it starts from all objects and goes down instead starting with from the bottom.
     // That should help that we are not hitting the iteration limit so easily.
 
@@ -0,0 +1,57 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.crypto;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CryptoCacheTest {
+
+    @Test
+    public void publicKeyIsDecodedOnce() {
+        KeyPair keyPair = Sig.generateKeyPair();
+        byte[] encoded = Sig.getPublicKeyBytes(keyPair.getPublic());
+
+        PublicKey publicKey = Sig.getPublicKeyFromBytes(encoded);
+        assertEquals(keyPair.getPublic(), publicKey);
+        assertSame(publicKey, Sig.getPublicKeyFromBytes(encoded.clone()));
+    }
+
+    @Test
+    public void onlyValidSignaturesAreCached() throws CryptoException {
+        KeyPair keyPair = Sig.generateKeyPair();
+        byte[] data = "data".getBytes();
+        byte[] signature = Sig.sign(keyPair.getPrivate(), data);
+
+        assertFalse(CryptoCache.isVerifiedSignature(keyPair.getPublic(), data, signature));
+        assertTrue(Sig.verify(keyPair.getPublic(), data, signature));
+        assertTrue(CryptoCache.isVerifiedSignature(keyPair.getPublic(), data, signature));
+        assertTrue(Sig.verify(keyPair.getPublic(), data, signature));
+
+        byte[] otherData = "other data".getBytes();
+        assertFalse(Sig.verify(keyPair.getPublic(), otherData, signature));
+        assertFalse(CryptoCache.isVerifiedSignature(keyPair.getPublic(), otherData, signature));
+    }
+}
@@ -21,11 +21,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
 
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class PermutationTest {
@@ -139,6 +141,68 @@ public class PermutationTest {
     }
 
 
+    @Test
+    public void testFindMatchingPermutationInParallel() {
+        BiFunction<String, List<String>, Boolean> predicate =
+                (target, variationList) -> variationList.toString().equals(target);
+        var list = Arrays.asList("A", "B", "C", "D", "E");
+
+        var expected = Arrays.asList("A");
+        var result = PermutationUtil.findMatchingPermutationInParallel(expected.toString(), list, predicate,
+                1048575, ForkJoinPool.commonPool());
+        assertEquals(expected, result);
+
+        expected = Arrays.asList("A", "C", "E");
+        result = PermutationUtil.findMatchingPermutationInParallel(expected.toString(), list, predicate,
+                1048575, ForkJoinPool.commonPool());
+        assertEquals(expected, result);
+
+        result = PermutationUtil.findMatchingPermutationInParallel(list.toString(), list, predicate,
+                1048575, ForkJoinPool.commonPool());
+        assertEquals(list, result);
+
+        result = PermutationUtil.findMatchingPermutationInParallel("[F]", list, predicate,
+                1048575, ForkJoinPool.commonPool());
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void testBreakAtLimitInParallel() {
+        BiFunction<String, List<String>, Boolean> predicate =
+                (target, variationList) -> variationList.toString().equals(target);
+        var list = Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l", "m", "n", "o");
+        var expected = Arrays.asList("b", "g", "m");
+
+        var result = PermutationUtil.findMatchingPermutationInParallel(expected.toString(), list, predicate,
+                100000, ForkJoinPool.commonPool());
+        assertEquals(expected, result);
+
+        result = PermutationUtil.findMatchingPermutationInParallel(expected.toString(), list, predicate,
+                1000, ForkJoinPool.commonPool());
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void testParallelResultEqualsSequentialResult() {
+        // Several variations match, so the result depends on which ones get tested and in which order
+        BiFunction<Integer, List<Integer>, Boolean> predicate =
+                (target, variationList) -> variationList.stream().mapToInt(Integer::intValue).sum() == target;
+        var list = Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12);
+        var forkJoinPool = new ForkJoinPool(4);
+        try {
+            for (int target = 1; target <= 78; target++) {
+                for (int limit : new int[]{0, 1, 5, 12, 13, 50, 77, 78, 100, 299, 300, 1000, 4095}) {
+                    var expected = PermutationUtil.findMatchingPermutation(target, list, predicate, limit);
+                    var result = PermutationUtil.findMatchingPermutationInParallel(target, list, predicate,
+                            limit, forkJoinPool);
+                    assertEquals("target=" + target + ", limit=" + limit, expected, result);
+                }
+            }
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
     //  @Test
     public void testFindAllPermutations() {
         String blindVote0 = "blindVote0";
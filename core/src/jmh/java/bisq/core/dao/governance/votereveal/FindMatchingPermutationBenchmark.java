@@ -0,0 +1,120 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.governance.votereveal;
+
+import bisq.core.dao.governance.blindvote.BlindVote;
+
+import bisq.common.util.PermutationUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long the vote result phase is blocked for finding the variation of our blind vote list which matches
+ * the hash of the majority if we have numMissing blind votes which the majority has not seen. The missing blind votes
+ * are spread over the list. We compare the sequential search hashing each variation from scratch, as it was done
+ * before, with the sequential and the parallel search using the BlindVoteListHasher.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FindMatchingPermutationBenchmark {
+    private static final int MAX_ITERATIONS = 1000000;
+
+    @Param({"30", "50"})
+    private int numBlindVotes;
+    @Param({"1", "2", "3"})
+    private int numMissing;
+
+    private List<BlindVote> blindVotes;
+    private byte[] majorityHash;
+    private ForkJoinPool forkJoinPool;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        blindVotes = new ArrayList<>();
+        for (int i = 0; i < numBlindVotes; i++) {
+            byte[] encryptedVotes = new byte[1000];
+            random.nextBytes(encryptedVotes);
+            byte[] encryptedMeritList = new byte[500];
+            random.nextBytes(encryptedMeritList);
+            blindVotes.add(new BlindVote(encryptedVotes, "txId" + i, 100000 + i, encryptedMeritList,
+                    1600000000000L + i, new HashMap<>()));
+        }
+
+        List<Integer> missingIndices = new ArrayList<>();
+        for (int i = 1; i <= numMissing; i++) {
+            missingIndices.add(i * numBlindVotes / (numMissing + 1));
+        }
+        majorityHash = VoteRevealConsensus.getHashOfBlindVoteList(
+                PermutationUtil.getPartialList(blindVotes, missingIndices));
+        forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        forkJoinPool.shutdown();
+    }
+
+    @Benchmark
+    public List<BlindVote> sequentialHashingFromScratch() {
+        BiFunction<byte[], List<BlindVote>, Boolean> predicate = (hash, variation) ->
+                Arrays.equals(hash, VoteRevealConsensus.getHashOfBlindVoteList(variation));
+        return PermutationUtil.findMatchingPermutation(majorityHash, blindVotes, predicate, MAX_ITERATIONS);
+    }
+
+    @Benchmark
+    public List<BlindVote> sequentialWithHasher() {
+        BlindVoteListHasher hasher = new BlindVoteListHasher(blindVotes);
+        BiFunction<byte[], List<BlindVote>, Boolean> predicate = (hash, variation) ->
+                Arrays.equals(hash, hasher.getHash(variation));
+        return PermutationUtil.findMatchingPermutation(majorityHash, blindVotes, predicate, MAX_ITERATIONS);
+    }
+
+    @Benchmark
+    public List<BlindVote> parallelWithHasher() {
+        BlindVoteListHasher hasher = new BlindVoteListHasher(blindVotes);
+        BiFunction<byte[], List<BlindVote>, Boolean> predicate = (hash, variation) ->
+                Arrays.equals(hash, hasher.getHash(variation));
+        return PermutationUtil.findMatchingPermutationInParallel(majorityHash, blindVotes, predicate, MAX_ITERATIONS,
+                forkJoinPool);
+    }
+}
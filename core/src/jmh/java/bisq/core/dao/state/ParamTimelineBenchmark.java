@@ -0,0 +1,141 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.state;
+
+import bisq.core.dao.governance.param.Param;
+import bisq.core.dao.state.model.DaoState;
+import bisq.core.dao.state.model.governance.ParamChange;
+import bisq.core.util.coin.BsqFormatter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures a param lookup at a block height through DaoStateService with numParamChanges param changes in the dao
+ * state. As baseline we use the lookup which was used before the ParamTimeline: copying the paramChangeList,
+ * scanning it backwards and parsing the value at each call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParamTimelineBenchmark {
+    private static final int NUM_LOOKUPS = 1024;
+    private static final Param[] PARAMS = {
+            Param.DEFAULT_MAKER_FEE_BSQ,
+            Param.DEFAULT_TAKER_FEE_BSQ,
+            Param.PROPOSAL_FEE,
+            Param.BLIND_VOTE_FEE,
+            Param.QUORUM_CHANGE_PARAM
+    };
+    private static final int BLOCKS_PER_CHANGE = 100;
+
+    @org.openjdk.jmh.annotations.Param({"100", "1000", "10000"})
+    private int numParamChanges;
+
+    private DaoState daoState;
+    private DaoStateService daoStateService;
+    private BsqFormatter bsqFormatter;
+    private final Param[] lookupParams = new Param[NUM_LOOKUPS];
+    private final int[] lookupHeights = new int[NUM_LOOKUPS];
+
+    @Setup
+    public void setup() {
+        daoState = new DaoState();
+        for (int i = 0; i < numParamChanges; i++) {
+            Param param = PARAMS[i % PARAMS.length];
+            daoState.getParamChangeList().add(new ParamChange(param.name(), param.getDefaultValue(),
+                    i * BLOCKS_PER_CHANGE));
+        }
+        bsqFormatter = new BsqFormatter();
+        daoStateService = new DaoStateService(daoState, mock(GenesisTxInfo.class), bsqFormatter);
+
+        // Most lookups are for recent heights
+        Random random = new Random(1);
+        int chainHeight = numParamChanges * BLOCKS_PER_CHANGE;
+        for (int i = 0; i < NUM_LOOKUPS; i++) {
+            lookupParams[i] = PARAMS[random.nextInt(PARAMS.length)];
+            lookupHeights[i] = chainHeight - random.nextInt(chainHeight / 10);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_LOOKUPS)
+    public void getParamValue(Blackhole blackhole) {
+        for (int i = 0; i < NUM_LOOKUPS; i++) {
+            blackhole.consume(daoStateService.getParamValue(lookupParams[i], lookupHeights[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_LOOKUPS)
+    public void getParamValueAsCoin(Blackhole blackhole) {
+        for (int i = 0; i < NUM_LOOKUPS; i++) {
+            blackhole.consume(daoStateService.getParamValueAsCoin(lookupParams[i], lookupHeights[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_LOOKUPS)
+    public void getParamValueByScan(Blackhole blackhole) {
+        for (int i = 0; i < NUM_LOOKUPS; i++) {
+            blackhole.consume(getParamValueByScan(lookupParams[i], lookupHeights[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_LOOKUPS)
+    public void getParamValueAsCoinByScan(Blackhole blackhole) {
+        for (int i = 0; i < NUM_LOOKUPS; i++) {
+            Param param = lookupParams[i];
+            blackhole.consume(bsqFormatter.parseParamValueToCoin(param,
+                    getParamValueByScan(param, lookupHeights[i])));
+        }
+    }
+
+    private String getParamValueByScan(Param param, int blockHeight) {
+        List<ParamChange> paramChangeList = new ArrayList<>(daoState.getParamChangeList());
+        for (int i = paramChangeList.size() - 1; i >= 0; i--) {
+            ParamChange paramChange = paramChangeList.get(i);
+            if (paramChange.getParamName().equals(param.name()) &&
+                    blockHeight >= paramChange.getActivationHeight()) {
+                return paramChange.getValue();
+            }
+        }
+        return param.getDefaultValue();
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.core.dao.state.storage;
+
+import bisq.core.dao.monitoring.model.DaoStateHash;
+import bisq.core.dao.state.model.DaoState;
+import bisq.core.dao.state.model.blockchain.Block;
+import bisq.core.dao.state.model.blockchain.Tx;
+
+import bisq.common.file.CorruptedStorageFileHandler;
+import bisq.common.persistence.PersistenceManager;
+import bisq.common.proto.persistable.PersistableEnvelope;
+import bisq.common.proto.persistable.PersistenceProtoResolver;
+import bisq.common.util.Utilities;
+
+import com.google.protobuf.Message;
+
+import java.nio.file.Files;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures how long the caller of PersistenceManager.persistNow, which is the UserThread in the application, is
+ * blocked when persisting a DaoStateStore with numBlocks blocks of txsPerBlock txs each. With snapshot set to false we
+ * persist the store through a wrapper which is not a SnapshotEnvelope, so it gets serialized by the caller as it was
+ * done for all persistables before. With snapshot set to true the DaoStateStore provides a snapshot and gets
+ * serialized on the write to disk thread.
+ * <p>
+ * Only the persistNow call is measured. We wait for the write to disk to complete after each invocation, so the
+ * writes do not pile up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersistNowBenchmark {
+    @Param({"10000", "50000"})
+    private int numBlocks;
+    @Param({"4"})
+    private int txsPerBlock;
+    @Param({"false", "true"})
+    private boolean snapshot;
+
+    private File storageDir;
+    private PersistenceManager<PersistableEnvelope> persistenceManager;
+    private CountDownLatch writeCompleted;
+
+    // A PersistableEnvelope which is not a SnapshotEnvelope, so it gets serialized by the caller of persistNow
+    private static class CallerSerializedStore implements PersistableEnvelope {
+        private final DaoStateStore daoStateStore;
+
+        CallerSerializedStore(DaoStateStore daoStateStore) {
+            this.daoStateStore = daoStateStore;
+        }
+
+        @Override
+        public Message toProtoMessage() {
+            return daoStateStore.toProtoMessage();
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(1);
+        DaoState daoState = new DaoState();
+        LinkedList<DaoStateHash> daoStateHashChain = new LinkedList<>();
+        byte[] prevHash = new byte[20];
+        for (int height = 0; height < numBlocks; height++) {
+            String blockHash = randomHex(random);
+            Block block = new Block(height, height * 600_000L, blockHash, randomHex(random));
+            for (int i = 0; i < txsPerBlock; i++) {
+                block.addTx(createTx(random, height, blockHash));
+            }
+            daoState.addBlock(block);
+
+            byte[] hash = new byte[20];
+            random.nextBytes(hash);
+            daoStateHashChain.add(new DaoStateHash(height, hash, prevHash));
+            prevHash = hash;
+        }
+        DaoStateStore daoStateStore = new DaoStateStore(daoState, daoStateHashChain, null);
+
+        storageDir = Files.createTempDirectory("persistNowBenchmark").toFile();
+        persistenceManager = new PersistenceManager<>(storageDir,
+                mock(PersistenceProtoResolver.class),
+                mock(CorruptedStorageFileHandler.class));
+        persistenceManager.initialize(snapshot ? daoStateStore : new CallerSerializedStore(daoStateStore),
+                "DaoStateStore",
+                PersistenceManager.Source.PRIVATE_LOW_PRIO);
+    }
+
+    @TearDown
+    public void tearDown() {
+        persistenceManager.shutdown();
+        File[] files = storageDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        storageDir.delete();
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        writeCompleted = new CountDownLatch(1);
+    }
+
+    @TearDown(Level.Invocation)
+    public void awaitWriteCompleted() throws InterruptedException {
+        writeCompleted.await();
+    }
+
+    @Benchmark
+    public void persistNow() {
+        persistenceManager.persistNow(writeCompleted::countDown);
+    }
+
+    private static Tx createTx(Random random, int height, String blockHash) {
+        String txId = randomHex(random);
+        protobuf.BaseTx.Builder builder = protobuf.BaseTx.newBuilder()
+                .setTxVersion("1")
+                .setId(txId)
+                .setBlockHeight(height)
+                .setBlockHash(blockHash)
+                .setTime(height * 600_000L)
+                .addTxInputs(protobuf.TxInput.newBuilder()
+                        .setConnectedTxOutputTxId(randomHex(random))
+                        .setConnectedTxOutputIndex(0));
+        protobuf.Tx.Builder txBuilder = protobuf.Tx.newBuilder()
+                .setTxType(protobuf.TxType.TRANSFER_BSQ);
+        for (int index = 0; index < 2; index++) {
+            txBuilder.addTxOutputs(protobuf.BaseTxOutput.newBuilder()
+                    .setIndex(index)
+                    .setValue(random.nextInt(1_000_000))
+                    .setTxId(txId)
+                    .setAddress(randomHex(random))
+                    .setBlockHeight(height)
+                    .setTxOutput(protobuf.TxOutput.newBuilder()
+                            .setTxOutputType(protobuf.TxOutputType.BSQ_OUTPUT)));
+        }
+        return Tx.fromProto(builder.setTx(txBuilder).build());
+    }
+
+    private static String randomHex(Random random) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return Utilities.encodeToHex(bytes);
+    }
+}
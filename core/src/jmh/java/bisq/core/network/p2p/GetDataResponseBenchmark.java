@@ -0,0 +1,200 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.core.network.p2p;
+
+import bisq.core.account.witness.AccountAgeWitness;
+import bisq.core.trade.statistics.TradeStatistics3;
+
+import bisq.network.p2p.network.NetworkNode;
+import bisq.network.p2p.peers.Broadcaster;
+import bisq.network.p2p.peers.getdata.GetDataResponseChunks;
+import bisq.network.p2p.peers.getdata.messages.GetDataRequest;
+import bisq.network.p2p.peers.getdata.messages.GetDataResponse;
+import bisq.network.p2p.peers.getdata.messages.PreliminaryGetDataRequest;
+import bisq.network.p2p.storage.P2PDataStorage;
+import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import bisq.network.p2p.storage.persistence.AppendOnlyDataStoreService;
+import bisq.network.p2p.storage.persistence.MapStoreService;
+import bisq.network.p2p.storage.persistence.PersistableNetworkPayloadStore;
+import bisq.network.p2p.storage.persistence.ProtectedDataStoreService;
+import bisq.network.p2p.storage.persistence.RemovedPayloadsService;
+import bisq.network.p2p.storage.persistence.ResourceDataStoreService;
+import bisq.network.p2p.storage.persistence.SequenceNumberMap;
+
+import bisq.common.app.Capabilities;
+import bisq.common.persistence.PersistenceManager;
+
+import java.io.File;
+
+import java.time.Clock;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures how long a seed node needs to build the response to a GetDataRequest, which runs on the UserThread. The
+ * data maps contain numTradeStatistics TradeStatistics3 (a DateSortedTruncatablePayload) and numAccountAgeWitnesses
+ * AccountAgeWitnesses. The requester knows the given fraction of them, e.g. 0 for a new node and 0.99 for a node
+ * which was offline for a short time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GetDataResponseBenchmark {
+    private static final int MAX_ENTRIES = 10000;
+    private static final int MAX_ENTRIES_PER_CHUNK = 2000;
+
+    @Param({"100000", "200000"})
+    private int numTradeStatistics;
+    @Param({"100000", "300000"})
+    private int numAccountAgeWitnesses;
+    @Param({"0", "0.99"})
+    private double knownFraction;
+
+    private P2PDataStorage p2PDataStorage;
+    private GetDataRequest getDataRequest;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        long now = System.currentTimeMillis();
+        Set<byte[]> knownKeys = new HashSet<>();
+
+        InMemoryStoreService tradeStatisticsService = new InMemoryStoreService(TradeStatistics3.class);
+        for (int i = 0; i < numTradeStatistics; i++) {
+            byte[] hash = randomHash(random);
+            // Trade dates are spread over the last 3 years
+            long date = now - (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(3 * 365));
+            tradeStatisticsService.add(new TradeStatistics3("EUR", 100_000_000L, 1_000_000L, "SEPA",
+                    date, null, null, null, hash));
+            if (random.nextDouble() < knownFraction) {
+                knownKeys.add(hash);
+            }
+        }
+
+        InMemoryStoreService accountAgeWitnessService = new InMemoryStoreService(AccountAgeWitness.class);
+        for (int i = 0; i < numAccountAgeWitnesses; i++) {
+            byte[] hash = randomHash(random);
+            accountAgeWitnessService.add(new AccountAgeWitness(hash, now - i));
+            if (random.nextDouble() < knownFraction) {
+                knownKeys.add(hash);
+            }
+        }
+
+        AppendOnlyDataStoreService appendOnlyDataStoreService = new AppendOnlyDataStoreService();
+        appendOnlyDataStoreService.addService(tradeStatisticsService);
+        appendOnlyDataStoreService.addService(accountAgeWitnessService);
+
+        //noinspection unchecked
+        p2PDataStorage = new P2PDataStorage(mock(NetworkNode.class),
+                mock(Broadcaster.class),
+                appendOnlyDataStoreService,
+                new ProtectedDataStoreService(),
+                mock(ResourceDataStoreService.class),
+                (PersistenceManager<SequenceNumberMap>) mock(PersistenceManager.class),
+                mock(RemovedPayloadsService.class),
+                Clock.systemDefaultZone(),
+                1000);
+        getDataRequest = new PreliminaryGetDataRequest(1, knownKeys);
+    }
+
+    @Benchmark
+    public GetDataResponse buildGetDataResponse() {
+        return p2PDataStorage.buildGetDataResponse(getDataRequest,
+                MAX_ENTRIES,
+                new AtomicBoolean(),
+                new AtomicBoolean(),
+                Capabilities.app);
+    }
+
+    @Benchmark
+    public void buildGetDataResponseChunks(Blackhole blackhole) {
+        GetDataResponseChunks chunks = p2PDataStorage.buildGetDataResponseChunks(getDataRequest,
+                Capabilities.app,
+                MAX_ENTRIES_PER_CHUNK);
+        chunks.forEachRemaining(blackhole::consume);
+    }
+
+    private static byte[] randomHash(Random random) {
+        byte[] hash = new byte[20];
+        random.nextBytes(hash);
+        return hash;
+    }
+
+    private static class InMemoryStoreService extends MapStoreService<PersistableNetworkPayloadStore<PersistableNetworkPayload>, PersistableNetworkPayload> {
+        private final Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> map = new ConcurrentHashMap<>();
+        private final Class<? extends PersistableNetworkPayload> payloadClass;
+
+        InMemoryStoreService(Class<? extends PersistableNetworkPayload> payloadClass) {
+            super(new File("."), null);
+            this.payloadClass = payloadClass;
+        }
+
+        void add(PersistableNetworkPayload payload) {
+            map.put(new P2PDataStorage.ByteArray(payload.getHash()), payload);
+        }
+
+        @Override
+        public Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMap() {
+            return map;
+        }
+
+        @Override
+        public boolean canHandle(PersistableNetworkPayload payload) {
+            return payloadClass.isInstance(payload);
+        }
+
+        @Override
+        public String getFileName() {
+            return payloadClass.getSimpleName();
+        }
+
+        @Override
+        protected void initializePersistenceManager() {
+        }
+
+        @Override
+        protected PersistableNetworkPayloadStore<PersistableNetworkPayload> createStore() {
+            return null;
+        }
+    }
+}
@@ -42,6 +42,8 @@ import javax.inject.Inject;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
 
 import java.security.PublicKey;
 import java.security.SignatureException;
@@ -59,7 +61,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.Stack;
 import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
@@ -94,6 +95,13 @@ public class SignedWitnessService {
     private final Map<P2PDataStorage.ByteArray, Boolean> verifySignatureWithDSAKeyResultCache = new HashMap<>();
     private final Map<P2PDataStorage.ByteArray, Boolean> verifySignatureWithECKeyResultCache = new HashMap<>();
 
+    // Checking whether an account is a signer walks the signer chain and is called at filtering the offer book, at
+    // the offer filter and at trade limit calculations many times. Only the signer age of the signed witnesses of
+    // the account depends on the time of the check, so we cache the time since when the account is a signer, using
+    // the accountAgeWitnessHash as key. We clear the cache if signed witnesses get added or removed or the filter
+    // changes.
+    private final Map<P2PDataStorage.ByteArray, Long> signerSinceByAccountAgeWitnessHash = new HashMap<>();
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Constructor
@@ -124,6 +132,8 @@ public class SignedWitnessService {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public void onAllServicesInitialized() {
+        filterManager.filterProperty().addListener((observable, oldValue, newValue) -> onFilterChanged());
+
         p2PService.getP2PDataStorage().addAppendOnlyDataStoreListener(payload -> {
             if (payload instanceof SignedWitness)
                 addToMap((SignedWitness) payload);
@@ -399,7 +409,7 @@ public class SignedWitnessService {
 
     public Set<SignedWitness> getRootSignedWitnessSet(boolean includeSignedByArbitrator) {
         return getSignedWitnessMapValues().stream()
-                .filter(witness -> getSignedWitnessSetByOwnerPubKey(witness.getSignerPubKey(), new Stack<>()).isEmpty())
+                .filter(witness -> getSignedWitnessSetByOwnerPubKey(witness.getSignerPubKey(), HashMultiset.create()).isEmpty())
                 .filter(witness -> includeSignedByArbitrator ||
                         witness.getVerificationMethod() != SignedWitness.VerificationMethod.ARBITRATOR)
                 .collect(Collectors.toSet());
@@ -418,7 +428,7 @@ public class SignedWitnessService {
     // We go one level up by using the signer Key to lookup for SignedWitness objects which contain the signerKey as
     // witnessOwnerPubKey
     private Set<SignedWitness> getSignedWitnessSetByOwnerPubKey(byte[] ownerPubKey,
-                                                                Stack<P2PDataStorage.ByteArray> excluded) {
+                                                                Multiset<P2PDataStorage.ByteArray> excluded) {
         P2PDataStorage.ByteArray key = new P2PDataStorage.ByteArray(ownerPubKey);
         if (signedWitnessSetByOwnerPubKey.containsKey(key)) {
             return signedWitnessSetByOwnerPubKey.get(key).stream()
@@ -443,8 +453,8 @@ public class SignedWitnessService {
     }
 
     private boolean verifySigner(SignedWitness signedWitness) {
-        return getSignedWitnessSetByOwnerPubKey(signedWitness.getWitnessOwnerPubKey(), new Stack<>()).stream()
-                .anyMatch(w -> isValidSignerWitnessInternal(w, signedWitness.getDate(), new Stack<>()));
+        return getSignedWitnessSetByOwnerPubKey(signedWitness.getWitnessOwnerPubKey(), HashMultiset.create()).stream()
+                .anyMatch(w -> isValidSignerWitnessInternal(w, signedWitness.getDate(), HashMultiset.create()));
     }
 
     /**
@@ -456,15 +466,27 @@ public class SignedWitnessService {
      * @return true if accountAgeWitness is allowed to sign at time, false otherwise.
      */
     private boolean isSignerAccountAgeWitness(AccountAgeWitness accountAgeWitness, long time) {
-        Stack<P2PDataStorage.ByteArray> excludedPubKeys = new Stack<>();
-        Set<SignedWitness> signedWitnessSet = getSignedWitnessSet(accountAgeWitness);
-        for (SignedWitness signedWitness : signedWitnessSet) {
-            if (isValidSignerWitnessInternal(signedWitness, time, excludedPubKeys)) {
-                return true;
-            }
+        P2PDataStorage.ByteArray key = new P2PDataStorage.ByteArray(accountAgeWitness.getHash());
+        long signerSince = signerSinceByAccountAgeWitnessHash.computeIfAbsent(key,
+                hash -> getSignerSince(accountAgeWitness));
+        return signerSince <= time;
+    }
+
+    // If none of the signed witnesses is valid we return Long.MAX_VALUE
+    private long getSignerSince(AccountAgeWitness accountAgeWitness) {
+        return getSignedWitnessSet(accountAgeWitness).stream()
+                .mapToLong(this::getSignerSince)
+                .min()
+                .orElse(Long.MAX_VALUE);
+    }
+
+    private long getSignerSince(SignedWitness signedWitness) {
+        // At the signedWitness itself the time of the check is only used for the signer age, so we check with the
+        // max. time and apply the signer age afterwards. Signers signed by an arbitrator have no signer age.
+        if (!isValidSignerWitnessInternal(signedWitness, Long.MAX_VALUE, HashMultiset.create())) {
+            return Long.MAX_VALUE;
         }
-        // If we have not returned in the loops or they have been empty we have not found a valid signer.
-        return false;
+        return signedWitness.isSignedByArbitrator() ? Long.MIN_VALUE : signedWitness.getDate() + SIGNER_AGE;
     }
 
     /**
@@ -472,12 +494,12 @@ public class SignedWitnessService {
      *
      * @param signedWitness                the signedWitness to validate
      * @param childSignedWitnessDateMillis the date the child SignedWitness was signed or current time if it is a leaf.
-     * @param excludedPubKeys              stack to prevent recursive loops
+     * @param excludedPubKeys              pubKeys of the current chain to prevent recursive loops
      * @return true if signedWitness is valid, false otherwise.
      */
     private boolean isValidSignerWitnessInternal(SignedWitness signedWitness,
                                                  long childSignedWitnessDateMillis,
-                                                 Stack<P2PDataStorage.ByteArray> excludedPubKeys) {
+                                                 Multiset<P2PDataStorage.ByteArray> excludedPubKeys) {
         if (filterManager.isWitnessSignerPubKeyBanned(Utils.HEX.encode(signedWitness.getWitnessOwnerPubKey()))) {
             return false;
         }
@@ -495,8 +517,10 @@ public class SignedWitnessService {
                 // Prevent DoS attack: an attacker floods the SignedWitness db with a long chain that takes lots of time to verify.
                 return false;
             }
-            excludedPubKeys.push(new P2PDataStorage.ByteArray(signedWitness.getSignerPubKey()));
-            excludedPubKeys.push(new P2PDataStorage.ByteArray(signedWitness.getWitnessOwnerPubKey()));
+            P2PDataStorage.ByteArray signerPubKey = new P2PDataStorage.ByteArray(signedWitness.getSignerPubKey());
+            P2PDataStorage.ByteArray witnessOwnerPubKey = new P2PDataStorage.ByteArray(signedWitness.getWitnessOwnerPubKey());
+            excludedPubKeys.add(signerPubKey);
+            excludedPubKeys.add(witnessOwnerPubKey);
             // Iterate over signedWitness signers
             Set<SignedWitness> signerSignedWitnessSet = getSignedWitnessSetByOwnerPubKey(signedWitness.getSignerPubKey(), excludedPubKeys);
             for (SignedWitness signerSignedWitness : signerSignedWitnessSet) {
@@ -504,8 +528,8 @@ public class SignedWitnessService {
                     return true;
                 }
             }
-            excludedPubKeys.pop();
-            excludedPubKeys.pop();
+            excludedPubKeys.remove(signerPubKey);
+            excludedPubKeys.remove(witnessOwnerPubKey);
         }
         // If we have not returned in the loops or they have been empty we have not found a valid signer.
         return false;
@@ -522,9 +546,17 @@ public class SignedWitnessService {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    @VisibleForTesting
+    void onFilterChanged() {
+        signerSinceByAccountAgeWitnessHash.clear();
+    }
+
     @VisibleForTesting
     public void addToMap(SignedWitness signedWitness) {
-        signedWitnessMap.putIfAbsent(signedWitness.getHashAsByteArray(), signedWitness);
+        if (signedWitnessMap.putIfAbsent(signedWitness.getHashAsByteArray(), signedWitness) == null) {
+            // The new signed witness can make other accounts signers as well
+            signerSinceByAccountAgeWitnessHash.clear();
+        }
 
         P2PDataStorage.ByteArray accountAgeWitnessHash = new P2PDataStorage.ByteArray(signedWitness.getAccountAgeWitnessHash());
         signedWitnessSetByAccountAgeWitnessHash.putIfAbsent(accountAgeWitnessHash, new HashSet<>());
@@ -552,6 +584,7 @@ public class SignedWitnessService {
     @VisibleForTesting
     public void removeSignedWitness(SignedWitness signedWitness) {
         signedWitnessMap.remove(signedWitness.getHashAsByteArray());
+        signerSinceByAccountAgeWitnessHash.clear();
 
         P2PDataStorage.ByteArray accountAgeWitnessHash = new P2PDataStorage.ByteArray(signedWitness.getAccountAgeWitnessHash());
         if (signedWitnessSetByAccountAgeWitnessHash.containsKey(accountAgeWitnessHash)) {
@@ -19,10 +19,12 @@ package bisq.core.account.sign;
 
 import bisq.network.p2p.storage.P2PDataStorage;
 import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import bisq.network.p2p.storage.persistence.AppendOnlyPayloadLog;
 import bisq.network.p2p.storage.persistence.MapStoreService;
 
 import bisq.common.config.Config;
 import bisq.common.persistence.PersistenceManager;
+import bisq.common.proto.persistable.PersistenceProtoResolver;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -44,8 +46,10 @@ public class SignedWitnessStorageService extends MapStoreService<SignedWitnessSt
 
     @Inject
     public SignedWitnessStorageService(@Named(Config.STORAGE_DIR) File storageDir,
-                                       PersistenceManager<SignedWitnessStore> persistenceManager) {
+                                       PersistenceManager<SignedWitnessStore> persistenceManager,
+                                       PersistenceProtoResolver persistenceProtoResolver) {
         super(storageDir, persistenceManager);
+        enableAppendOnlyLog(AppendOnlyPayloadLog.persistableNetworkPayloadDecoder(persistenceProtoResolver));
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -18,10 +18,12 @@
 package bisq.core.account.witness;
 
 import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import bisq.network.p2p.storage.persistence.AppendOnlyPayloadLog;
 import bisq.network.p2p.storage.persistence.HistoricalDataStoreService;
 
 import bisq.common.config.Config;
 import bisq.common.persistence.PersistenceManager;
+import bisq.common.proto.persistable.PersistenceProtoResolver;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -41,8 +43,10 @@ public class AccountAgeWitnessStorageService extends HistoricalDataStoreService<
 
     @Inject
     public AccountAgeWitnessStorageService(@Named(Config.STORAGE_DIR) File storageDir,
-                                           PersistenceManager<AccountAgeWitnessStore> persistenceManager) {
+                                           PersistenceManager<AccountAgeWitnessStore> persistenceManager,
+                                           PersistenceProtoResolver persistenceProtoResolver) {
         super(storageDir, persistenceManager);
+        enableAppendOnlyLog(AppendOnlyPayloadLog.persistableNetworkPayloadDecoder(persistenceProtoResolver));
     }
 
 
@@ -37,9 +37,16 @@ import com.google.common.collect.ImmutableList;
 
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.stream.Collectors;
 
@@ -53,8 +60,19 @@ import lombok.extern.slf4j.Slf4j;
 public final class AddressEntryList implements PersistableEnvelope, PersistedDataHost {
     transient private PersistenceManager<AddressEntryList> persistenceManager;
     transient private Wallet wallet;
+    // We keep the insertion order as callers pick the first matching entry, e.g. the oldest available entry at
+    // getFreshAddressEntry. Adds are rare, so the copy at each add is cheap.
     private final Set<AddressEntry> entrySet = new CopyOnWriteArraySet<>();
 
+    // Secondary indexes of the entrySet so that lookups do not need to iterate all entries. The sets of the indexes
+    // keep the insertion order as well.
+    // The address is derived from the key which is only set once the wallet is ready, so we fill the address index
+    // only from then on.
+    transient private final Map<String, Set<AddressEntry>> entriesByOfferId = new ConcurrentHashMap<>();
+    transient private final Map<AddressEntry.Context, Set<AddressEntry>> entriesByContext = new ConcurrentHashMap<>();
+    transient private final Map<String, Set<AddressEntry>> entriesByAddress = new ConcurrentHashMap<>();
+    transient private boolean addressIndexEnabled;
+
     @Inject
     public AddressEntryList(PersistenceManager<AddressEntryList> persistenceManager) {
         this.persistenceManager = persistenceManager;
@@ -67,6 +85,7 @@ public final class AddressEntryList implements PersistableEnvelope, PersistedDat
         persistenceManager.readPersisted(persisted -> {
                     entrySet.clear();
                     entrySet.addAll(persisted.entrySet);
+                    rebuildIndexes();
                     completeHandler.run();
                 },
                 completeHandler);
@@ -79,20 +98,21 @@ public final class AddressEntryList implements PersistableEnvelope, PersistedDat
 
     private AddressEntryList(Set<AddressEntry> entrySet) {
         this.entrySet.addAll(entrySet);
+        rebuildIndexes();
     }
 
     public static AddressEntryList fromProto(protobuf.AddressEntryList proto) {
         Set<AddressEntry> entrySet = proto.getAddressEntryList().stream()
                 .map(AddressEntry::fromProto)
-                .collect(Collectors.toSet());
+                .collect(Collectors.toCollection(LinkedHashSet::new));
         return new AddressEntryList(entrySet);
     }
 
     @Override
     public Message toProtoMessage() {
-        Set<protobuf.AddressEntry> addressEntries = entrySet.stream()
+        List<protobuf.AddressEntry> addressEntries = entrySet.stream()
                 .map(AddressEntry::toProtoMessage)
-                .collect(Collectors.toSet());
+                .collect(Collectors.toList());
         return protobuf.PersistableEnvelope.newBuilder()
                 .setAddressEntryList(protobuf.AddressEntryList.newBuilder()
                         .addAllAddressEntry(addressEntries))
@@ -135,13 +155,17 @@ public final class AddressEntryList implements PersistableEnvelope, PersistedDat
                 }
             });
 
-            toBeRemoved.forEach(entrySet::remove);
+            toBeRemoved.forEach(this::remove);
         } else {
             // As long the old arbitration domain is not removed from the code base we still support it here.
             DeterministicKey key = (DeterministicKey) wallet.findKeyFromAddress(wallet.freshReceiveAddress(Script.ScriptType.P2PKH));
-            entrySet.add(new AddressEntry(key, AddressEntry.Context.ARBITRATOR, false));
+            add(new AddressEntry(key, AddressEntry.Context.ARBITRATOR, false));
         }
 
+        // All remaining entries have their key set now, so we can index them by address.
+        addressIndexEnabled = true;
+        rebuildIndexes();
+
         // In case we restore from seed words and have balance we need to add the relevant addresses to our list.
         // IssuedReceiveAddresses does not contain all addresses where we expect balance so we need to listen to
         // incoming txs at blockchain sync to add the rest.
@@ -153,7 +177,7 @@ public final class AddressEntryList implements PersistableEnvelope, PersistedDat
                         if (key != null) {
                             // Address will be derived from key in getAddress method
                             log.info("Create AddressEntry for IssuedReceiveAddress. address={}", address.toString());
-                            entrySet.add(new AddressEntry(key, AddressEntry.Context.AVAILABLE, address instanceof SegwitAddress));
+                            add(new AddressEntry(key, AddressEntry.Context.AVAILABLE, address instanceof SegwitAddress));
                         } else {
                             log.warn("DeterministicKey for address {} is null", address);
                         }
@@ -179,13 +203,32 @@ public final class AddressEntryList implements PersistableEnvelope, PersistedDat
         return ImmutableList.copyOf(entrySet);
     }
 
+    public List<AddressEntry> getAddressEntries(String offerId, AddressEntry.Context context) {
+        return entriesByOfferId.getOrDefault(offerId, Set.of()).stream()
+                .filter(e -> context == e.getContext())
+                .collect(Collectors.toList());
+    }
+
+    public Optional<AddressEntry> findAddressEntry(String offerId, AddressEntry.Context context) {
+        return entriesByOfferId.getOrDefault(offerId, Set.of()).stream()
+                .filter(e -> context == e.getContext())
+                .findAny();
+    }
+
+    // Returns an unmodifiable view of the entries with the given context without copying them. It is meant to be
+    // iterated right away and not to be kept.
+    public Collection<AddressEntry> getAddressEntries(AddressEntry.Context context) {
+        return Collections.unmodifiableSet(entriesByContext.getOrDefault(context, Set.of()));
+    }
+
+    // Only entries with a key are indexed by address, so the result is empty before the wallet is ready.
+    public List<AddressEntry> getAddressEntriesByAddress(String addressString) {
+        return List.copyOf(entriesByAddress.getOrDefault(addressString, Set.of()));
+    }
+
     public void addAddressEntry(AddressEntry addressEntry) {
-        boolean entryWithSameOfferIdAndContextAlreadyExist = entrySet.stream().anyMatch(e -> {
-            if (addressEntry.getOfferId() != null) {
-                return addressEntry.getOfferId().equals(e.getOfferId()) && addressEntry.getContext() == e.getContext();
-            }
-            return false;
-        });
+        boolean entryWithSameOfferIdAndContextAlreadyExist = addressEntry.getOfferId() != null &&
+                findAddressEntry(addressEntry.getOfferId(), addressEntry.getContext()).isPresent();
         if (entryWithSameOfferIdAndContextAlreadyExist) {
             log.error("We have an address entry with the same offer ID and context. We do not add the new one. " +
                     "addressEntry={}, entrySet={}", addressEntry, entrySet);
@@ -193,7 +236,7 @@ public final class AddressEntryList implements PersistableEnvelope, PersistedDat
         }
 
         log.info("addAddressEntry: add new AddressEntry {}", addressEntry);
-        boolean setChangedByAdd = entrySet.add(addressEntry);
+        boolean setChangedByAdd = add(addressEntry);
         if (setChangedByAdd)
             requestPersistence();
     }
@@ -209,8 +252,8 @@ public final class AddressEntryList implements PersistableEnvelope, PersistedDat
         }
 
         log.info("swapToAvailable addressEntry to swap={}", addressEntry);
-        boolean setChangedByRemove = entrySet.remove(addressEntry);
-        boolean setChangedByAdd = entrySet.add(new AddressEntry(addressEntry.getKeyPair(),
+        boolean setChangedByRemove = remove(addressEntry);
+        boolean setChangedByAdd = add(new AddressEntry(addressEntry.getKeyPair(),
                 AddressEntry.Context.AVAILABLE,
                 addressEntry.isSegwit()));
         if (setChangedByRemove || setChangedByAdd) {
@@ -221,10 +264,10 @@ public final class AddressEntryList implements PersistableEnvelope, PersistedDat
     public AddressEntry swapAvailableToAddressEntryWithOfferId(AddressEntry addressEntry,
                                                                AddressEntry.Context context,
                                                                String offerId) {
-        boolean setChangedByRemove = entrySet.remove(addressEntry);
+        boolean setChangedByRemove = remove(addressEntry);
         AddressEntry newAddressEntry = new AddressEntry(addressEntry.getKeyPair(), context, offerId, addressEntry.isSegwit());
         log.info("swapAvailableToAddressEntryWithOfferId newAddressEntry={}", newAddressEntry);
-        boolean setChangedByAdd = entrySet.add(newAddressEntry);
+        boolean setChangedByAdd = add(newAddressEntry);
         if (setChangedByRemove || setChangedByAdd)
             requestPersistence();
 
@@ -238,13 +281,13 @@ public final class AddressEntryList implements PersistableEnvelope, PersistedDat
         }
 
         log.info("setCoinLockedInMultiSigAddressEntry addressEntry={}, value={}", addressEntry, value);
-        boolean setChangedByRemove = entrySet.remove(addressEntry);
+        boolean setChangedByRemove = remove(addressEntry);
         AddressEntry entry = new AddressEntry(addressEntry.getKeyPair(),
                 addressEntry.getContext(),
                 addressEntry.getOfferId(),
                 value,
                 addressEntry.isSegwit());
-        boolean setChangedByAdd = entrySet.add(entry);
+        boolean setChangedByAdd = add(entry);
         if (setChangedByRemove || setChangedByAdd) {
             requestPersistence();
         }
@@ -273,7 +316,67 @@ public final class AddressEntryList implements PersistableEnvelope, PersistedDat
     }
 
     private boolean isAddressNotInEntries(Address address) {
-        return entrySet.stream().noneMatch(e -> address.equals(e.getAddress()));
+        return !entriesByAddress.containsKey(address.toString());
+    }
+
+    private boolean add(AddressEntry addressEntry) {
+        boolean added = entrySet.add(addressEntry);
+        if (added) {
+            addToIndexes(addressEntry);
+        }
+        return added;
+    }
+
+    private boolean remove(AddressEntry addressEntry) {
+        boolean removed = entrySet.remove(addressEntry);
+        if (removed) {
+            removeFromIndexes(addressEntry);
+        }
+        return removed;
+    }
+
+    private void rebuildIndexes() {
+        entriesByOfferId.clear();
+        entriesByContext.clear();
+        entriesByAddress.clear();
+        entrySet.forEach(this::addToIndexes);
+    }
+
+    private void addToIndexes(AddressEntry addressEntry) {
+        if (addressEntry.getOfferId() != null) {
+            addToIndex(entriesByOfferId, addressEntry.getOfferId(), addressEntry);
+        }
+        addToIndex(entriesByContext, addressEntry.getContext(), addressEntry);
+        if (addressIndexEnabled && addressEntry.getAddressString() != null) {
+            addToIndex(entriesByAddress, addressEntry.getAddressString(), addressEntry);
+        }
+    }
+
+    private void removeFromIndexes(AddressEntry addressEntry) {
+        if (addressEntry.getOfferId() != null) {
+            removeFromIndex(entriesByOfferId, addressEntry.getOfferId(), addressEntry);
+        }
+        removeFromIndex(entriesByContext, addressEntry.getContext(), addressEntry);
+        if (addressIndexEnabled && addressEntry.getAddressString() != null) {
+            removeFromIndex(entriesByAddress, addressEntry.getAddressString(), addressEntry);
+        }
+    }
+
+    // We add inside the atomic compute, so a concurrent removeFromIndex cannot drop the set between the lookup and
+    // our add.
+    private static <K> void addToIndex(Map<K, Set<AddressEntry>> index, K key, AddressEntry addressEntry) {
+        index.compute(key, (k, entries) -> {
+            Set<AddressEntry> result = entries != null ? entries : new CopyOnWriteArraySet<>();
+            result.add(addressEntry);
+            return result;
+        });
+    }
+
+    private static <K> void removeFromIndex(Map<K, Set<AddressEntry>> index, K key, AddressEntry addressEntry) {
+        index.computeIfPresent(key, (k, entries) -> {
+            entries.remove(addressEntry);
+            return entries.isEmpty() ? null : entries;
+        });
     }
 
     @Override
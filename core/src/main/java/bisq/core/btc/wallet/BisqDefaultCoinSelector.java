@@ -100,9 +100,7 @@ public abstract class BisqDefaultCoinSelector implements CoinSelector {
                         break;
                 }
 
-                if (output.getParentTransaction() != null &&
-                        isTxSpendable(output.getParentTransaction()) &&
-                        isTxOutputSpendable(output)) {
+                if (isSelectable(output)) {
                     selected.add(output);
                     total += output.getValue().value;
                 }
@@ -113,6 +111,14 @@ public abstract class BisqDefaultCoinSelector implements CoinSelector {
         return new CoinSelection(Coin.valueOf(total), selected);
     }
 
+    // Returns true if the output would be selected when selecting with MAX_MONEY as target.
+    boolean isSelectable(TransactionOutput output) {
+        return !isDustAttackUtxo(output) &&
+                output.getParentTransaction() != null &&
+                isTxSpendable(output.getParentTransaction()) &&
+                isTxOutputSpendable(output);
+    }
+
     protected abstract boolean isDustAttackUtxo(TransactionOutput output);
 
     public Coin getChange(Coin target, CoinSelection coinSelection) throws InsufficientMoneyException {
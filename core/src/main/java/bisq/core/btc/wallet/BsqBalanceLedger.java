@@ -0,0 +1,184 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.btc.wallet;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.TransactionConfidence;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Value;
+
+/**
+ * Holds the contribution of each wallet transaction to the BSQ wallet balances and maintains the totals. Replacing
+ * the contribution of a transaction only applies the difference to the totals, so after a wallet or DAO state event
+ * only the affected transactions need to be evaluated again.
+ * <p>
+ * Not thread safe. It is expected to be accessed from the UserThread only.
+ */
+class BsqBalanceLedger {
+    @Value
+    static class TxBalance {
+        TransactionConfidence.ConfidenceType confidenceType;
+        long unverified;
+        long lockedForVoting;
+        long lockupBonds;
+        long unlockingBonds;
+        long availableConfirmed;
+        long availableNonBsq;
+        // The tx has an issuance candidate output which is neither accepted nor rejected yet
+        boolean pendingIssuance;
+
+        // The bond and voting stake balances depend on the chain height and on DAO state changes which are not
+        // triggered by a wallet transaction (e.g. confiscation), as well as the unverified balance of pending
+        // transactions, so we need to evaluate those transactions again at each new block. The same applies to an
+        // issuance candidate output, which becomes BSQ if the request gets accepted in the vote result phase and
+        // BTC if it was not accepted once the cycle is over.
+        boolean isDaoStateDependent() {
+            return confidenceType == TransactionConfidence.ConfidenceType.PENDING ||
+                    lockedForVoting != 0 ||
+                    lockupBonds != 0 ||
+                    unlockingBonds != 0 ||
+                    pendingIssuance;
+        }
+    }
+
+    @EqualsAndHashCode
+    private static class Totals {
+        long unverified;
+        long lockedForVoting;
+        long lockupBonds;
+        long unlockingBonds;
+        long availableConfirmed;
+        long availableNonBsq;
+
+        void add(TxBalance txBalance, int sign) {
+            unverified += sign * txBalance.getUnverified();
+            lockedForVoting += sign * txBalance.getLockedForVoting();
+            lockupBonds += sign * txBalance.getLockupBonds();
+            unlockingBonds += sign * txBalance.getUnlockingBonds();
+            availableConfirmed += sign * txBalance.getAvailableConfirmed();
+            availableNonBsq += sign * txBalance.getAvailableNonBsq();
+        }
+
+        void copyFrom(Totals other) {
+            unverified = other.unverified;
+            lockedForVoting = other.lockedForVoting;
+            lockupBonds = other.lockupBonds;
+            unlockingBonds = other.unlockingBonds;
+            availableConfirmed = other.availableConfirmed;
+            availableNonBsq = other.availableNonBsq;
+        }
+    }
+
+    private final Map<String, TxBalance> txBalanceByTxId = new HashMap<>();
+    private final Totals totals = new Totals();
+    @Getter
+    private boolean initialized;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void put(String txId, TxBalance txBalance) {
+        remove(txId);
+        txBalanceByTxId.put(txId, txBalance);
+        totals.add(txBalance, 1);
+    }
+
+    void remove(String txId) {
+        TxBalance previous = txBalanceByTxId.remove(txId);
+        if (previous != null) {
+            totals.add(previous, -1);
+        }
+    }
+
+    Optional<TxBalance> get(String txId) {
+        return Optional.ofNullable(txBalanceByTxId.get(txId));
+    }
+
+    Set<String> getTxIds() {
+        return new HashSet<>(txBalanceByTxId.keySet());
+    }
+
+    Set<String> getDaoStateDependentTxIds() {
+        Set<String> txIds = new HashSet<>();
+        txBalanceByTxId.forEach((txId, txBalance) -> {
+            if (txBalance.isDaoStateDependent()) {
+                txIds.add(txId);
+            }
+        });
+        return txIds;
+    }
+
+    boolean hasSameTotals(BsqBalanceLedger other) {
+        return totals.equals(other.totals);
+    }
+
+    // Used to apply a full recompute which was done into a new ledger
+    void replaceWith(BsqBalanceLedger other) {
+        txBalanceByTxId.clear();
+        txBalanceByTxId.putAll(other.txBalanceByTxId);
+        totals.copyFrom(other.totals);
+        initialized = true;
+    }
+
+    Coin getUnverifiedBalance() {
+        return Coin.valueOf(totals.unverified);
+    }
+
+    Coin getLockedForVotingBalance() {
+        return Coin.valueOf(totals.lockedForVoting);
+    }
+
+    Coin getLockupBondsBalance() {
+        return Coin.valueOf(totals.lockupBonds);
+    }
+
+    Coin getUnlockingBondsBalance() {
+        return Coin.valueOf(totals.unlockingBonds);
+    }
+
+    Coin getAvailableConfirmedBalance() {
+        return Coin.valueOf(totals.availableConfirmed);
+    }
+
+    Coin getAvailableNonBsqBalance() {
+        return Coin.valueOf(totals.availableNonBsq);
+    }
+
+    @Override
+    public String toString() {
+        return "BsqBalanceLedger{" +
+                "\n     numTxs=" + txBalanceByTxId.size() +
+                ",\n     unverified=" + totals.unverified +
+                ",\n     lockedForVoting=" + totals.lockedForVoting +
+                ",\n     lockupBonds=" + totals.lockupBonds +
+                ",\n     unlockingBonds=" + totals.unlockingBonds +
+                ",\n     availableConfirmed=" + totals.availableConfirmed +
+                ",\n     availableNonBsq=" + totals.availableNonBsq +
+                "\n}";
+    }
+}
@@ -57,6 +57,7 @@ import org.bitcoinj.wallet.SendRequest;
 import javax.inject.Inject;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -80,6 +81,8 @@ import static org.bitcoinj.core.TransactionConfidence.ConfidenceType.PENDING;
 
 @Slf4j
 public class BsqWalletService extends WalletService implements DaoStateListener {
+    // Interval for a full recompute of the balances as consistency check of the incremental updates
+    private static final long FULL_BALANCE_RECOMPUTE_INTERVAL_MS = TimeUnit.MINUTES.toMillis(10);
 
     public interface WalletTransactionsChangeListener {
 
@@ -96,6 +99,14 @@ public class BsqWalletService extends WalletService implements DaoStateListener
     private final List<WalletTransactionsChangeListener> walletTransactionsChangeListeners = new ArrayList<>();
     private boolean updateBsqWalletTransactionsPending;
 
+    // The balances are updated incrementally for the txs affected by wallet and DAO state events
+    private final BsqBalanceLedger bsqBalanceLedger = new BsqBalanceLedger();
+    private final Set<String> txIdsWithPendingBalanceUpdate = new HashSet<>();
+    private boolean fullBalanceRecomputePending = true;
+    private long lastFullBalanceRecomputeTs;
+    // The available non BSQ balance of a tx depends on the dust threshold of the preferences
+    private int ignoreDustThresholdOfBalanceLedger;
+
     // balance of non BSQ satoshis
     @Getter
     private Coin availableNonBsqBalance = Coin.ZERO;
@@ -160,13 +171,14 @@ public class BsqWalletService extends WalletService implements DaoStateListener
         super.addListenersToWallet();
 
         wallet.addCoinsReceivedEventListener((wallet, tx, prevBalance, newBalance) ->
-                updateBsqWalletTransactions()
+                updateBsqWalletTransactions(tx)
         );
         wallet.addCoinsSentEventListener((wallet, tx, prevBalance, newBalance) ->
-                updateBsqWalletTransactions()
+                updateBsqWalletTransactions(tx)
         );
         wallet.addReorganizeEventListener(wallet -> {
             log.warn("onReorganize ");
+            fullBalanceRecomputePending = true;
             updateBsqWalletTransactions();
             unconfirmedBsqChangeOutputListService.onReorganize();
         });
@@ -176,16 +188,18 @@ public class BsqWalletService extends WalletService implements DaoStateListener
             // updateBsqWalletTransactions for each tx as the block depth changes for all.
             if (tx != null && tx.getConfidence() != null && tx.getConfidence().getDepthInBlocks() <= 1 &&
                     daoStateService.isParseBlockChainComplete()) {
-                updateBsqWalletTransactions();
+                updateBsqWalletTransactions(tx);
             }
             unconfirmedBsqChangeOutputListService.onTransactionConfidenceChanged(tx);
         });
-        wallet.addKeyChainEventListener(keys ->
-                updateBsqWalletTransactions()
-        );
-        wallet.addScriptsChangeEventListener((wallet, scripts, isAddingScripts) ->
-                updateBsqWalletTransactions()
-        );
+        wallet.addKeyChainEventListener(keys -> {
+            fullBalanceRecomputePending = true;
+            updateBsqWalletTransactions();
+        });
+        wallet.addScriptsChangeEventListener((wallet, scripts, isAddingScripts) -> {
+            fullBalanceRecomputePending = true;
+            updateBsqWalletTransactions();
+        });
         wallet.addChangeEventListener(wallet ->
                 updateBsqWalletTransactions()
         );
@@ -199,6 +213,15 @@ public class BsqWalletService extends WalletService implements DaoStateListener
     public void onParseBlockCompleteAfterBatchProcessing(Block block) {
         if (isWalletReady()) {
             wallet.getTransactions(false).forEach(unconfirmedBsqChangeOutputListService::onTransactionConfidenceChanged);
+
+            // The txs of the block and the txs whose outputs got spent by them might be ours. Pending txs and txs
+            // with bonds or voting stake depend on the DAO state and the chain height.
+            block.getTxs().forEach(tx -> {
+                txIdsWithPendingBalanceUpdate.add(tx.getId());
+                tx.getTxInputs().forEach(txInput ->
+                        txIdsWithPendingBalanceUpdate.add(txInput.getConnectedTxOutputTxId()));
+            });
+            txIdsWithPendingBalanceUpdate.addAll(bsqBalanceLedger.getDaoStateDependentTxIds());
             updateBsqWalletTransactions();
         }
     }
@@ -222,82 +245,188 @@ public class BsqWalletService extends WalletService implements DaoStateListener
 
     private void updateBsqBalance() {
         long ts = System.currentTimeMillis();
-        unverifiedBalance = Coin.valueOf(
-                getTransactions(false).stream()
-                        .filter(tx -> tx.getConfidence().getConfidenceType() == PENDING)
-                        .mapToLong(tx -> {
-                            // Sum up outputs into BSQ wallet and subtract the inputs using lockup or unlocking
-                            // outputs since those inputs will be accounted for in lockupBondsBalance and
-                            // unlockingBondsBalance
-                            long outputs = tx.getOutputs().stream()
-                                    .filter(out -> out.isMine(wallet))
-                                    .filter(TransactionOutput::isAvailableForSpending)
-                                    .mapToLong(out -> out.getValue().value)
-                                    .sum();
-                            // Account for spending of locked connectedOutputs
-                            long lockedInputs = tx.getInputs().stream()
-                                    .filter(in -> {
-                                        TransactionOutput connectedOutput = in.getConnectedOutput();
-                                        if (connectedOutput != null) {
-                                            Transaction parentTransaction = connectedOutput.getParentTransaction();
-                                            // TODO SQ
-                                            if (parentTransaction != null/* &&
-                                                    parentTransaction.getConfidence().getConfidenceType() == BUILDING*/) {
-                                                TxOutputKey key = new TxOutputKey(parentTransaction.getTxId().toString(),
-                                                        connectedOutput.getIndex());
-
-                                                return (connectedOutput.isMine(wallet)
-                                                        && (daoStateService.isLockupOutput(key)
-                                                        || daoStateService.isUnlockingAndUnspent(key)));
-                                            }
-                                        }
-                                        return false;
-                                    })
-                                    .mapToLong(in -> in.getValue() != null ? in.getValue().value : 0)
-                                    .sum();
-                            return outputs - lockedInputs;
-                        })
-                        .sum()
-        );
-
-        Set<String> confirmedTxIdSet = getTransactions(false).stream()
-                .filter(tx -> tx.getConfidence().getConfidenceType() == BUILDING)
-                .map(Transaction::getTxId)
-                .map(Sha256Hash::toString)
-                .collect(Collectors.toSet());
-
-        lockedForVotingBalance = Coin.valueOf(daoStateService.getUnspentBlindVoteStakeTxOutputs().stream()
-                .filter(txOutput -> confirmedTxIdSet.contains(txOutput.getTxId()))
-                .mapToLong(TxOutput::getValue)
-                .sum());
-
-        lockupBondsBalance = Coin.valueOf(daoStateService.getLockupTxOutputs().stream()
-                .filter(txOutput -> daoStateService.isUnspent(txOutput.getKey()))
-                .filter(txOutput -> !daoStateService.isConfiscatedLockupTxOutput(txOutput.getTxId()))
-                .filter(txOutput -> confirmedTxIdSet.contains(txOutput.getTxId()))
-                .mapToLong(TxOutput::getValue)
-                .sum());
-
-        unlockingBondsBalance = Coin.valueOf(daoStateService.getUnspentUnlockingTxOutputsStream()
-                .filter(txOutput -> confirmedTxIdSet.contains(txOutput.getTxId()))
-                .filter(txOutput -> !daoStateService.isConfiscatedUnlockTxOutput(txOutput.getTxId()))
-                .mapToLong(TxOutput::getValue)
-                .sum());
+        if (preferences.getIgnoreDustThreshold() != ignoreDustThresholdOfBalanceLedger) {
+            fullBalanceRecomputePending = true;
+        }
+        boolean isFullRecompute = fullBalanceRecomputePending || !bsqBalanceLedger.isInitialized();
+        if (isFullRecompute) {
+            recomputeBsqBalanceLedger();
+        } else {
+            updateBsqBalanceLedger();
+            if (ts - lastFullBalanceRecomputeTs > FULL_BALANCE_RECOMPUTE_INTERVAL_MS) {
+                // The txs whose balance depends on the DAO state are evaluated again at each block, so the incremental
+                // updates are expected to lead to the same result as a full recompute. We only check that from time
+                // to time to detect a missed dependency.
+                isFullRecompute = true;
+                recomputeBsqBalanceLedger();
+            }
+        }
+        fullBalanceRecomputePending = false;
+        txIdsWithPendingBalanceUpdate.clear();
 
-        availableConfirmedBalance = bsqCoinSelector.select(NetworkParameters.MAX_MONEY,
-                wallet.calculateAllSpendCandidates()).valueGathered;
+        unverifiedBalance = bsqBalanceLedger.getUnverifiedBalance();
+        lockedForVotingBalance = bsqBalanceLedger.getLockedForVotingBalance();
+        lockupBondsBalance = bsqBalanceLedger.getLockupBondsBalance();
+        unlockingBondsBalance = bsqBalanceLedger.getUnlockingBondsBalance();
 
+        availableConfirmedBalance = bsqBalanceLedger.getAvailableConfirmedBalance();
         if (availableConfirmedBalance.isNegative())
             availableConfirmedBalance = Coin.ZERO;
 
         unconfirmedChangeBalance = unconfirmedBsqChangeOutputListService.getBalance();
 
-        availableNonBsqBalance = nonBsqCoinSelector.select(NetworkParameters.MAX_MONEY,
-                wallet.calculateAllSpendCandidates()).valueGathered;
+        availableNonBsqBalance = bsqBalanceLedger.getAvailableNonBsqBalance();
 
         bsqBalanceListeners.forEach(e -> e.onUpdateBalances(availableConfirmedBalance, availableNonBsqBalance, unverifiedBalance,
                 unconfirmedChangeBalance, lockedForVotingBalance, lockupBondsBalance, unlockingBondsBalance));
-        log.info("updateBsqBalance took {} ms", System.currentTimeMillis() - ts);
+        if (isFullRecompute) {
+            log.info("updateBsqBalance with full recompute took {} ms", System.currentTimeMillis() - ts);
+        } else {
+            log.debug("updateBsqBalance took {} ms", System.currentTimeMillis() - ts);
+        }
+    }
+
+    private void recomputeBsqBalanceLedger() {
+        ignoreDustThresholdOfBalanceLedger = preferences.getIgnoreDustThreshold();
+        BsqBalanceLedger recomputedLedger = new BsqBalanceLedger();
+        getTransactions(false).forEach(tx -> recomputedLedger.put(tx.getTxId().toString(), getTxBalance(tx)));
+        if (!fullBalanceRecomputePending && bsqBalanceLedger.isInitialized() &&
+                !bsqBalanceLedger.hasSameTotals(recomputedLedger)) {
+            log.warn("The incrementally updated BSQ balances do not match the result of a full recompute. " +
+                    "We use the recomputed balances. bsqBalanceLedger={}, recomputedLedger={}",
+                    bsqBalanceLedger, recomputedLedger);
+        }
+        bsqBalanceLedger.replaceWith(recomputedLedger);
+        lastFullBalanceRecomputeTs = System.currentTimeMillis();
+    }
+
+    // We only evaluate the transactions which have been reported by a wallet or DAO state event, the new, removed
+    // and confidence changed transactions and the parent transactions of all of those, as their outputs might have
+    // been spent or released.
+    private void updateBsqBalanceLedger() {
+        Set<String> txIdsToUpdate = new HashSet<>(txIdsWithPendingBalanceUpdate);
+        Map<String, Transaction> walletTransactionsById = new HashMap<>();
+        walletTransactions.forEach(tx -> {
+            String txId = tx.getTxId().toString();
+            walletTransactionsById.put(txId, tx);
+            Optional<BsqBalanceLedger.TxBalance> txBalance = bsqBalanceLedger.get(txId);
+            if (!txBalance.isPresent() ||
+                    txBalance.get().getConfidenceType() != tx.getConfidence().getConfidenceType()) {
+                txIdsToUpdate.add(txId);
+            }
+        });
+        bsqBalanceLedger.getTxIds().stream()
+                .filter(txId -> !walletTransactionsById.containsKey(txId))
+                .forEach(txIdsToUpdate::add);
+
+        Set<String> parentTxIds = new HashSet<>();
+        txIdsToUpdate.forEach(txId -> {
+            // Removed txs are not in the walletTransactions anymore but we might still get them from the wallet
+            Transaction tx = walletTransactionsById.containsKey(txId) ?
+                    walletTransactionsById.get(txId) :
+                    wallet.getTransaction(Sha256Hash.wrap(txId));
+            if (tx != null) {
+                tx.getInputs().forEach(input -> parentTxIds.add(input.getOutpoint().getHash().toString()));
+            }
+        });
+        txIdsToUpdate.addAll(parentTxIds);
+
+        txIdsToUpdate.forEach(txId -> {
+            Transaction tx = walletTransactionsById.get(txId);
+            if (tx != null) {
+                bsqBalanceLedger.put(txId, getTxBalance(tx));
+            } else {
+                bsqBalanceLedger.remove(txId);
+            }
+        });
+    }
+
+    private BsqBalanceLedger.TxBalance getTxBalance(Transaction tx) {
+        TransactionConfidence.ConfidenceType confidenceType = tx.getConfidence().getConfidenceType();
+        long unverified = confidenceType == PENDING ? getUnverifiedBalance(tx) : 0;
+
+        long lockedForVoting = 0;
+        long lockupBonds = 0;
+        long unlockingBonds = 0;
+        boolean pendingIssuance = false;
+        if (confidenceType == BUILDING) {
+            Optional<Tx> optionalTx = daoStateService.getTx(tx.getTxId().toString());
+            if (optionalTx.isPresent()) {
+                for (TxOutput txOutput : optionalTx.get().getTxOutputs()) {
+                    switch (txOutput.getTxOutputType()) {
+                        case BLIND_VOTE_LOCK_STAKE_OUTPUT:
+                            if (daoStateService.isUnspent(txOutput.getKey()))
+                                lockedForVoting += txOutput.getValue();
+                            break;
+                        case LOCKUP_OUTPUT:
+                            if (daoStateService.isUnspent(txOutput.getKey()) &&
+                                    !daoStateService.isConfiscatedLockupTxOutput(txOutput.getTxId()))
+                                lockupBonds += txOutput.getValue();
+                            break;
+                        case UNLOCK_OUTPUT:
+                            if (daoStateService.isUnlockingAndUnspent(txOutput) &&
+                                    !daoStateService.isConfiscatedUnlockTxOutput(txOutput.getTxId()))
+                                unlockingBonds += txOutput.getValue();
+                            break;
+                        case ISSUANCE_CANDIDATE_OUTPUT:
+                            if (!daoStateService.isIssuanceTx(txOutput.getTxId()) &&
+                                    !daoStateService.isRejectedIssuanceOutput(txOutput.getKey()))
+                                pendingIssuance = true;
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+        }
+
+        // Same as the coin selection with MAX_MONEY over all spend candidates but only for the outputs of that tx
+        long availableConfirmed = 0;
+        long availableNonBsq = 0;
+        for (TransactionOutput output : tx.getOutputs()) {
+            if (output.isAvailableForSpending() && output.isMine(wallet)) {
+                if (bsqCoinSelector.isSelectable(output))
+                    availableConfirmed += output.getValue().value;
+                if (nonBsqCoinSelector.isSelectable(output))
+                    availableNonBsq += output.getValue().value;
+            }
+        }
+
+        return new BsqBalanceLedger.TxBalance(confidenceType, unverified, lockedForVoting, lockupBonds,
+                unlockingBonds, availableConfirmed, availableNonBsq, pendingIssuance);
+    }
+
+    private long getUnverifiedBalance(Transaction tx) {
+        // Sum up outputs into BSQ wallet and subtract the inputs using lockup or unlocking
+        // outputs since those inputs will be accounted for in lockupBondsBalance and
+        // unlockingBondsBalance
+        long outputs = tx.getOutputs().stream()
+                .filter(out -> out.isMine(wallet))
+                .filter(TransactionOutput::isAvailableForSpending)
+                .mapToLong(out -> out.getValue().value)
+                .sum();
+        // Account for spending of locked connectedOutputs
+        long lockedInputs = tx.getInputs().stream()
+                .filter(in -> {
+                    TransactionOutput connectedOutput = in.getConnectedOutput();
+                    if (connectedOutput != null) {
+                        Transaction parentTransaction = connectedOutput.getParentTransaction();
+                        // TODO SQ
+                        if (parentTransaction != null/* &&
+                                parentTransaction.getConfidence().getConfidenceType() == BUILDING*/) {
+                            TxOutputKey key = new TxOutputKey(parentTransaction.getTxId().toString(),
+                                    connectedOutput.getIndex());
+
+                            return (connectedOutput.isMine(wallet)
+                                    && (daoStateService.isLockupOutput(key)
+                                    || daoStateService.isUnlockingAndUnspent(key)));
+                        }
+                    }
+                    return false;
+                })
+                .mapToLong(in -> in.getValue() != null ? in.getValue().value : 0)
+                .sum();
+        return outputs - lockedInputs;
     }
 
     public void addBsqBalanceListener(BsqBalanceListener listener) {
@@ -340,6 +469,13 @@ public class BsqWalletService extends WalletService implements DaoStateListener
                 .filter(transaction -> transaction.getConfidence().getConfidenceType() == TransactionConfidence.ConfidenceType.PENDING);
     }
 
+    private void updateBsqWalletTransactions(@Nullable Transaction tx) {
+        if (tx != null) {
+            txIdsWithPendingBalanceUpdate.add(tx.getTxId().toString());
+        }
+        updateBsqWalletTransactions();
+    }
+
     private void updateBsqWalletTransactions() {
         if (daoStateService.isParseBlockChainComplete()) {
             // We get called updateBsqWalletTransactions multiple times from onWalletChanged, onTransactionConfidenceChanged
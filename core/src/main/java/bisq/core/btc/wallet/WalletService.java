@@ -27,6 +27,8 @@ import bisq.core.btc.wallet.http.MemPoolSpaceTxBroadcaster;
 import bisq.core.provider.fee.FeeService;
 import bisq.core.user.Preferences;
 
+import bisq.common.Timer;
+import bisq.common.UserThread;
 import bisq.common.config.Config;
 import bisq.common.handlers.ErrorMessageHandler;
 import bisq.common.handlers.ResultHandler;
@@ -72,7 +74,9 @@ import org.bitcoinj.wallet.listeners.WalletReorganizeEventListener;
 
 import javax.inject.Inject;
 
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.SetMultimap;
@@ -86,10 +90,14 @@ import javafx.beans.property.SimpleIntegerProperty;
 import org.bouncycastle.crypto.params.KeyParameter;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -110,17 +118,22 @@ import static com.google.common.base.Preconditions.checkState;
  */
 @Slf4j
 public abstract class WalletService {
+    // We coalesce the balance notifications of the wallet events within that delay
+    private static final long BALANCE_NOTIFICATION_DELAY_MS = 100;
+
     protected final WalletsSetup walletsSetup;
     protected final Preferences preferences;
     protected final FeeService feeService;
     protected final NetworkParameters params;
     private final BisqWalletListener walletEventListener = new BisqWalletListener();
-    private final CopyOnWriteArraySet<AddressConfidenceListener> addressConfidenceListeners = new CopyOnWriteArraySet<>();
-    private final CopyOnWriteArraySet<TxConfidenceListener> txConfidenceListeners = new CopyOnWriteArraySet<>();
+    // Confidence listeners by address and by txId, so we only need to look up the listeners affected by a tx
+    private final Map<Address, Set<AddressConfidenceListener>> addressConfidenceListeners = new ConcurrentHashMap<>();
+    private final Map<String, Set<TxConfidenceListener>> txConfidenceListeners = new ConcurrentHashMap<>();
     private final CopyOnWriteArraySet<BalanceListener> balanceListeners = new CopyOnWriteArraySet<>();
     private final WalletChangeEventListener cacheInvalidationListener;
     private final AtomicReference<Multiset<Address>> txOutputAddressCache = new AtomicReference<>();
     private final AtomicReference<SetMultimap<Address, Transaction>> addressToMatchingTxSetCache = new AtomicReference<>();
+    private final AtomicReference<ListMultimap<Address, TransactionOutput>> spendCandidatesByAddressCache = new AtomicReference<>();
     @Getter
     protected Wallet wallet;
     @Getter
@@ -146,6 +159,7 @@ public abstract class WalletService {
         cacheInvalidationListener = wallet -> {
             txOutputAddressCache.set(null);
             addressToMatchingTxSetCache.set(null);
+            spendCandidatesByAddressCache.set(null);
         };
     }
 
@@ -170,6 +184,7 @@ public abstract class WalletService {
             wallet.removeTransactionConfidenceEventListener(walletEventListener);
             wallet.removeChangeEventListener(cacheInvalidationListener);
         }
+        walletEventListener.stopBalanceNotificationTimer();
     }
 
 
@@ -205,19 +220,48 @@ public abstract class WalletService {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public void addAddressConfidenceListener(AddressConfidenceListener listener) {
-        addressConfidenceListeners.add(listener);
+        if (listener.getAddress() == null) {
+            log.warn("We ignore an AddressConfidenceListener without address as it would never get called.");
+            return;
+        }
+        addListener(addressConfidenceListeners, listener.getAddress(), listener);
     }
 
     public void removeAddressConfidenceListener(AddressConfidenceListener listener) {
-        addressConfidenceListeners.remove(listener);
+        if (listener.getAddress() != null) {
+            removeListener(addressConfidenceListeners, listener.getAddress(), listener);
+        }
     }
 
     public void addTxConfidenceListener(TxConfidenceListener listener) {
-        txConfidenceListeners.add(listener);
+        if (listener.getTxID() == null) {
+            log.warn("We ignore a TxConfidenceListener without txId as it would never get called.");
+            return;
+        }
+        addListener(txConfidenceListeners, listener.getTxID(), listener);
     }
 
     public void removeTxConfidenceListener(TxConfidenceListener listener) {
-        txConfidenceListeners.remove(listener);
+        if (listener.getTxID() != null) {
+            removeListener(txConfidenceListeners, listener.getTxID(), listener);
+        }
+    }
+
+    // We add and remove inside the atomic compute, otherwise a concurrent removeListener could drop the set after
+    // it became empty and before we added our listener to it.
+    private static <K, L> void addListener(Map<K, Set<L>> listenersByKey, K key, L listener) {
+        listenersByKey.compute(key, (k, listeners) -> {
+            Set<L> result = listeners != null ? listeners : new CopyOnWriteArraySet<>();
+            result.add(listener);
+            return result;
+        });
+    }
+
+    private static <K, L> void removeListener(Map<K, Set<L>> listenersByKey, K key, L listener) {
+        listenersByKey.computeIfPresent(key, (k, listeners) -> {
+            listeners.remove(listener);
+            return listeners.isEmpty() ? null : listeners;
+        });
     }
 
     public void addBalanceListener(BalanceListener listener) {
@@ -491,7 +535,7 @@ public abstract class WalletService {
     }
 
     public Coin getBalanceForAddress(Address address) {
-        return wallet != null ? getBalance(wallet.calculateAllSpendCandidates(), address) : Coin.ZERO;
+        return wallet != null ? getBalance(getSpendCandidatesByAddress().get(address), address) : Coin.ZERO;
     }
 
     protected Coin getBalance(List<TransactionOutput> transactionOutputs, Address address) {
@@ -526,6 +570,18 @@ public abstract class WalletService {
     // Tx outputs
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    private ListMultimap<Address, TransactionOutput> getSpendCandidatesByAddress() {
+        return spendCandidatesByAddressCache.updateAndGet(map -> map != null ? map : computeSpendCandidatesByAddress());
+    }
+
+    // The dust check depends on the preferences, so we do not apply it here
+    private ListMultimap<Address, TransactionOutput> computeSpendCandidatesByAddress() {
+        return wallet.calculateAllSpendCandidates().stream()
+                .filter(WalletService::isOutputScriptConvertibleToAddress)
+                .collect(ImmutableListMultimap.toImmutableListMultimap(WalletService::getAddressFromOutput,
+                        Function.identity()));
+    }
+
     public int getNumTxOutputsForAddress(Address address) {
         return getTxOutputAddressMultiset().count(address);
     }
@@ -823,6 +879,13 @@ public abstract class WalletService {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public class BisqWalletListener implements WalletCoinsReceivedEventListener, WalletCoinsSentEventListener, WalletReorganizeEventListener, TransactionConfidenceEventListener {
+        // Latest tx per affected address since the last balance notification
+        private final Map<Address, Transaction> pendingTxByAddress = new HashMap<>();
+        @Nullable
+        private Transaction pendingTx;
+        @Nullable
+        private Timer balanceNotificationTimer;
+
         @Override
         public void onCoinsReceived(Wallet wallet, Transaction tx, Coin prevBalance, Coin newBalance) {
             notifyBalanceListeners(tx);
@@ -840,28 +903,70 @@ public abstract class WalletService {
 
         @Override
         public void onTransactionConfidenceChanged(Wallet wallet, Transaction tx) {
-            for (AddressConfidenceListener addressConfidenceListener : addressConfidenceListeners) {
-                TransactionConfidence confidence = getTransactionConfidence(tx, addressConfidenceListener.getAddress());
-                addressConfidenceListener.onTransactionConfidenceChanged(confidence);
+            if (tx == null) {
+                return;
             }
-            txConfidenceListeners.stream()
-                    .filter(txConfidenceListener -> tx != null &&
-                            tx.getTxId().toString() != null &&
-                            txConfidenceListener != null &&
-                            tx.getTxId().toString().equals(txConfidenceListener.getTxID()))
-                    .forEach(txConfidenceListener ->
-                            txConfidenceListener.onTransactionConfidenceChanged(tx.getConfidence()));
+
+            if (!addressConfidenceListeners.isEmpty()) {
+                // We collect the confidences of the outputs per address once and only for addresses with listeners.
+                // The result per address is the same as from getTransactionConfidence(tx, address).
+                Map<Address, List<TransactionConfidence>> confidencesByAddress = new HashMap<>();
+                for (TransactionOutput output : getOutputsWithConnectedOutputs(tx)) {
+                    Address address = getAddressFromOutput(output);
+                    if (address != null && addressConfidenceListeners.containsKey(address)) {
+                        List<TransactionConfidence> confidences = confidencesByAddress.computeIfAbsent(address,
+                                key -> new ArrayList<>());
+                        if (output.getParentTransaction() != null) {
+                            confidences.add(output.getParentTransaction().getConfidence());
+                        }
+                    }
+                }
+                confidencesByAddress.forEach((address, confidences) -> {
+                    TransactionConfidence confidence = getMostRecentConfidence(confidences);
+                    addressConfidenceListeners.getOrDefault(address, Set.of())
+                            .forEach(listener -> listener.onTransactionConfidenceChanged(confidence));
+                });
+            }
+
+            txConfidenceListeners.getOrDefault(tx.getTxId().toString(), Set.of())
+                    .forEach(listener -> listener.onTransactionConfidenceChanged(tx.getConfidence()));
         }
 
         void notifyBalanceListeners(Transaction tx) {
+            getOutputsWithConnectedOutputs(tx).stream()
+                    .map(WalletService::getAddressFromOutput)
+                    .filter(Objects::nonNull)
+                    .forEach(address -> pendingTxByAddress.put(address, tx));
+            pendingTx = tx;
+            if (balanceNotificationTimer == null) {
+                balanceNotificationTimer = UserThread.runAfter(this::dispatchBalanceNotifications,
+                        BALANCE_NOTIFICATION_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        // Listeners with an address only get notified if a tx affected that address. Listeners without address get
+        // notified with the latest tx.
+        private void dispatchBalanceNotifications() {
+            balanceNotificationTimer = null;
+            Map<Address, Transaction> txByAddress = new HashMap<>(pendingTxByAddress);
+            pendingTxByAddress.clear();
+            Transaction latestTx = pendingTx;
+            pendingTx = null;
+
             for (BalanceListener balanceListener : balanceListeners) {
-                Coin balance;
-                if (balanceListener.getAddress() != null)
-                    balance = getBalanceForAddress(balanceListener.getAddress());
-                else
-                    balance = getAvailableConfirmedBalance();
+                Address address = balanceListener.getAddress();
+                if (address == null) {
+                    balanceListener.onBalanceChanged(getAvailableConfirmedBalance(), latestTx);
+                } else if (txByAddress.containsKey(address)) {
+                    balanceListener.onBalanceChanged(getBalanceForAddress(address), txByAddress.get(address));
+                }
+            }
+        }
 
-                balanceListener.onBalanceChanged(balance, tx);
+        void stopBalanceNotificationTimer() {
+            if (balanceNotificationTimer != null) {
+                balanceNotificationTimer.stop();
+                balanceNotificationTimer = null;
             }
         }
     }
@@ -74,6 +74,7 @@ import bisq.core.dao.node.explorer.ExportJsonFilesService;
 import bisq.core.dao.node.full.FullNode;
 import bisq.core.dao.node.full.RpcService;
 import bisq.core.dao.node.full.network.FullNodeNetworkService;
+import bisq.core.dao.node.full.network.RawBlockStore;
 import bisq.core.dao.node.lite.LiteNode;
 import bisq.core.dao.node.lite.network.LiteNodeNetworkService;
 import bisq.core.dao.node.parser.BlockParser;
@@ -112,6 +113,7 @@ public class DaoModule extends AppModule {
         bind(RpcService.class).in(Singleton.class);
         bind(BlockParser.class).in(Singleton.class);
         bind(FullNodeNetworkService.class).in(Singleton.class);
+        bind(RawBlockStore.class).in(Singleton.class);
         bind(LiteNodeNetworkService.class).in(Singleton.class);
 
         // DaoState
@@ -30,6 +30,7 @@ import bisq.core.dao.governance.period.PeriodService;
 import bisq.core.dao.governance.proposal.IssuanceProposal;
 import bisq.core.dao.governance.proposal.ProposalListPresentation;
 import bisq.core.dao.governance.voteresult.issuance.IssuanceService;
+import bisq.core.dao.governance.votereveal.BlindVoteListHasher;
 import bisq.core.dao.governance.votereveal.VoteRevealConsensus;
 import bisq.core.dao.state.DaoStateListener;
 import bisq.core.dao.state.DaoStateService;
@@ -77,6 +78,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -112,6 +115,16 @@ public class VoteResultService implements DaoStateListener, DaoSetupService {
     private final ObservableList<VoteResultException> voteResultExceptions = FXCollections.observableArrayList();
     @Getter
     private Set<DecryptedBallotsWithMerits> invalidDecryptedBallotsWithMeritItems = new HashSet<>();
+    // We use our own pool for the permutation search so that it does not compete with other users of the common pool.
+    // Idle worker threads are terminated by the pool, so we do not need to shut it down.
+    private final ForkJoinPool permutationSearchPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("VoteResultService-PermutationSearch-" + thread.getPoolIndex());
+                return thread;
+            },
+            null,
+            false);
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -488,10 +501,17 @@ public class VoteResultService implements DaoStateListener, DaoSetupService {
         List<BlindVote> list = BlindVoteConsensus.getSortedBlindVoteListOfCycle(blindVoteListService);
         long ts = System.currentTimeMillis();
 
+        // The hasher reuses the serialized blind votes and the hash state of the unchanged start of the list.
+        // It is thread safe, so we can test the variations in parallel.
+        BlindVoteListHasher hasher = new BlindVoteListHasher(list);
         BiFunction<byte[], List<BlindVote>, Boolean> predicate = (hash, variation) ->
-                isListMatchingMajority(hash, variation, false);
+                Arrays.equals(hash, hasher.getHash(variation));
 
-        List<BlindVote> result = PermutationUtil.findMatchingPermutation(majorityVoteListHash, list, predicate, 1000000);
+        List<BlindVote> result = PermutationUtil.findMatchingPermutationInParallel(majorityVoteListHash,
+                list,
+                predicate,
+                1000000,
+                permutationSearchPool);
         log.info("findPermutatedListMatchingMajority for {} items took {} ms.",
                 list.size(), (System.currentTimeMillis() - ts));
         if (result.isEmpty()) {
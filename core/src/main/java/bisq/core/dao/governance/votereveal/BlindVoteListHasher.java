@@ -0,0 +1,99 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.core.dao.governance.votereveal;
+
+import bisq.core.dao.governance.blindvote.BlindVote;
+
+import bisq.common.crypto.Hash;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calculates the same hash as {@link VoteRevealConsensus#getHashOfBlindVoteList(List)} for many variations of a
+ * list of blind votes where items of the original list have been removed. Each blind vote gets serialized only once
+ * and we keep the SHA-256 state after each item of the original list, so for a variation we only need to hash the
+ * items after the first removed one.
+ * <p>
+ * Thread safe after construction.
+ */
+public class BlindVoteListHasher {
+    private final List<BlindVote> list;
+    private final Map<BlindVote, byte[]> serializedBlindVotes = new IdentityHashMap<>();
+    // prefixDigests[i] contains the SHA-256 state after the first i items of the list
+    private final MessageDigest[] prefixDigests;
+
+    public BlindVoteListHasher(List<BlindVote> list) {
+        this.list = list;
+        prefixDigests = new MessageDigest[list.size() + 1];
+        MessageDigest digest = newSha256Digest();
+        prefixDigests[0] = clone(digest);
+        for (int i = 0; i < list.size(); i++) {
+            byte[] serialized = list.get(i).toProtoMessage().toByteArray();
+            serializedBlindVotes.put(list.get(i), serialized);
+            digest.update(serialized);
+            prefixDigests[i + 1] = clone(digest);
+        }
+    }
+
+    /**
+     * @param variation     The list of blind votes or a list where items of it have been removed
+     * @return RIPEMD160(SHA256(serialized blind votes of the variation))
+     */
+    public byte[] getHash(List<BlindVote> variation) {
+        int prefixLength = 0;
+        while (prefixLength < variation.size() && prefixLength < list.size() &&
+                variation.get(prefixLength) == list.get(prefixLength)) {
+            prefixLength++;
+        }
+
+        MessageDigest digest = clone(prefixDigests[prefixLength]);
+        for (int i = prefixLength; i < variation.size(); i++) {
+            BlindVote blindVote = variation.get(i);
+            byte[] serialized = serializedBlindVotes.get(blindVote);
+            digest.update(serialized != null ? serialized : blindVote.toProtoMessage().toByteArray());
+        }
+        return Hash.getRipemd160hash(digest.digest());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static MessageDigest clone(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
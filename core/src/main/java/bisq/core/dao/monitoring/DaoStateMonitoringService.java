@@ -37,6 +37,7 @@ import bisq.network.p2p.network.Connection;
 import bisq.network.p2p.seed.SeedNodeRepository;
 
 import bisq.common.UserThread;
+import bisq.common.app.Capability;
 import bisq.common.config.Config;
 import bisq.common.crypto.Hash;
 import bisq.common.file.FileUtil;
@@ -65,6 +66,8 @@ import java.util.stream.Collectors;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkArgument;
 
 /**
@@ -207,6 +210,9 @@ public class DaoStateMonitoringService implements DaoSetupService, DaoStateListe
 
     @Override
     public void onNewStateHashMessage(NewDaoStateHashMessage newStateHashMessage, Connection connection) {
+        if (DaoStateNetworkService.requiresLegacyStateHash(connection.getCapabilities())) {
+            maybeAddLegacyHashToLastBlock();
+        }
         if (newStateHashMessage.getStateHash().getHeight() <= daoStateService.getChainHeight()) {
             processPeersDaoStateHash(newStateHashMessage.getStateHash(), connection.getPeersNodeAddressOptional(), true);
         }
@@ -215,9 +221,16 @@ public class DaoStateMonitoringService implements DaoSetupService, DaoStateListe
     @Override
     public void onGetStateHashRequest(Connection connection, GetDaoStateHashesRequest getStateHashRequest) {
         int fromHeight = getStateHashRequest.getHeight();
+        boolean supportsStateCommitment = connection.getCapabilities().containsAll(Capability.DAO_STATE_COMMITMENT);
+        if (!supportsStateCommitment) {
+            maybeAddLegacyHashToLastBlock();
+        }
+        // Peers not supporting the state commitment only get the hashes they can compare
         List<DaoStateHash> daoStateHashes = daoStateBlockChain.stream()
                 .filter(e -> e.getHeight() >= fromHeight)
                 .map(DaoStateBlock::getMyStateHash)
+                .filter(daoStateHash -> supportsStateCommitment || daoStateHash.hasLegacyHash())
+                .map(daoStateHash -> supportsStateCommitment ? daoStateHash : daoStateHash.withoutStateCommitment())
                 .collect(Collectors.toList());
         daoStateNetworkService.sendGetStateHashesResponse(connection, getStateHashRequest.getNonce(), daoStateHashes);
     }
@@ -285,13 +298,10 @@ public class DaoStateMonitoringService implements DaoSetupService, DaoStateListe
 
     private void updateHashChain(Block block) {
         long ts = System.currentTimeMillis();
-        byte[] prevHash;
         int height = block.getHeight();
         if (daoStateBlockChain.isEmpty()) {
             // Only at genesis we allow an empty prevHash
-            if (height == genesisTxInfo.getGenesisBlockHeight()) {
-                prevHash = new byte[0];
-            } else {
+            if (height != genesisTxInfo.getGenesisBlockHeight()) {
                 log.warn("DaoStateBlockchain is empty but we received the block which was not the genesis block. " +
                         "We stop execution here.");
                 return;
@@ -301,15 +311,28 @@ public class DaoStateMonitoringService implements DaoSetupService, DaoStateListe
                     "New block must be 1 block above previous block. height={}, " +
                             "daoStateBlockChain.getLast().getHeight()={}",
                     height, daoStateBlockChain.getLast().getHeight());
-            prevHash = daoStateBlockChain.getLast().getHash();
         }
-        byte[] stateHash = daoStateService.getSerializedStateForHashChain();
-        // We include the prev. hash in our new hash so we can be sure that if one hash is matching all the past would
-        // match as well.
-        byte[] combined = ArrayUtils.addAll(prevHash, stateHash);
-        byte[] hash = Hash.getSha256Ripemd160hash(combined);
 
-        DaoStateHash myDaoStateHash = new DaoStateHash(height, hash, prevHash);
+        // The state commitment is incrementally updated at each change of the state, so it costs only
+        // O(changes in the block) instead of O(state size). It covers all past blocks so it does not need the prevHash.
+        // It is not available while the commitment of an applied snapshot gets computed.
+        byte[] serializedStateCommitment = daoStateService.getSerializedStateCommitment();
+        byte[] stateCommitment = serializedStateCommitment != null ?
+                Hash.getSha256Ripemd160hash(serializedStateCommitment) :
+                null;
+
+        // The legacy hash serializes the whole state, which costs O(state size) at each block. We compute it only if
+        // it is required and if we have the legacy hash of the previous block, which is included in the hash.
+        byte[] prevHash = new byte[0];
+        byte[] hash = new byte[0];
+        if (isLegacyHashRequired(height, stateCommitment) && hasLegacyHashOfLastBlock()) {
+            if (!daoStateBlockChain.isEmpty()) {
+                prevHash = daoStateBlockChain.getLast().getHash();
+            }
+            hash = getLegacyHash(prevHash);
+        }
+
+        DaoStateHash myDaoStateHash = new DaoStateHash(height, hash, prevHash, stateCommitment);
         DaoStateBlock daoStateBlock = new DaoStateBlock(myDaoStateHash);
         daoStateBlockChain.add(daoStateBlock);
         daoStateHashChain.add(myDaoStateHash);
@@ -333,6 +356,63 @@ public class DaoStateMonitoringService implements DaoSetupService, DaoStateListe
         numCalls++;
     }
 
+    // We need the legacy hash if we cannot provide the state commitment, for verifying the checkpoints and for peers
+    // not supporting the state commitment.
+    private boolean isLegacyHashRequired(int height, @Nullable byte[] stateCommitment) {
+        return stateCommitment == null ||
+                height <= getHeightOfLastCheckpoint() ||
+                daoStateNetworkService.hasPeerRequiringLegacyStateHash();
+    }
+
+    // Once a block is missing the legacy hash we cannot compute the legacy hash of later blocks anymore
+    private boolean hasLegacyHashOfLastBlock() {
+        return daoStateBlockChain.isEmpty() || daoStateBlockChain.getLast().getMyStateHash().hasLegacyHash();
+    }
+
+    private byte[] getLegacyHash(byte[] prevHash) {
+        byte[] stateHash = daoStateService.getSerializedStateForHashChain();
+        // We include the prev. hash in our new hash so we can be sure that if one hash is matching all the past would
+        // match as well.
+        byte[] combined = ArrayUtils.addAll(prevHash, stateHash);
+        return Hash.getSha256Ripemd160hash(combined);
+    }
+
+    // If a peer requiring the legacy hash connected after the last block got parsed, we can still compute the legacy
+    // hash of that block as long as the state has not changed since.
+    private void maybeAddLegacyHashToLastBlock() {
+        if (daoStateBlockChain.isEmpty()) {
+            return;
+        }
+        DaoStateBlock lastBlock = daoStateBlockChain.getLast();
+        if (lastBlock.getMyStateHash().hasLegacyHash() || lastBlock.getHeight() != daoStateService.getChainHeight()) {
+            return;
+        }
+
+        byte[] prevHash = new byte[0];
+        if (daoStateBlockChain.size() > 1) {
+            DaoStateBlock prevBlock = daoStateBlockChain.get(daoStateBlockChain.size() - 2);
+            if (!prevBlock.getMyStateHash().hasLegacyHash()) {
+                return;
+            }
+            prevHash = prevBlock.getHash();
+        } else if (lastBlock.getHeight() != genesisTxInfo.getGenesisBlockHeight()) {
+            return;
+        }
+
+        DaoStateHash daoStateHash = lastBlock.getMyStateHash().withLegacyHash(getLegacyHash(prevHash), prevHash);
+        DaoStateBlock daoStateBlock = new DaoStateBlock(daoStateHash);
+        lastBlock.getPeersMap().forEach(daoStateBlock::putInPeersMap);
+        lastBlock.getInConflictMap().forEach(daoStateBlock::putInConflictMap);
+        daoStateBlockChain.removeLast();
+        daoStateBlockChain.add(daoStateBlock);
+        daoStateHashChain.removeLast();
+        daoStateHashChain.add(daoStateHash);
+    }
+
+    private int getHeightOfLastCheckpoint() {
+        return checkpoints.stream().mapToInt(Checkpoint::getHeight).max().orElse(0);
+    }
+
     private boolean processPeersDaoStateHash(DaoStateHash daoStateHash, Optional<NodeAddress> peersNodeAddress,
                                              boolean notifyListeners) {
         AtomicBoolean changed = new AtomicBoolean(false);
@@ -342,6 +422,10 @@ public class DaoStateMonitoringService implements DaoSetupService, DaoStateListe
         daoStateBlockChain.stream()
                 .filter(e -> e.getHeight() == daoStateHash.getHeight()).findAny()
                 .ifPresent(daoStateBlock -> {
+                    // We cannot compare if only one of us has the legacy hash and only one has the state commitment
+                    if (!daoStateBlock.getMyStateHash().isComparable(daoStateHash)) {
+                        return;
+                    }
                     String peersNodeAddressAsString = peersNodeAddress.map(NodeAddress::getFullAddress)
                             .orElseGet(() -> "Unknown peer " + new Random().nextInt(10000));
                     daoStateBlock.putInPeersMap(peersNodeAddressAsString, daoStateHash);
@@ -388,6 +472,11 @@ public class DaoStateMonitoringService implements DaoSetupService, DaoStateListe
                 .filter(daoStateHash -> daoStateHash.getHeight() == checkpoint.getHeight())
                 .findAny()
                 .ifPresent(daoStateHash -> {
+                    if (!daoStateHash.hasLegacyHash()) {
+                        log.warn("We cannot verify checkpoint {} as we do not have the legacy hash at that height",
+                                checkpoint.toString());
+                        return;
+                    }
                     if (Arrays.equals(daoStateHash.getHash(), checkpoint.getHash())) {
                         log.info("Passed checkpoint {}", checkpoint.toString());
                     } else {
@@ -18,14 +18,32 @@
 package bisq.core.dao.monitoring.model;
 
 
+import bisq.common.util.Utilities;
+
 import com.google.protobuf.ByteString;
 
+import java.util.Arrays;
+import java.util.Optional;
+
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 
+import javax.annotation.Nullable;
+
+/**
+ * The hash is the legacy hash chain based on the serialized DaoState. Nodes supporting Capability.DAO_STATE_COMMITMENT
+ * compute it only while peers without that capability need it, otherwise hash and prevHash are empty.
+ */
 @EqualsAndHashCode(callSuper = true)
 public final class DaoStateHash extends StateHash {
+    // Hash of the incrementally updated DaoStateCommitment, which covers all past blocks. Only set by nodes supporting
+    // Capability.DAO_STATE_COMMITMENT. Old nodes ignore the field.
+    @Getter
+    @Nullable
+    private final byte[] stateCommitment;
+
     public DaoStateHash(int height, byte[] hash, byte[] prevHash) {
-        super(height, hash, prevHash);
+        this(height, hash, prevHash, null);
     }
 
 
@@ -33,17 +51,71 @@ public final class DaoStateHash extends StateHash {
     // PROTO BUFFER
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    public DaoStateHash(int height, byte[] hash, byte[] prevHash, @Nullable byte[] stateCommitment) {
+        super(height, hash, prevHash);
+        this.stateCommitment = stateCommitment;
+    }
+
     @Override
     public protobuf.DaoStateHash toProtoMessage() {
-        return protobuf.DaoStateHash.newBuilder()
+        protobuf.DaoStateHash.Builder builder = protobuf.DaoStateHash.newBuilder()
                 .setHeight(height)
                 .setHash(ByteString.copyFrom(hash))
-                .setPrevHash(ByteString.copyFrom(prevHash)).build();
+                .setPrevHash(ByteString.copyFrom(prevHash));
+        Optional.ofNullable(stateCommitment).ifPresent(e -> builder.setStateCommitment(ByteString.copyFrom(e)));
+        return builder.build();
     }
 
     public static DaoStateHash fromProto(protobuf.DaoStateHash proto) {
         return new DaoStateHash(proto.getHeight(),
                 proto.getHash().toByteArray(),
-                proto.getPrevHash().toByteArray());
+                proto.getPrevHash().toByteArray(),
+                proto.getStateCommitment().isEmpty() ? null : proto.getStateCommitment().toByteArray());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public boolean hasLegacyHash() {
+        return hash.length > 0;
+    }
+
+    // We can compare if both have the legacy hash or both have the state commitment
+    public boolean isComparable(DaoStateHash other) {
+        return (hasLegacyHash() && other.hasLegacyHash()) ||
+                (stateCommitment != null && other.getStateCommitment() != null);
+    }
+
+    // All hashes which both provide must match
+    @Override
+    public boolean hasEqualHash(StateHash other) {
+        if (!(other instanceof DaoStateHash)) {
+            return super.hasEqualHash(other);
+        }
+        DaoStateHash otherDaoStateHash = (DaoStateHash) other;
+        if (hasLegacyHash() && otherDaoStateHash.hasLegacyHash() && !super.hasEqualHash(other)) {
+            return false;
+        }
+        byte[] othersStateCommitment = otherDaoStateHash.getStateCommitment();
+        return stateCommitment == null || othersStateCommitment == null ||
+                Arrays.equals(stateCommitment, othersStateCommitment);
+    }
+
+    public DaoStateHash withLegacyHash(byte[] hash, byte[] prevHash) {
+        return new DaoStateHash(height, hash, prevHash, stateCommitment);
+    }
+
+    // For peers not supporting Capability.DAO_STATE_COMMITMENT
+    public DaoStateHash withoutStateCommitment() {
+        return stateCommitment == null ? this : new DaoStateHash(height, hash, prevHash);
+    }
+
+    @Override
+    public String toString() {
+        return "DaoStateHash{" +
+                "\n     stateCommitment=" + (stateCommitment != null ? Utilities.bytesAsHexString(stateCommitment) : "null") +
+                "\n} " + super.toString();
     }
 }
@@ -23,10 +23,13 @@ import bisq.core.dao.monitoring.network.messages.GetDaoStateHashesResponse;
 import bisq.core.dao.monitoring.network.messages.NewDaoStateHashMessage;
 
 import bisq.network.p2p.NodeAddress;
+import bisq.network.p2p.network.Connection;
 import bisq.network.p2p.network.NetworkNode;
 import bisq.network.p2p.peers.Broadcaster;
 import bisq.network.p2p.peers.PeerManager;
 
+import bisq.common.app.Capabilities;
+import bisq.common.app.Capability;
 import bisq.common.proto.network.NetworkEnvelope;
 
 import javax.inject.Inject;
@@ -48,6 +51,18 @@ public class DaoStateNetworkService extends StateNetworkService<NewDaoStateHashM
         super(networkNode, peerManager, broadcaster);
     }
 
+    // Peers monitoring the DAO state without support for the state commitment can only compare the legacy hash
+    public static boolean requiresLegacyStateHash(Capabilities capabilities) {
+        return capabilities.containsAll(Capability.DAO_STATE) &&
+                !capabilities.containsAll(Capability.DAO_STATE_COMMITMENT);
+    }
+
+    public boolean hasPeerRequiringLegacyStateHash() {
+        return networkNode.getAllConnections().stream()
+                .map(Connection::getCapabilities)
+                .anyMatch(DaoStateNetworkService::requiresLegacyStateHash);
+    }
+
     @Override
     protected GetDaoStateHashesRequest castToGetStateHashRequest(NetworkEnvelope networkEnvelope) {
         return (GetDaoStateHashesRequest) networkEnvelope;
@@ -55,8 +55,11 @@ public final class NewDaoStateHashMessage extends NewStateHashMessage<DaoStateHa
         return new NewDaoStateHashMessage(DaoStateHash.fromProto(proto.getStateHash()), messageVersion);
     }
 
+    // Peers not supporting the state commitment could only compare the legacy hash
     @Override
     public Capabilities getRequiredCapabilities() {
-        return new Capabilities(Capability.DAO_STATE);
+        return stateHash.hasLegacyHash() ?
+                new Capabilities(Capability.DAO_STATE) :
+                new Capabilities(Capability.DAO_STATE, Capability.DAO_STATE_COMMITMENT);
     }
 }
@@ -0,0 +1,175 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.node.full;
+
+import bisq.core.dao.node.full.rpc.BitcoindClient;
+
+import bisq.common.UserThread;
+import bisq.common.handlers.ResultHandler;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Requests the blocks of a height range from Bitcoin Core with concurrent RPC calls and delivers them in order of
+ * their height at the UserThread. We request at most maxBlocksAhead blocks ahead of the next block to deliver, so
+ * memory usage stays bounded if parsing is slower than the RPC calls.
+ * <p>
+ * If a reorg is detected at parsing the prefetcher must be canceled. Pending requests get canceled and no further
+ * block gets delivered. The blocks requested ahead might be from a stale chain, but as they would not connect they
+ * would be detected by the parser anyway.
+ */
+@Slf4j
+class BlockPrefetcher {
+    private final BitcoindClient client;
+    private final ListeningExecutorService executor;
+    private final int maxBlocksAhead;
+    private final int startBlockHeight;
+    private final int chainHeight;
+    private final Consumer<RawBlock> rawBlockHandler;
+    private final ResultHandler resultHandler;
+    private final Consumer<Throwable> errorHandler;
+
+    // Accessed from the UserThread, but in tests the UserThread executor is the caller thread, so we synchronize
+    private final Map<Integer, ListenableFuture<RawBlock>> pendingRequests = new HashMap<>();
+    private int nextBlockHeightToRequest;
+    private int nextBlockHeightToDeliver;
+    private boolean delivering;
+    @Getter
+    private boolean canceled;
+    private long startTs;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    BlockPrefetcher(BitcoindClient client,
+                    ListeningExecutorService executor,
+                    int maxBlocksAhead,
+                    int startBlockHeight,
+                    int chainHeight,
+                    Consumer<RawBlock> rawBlockHandler,
+                    ResultHandler resultHandler,
+                    Consumer<Throwable> errorHandler) {
+        checkArgument(maxBlocksAhead > 0, "maxBlocksAhead must be positive");
+        checkArgument(startBlockHeight <= chainHeight, "startBlockHeight must not be above chainHeight");
+        this.client = client;
+        this.executor = executor;
+        this.maxBlocksAhead = maxBlocksAhead;
+        this.startBlockHeight = startBlockHeight;
+        this.chainHeight = chainHeight;
+        this.rawBlockHandler = rawBlockHandler;
+        this.resultHandler = resultHandler;
+        this.errorHandler = errorHandler;
+        nextBlockHeightToRequest = startBlockHeight;
+        nextBlockHeightToDeliver = startBlockHeight;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    synchronized void start() {
+        startTs = System.currentTimeMillis();
+        deliverBlocks();
+    }
+
+    synchronized void cancel() {
+        if (canceled) {
+            return;
+        }
+
+        canceled = true;
+        if (!pendingRequests.isEmpty()) {
+            log.info("We cancel the prefetching of blocks at blockHeight {}", nextBlockHeightToDeliver);
+            pendingRequests.values().forEach(future -> future.cancel(true));
+            pendingRequests.clear();
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void requestBlocks() {
+        while (nextBlockHeightToRequest <= chainHeight &&
+                nextBlockHeightToRequest < nextBlockHeightToDeliver + maxBlocksAhead) {
+            int blockHeight = nextBlockHeightToRequest++;
+            ListenableFuture<RawBlock> future = executor.submit(() -> RpcService.requestRawBlock(client, blockHeight));
+            pendingRequests.put(blockHeight, future);
+            future.addListener(() -> UserThread.execute(this::deliverBlocks), MoreExecutors.directExecutor());
+        }
+    }
+
+    private synchronized void deliverBlocks() {
+        // The handler might cause a nested call (e.g. if the UserThread executor is the caller thread). The loop of
+        // the outer call delivers the blocks in that case.
+        if (delivering) {
+            return;
+        }
+
+        delivering = true;
+        try {
+            while (!canceled) {
+                requestBlocks();
+
+                ListenableFuture<RawBlock> future = pendingRequests.get(nextBlockHeightToDeliver);
+                if (future == null || !future.isDone()) {
+                    return;
+                }
+
+                int blockHeight = nextBlockHeightToDeliver++;
+                pendingRequests.remove(blockHeight);
+                RawBlock rawBlock;
+                try {
+                    rawBlock = Futures.getDone(future);
+                } catch (ExecutionException e) {
+                    log.error("Error at requesting block: blockHeight={}", blockHeight);
+                    cancel();
+                    errorHandler.accept(e.getCause());
+                    return;
+                }
+
+                rawBlockHandler.accept(rawBlock);
+
+                if (!canceled && blockHeight == chainHeight) {
+                    log.info("Prefetching of {} blocks took {} ms",
+                            chainHeight - startBlockHeight + 1, System.currentTimeMillis() - startTs);
+                    resultHandler.handleResult();
+                }
+            }
+        } finally {
+            delivering = false;
+        }
+    }
+}
@@ -43,6 +43,8 @@ import java.util.function.Consumer;
 
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+
 /**
  * Main class for a full node which have Bitcoin Core with rpc running and does the blockchain lookup itself.
  * It also provides the BSQ transactions to lite nodes on request and broadcasts new BSQ blocks.
@@ -58,6 +60,8 @@ public class FullNode extends BsqNode {
     private boolean addBlockHandlerAdded;
     private int blocksToParseInBatch;
     private long parseInBatchStartTime;
+    @Nullable
+    private BlockPrefetcher blockPrefetcher;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -96,6 +100,7 @@ public class FullNode extends BsqNode {
     }
 
     public void shutDown() {
+        cancelBlockPrefetcher();
         super.shutDown();
         fullNodeNetworkService.shutDown();
     }
@@ -112,6 +117,8 @@ public class FullNode extends BsqNode {
 
     @Override
     protected void startReOrgFromLastSnapshot() {
+        // The blocks requested ahead are not valid anymore after a reorg
+        cancelBlockPrefetcher();
         super.startReOrgFromLastSnapshot();
 
         int startBlockHeight = getStartBlockHeight();
@@ -229,34 +236,27 @@ public class FullNode extends BsqNode {
                              Consumer<Block> newBlockHandler,
                              ResultHandler resultHandler,
                              Consumer<Throwable> errorHandler) {
-        parseBlockRecursively(startBlockHeight, chainHeight, newBlockHandler, resultHandler, errorHandler);
-    }
-
-    private void parseBlockRecursively(int blockHeight,
-                                       int chainHeight,
-                                       Consumer<Block> newBlockHandler,
-                                       ResultHandler resultHandler,
-                                       Consumer<Throwable> errorHandler) {
-        rpcService.requestDtoBlock(blockHeight,
+        cancelBlockPrefetcher();
+        blockPrefetcher = rpcService.requestDtoBlocks(startBlockHeight,
+                chainHeight,
                 rawBlock -> {
                     try {
                         doParseBlock(rawBlock).ifPresent(newBlockHandler);
-
-                        // Increment blockHeight and recursively call parseBlockAsync until we reach chainHeight
-                        if (blockHeight < chainHeight) {
-                            int newBlockHeight = blockHeight + 1;
-                            parseBlockRecursively(newBlockHeight, chainHeight, newBlockHandler, resultHandler, errorHandler);
-                        } else {
-                            // We are done
-                            resultHandler.handleResult();
-                        }
                     } catch (RequiredReorgFromSnapshotException ignore) {
-                        // If we get a reorg we don't continue to call parseBlockRecursively
+                        // The prefetcher got canceled at startReOrgFromLastSnapshot, so we don't get further blocks
                     }
                 },
+                resultHandler,
                 errorHandler);
     }
 
+    private void cancelBlockPrefetcher() {
+        if (blockPrefetcher != null) {
+            blockPrefetcher.cancel();
+            blockPrefetcher = null;
+        }
+    }
+
     private void handleError(Throwable throwable) {
         if (throwable instanceof BlockHashNotConnectingException || throwable instanceof BlockHeightNotConnectingException) {
             // We do not escalate that exception as it is handled with the snapshot manager to recover its state.
@@ -56,6 +56,7 @@ import java.io.IOException;
 import java.math.BigDecimal;
 
 import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -75,6 +76,9 @@ public class RpcService {
     private static final int ACTIVATE_HARD_FORK_2_HEIGHT_TESTNET = 1943000;
     private static final int ACTIVATE_HARD_FORK_2_HEIGHT_REGTEST = 1;
     private static final Range<Integer> SUPPORTED_NODE_VERSION_RANGE = Range.closedOpen(180000, 210100);
+    // Bitcoin Core uses 4 RPC threads by default (rpcthreads)
+    private static final int NUM_BLOCK_REQUEST_THREADS = 4;
+    private static final int MAX_BLOCKS_AHEAD = 50;
 
     private final String rpcUser;
     private final String rpcPassword;
@@ -86,9 +90,13 @@ public class RpcService {
     private BitcoindClient client;
     private BitcoindDaemon daemon;
 
-    // We could use multiple threads but then we need to support ordering of results in a queue
-    // Keep that for optimization after measuring performance differences
     private final ListeningExecutorService executor = Utilities.getSingleThreadListeningExecutor("RpcService");
+    // Used for the concurrent block requests of the BlockPrefetcher. The BlockPrefetcher takes care of the ordering.
+    private final ListeningExecutorService blockRequestExecutor = Utilities.getListeningExecutorService("RpcService-blocks",
+            NUM_BLOCK_REQUEST_THREADS,
+            NUM_BLOCK_REQUEST_THREADS,
+            60,
+            new LinkedBlockingQueue<>());
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -133,6 +141,7 @@ public class RpcService {
         }
 
         executor.shutdown();
+        blockRequestExecutor.shutdownNow();
     }
 
     void setup(ResultHandler resultHandler, Consumer<Throwable> errorHandler) {
@@ -234,31 +243,37 @@ public class RpcService {
         }, MoreExecutors.directExecutor());
     }
 
-    void requestDtoBlock(int blockHeight,
-                         Consumer<RawBlock> resultHandler,
-                         Consumer<Throwable> errorHandler) {
-        ListenableFuture<RawBlock> future = executor.submit(() -> {
-            long startTs = System.currentTimeMillis();
-            String blockHash = client.getBlockHash(blockHeight);
-            var rawDtoBlock = client.getBlock(blockHash, 2);
-            var block = getBlockFromRawDtoBlock(rawDtoBlock);
-            log.info("requestDtoBlock from bitcoind at blockHeight {} with {} txs took {} ms",
-                    blockHeight, block.getRawTxs().size(), System.currentTimeMillis() - startTs);
-            return block;
-        });
-
-        Futures.addCallback(future, new FutureCallback<>() {
-            @Override
-            public void onSuccess(RawBlock block) {
-                UserThread.execute(() -> resultHandler.accept(block));
-            }
+    /**
+     * Requests the blocks from startBlockHeight to chainHeight with concurrent RPC calls. The blocks are passed in
+     * order of their height to the rawBlockHandler at the UserThread. The returned BlockPrefetcher must be canceled
+     * if no further blocks should be delivered, e.g. in case of a reorg.
+     */
+    BlockPrefetcher requestDtoBlocks(int startBlockHeight,
+                                     int chainHeight,
+                                     Consumer<RawBlock> rawBlockHandler,
+                                     ResultHandler resultHandler,
+                                     Consumer<Throwable> errorHandler) {
+        BlockPrefetcher blockPrefetcher = new BlockPrefetcher(client,
+                blockRequestExecutor,
+                MAX_BLOCKS_AHEAD,
+                startBlockHeight,
+                chainHeight,
+                rawBlockHandler,
+                resultHandler,
+                errorHandler);
+        blockPrefetcher.start();
+        return blockPrefetcher;
+    }
 
-            @Override
-            public void onFailure(@NotNull Throwable throwable) {
-                log.error("Error at requestDtoBlock: blockHeight={}", blockHeight);
-                UserThread.execute(() -> errorHandler.accept(throwable));
-            }
-        }, MoreExecutors.directExecutor());
+    // Can be called from multiple threads
+    static RawBlock requestRawBlock(BitcoindClient client, int blockHeight) throws IOException {
+        long startTs = System.currentTimeMillis();
+        String blockHash = client.getBlockHash(blockHeight);
+        var rawDtoBlock = client.getBlock(blockHash, 2);
+        var block = getBlockFromRawDtoBlock(rawDtoBlock);
+        log.info("requestDtoBlock from bitcoind at blockHeight {} with {} txs took {} ms",
+                blockHeight, block.getRawTxs().size(), System.currentTimeMillis() - startTs);
+        return block;
     }
 
 
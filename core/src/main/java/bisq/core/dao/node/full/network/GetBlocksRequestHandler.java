@@ -17,11 +17,8 @@
 
 package bisq.core.dao.node.full.network;
 
-import bisq.core.dao.node.full.RawBlock;
 import bisq.core.dao.node.messages.GetBlocksRequest;
 import bisq.core.dao.node.messages.GetBlocksResponse;
-import bisq.core.dao.state.DaoStateService;
-import bisq.core.dao.state.model.blockchain.Block;
 
 import bisq.network.p2p.network.CloseConnectionReason;
 import bisq.network.p2p.network.Connection;
@@ -30,15 +27,15 @@ import bisq.network.p2p.network.NetworkNode;
 import bisq.common.Timer;
 import bisq.common.UserThread;
 
+import com.google.protobuf.ByteString;
+
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
 
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -68,7 +65,7 @@ class GetBlocksRequestHandler {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     private final NetworkNode networkNode;
-    private final DaoStateService daoStateService;
+    private final RawBlockStore rawBlockStore;
     private final Listener listener;
     private Timer timeoutTimer;
     private boolean stopped;
@@ -78,9 +75,9 @@ class GetBlocksRequestHandler {
     // Constructor
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    public GetBlocksRequestHandler(NetworkNode networkNode, DaoStateService daoStateService, Listener listener) {
+    public GetBlocksRequestHandler(NetworkNode networkNode, RawBlockStore rawBlockStore, Listener listener) {
         this.networkNode = networkNode;
-        this.daoStateService = daoStateService;
+        this.rawBlockStore = rawBlockStore;
         this.listener = listener;
     }
 
@@ -92,13 +89,14 @@ class GetBlocksRequestHandler {
     public void onGetBlocksRequest(GetBlocksRequest getBlocksRequest, Connection connection) {
         long ts = System.currentTimeMillis();
         // We limit number of blocks to 6000 which is about 1.5 month.
-        List<Block> blocks = new LinkedList<>(daoStateService.getBlocksFromBlockHeight(getBlocksRequest.getFromBlockHeight(), 6000));
-        List<RawBlock> rawBlocks = blocks.stream().map(RawBlock::fromBlock).collect(Collectors.toList());
-        GetBlocksResponse getBlocksResponse = new GetBlocksResponse(rawBlocks, getBlocksRequest.getNonce());
+        List<ByteString> serializedBlocks = rawBlockStore.getSerializedBlocks(
+                getBlocksRequest.getFromBlockHeight(), 6000);
+        GetBlocksResponse getBlocksResponse = GetBlocksResponse.fromSerializedBlocks(serializedBlocks,
+                getBlocksRequest.getNonce());
         log.info("Received GetBlocksRequest from {} for blocks from height {}. " +
                         "Building GetBlocksResponse with {} blocks took {} ms.",
                 connection.getPeersNodeAddressOptional(), getBlocksRequest.getFromBlockHeight(),
-                rawBlocks.size(), System.currentTimeMillis() - ts);
+                serializedBlocks.size(), System.currentTimeMillis() - ts);
 
         if (timeoutTimer != null) {
             timeoutTimer.stop();
@@ -117,8 +115,8 @@ class GetBlocksRequestHandler {
             @Override
             public void onSuccess(Connection connection) {
                 if (!stopped) {
-                    log.info("Send DataResponse to {} succeeded. getBlocksResponse.getBlocks().size()={}",
-                            connection.getPeersNodeAddressOptional(), getBlocksResponse.getBlocks().size());
+                    log.info("Send DataResponse to {} succeeded. getBlocksResponse.getNumBlocks()={}",
+                            connection.getPeersNodeAddressOptional(), getBlocksResponse.getNumBlocks());
                     cleanup();
                     listener.onComplete();
                 } else {
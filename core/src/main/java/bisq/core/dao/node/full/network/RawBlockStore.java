@@ -0,0 +1,132 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.core.dao.node.full.network;
+
+import bisq.core.dao.node.full.RawBlock;
+import bisq.core.dao.state.DaoStateService;
+import bisq.core.dao.state.model.blockchain.Block;
+
+import com.google.protobuf.ByteString;
+
+import javax.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Height indexed store of the serialized RawBlocks we send to lite nodes. The blocks are kept as serialized
+ * protobuf.BaseBlock bytes in segments of SEGMENT_SIZE blocks, so looking up a block is an index lookup and serving a
+ * range of blocks needs no conversion from the Block model. The bytes get written as they are into the
+ * GetBlocksResponse. The store is shared by all GetBlocksRequestHandlers, so each block gets converted only once.
+ * <p>
+ * We keep only the MAX_SEGMENTS most recently used segments. Lite nodes usually request the latest blocks, while a
+ * lite node syncing from genesis passes through the old segments only once.
+ * <p>
+ * The store is filled lazily. As the blocks above a snapshot get replaced at a reorg, we compare the block hash of
+ * the stored block with that of the block in the DaoState and replace stale entries.
+ * <p>
+ * Not thread safe. It is expected to be accessed from the UserThread only.
+ */
+@Slf4j
+public class RawBlockStore {
+    static final int SEGMENT_SIZE = 1000;
+    static final int MAX_SEGMENTS = 10;
+
+    private static class Segment {
+        private final ByteString[] serializedBlocks = new ByteString[SEGMENT_SIZE];
+        private final String[] blockHashes = new String[SEGMENT_SIZE];
+    }
+
+    private static class RecentlyUsedSegments extends LinkedHashMap<Integer, Segment> {
+        RecentlyUsedSegments() {
+            super(MAX_SEGMENTS, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Segment> eldest) {
+            return size() > MAX_SEGMENTS;
+        }
+    }
+
+    private final DaoStateService daoStateService;
+    // Key is the segment index (height / SEGMENT_SIZE)
+    private final Map<Integer, Segment> segments = new RecentlyUsedSegments();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Inject
+    public RawBlockStore(DaoStateService daoStateService) {
+        this.daoStateService = daoStateService;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @param fromBlockHeight   Height of the first block
+     * @param numMaxBlocks      Max. number of blocks to return
+     * @return The serialized protobuf.BaseBlock messages of the RawBlocks starting at fromBlockHeight, ordered by
+     * height
+     */
+    public List<ByteString> getSerializedBlocks(int fromBlockHeight, int numMaxBlocks) {
+        // Blocks start at the genesis height and have no gaps
+        int fromHeight = Math.max(fromBlockHeight, daoStateService.getGenesisBlockHeight());
+        int toHeight = Math.min(fromHeight + numMaxBlocks - 1, daoStateService.getBlockHeightOfLastBlock());
+        List<ByteString> result = new ArrayList<>(Math.max(0, toHeight - fromHeight + 1));
+        for (int height = fromHeight; height <= toHeight; height++) {
+            getSerializedBlock(height).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    public int getNumSegments() {
+        return segments.size();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private Optional<ByteString> getSerializedBlock(int height) {
+        Optional<Block> block = daoStateService.getBlockAtHeight(height);
+        if (!block.isPresent()) {
+            return Optional.empty();
+        }
+
+        Segment segment = segments.computeIfAbsent(height / SEGMENT_SIZE, key -> new Segment());
+        int offset = height % SEGMENT_SIZE;
+        String blockHash = block.get().getHash();
+        if (segment.serializedBlocks[offset] == null || !segment.blockHashes[offset].equals(blockHash)) {
+            segment.serializedBlocks[offset] = RawBlock.fromBlock(block.get()).toProtoMessage().toByteString();
+            segment.blockHashes[offset] = blockHash;
+        }
+        return Optional.of(segment.serializedBlocks[offset]);
+    }
+}
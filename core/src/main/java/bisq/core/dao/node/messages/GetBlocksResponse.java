@@ -27,6 +27,9 @@ import bisq.network.p2p.InitialDataResponse;
 import bisq.common.app.Version;
 import bisq.common.proto.network.NetworkEnvelope;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnknownFieldSet;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -35,6 +38,8 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+
 @EqualsAndHashCode(callSuper = true)
 @Getter
 @Slf4j
@@ -42,9 +47,18 @@ public final class GetBlocksResponse extends NetworkEnvelope implements DirectMe
         ExtendedDataSizePermission, InitialDataResponse {
     private final List<RawBlock> blocks;
     private final int requestNonce;
+    // Only set at the sender if the blocks have been serialized already (see RawBlockStore). In that case blocks
+    // is empty.
+    @Nullable
+    @EqualsAndHashCode.Exclude
+    private final List<ByteString> serializedBlocks;
 
     public GetBlocksResponse(List<RawBlock> blocks, int requestNonce) {
-        this(blocks, requestNonce, Version.getP2PMessageVersion());
+        this(blocks, null, requestNonce, Version.getP2PMessageVersion());
+    }
+
+    public static GetBlocksResponse fromSerializedBlocks(List<ByteString> serializedBlocks, int requestNonce) {
+        return new GetBlocksResponse(new ArrayList<>(), serializedBlocks, requestNonce, Version.getP2PMessageVersion());
     }
 
 
@@ -52,20 +66,35 @@ public final class GetBlocksResponse extends NetworkEnvelope implements DirectMe
     // PROTO BUFFER
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private GetBlocksResponse(List<RawBlock> blocks, int requestNonce, int messageVersion) {
+    private GetBlocksResponse(List<RawBlock> blocks,
+                              @Nullable List<ByteString> serializedBlocks,
+                              int requestNonce,
+                              int messageVersion) {
         super(messageVersion);
         this.blocks = blocks;
+        this.serializedBlocks = serializedBlocks;
         this.requestNonce = requestNonce;
     }
 
     @Override
     public protobuf.NetworkEnvelope toProtoNetworkEnvelope() {
+        protobuf.GetBlocksResponse.Builder builder = protobuf.GetBlocksResponse.newBuilder()
+                .setRequestNonce(requestNonce);
+        if (serializedBlocks != null) {
+            // We write the serialized blocks as they are. A length delimited unknown field has the same wire format
+            // as a repeated message field, so the receiver parses them as raw_blocks.
+            UnknownFieldSet.Field.Builder rawBlocks = UnknownFieldSet.Field.newBuilder();
+            serializedBlocks.forEach(rawBlocks::addLengthDelimited);
+            builder.setUnknownFields(UnknownFieldSet.newBuilder()
+                    .addField(protobuf.GetBlocksResponse.RAW_BLOCKS_FIELD_NUMBER, rawBlocks.build())
+                    .build());
+        } else {
+            builder.addAllRawBlocks(blocks.stream()
+                    .map(RawBlock::toProtoMessage)
+                    .collect(Collectors.toList()));
+        }
         protobuf.NetworkEnvelope proto = getNetworkEnvelopeBuilder()
-                .setGetBlocksResponse(protobuf.GetBlocksResponse.newBuilder()
-                        .addAllRawBlocks(blocks.stream()
-                                .map(RawBlock::toProtoMessage)
-                                .collect(Collectors.toList()))
-                        .setRequestNonce(requestNonce))
+                .setGetBlocksResponse(builder)
                 .build();
         log.info("Sending a GetBlocksResponse with {} kB", proto.getSerializedSize() / 1000d);
         return proto;
@@ -79,15 +108,21 @@ public final class GetBlocksResponse extends NetworkEnvelope implements DirectMe
         return new GetBlocksResponse(proto.getRawBlocksList().isEmpty() ?
                 new ArrayList<>() :
                 list,
+                null,
                 proto.getRequestNonce(),
                 messageVersion);
     }
 
 
+    public int getNumBlocks() {
+        return serializedBlocks != null ? serializedBlocks.size() : blocks.size();
+    }
+
     @Override
     public String toString() {
         return "GetBlocksResponse{" +
                 "\n     blocks=" + blocks +
+                ",\n     numBlocks=" + getNumBlocks() +
                 ",\n     requestNonce=" + requestNonce +
                 "\n} " + super.toString();
     }
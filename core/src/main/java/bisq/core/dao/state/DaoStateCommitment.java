@@ -0,0 +1,335 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.state;
+
+import bisq.core.dao.state.model.DaoState;
+import bisq.core.dao.state.model.blockchain.Block;
+import bisq.core.dao.state.model.blockchain.SpentInfo;
+import bisq.core.dao.state.model.blockchain.TxOutput;
+import bisq.core.dao.state.model.blockchain.TxOutputKey;
+import bisq.core.dao.state.model.governance.Cycle;
+import bisq.core.dao.state.model.governance.DecryptedBallotsWithMerits;
+import bisq.core.dao.state.model.governance.EvaluatedProposal;
+import bisq.core.dao.state.model.governance.Issuance;
+import bisq.core.dao.state.model.governance.ParamChange;
+
+import bisq.common.crypto.Hash;
+import bisq.common.proto.persistable.PersistablePayload;
+
+import com.google.protobuf.ByteString;
+
+import com.google.common.primitives.Ints;
+
+import java.math.BigInteger;
+
+import java.nio.charset.StandardCharsets;
+
+import java.io.ByteArrayOutputStream;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.ArrayUtils;
+
+import javax.annotation.Nullable;
+
+/**
+ * Incrementally updated commitment to the DaoState: the parsed blocks and the mutable collections (utxo map, spent
+ * infos, issuance map, param changes, cycles, confiscated lockup txs and the vote result data). As it commits to all
+ * blocks we do not need to chain it with the commitment of the previous block like the hash chain.
+ * <p>
+ * Each collection has its own multiset hash (MuHash, as used by Bitcoin Core for the utxo set hash): Each element is
+ * mapped to a number modulo a 3072 bit prime. Added elements get multiplied to a numerator and removed elements to a
+ * denominator. The digest of a collection is the hash of numerator / denominator. So adding or removing an element
+ * costs one modular multiplication independent of the size of the collection, the order of the updates does not
+ * matter and we do not need to maintain a tree like with a Merkle root.
+ * <p>
+ * The commitment is persisted with the DaoState snapshot, so we do not need to recompute it from the whole state when
+ * the snapshot gets applied.
+ * <p>
+ * Not thread safe. It is expected to be accessed from the UserThread only.
+ */
+public class DaoStateCommitment implements PersistablePayload {
+    enum Component {
+        BLOCKS,
+        UNSPENT_TX_OUTPUTS,
+        SPENT_INFOS,
+        ISSUANCES,
+        PARAM_CHANGES,
+        CYCLES,
+        CONFISCATED_LOCKUP_TXS,
+        EVALUATED_PROPOSALS,
+        DECRYPTED_BALLOTS_WITH_MERITS
+    }
+
+    private final Map<Component, MultisetHash> multisetHashes = new EnumMap<>(Component.class);
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public DaoStateCommitment() {
+        for (Component component : Component.values()) {
+            multisetHashes.put(component, new MultisetHash());
+        }
+    }
+
+    private DaoStateCommitment(Map<Component, MultisetHash> multisetHashes) {
+        this.multisetHashes.putAll(multisetHashes);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PROTO BUFFER
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public protobuf.DaoStateCommitment toProtoMessage() {
+        return protobuf.DaoStateCommitment.newBuilder()
+                .addAllMultisetHash(multisetHashes.values().stream()
+                        .map(MultisetHash::toProtoMessage)
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    // Returns null if the persisted commitment does not cover the same collections as we do
+    @Nullable
+    public static DaoStateCommitment fromProto(protobuf.DaoStateCommitment proto) {
+        List<protobuf.MultisetHash> multisetHashList = proto.getMultisetHashList();
+        if (multisetHashList.size() != Component.values().length) {
+            return null;
+        }
+        Map<Component, MultisetHash> multisetHashes = new EnumMap<>(Component.class);
+        for (Component component : Component.values()) {
+            multisetHashes.put(component, MultisetHash.fromProto(multisetHashList.get(component.ordinal())));
+        }
+        return new DaoStateCommitment(multisetHashes);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Recomputes the commitment from all elements of the daoState. Used after a snapshot got applied.
+     */
+    public void reset(DaoState daoState) {
+        multisetHashes.values().forEach(MultisetHash::clear);
+        daoState.getBlocks().forEach(this::addBlock);
+        daoState.getUnspentTxOutputMap().values().forEach(this::addUnspentTxOutput);
+        daoState.getSpentInfoMap().forEach(this::addSpentInfo);
+        daoState.getIssuanceMap().values().forEach(this::addIssuance);
+        daoState.getParamChangeList().forEach(this::addParamChange);
+        daoState.getCycles().forEach(this::addCycle);
+        daoState.getConfiscatedLockupTxList().forEach(this::addConfiscatedLockupTx);
+        daoState.getEvaluatedProposalList().forEach(this::addEvaluatedProposal);
+        daoState.getDecryptedBallotsWithMeritsList().forEach(this::addDecryptedBallotsWithMerits);
+    }
+
+    /**
+     * Adds all elements of the other commitment. As the updates are order independent, a commitment which collected
+     * the changes since a snapshot can be completed with the commitment of the snapshot.
+     */
+    public void addAll(DaoStateCommitment other) {
+        multisetHashes.forEach((component, multisetHash) -> multisetHash.addAll(other.multisetHashes.get(component)));
+    }
+
+    // The copy is not affected by later changes, so it can be persisted with a snapshot
+    public DaoStateCommitment getCopy() {
+        Map<Component, MultisetHash> copies = new EnumMap<>(Component.class);
+        multisetHashes.forEach((component, multisetHash) -> copies.put(component, multisetHash.getCopy()));
+        return new DaoStateCommitment(copies);
+    }
+
+    // Must be called only after the block has been parsed completely
+    public void addBlock(Block block) {
+        add(Component.BLOCKS, block.toProtoMessage().toByteArray());
+    }
+
+    public void addUnspentTxOutput(TxOutput txOutput) {
+        add(Component.UNSPENT_TX_OUTPUTS, txOutput.toProtoMessage().toByteArray());
+    }
+
+    public void removeUnspentTxOutput(TxOutput txOutput) {
+        remove(Component.UNSPENT_TX_OUTPUTS, txOutput.toProtoMessage().toByteArray());
+    }
+
+    public void addSpentInfo(TxOutputKey txOutputKey, SpentInfo spentInfo) {
+        add(Component.SPENT_INFOS, getSpentInfoElement(txOutputKey, spentInfo));
+    }
+
+    public void removeSpentInfo(TxOutputKey txOutputKey, SpentInfo spentInfo) {
+        remove(Component.SPENT_INFOS, getSpentInfoElement(txOutputKey, spentInfo));
+    }
+
+    public void addIssuance(Issuance issuance) {
+        add(Component.ISSUANCES, issuance.toProtoMessage().toByteArray());
+    }
+
+    public void removeIssuance(Issuance issuance) {
+        remove(Component.ISSUANCES, issuance.toProtoMessage().toByteArray());
+    }
+
+    public void addParamChange(ParamChange paramChange) {
+        add(Component.PARAM_CHANGES, paramChange.toProtoMessage().toByteArray());
+    }
+
+    public void addCycle(Cycle cycle) {
+        add(Component.CYCLES, cycle.toProtoMessage().toByteArray());
+    }
+
+    public void addConfiscatedLockupTx(String lockupTxId) {
+        add(Component.CONFISCATED_LOCKUP_TXS, lockupTxId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void addEvaluatedProposal(EvaluatedProposal evaluatedProposal) {
+        add(Component.EVALUATED_PROPOSALS, evaluatedProposal.toProtoMessage().toByteArray());
+    }
+
+    public void addDecryptedBallotsWithMerits(DecryptedBallotsWithMerits decryptedBallotsWithMerits) {
+        add(Component.DECRYPTED_BALLOTS_WITH_MERITS, decryptedBallotsWithMerits.toProtoMessage().toByteArray());
+    }
+
+    /**
+     * @return The concatenated digests of all collections. Only the digests of collections which have been changed
+     * since the last call get recomputed.
+     */
+    public byte[] getRoot() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        multisetHashes.values().forEach(multisetHash -> {
+            byte[] digest = multisetHash.getDigest();
+            outputStream.write(digest, 0, digest.length);
+        });
+        return outputStream.toByteArray();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void add(Component component, byte[] element) {
+        multisetHashes.get(component).add(element);
+    }
+
+    private void remove(Component component, byte[] element) {
+        multisetHashes.get(component).remove(element);
+    }
+
+    private static byte[] getSpentInfoElement(TxOutputKey txOutputKey, SpentInfo spentInfo) {
+        return ArrayUtils.addAll(txOutputKey.toString().getBytes(StandardCharsets.UTF_8),
+                spentInfo.toProtoMessage().toByteArray());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // MultisetHash
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    static final class MultisetHash {
+        // The largest 3072 bit safe prime, same as used by Bitcoin Core's MuHash3072
+        private static final BigInteger PRIME = BigInteger.ONE.shiftLeft(3072).subtract(BigInteger.valueOf(1103717));
+        private static final int NUM_ELEMENT_BYTES = 384;
+        private static final int NUM_HASH_BYTES = 32;
+
+        private BigInteger numerator = BigInteger.ONE;
+        private BigInteger denominator = BigInteger.ONE;
+        private byte[] digest;
+
+        void add(byte[] element) {
+            numerator = numerator.multiply(toNumber(element)).mod(PRIME);
+            digest = null;
+        }
+
+        void remove(byte[] element) {
+            denominator = denominator.multiply(toNumber(element)).mod(PRIME);
+            digest = null;
+        }
+
+        void addAll(MultisetHash other) {
+            numerator = numerator.multiply(other.numerator).mod(PRIME);
+            denominator = denominator.multiply(other.denominator).mod(PRIME);
+            digest = null;
+        }
+
+        MultisetHash getCopy() {
+            MultisetHash copy = new MultisetHash();
+            copy.numerator = numerator;
+            copy.denominator = denominator;
+            copy.digest = digest;
+            return copy;
+        }
+
+        protobuf.MultisetHash toProtoMessage() {
+            return protobuf.MultisetHash.newBuilder()
+                    .setNumerator(ByteString.copyFrom(numerator.toByteArray()))
+                    .setDenominator(ByteString.copyFrom(denominator.toByteArray()))
+                    .build();
+        }
+
+        static MultisetHash fromProto(protobuf.MultisetHash proto) {
+            MultisetHash multisetHash = new MultisetHash();
+            multisetHash.numerator = new BigInteger(1, proto.getNumerator().toByteArray());
+            multisetHash.denominator = new BigInteger(1, proto.getDenominator().toByteArray());
+            return multisetHash;
+        }
+
+        void clear() {
+            numerator = BigInteger.ONE;
+            denominator = BigInteger.ONE;
+            digest = null;
+        }
+
+        byte[] getDigest() {
+            if (digest == null) {
+                // We apply the division only here as the modular inverse is expensive
+                if (!denominator.equals(BigInteger.ONE)) {
+                    numerator = numerator.multiply(denominator.modInverse(PRIME)).mod(PRIME);
+                    denominator = BigInteger.ONE;
+                }
+                digest = Hash.getSha256Hash(toFixedLengthBytes(numerator));
+            }
+            return digest;
+        }
+
+        // We expand the SHA256 hash of the element to the size of the prime
+        private static BigInteger toNumber(byte[] element) {
+            byte[] elementHash = Hash.getSha256Hash(element);
+            byte[] expanded = new byte[NUM_ELEMENT_BYTES];
+            for (int i = 0; i < NUM_ELEMENT_BYTES / NUM_HASH_BYTES; i++) {
+                byte[] hash = Hash.getSha256Hash(ArrayUtils.addAll(elementHash, Ints.toByteArray(i)));
+                System.arraycopy(hash, 0, expanded, i * NUM_HASH_BYTES, NUM_HASH_BYTES);
+            }
+            BigInteger number = new BigInteger(1, expanded).mod(PRIME);
+            // Zero has no inverse. The probability is negligible but we must not break the commitment.
+            return number.signum() == 0 ? BigInteger.ONE : number;
+        }
+
+        private static byte[] toFixedLengthBytes(BigInteger number) {
+            byte[] bytes = number.toByteArray();
+            byte[] result = new byte[NUM_ELEMENT_BYTES];
+            int length = Math.min(bytes.length, NUM_ELEMENT_BYTES);
+            System.arraycopy(bytes, bytes.length - length, result, NUM_ELEMENT_BYTES - length, length);
+            return result;
+        }
+    }
+}
@@ -38,10 +38,16 @@ import bisq.core.dao.state.model.governance.ParamChange;
 import bisq.core.util.ParsingUtils;
 import bisq.core.util.coin.BsqFormatter;
 
+import bisq.common.UserThread;
+import bisq.common.util.Utilities;
+
 import org.bitcoinj.core.Coin;
 
 import javax.inject.Inject;
 
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.Ints;
+
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
@@ -51,6 +57,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -66,9 +73,18 @@ import static com.google.common.base.Preconditions.checkArgument;
  */
 @Slf4j
 public class DaoStateService implements DaoSetupService {
+    // Computes the state commitment of snapshots which have been persisted without it
+    private static final ExecutorService STATE_COMMITMENT_EXECUTOR = Utilities.getSingleThreadExecutor("DaoStateCommitment");
+
     private final DaoState daoState;
     private final GenesisTxInfo genesisTxInfo;
     private final BsqFormatter bsqFormatter;
+    private DaoStateCommitment daoStateCommitment = new DaoStateCommitment();
+    // Set while the commitment of an applied snapshot gets computed. The daoStateCommitment contains only the changes
+    // since the snapshot then.
+    private boolean stateCommitmentPending;
+    private int numAppliedSnapshots;
+    private final ParamTimeline paramTimeline;
     private final List<DaoStateListener> daoStateListeners = new CopyOnWriteArrayList<>();
     @Getter
     private boolean parseBlockChainComplete;
@@ -84,6 +100,8 @@ public class DaoStateService implements DaoSetupService {
         this.daoState = daoState;
         this.genesisTxInfo = genesisTxInfo;
         this.bsqFormatter = bsqFormatter;
+        paramTimeline = new ParamTimeline(bsqFormatter);
+        paramTimeline.reset(daoState.getParamChangeList());
     }
 
 
@@ -108,6 +126,14 @@ public class DaoStateService implements DaoSetupService {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public void applySnapshot(DaoState snapshot) {
+        applySnapshot(snapshot, null);
+    }
+
+    /**
+     * @param stateCommitment   The commitment persisted with the snapshot. If null (persisted by an old version) we
+     *                          compute it off the UserThread, as that takes several seconds for the mainnet state.
+     */
+    public void applySnapshot(DaoState snapshot, @Nullable DaoStateCommitment stateCommitment) {
         allowDaoStateChange = true;
         assertDaoStateChange();
 
@@ -136,22 +162,81 @@ public class DaoStateService implements DaoSetupService {
 
         daoState.getParamChangeList().clear();
         daoState.getParamChangeList().addAll(snapshot.getParamChangeList());
+        paramTimeline.reset(daoState.getParamChangeList());
 
         daoState.getEvaluatedProposalList().clear();
         daoState.getEvaluatedProposalList().addAll(snapshot.getEvaluatedProposalList());
 
         daoState.getDecryptedBallotsWithMeritsList().clear();
         daoState.getDecryptedBallotsWithMeritsList().addAll(snapshot.getDecryptedBallotsWithMeritsList());
+
+        numAppliedSnapshots++;
+        if (stateCommitment != null) {
+            daoStateCommitment = stateCommitment.getCopy();
+            stateCommitmentPending = false;
+        } else {
+            computeStateCommitmentOfSnapshot();
+        }
+    }
+
+    private void computeStateCommitmentOfSnapshot() {
+        int snapshotNumber = numAppliedSnapshots;
+        // Collects the changes until the commitment of the snapshot is available. The copy shares the immutable
+        // model objects, so we can read it from another thread.
+        daoStateCommitment = new DaoStateCommitment();
+        stateCommitmentPending = true;
+        DaoState copy = getCopy();
+        STATE_COMMITMENT_EXECUTOR.execute(() -> {
+            long ts = System.currentTimeMillis();
+            DaoStateCommitment snapshotCommitment = new DaoStateCommitment();
+            try {
+                snapshotCommitment.reset(copy);
+            } catch (Throwable t) {
+                log.error("Computing the state commitment of the snapshot failed. We do not provide a state " +
+                        "commitment until the next snapshot gets applied. {}", t.toString());
+                return;
+            }
+            log.info("Computing the state commitment of the snapshot at height {} took {} ms",
+                    copy.getChainHeight(), System.currentTimeMillis() - ts);
+            UserThread.execute(() -> {
+                // If another snapshot got applied in the meantime the result is outdated
+                if (snapshotNumber == numAppliedSnapshots) {
+                    daoStateCommitment.addAll(snapshotCommitment);
+                    stateCommitmentPending = false;
+                }
+            });
+        });
     }
 
     public DaoState getClone() {
         return DaoState.getClone(daoState);
     }
 
+    // Cheap copy sharing the immutable model objects. See DaoState.getCopy.
+    public DaoState getCopy() {
+        return DaoState.getCopy(daoState);
+    }
+
     public byte[] getSerializedStateForHashChain() {
         return daoState.getSerializedStateForHashChain();
     }
 
+    // Alternative to getSerializedStateForHashChain which costs only O(changes) per block. See DaoStateCommitment.
+    // Returns null while the commitment of an applied snapshot is not available yet.
+    @Nullable
+    public byte[] getSerializedStateCommitment() {
+        if (stateCommitmentPending) {
+            return null;
+        }
+        return Bytes.concat(Ints.toByteArray(daoState.getChainHeight()), daoStateCommitment.getRoot());
+    }
+
+    // Persisted with the snapshot candidate. Returns null while the commitment is not available.
+    @Nullable
+    public DaoStateCommitment getStateCommitmentCopy() {
+        return stateCommitmentPending ? null : daoStateCommitment.getCopy();
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // ChainHeight
@@ -173,6 +258,7 @@ public class DaoStateService implements DaoSetupService {
     public void addCycle(Cycle cycle) {
         assertDaoStateChange();
         getCycles().add(cycle);
+        daoStateCommitment.addCycle(cycle);
     }
 
     @Nullable
@@ -263,6 +349,9 @@ public class DaoStateService implements DaoSetupService {
         if (parseBlockChainComplete)
             daoStateListeners.forEach(l -> l.onParseBlockCompleteAfterBatchProcessing(block));
 
+        // The block does not change anymore, so we can add it to the state commitment
+        getLastBlock().filter(lastBlock -> lastBlock == block).ifPresent(daoStateCommitment::addBlock);
+
         // Here listeners must not trigger any state change in the DAO as we trigger the validation service to
         // generate a hash of the state.
         allowDaoStateChange = false;
@@ -324,16 +413,6 @@ public class DaoStateService implements DaoSetupService {
         return getBlockAtHeight(height).map(Block::getTime).orElse(0L);
     }
 
-    public List<Block> getBlocksFromBlockHeight(int fromBlockHeight, int numMaxBlocks) {
-        // We limit requests to numMaxBlocks blocks, to avoid performance issues and too
-        // large network data in case a node requests too far back in history.
-        return getBlocks().stream()
-                .filter(block -> block.getHeight() >= fromBlockHeight)
-                .sorted(Comparator.comparing(Block::getHeight))
-                .limit(numMaxBlocks)
-                .collect(Collectors.toList());
-    }
-
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Genesis
@@ -369,11 +448,11 @@ public class DaoStateService implements DaoSetupService {
     }
 
     public List<Tx> getInvalidTxs() {
-        return getUnorderedTxStream().filter(tx -> tx.getTxType() == TxType.INVALID).collect(Collectors.toList());
+        return new ArrayList<>(daoState.getTxsByType(TxType.INVALID));
     }
 
     public List<Tx> getIrregularTxs() {
-        return getUnorderedTxStream().filter(tx -> tx.getTxType() == TxType.IRREGULAR).collect(Collectors.toList());
+        return new ArrayList<>(daoState.getTxsByType(TxType.IRREGULAR));
     }
 
     public Optional<Tx> getTx(String txId) {
@@ -407,22 +486,16 @@ public class DaoStateService implements DaoSetupService {
     }
 
     public Set<Tx> getTradeFeeTxs() {
-        return getUnorderedTxStream()
-                .filter(tx -> tx.getTxType() == TxType.PAY_TRADE_FEE)
-                .collect(Collectors.toSet());
+        return new HashSet<>(daoState.getTxsByType(TxType.PAY_TRADE_FEE));
     }
 
     public Set<Tx> getProofOfBurnTxs() {
-        return getUnorderedTxStream()
-                .filter(tx -> tx.getTxType() == TxType.PROOF_OF_BURN)
-                .collect(Collectors.toSet());
+        return new HashSet<>(daoState.getTxsByType(TxType.PROOF_OF_BURN));
     }
 
     // Any tx with burned BSQ
     public Set<Tx> getBurntFeeTxs() {
-        return getUnorderedTxStream()
-                .filter(tx -> tx.getBurntFee() > 0)
-                .collect(Collectors.toSet());
+        return new HashSet<>(daoState.getBurntFeeTxs());
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -439,19 +512,12 @@ public class DaoStateService implements DaoSetupService {
     // TxOutput
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private Stream<TxOutput> getUnorderedTxOutputStream() {
-        return getUnorderedTxStream()
-                .flatMap(tx -> tx.getTxOutputs().stream());
-    }
-
     public boolean existsTxOutput(TxOutputKey key) {
-        return getUnorderedTxOutputStream().anyMatch(txOutput -> txOutput.getKey().equals(key));
+        return daoState.getTxOutputsByKey().containsKey(key);
     }
 
     public Optional<TxOutput> getTxOutput(TxOutputKey txOutputKey) {
-        return getUnorderedTxOutputStream()
-                .filter(txOutput -> txOutput.getKey().equals(txOutputKey))
-                .findAny();
+        return Optional.ofNullable(daoState.getTxOutputsByKey().get(txOutputKey));
     }
 
 
@@ -465,12 +531,19 @@ public class DaoStateService implements DaoSetupService {
 
     public void addUnspentTxOutput(TxOutput txOutput) {
         assertDaoStateChange();
-        getUnspentTxOutputMap().put(txOutput.getKey(), txOutput);
+        TxOutput previous = getUnspentTxOutputMap().put(txOutput.getKey(), txOutput);
+        if (previous != null) {
+            daoStateCommitment.removeUnspentTxOutput(previous);
+        }
+        daoStateCommitment.addUnspentTxOutput(txOutput);
     }
 
     public void removeUnspentTxOutput(TxOutput txOutput) {
         assertDaoStateChange();
-        getUnspentTxOutputMap().remove(txOutput.getKey());
+        TxOutput removed = getUnspentTxOutputMap().remove(txOutput.getKey());
+        if (removed != null) {
+            daoStateCommitment.removeUnspentTxOutput(removed);
+        }
     }
 
     public boolean isUnspent(TxOutputKey key) {
@@ -535,9 +608,7 @@ public class DaoStateService implements DaoSetupService {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     private Set<TxOutput> getTxOutputsByTxOutputType(TxOutputType txOutputType) {
-        return getUnorderedTxOutputStream()
-                .filter(txOutput -> txOutput.getTxOutputType() == txOutputType)
-                .collect(Collectors.toSet());
+        return new HashSet<>(daoState.getTxOutputsByType(txOutputType));
     }
 
     public boolean isBsqTxOutputType(TxOutput txOutput) {
@@ -604,7 +675,11 @@ public class DaoStateService implements DaoSetupService {
 
     public void addIssuance(Issuance issuance) {
         assertDaoStateChange();
-        daoState.getIssuanceMap().put(issuance.getTxId(), issuance);
+        Issuance previous = daoState.getIssuanceMap().put(issuance.getTxId(), issuance);
+        if (previous != null) {
+            daoStateCommitment.removeIssuance(previous);
+        }
+        daoStateCommitment.addIssuance(issuance);
     }
 
     public Set<Issuance> getIssuanceSetForType(IssuanceType issuanceType) {
@@ -881,6 +956,7 @@ public class DaoStateService implements DaoSetupService {
         assertDaoStateChange();
         log.warn("TxId {} added to confiscatedLockupTxIdList.", lockupTxId);
         daoState.getConfiscatedLockupTxList().add(lockupTxId);
+        daoStateCommitment.addConfiscatedLockupTx(lockupTxId);
     }
 
     public boolean isConfiscatedOutput(TxOutputKey txOutputKey) {
@@ -913,26 +989,16 @@ public class DaoStateService implements DaoSetupService {
                 .ifPresent(heightOfNewCycle -> {
                     ParamChange paramChange = new ParamChange(param.name(), paramValue, heightOfNewCycle);
                     paramChangeList.add(paramChange);
+                    daoStateCommitment.addParamChange(paramChange);
+                    paramTimeline.add(paramChange);
                     // Addition with older height should not be possible but to ensure correct sorting lets run a sort.
                     paramChangeList.sort(Comparator.comparingInt(ParamChange::getActivationHeight));
                 });
     }
 
+    // If no param change is found we use the default value
     public String getParamValue(Param param, int blockHeight) {
-        List<ParamChange> paramChangeList = new ArrayList<>(daoState.getParamChangeList());
-        if (!paramChangeList.isEmpty()) {
-            // List is sorted by height, we start from latest entries to find most recent entry.
-            for (int i = paramChangeList.size() - 1; i >= 0; i--) {
-                ParamChange paramChange = paramChangeList.get(i);
-                if (paramChange.getParamName().equals(param.name()) &&
-                        blockHeight >= paramChange.getActivationHeight()) {
-                    return paramChange.getValue();
-                }
-            }
-        }
-
-        // If no value found we use default values
-        return param.getDefaultValue();
+        return paramTimeline.getValue(param, blockHeight);
     }
 
     public List<Coin> getParamChangeList(Param param) {
@@ -958,15 +1024,15 @@ public class DaoStateService implements DaoSetupService {
     }
 
     public Coin getParamValueAsCoin(Param param, int blockHeight) {
-        return getParamValueAsCoin(param, getParamValue(param, blockHeight));
+        return paramTimeline.getValueAsCoin(param, blockHeight);
     }
 
     public double getParamValueAsPercentDouble(Param param, int blockHeight) {
-        return getParamValueAsPercentDouble(getParamValue(param, blockHeight));
+        return paramTimeline.getValueAsPercentDouble(param, blockHeight);
     }
 
     public int getParamValueAsBlock(Param param, int blockHeight) {
-        return getParamValueAsBlock(getParamValue(param, blockHeight));
+        return paramTimeline.getValueAsBlock(param, blockHeight);
     }
 
 
@@ -976,7 +1042,11 @@ public class DaoStateService implements DaoSetupService {
 
     public void setSpentInfo(TxOutputKey txOutputKey, SpentInfo spentInfo) {
         assertDaoStateChange();
-        daoState.getSpentInfoMap().put(txOutputKey, spentInfo);
+        SpentInfo previous = daoState.getSpentInfoMap().put(txOutputKey, spentInfo);
+        if (previous != null) {
+            daoStateCommitment.removeSpentInfo(txOutputKey, previous);
+        }
+        daoStateCommitment.addSpentInfo(txOutputKey, spentInfo);
     }
 
     public Optional<SpentInfo> getSpentInfo(TxOutput txOutput) {
@@ -997,7 +1067,10 @@ public class DaoStateService implements DaoSetupService {
 
         evaluatedProposals.stream()
                 .filter(e -> !daoState.getEvaluatedProposalList().contains(e))
-                .forEach(daoState.getEvaluatedProposalList()::add);
+                .forEach(evaluatedProposal -> {
+                    daoState.getEvaluatedProposalList().add(evaluatedProposal);
+                    daoStateCommitment.addEvaluatedProposal(evaluatedProposal);
+                });
 
         // We need deterministic order for the hash chain
         daoState.getEvaluatedProposalList().sort(Comparator.comparing(EvaluatedProposal::getProposalTxId));
@@ -1012,7 +1085,10 @@ public class DaoStateService implements DaoSetupService {
 
         decryptedBallotsWithMeritsSet.stream()
                 .filter(e -> !daoState.getDecryptedBallotsWithMeritsList().contains(e))
-                .forEach(daoState.getDecryptedBallotsWithMeritsList()::add);
+                .forEach(decryptedBallotsWithMerits -> {
+                    daoState.getDecryptedBallotsWithMeritsList().add(decryptedBallotsWithMerits);
+                    daoStateCommitment.addDecryptedBallotsWithMerits(decryptedBallotsWithMerits);
+                });
 
         // We need deterministic order for the hash chain
         daoState.getDecryptedBallotsWithMeritsList().sort(Comparator.comparing(DecryptedBallotsWithMerits::getBlindVoteTxId));
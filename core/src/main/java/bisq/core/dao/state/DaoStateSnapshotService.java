@@ -59,6 +59,8 @@ public class DaoStateSnapshotService {
 
     private DaoState daoStateSnapshotCandidate;
     private LinkedList<DaoStateHash> daoStateHashChainSnapshotCandidate = new LinkedList<>();
+    @Nullable
+    private DaoStateCommitment daoStateCommitmentSnapshotCandidate;
     private int chainHeightOfLastApplySnapshot;
     @Setter
     @Nullable
@@ -104,21 +106,26 @@ public class DaoStateSnapshotService {
             // At trigger event we store the latest snapshotCandidate to disc
             long ts = System.currentTimeMillis();
             if (daoStateSnapshotCandidate != null) {
-                // Serialisation happens on the userThread so we do not need to clone the data. Write to disk happens
-                // in a thread but does not interfere with our objects as they got already serialized when passed to the
-                // write thread. We use requestPersistence so we do not write immediately but at next scheduled interval.
+                // The snapshotCandidate is a copy which we do not mutate, so serialisation and write to disk can
+                // happen in a thread without interfering with our objects. We use requestPersistence so we do not
+                // write immediately but at next scheduled interval.
                 // This avoids frequent write at dao sync and better performance.
-                daoStateStorageService.requestPersistence(daoStateSnapshotCandidate, daoStateHashChainSnapshotCandidate);
+                daoStateStorageService.requestPersistence(daoStateSnapshotCandidate,
+                        daoStateHashChainSnapshotCandidate,
+                        daoStateCommitmentSnapshotCandidate);
                 log.info("Serializing snapshotCandidate for writing to Disc with height {} at height {} took {} ms",
                         daoStateSnapshotCandidate.getChainHeight(), chainHeight, System.currentTimeMillis() - ts);
             }
 
             ts = System.currentTimeMillis();
-            // Now we clone and keep it in memory for the next trigger event
-            daoStateSnapshotCandidate = daoStateService.getClone();
+            // Now we copy and keep it in memory for the next trigger event. The copy shares the immutable blocks,
+            // txs and governance data with the daoState, so only the collections get copied.
+            daoStateSnapshotCandidate = daoStateService.getCopy();
             daoStateHashChainSnapshotCandidate = new LinkedList<>(daoStateMonitoringService.getDaoStateHashChain());
+            // We persist the state commitment so we do not need to recompute it when we apply the snapshot
+            daoStateCommitmentSnapshotCandidate = daoStateService.getStateCommitmentCopy();
 
-            log.debug("Cloned new snapshotCandidate at height {} took {} ms", chainHeight, System.currentTimeMillis() - ts);
+            log.debug("Copied new snapshotCandidate at height {} took {} ms", chainHeight, System.currentTimeMillis() - ts);
         }
     }
 
@@ -133,7 +140,8 @@ public class DaoStateSnapshotService {
                 if (isValidHeight(heightOfLastBlock)) {
                     if (chainHeightOfLastApplySnapshot != chainHeightOfPersisted) {
                         chainHeightOfLastApplySnapshot = chainHeightOfPersisted;
-                        daoStateService.applySnapshot(persistedBsqState);
+                        daoStateService.applySnapshot(persistedBsqState,
+                                daoStateStorageService.getPersistedDaoStateCommitment());
                         daoStateMonitoringService.applySnapshot(persistedDaoStateHashChain);
                     } else {
                         // The reorg might have been caused by the previous parsing which might contains a range of
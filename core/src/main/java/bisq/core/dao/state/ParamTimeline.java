@@ -0,0 +1,147 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.core.dao.state;
+
+import bisq.core.dao.governance.param.Param;
+import bisq.core.dao.state.model.governance.ParamChange;
+import bisq.core.util.ParsingUtils;
+import bisq.core.util.coin.BsqFormatter;
+
+import org.bitcoinj.core.Coin;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * Values of each param indexed by their activation height. It gets updated at each new param change and rebuilt
+ * from the paramChangeList after a snapshot got applied. Looking up the value at a block height is a floor lookup in
+ * the timeline of the param. The parsed Coin, percent and block values are cached.
+ * <p>
+ * Not thread safe. It is expected to be accessed from the UserThread only.
+ */
+class ParamTimeline {
+    private static final Map<String, Param> PARAMS_BY_NAME = new HashMap<>();
+
+    static {
+        for (Param param : Param.values()) {
+            PARAMS_BY_NAME.put(param.name(), param);
+        }
+    }
+
+    private final BsqFormatter bsqFormatter;
+    private final Map<Param, NavigableMap<Integer, ParamValue>> timelines = new EnumMap<>(Param.class);
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    ParamTimeline(BsqFormatter bsqFormatter) {
+        this.bsqFormatter = bsqFormatter;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // The paramChangeList must be sorted by activation height
+    void reset(List<ParamChange> paramChangeList) {
+        timelines.clear();
+        paramChangeList.forEach(this::add);
+    }
+
+    // If there are several changes of a param with the same activation height the last added wins, same as it
+    // was when we iterated the paramChangeList backwards.
+    void add(ParamChange paramChange) {
+        Param param = PARAMS_BY_NAME.get(paramChange.getParamName());
+        if (param == null) {
+            // A param which does not exist anymore. It could never be looked up.
+            return;
+        }
+        getTimeline(param).put(paramChange.getActivationHeight(), new ParamValue(paramChange.getValue()));
+    }
+
+    String getValue(Param param, int blockHeight) {
+        return getParamValue(param, blockHeight).value;
+    }
+
+    Coin getValueAsCoin(Param param, int blockHeight) {
+        ParamValue paramValue = getParamValue(param, blockHeight);
+        if (paramValue.coinValue == null) {
+            paramValue.coinValue = bsqFormatter.parseParamValueToCoin(param, paramValue.value);
+        }
+        return paramValue.coinValue;
+    }
+
+    double getValueAsPercentDouble(Param param, int blockHeight) {
+        ParamValue paramValue = getParamValue(param, blockHeight);
+        if (paramValue.percentValue == null) {
+            paramValue.percentValue = ParsingUtils.parsePercentStringToDouble(paramValue.value);
+        }
+        return paramValue.percentValue;
+    }
+
+    int getValueAsBlock(Param param, int blockHeight) {
+        ParamValue paramValue = getParamValue(param, blockHeight);
+        if (paramValue.blockValue == null) {
+            paramValue.blockValue = Integer.parseInt(paramValue.value);
+        }
+        return paramValue.blockValue;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private ParamValue getParamValue(Param param, int blockHeight) {
+        return getTimeline(param).floorEntry(blockHeight).getValue();
+    }
+
+    // The default value is the first entry of each timeline, so the floor lookup always finds a value
+    private NavigableMap<Integer, ParamValue> getTimeline(Param param) {
+        return timelines.computeIfAbsent(param, key -> {
+            NavigableMap<Integer, ParamValue> timeline = new TreeMap<>();
+            timeline.put(Integer.MIN_VALUE, new ParamValue(param.getDefaultValue()));
+            return timeline;
+        });
+    }
+
+    private static final class ParamValue {
+        private final String value;
+        // Parsed values, set at first use
+        @Nullable
+        private Coin coinValue;
+        @Nullable
+        private Double percentValue;
+        @Nullable
+        private Integer blockValue;
+
+        ParamValue(String value) {
+            this.value = value;
+        }
+    }
+}
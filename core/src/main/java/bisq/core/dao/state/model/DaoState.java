@@ -22,6 +22,8 @@ import bisq.core.dao.state.model.blockchain.SpentInfo;
 import bisq.core.dao.state.model.blockchain.Tx;
 import bisq.core.dao.state.model.blockchain.TxOutput;
 import bisq.core.dao.state.model.blockchain.TxOutputKey;
+import bisq.core.dao.state.model.blockchain.TxOutputType;
+import bisq.core.dao.state.model.blockchain.TxType;
 import bisq.core.dao.state.model.governance.Cycle;
 import bisq.core.dao.state.model.governance.DecryptedBallotsWithMerits;
 import bisq.core.dao.state.model.governance.EvaluatedProposal;
@@ -37,7 +39,9 @@ import javax.inject.Inject;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -69,6 +73,16 @@ public class DaoState implements PersistablePayload {
         return DaoState.fromProto(daoState.getBsqStateBuilder().build());
     }
 
+    /**
+     * Creates a copy which shares the immutable model objects (blocks, txs, tx outputs and the governance data) with
+     * the given daoState. Only the collections get copied, so in contrast to getClone we do not need to serialize and
+     * parse the whole state. The block of a copy must not be modified afterwards, so it must not be called while a
+     * block is getting parsed.
+     */
+    public static DaoState getCopy(DaoState daoState) {
+        return new DaoState(daoState);
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Fields
@@ -115,6 +129,16 @@ public class DaoState implements PersistablePayload {
     @JsonExclude
     private transient final Set<String> blockHashes; // Cache of known block hashes
 
+    // Transient indices of the txs in the txCache - must be kept in sync with the txCache
+    @JsonExclude
+    private transient final Map<TxOutputKey, TxOutput> txOutputsByKey = new HashMap<>();
+    @JsonExclude
+    private transient final Map<TxOutputType, List<TxOutput>> txOutputsByType = new EnumMap<>(TxOutputType.class);
+    @JsonExclude
+    private transient final Map<TxType, List<Tx>> txsByType = new EnumMap<>(TxType.class);
+    @JsonExclude
+    private transient final List<Tx> burntFeeTxs = new ArrayList<>();
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Constructor
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -162,9 +186,10 @@ public class DaoState implements PersistablePayload {
         this.evaluatedProposalList = evaluatedProposalList;
         this.decryptedBallotsWithMeritsList = decryptedBallotsWithMeritsList;
 
-        txCache = blocks.stream()
+        txCache = new HashMap<>();
+        blocks.stream()
                 .flatMap(block -> block.getTxs().stream())
-                .collect(Collectors.toMap(Tx::getId, Function.identity(), (x, y) -> x, HashMap::new));
+                .forEach(this::addToTxCache);
 
         blockHashes = blocks.stream()
                 .map(Block::getHash)
@@ -174,6 +199,30 @@ public class DaoState implements PersistablePayload {
                 .collect(Collectors.toMap(Block::getHeight, Function.identity(), (x, y) -> x, HashMap::new));
     }
 
+    private DaoState(DaoState daoState) {
+        this.chainHeight = daoState.chainHeight;
+        this.blocks = new LinkedList<>(daoState.blocks);
+        this.cycles = new LinkedList<>(daoState.cycles);
+
+        this.unspentTxOutputMap = new TreeMap<>(daoState.unspentTxOutputMap);
+        this.spentInfoMap = new TreeMap<>(daoState.spentInfoMap);
+
+        this.confiscatedLockupTxList = new ArrayList<>(daoState.confiscatedLockupTxList);
+        this.issuanceMap = new TreeMap<>(daoState.issuanceMap);
+        this.paramChangeList = new ArrayList<>(daoState.paramChangeList);
+        this.evaluatedProposalList = new ArrayList<>(daoState.evaluatedProposalList);
+        this.decryptedBallotsWithMeritsList = new ArrayList<>(daoState.decryptedBallotsWithMeritsList);
+
+        // We copy the caches and indices instead of rebuilding them from the blocks
+        txCache = new HashMap<>(daoState.txCache);
+        blockHashes = new HashSet<>(daoState.blockHashes);
+        blocksByHeight = new HashMap<>(daoState.blocksByHeight);
+        txOutputsByKey.putAll(daoState.txOutputsByKey);
+        daoState.txOutputsByType.forEach((txOutputType, txOutputs) -> txOutputsByType.put(txOutputType, new ArrayList<>(txOutputs)));
+        daoState.txsByType.forEach((txType, txs) -> txsByType.put(txType, new ArrayList<>(txs)));
+        burntFeeTxs.addAll(daoState.burntFeeTxs);
+    }
+
     @Override
     public Message toProtoMessage() {
         return getBsqStateBuilder().build();
@@ -254,18 +303,40 @@ public class DaoState implements PersistablePayload {
     public void addToTxCache(Tx tx) {
         // We shouldn't get duplicate txIds, but use putIfAbsent instead of put for consistency with the map merge
         // function used in the constructor to initialise txCache (and to exactly match the pre-caching behaviour).
-        txCache.putIfAbsent(tx.getId(), tx);
+        if (txCache.putIfAbsent(tx.getId(), tx) == null) {
+            addToTxIndices(tx);
+        }
     }
 
     public void setTxCache(Map<String, Tx> txCache) {
         this.txCache.clear();
-        this.txCache.putAll(txCache);
+        txOutputsByKey.clear();
+        txOutputsByType.clear();
+        txsByType.clear();
+        burntFeeTxs.clear();
+        txCache.values().forEach(this::addToTxCache);
     }
 
     public Map<String, Tx> getTxCache() {
         return Collections.unmodifiableMap(txCache);
     }
 
+    public Map<TxOutputKey, TxOutput> getTxOutputsByKey() {
+        return Collections.unmodifiableMap(txOutputsByKey);
+    }
+
+    public List<TxOutput> getTxOutputsByType(TxOutputType txOutputType) {
+        return Collections.unmodifiableList(txOutputsByType.getOrDefault(txOutputType, List.of()));
+    }
+
+    public List<Tx> getTxsByType(TxType txType) {
+        return Collections.unmodifiableList(txsByType.getOrDefault(txType, List.of()));
+    }
+
+    public List<Tx> getBurntFeeTxs() {
+        return Collections.unmodifiableList(burntFeeTxs);
+    }
+
     public Set<String> getBlockHashes() {
         return Collections.unmodifiableSet(blockHashes);
     }
@@ -315,6 +386,19 @@ public class DaoState implements PersistablePayload {
         addBlocks(newBlocks);
     }
 
+    private void addToTxIndices(Tx tx) {
+        if (tx.getTxType() != null) {
+            txsByType.computeIfAbsent(tx.getTxType(), k -> new ArrayList<>()).add(tx);
+        }
+        if (tx.getBurntFee() > 0) {
+            burntFeeTxs.add(tx);
+        }
+        tx.getTxOutputs().forEach(txOutput -> {
+            txOutputsByKey.put(txOutput.getKey(), txOutput);
+            txOutputsByType.computeIfAbsent(txOutput.getTxOutputType(), k -> new ArrayList<>()).add(txOutput);
+        });
+    }
+
     @Override
     public String toString() {
         return "DaoState{" +
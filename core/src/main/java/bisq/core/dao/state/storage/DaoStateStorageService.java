@@ -19,6 +19,7 @@ package bisq.core.dao.state.storage;
 
 import bisq.core.dao.monitoring.DaoStateMonitoringService;
 import bisq.core.dao.monitoring.model.DaoStateHash;
+import bisq.core.dao.state.DaoStateCommitment;
 import bisq.core.dao.state.model.DaoState;
 
 import bisq.network.p2p.storage.persistence.ResourceDataStoreService;
@@ -38,6 +39,8 @@ import java.util.LinkedList;
 
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+
 /**
  * Manages persistence of the daoState.
  */
@@ -76,9 +79,12 @@ public class DaoStateStorageService extends StoreService<DaoStateStore> {
         return FILE_NAME;
     }
 
-    public void requestPersistence(DaoState daoState, LinkedList<DaoStateHash> daoStateHashChain) {
+    public void requestPersistence(DaoState daoState,
+                                   LinkedList<DaoStateHash> daoStateHashChain,
+                                   @Nullable DaoStateCommitment daoStateCommitment) {
         store.setDaoState(daoState);
         store.setDaoStateHashChain(daoStateHashChain);
+        store.setDaoStateCommitment(daoStateCommitment);
         persistenceManager.requestPersistence();
     }
 
@@ -90,9 +96,15 @@ public class DaoStateStorageService extends StoreService<DaoStateStore> {
         return store.getDaoStateHashChain();
     }
 
+    @Nullable
+    public DaoStateCommitment getPersistedDaoStateCommitment() {
+        return store.getDaoStateCommitment();
+    }
+
     public void resyncDaoStateFromGenesis(Runnable resultHandler) {
         store.setDaoState(new DaoState());
         store.setDaoStateHashChain(new LinkedList<>());
+        store.setDaoStateCommitment(null);
         persistenceManager.persistNow(resultHandler);
     }
 
@@ -125,7 +137,8 @@ public class DaoStateStorageService extends StoreService<DaoStateStore> {
 
     @Override
     protected DaoStateStore createStore() {
-        return new DaoStateStore(DaoState.getClone(daoState), new LinkedList<>(daoStateMonitoringService.getDaoStateHashChain()));
+        return new DaoStateStore(DaoState.getClone(daoState), new LinkedList<>(daoStateMonitoringService.getDaoStateHashChain()),
+                null);
     }
 
     @Override
@@ -18,8 +18,10 @@
 package bisq.core.dao.state.storage;
 
 import bisq.core.dao.monitoring.model.DaoStateHash;
+import bisq.core.dao.state.DaoStateCommitment;
 import bisq.core.dao.state.model.DaoState;
 
+import bisq.common.persistence.SnapshotEnvelope;
 import bisq.common.proto.persistable.PersistableEnvelope;
 
 import com.google.protobuf.Message;
@@ -31,11 +33,13 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 
 @Slf4j
-public class DaoStateStore implements PersistableEnvelope {
+public class DaoStateStore implements SnapshotEnvelope {
     // DaoState is always a clone and must not be used for read access beside initial read from disc when we apply
     // the snapshot!
     @Getter
@@ -44,10 +48,26 @@ public class DaoStateStore implements PersistableEnvelope {
     @Getter
     @Setter
     private LinkedList<DaoStateHash> daoStateHashChain;
+    // The state commitment of the daoState. It is a copy which gets replaced but not mutated. Null if persisted by an
+    // old version.
+    @Getter
+    @Setter
+    @Nullable
+    private DaoStateCommitment daoStateCommitment;
 
-    DaoStateStore(DaoState daoState, LinkedList<DaoStateHash> daoStateHashChain) {
+    DaoStateStore(DaoState daoState,
+                  LinkedList<DaoStateHash> daoStateHashChain,
+                  @Nullable DaoStateCommitment daoStateCommitment) {
         this.daoState = daoState;
         this.daoStateHashChain = daoStateHashChain;
+        this.daoStateCommitment = daoStateCommitment;
+    }
+
+    // The daoState and the daoStateCommitment are copies which get replaced but not mutated, so we can share them.
+    // The daoStateHashChain might be used by the DaoStateMonitoringService after the initial read, so we copy it.
+    @Override
+    public PersistableEnvelope getSnapshot() {
+        return new DaoStateStore(daoState, new LinkedList<>(daoStateHashChain), daoStateCommitment);
     }
 
 
@@ -62,6 +82,9 @@ public class DaoStateStore implements PersistableEnvelope {
                 .addAllDaoStateHash(daoStateHashChain.stream()
                         .map(DaoStateHash::toProtoMessage)
                         .collect(Collectors.toList()));
+        if (daoStateCommitment != null) {
+            builder.setDaoStateCommitment(daoStateCommitment.toProtoMessage());
+        }
         return protobuf.PersistableEnvelope.newBuilder()
                 .setDaoStateStore(builder)
                 .build();
@@ -73,6 +96,9 @@ public class DaoStateStore implements PersistableEnvelope {
                 new LinkedList<>(proto.getDaoStateHashList().stream()
                         .map(DaoStateHash::fromProto)
                         .collect(Collectors.toList()));
-        return new DaoStateStore(DaoState.fromProto(proto.getDaoState()), daoStateHashList);
+        DaoStateCommitment daoStateCommitment = proto.hasDaoStateCommitment() ?
+                DaoStateCommitment.fromProto(proto.getDaoStateCommitment()) :
+                null;
+        return new DaoStateStore(DaoState.fromProto(proto.getDaoState()), daoStateHashList, daoStateCommitment);
     }
 }
@@ -41,7 +41,10 @@ public class CoreNetworkCapabilities {
                 Capability.REFUND_AGENT,
                 Capability.TRADE_STATISTICS_HASH_UPDATE,
                 Capability.NO_ADDRESS_PRE_FIX,
-                Capability.TRADE_STATISTICS_3
+                Capability.TRADE_STATISTICS_3,
+                Capability.KEY_SET_RECONCILIATION,
+                Capability.GET_DATA_RESPONSE_CHUNKS,
+                Capability.DAO_STATE_COMMITMENT
         );
 
         if (config.daoActivated) {
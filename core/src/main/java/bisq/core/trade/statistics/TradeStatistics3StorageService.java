@@ -18,10 +18,12 @@
 package bisq.core.trade.statistics;
 
 import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import bisq.network.p2p.storage.persistence.AppendOnlyPayloadLog;
 import bisq.network.p2p.storage.persistence.HistoricalDataStoreService;
 
 import bisq.common.config.Config;
 import bisq.common.persistence.PersistenceManager;
+import bisq.common.proto.persistable.PersistenceProtoResolver;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -43,8 +45,10 @@ public class TradeStatistics3StorageService extends HistoricalDataStoreService<T
 
     @Inject
     public TradeStatistics3StorageService(@Named(Config.STORAGE_DIR) File storageDir,
-                                          PersistenceManager<TradeStatistics3Store> persistenceManager) {
+                                          PersistenceManager<TradeStatistics3Store> persistenceManager,
+                                          PersistenceProtoResolver persistenceProtoResolver) {
         super(storageDir, persistenceManager);
+        enableAppendOnlyLog(AppendOnlyPayloadLog.persistableNetworkPayloadDecoder(persistenceProtoResolver));
     }
 
 
@@ -0,0 +1,118 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.btc.model;
+
+import bisq.common.persistence.PersistenceManager;
+
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDKeyDerivation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class AddressEntryListTest {
+    private AddressEntryList addressEntryList;
+    private DeterministicKey masterKey;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        addressEntryList = new AddressEntryList(mock(PersistenceManager.class));
+        masterKey = HDKeyDerivation.createMasterPrivateKey(new byte[32]);
+    }
+
+    private DeterministicKey getKey(int index) {
+        return HDKeyDerivation.deriveChildKey(masterKey, index);
+    }
+
+    @Test
+    public void testLookupByOfferIdAndContext() {
+        AddressEntry offerFunding = new AddressEntry(getKey(0), AddressEntry.Context.OFFER_FUNDING, "offer1", true);
+        AddressEntry reserved = new AddressEntry(getKey(1), AddressEntry.Context.RESERVED_FOR_TRADE, "offer1", true);
+        AddressEntry otherOffer = new AddressEntry(getKey(2), AddressEntry.Context.OFFER_FUNDING, "offer2", true);
+        addressEntryList.addAddressEntry(offerFunding);
+        addressEntryList.addAddressEntry(reserved);
+        addressEntryList.addAddressEntry(otherOffer);
+
+        assertEquals(offerFunding, addressEntryList.findAddressEntry("offer1", AddressEntry.Context.OFFER_FUNDING).get());
+        assertEquals(List.of(reserved), addressEntryList.getAddressEntries("offer1", AddressEntry.Context.RESERVED_FOR_TRADE));
+        assertFalse(addressEntryList.findAddressEntry("offer2", AddressEntry.Context.RESERVED_FOR_TRADE).isPresent());
+        assertFalse(addressEntryList.findAddressEntry("offer3", AddressEntry.Context.OFFER_FUNDING).isPresent());
+        assertEquals(2, addressEntryList.getAddressEntries(AddressEntry.Context.OFFER_FUNDING).size());
+
+        // An entry with the same offerId and context is not added
+        addressEntryList.addAddressEntry(new AddressEntry(getKey(3), AddressEntry.Context.OFFER_FUNDING, "offer1", true));
+        assertEquals(2, addressEntryList.getAddressEntries(AddressEntry.Context.OFFER_FUNDING).size());
+        assertEquals(3, addressEntryList.getAddressEntriesAsListImmutable().size());
+    }
+
+    @Test
+    public void testIndexesAreUpdatedAtSwap() {
+        AddressEntry available = new AddressEntry(getKey(0), AddressEntry.Context.AVAILABLE, true);
+        addressEntryList.addAddressEntry(available);
+        assertTrue(addressEntryList.getAddressEntries(AddressEntry.Context.AVAILABLE).contains(available));
+
+        AddressEntry multiSig = addressEntryList.swapAvailableToAddressEntryWithOfferId(available,
+                AddressEntry.Context.MULTI_SIG, "offer1");
+        assertTrue(addressEntryList.getAddressEntries(AddressEntry.Context.AVAILABLE).isEmpty());
+        assertEquals(List.of(multiSig), addressEntryList.getAddressEntries("offer1", AddressEntry.Context.MULTI_SIG));
+
+        addressEntryList.setCoinLockedInMultiSigAddressEntry(multiSig, 1000);
+        List<AddressEntry> entries = addressEntryList.getAddressEntries("offer1", AddressEntry.Context.MULTI_SIG);
+        assertEquals(1, entries.size());
+        assertEquals(1000, entries.get(0).getCoinLockedInMultiSig());
+
+        AddressEntry tradePayout = new AddressEntry(getKey(1), AddressEntry.Context.TRADE_PAYOUT, "offer1", true);
+        addressEntryList.addAddressEntry(tradePayout);
+        addressEntryList.swapToAvailable(tradePayout);
+        assertTrue(addressEntryList.getAddressEntries("offer1", AddressEntry.Context.TRADE_PAYOUT).isEmpty());
+        assertEquals(1, addressEntryList.getAddressEntries(AddressEntry.Context.AVAILABLE).size());
+        assertEquals(1, addressEntryList.getAddressEntries(AddressEntry.Context.MULTI_SIG).size());
+    }
+
+    @Test
+    public void testInsertionOrderIsKept() {
+        List<AddressEntry> available = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            AddressEntry entry = new AddressEntry(getKey(i), AddressEntry.Context.AVAILABLE, true);
+            available.add(entry);
+            addressEntryList.addAddressEntry(entry);
+        }
+        AddressEntry offerFunding = addressEntryList.swapAvailableToAddressEntryWithOfferId(available.remove(0),
+                AddressEntry.Context.OFFER_FUNDING, "offer1");
+        List<AddressEntry> all = new ArrayList<>(available);
+        all.add(offerFunding);
+
+        assertEquals(all, addressEntryList.getAddressEntriesAsListImmutable());
+        assertEquals(available, new ArrayList<>(addressEntryList.getAddressEntries(AddressEntry.Context.AVAILABLE)));
+
+        // The persisted entries keep the order as well
+        protobuf.PersistableEnvelope proto = (protobuf.PersistableEnvelope) addressEntryList.toProtoMessage();
+        AddressEntryList persisted = AddressEntryList.fromProto(proto.getAddressEntryList());
+        assertEquals(all, persisted.getAddressEntriesAsListImmutable());
+        assertEquals(available, new ArrayList<>(persisted.getAddressEntries(AddressEntry.Context.AVAILABLE)));
+    }
+}
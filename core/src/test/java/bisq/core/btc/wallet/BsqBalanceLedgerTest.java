@@ -0,0 +1,95 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.btc.wallet;
+
+import org.bitcoinj.core.Coin;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.bitcoinj.core.TransactionConfidence.ConfidenceType.BUILDING;
+import static org.bitcoinj.core.TransactionConfidence.ConfidenceType.PENDING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BsqBalanceLedgerTest {
+    @Test
+    public void testTotalsAreUpdatedByDelta() {
+        BsqBalanceLedger ledger = new BsqBalanceLedger();
+        ledger.put("tx1", new BsqBalanceLedger.TxBalance(BUILDING, 0, 0, 0, 0, 1000, 20, false));
+        ledger.put("tx2", new BsqBalanceLedger.TxBalance(PENDING, 300, 0, 0, 0, 300, 0, false));
+        ledger.put("tx3", new BsqBalanceLedger.TxBalance(BUILDING, 0, 0, 500, 0, 0, 0, false));
+        assertEquals(Coin.valueOf(1300), ledger.getAvailableConfirmedBalance());
+        assertEquals(Coin.valueOf(20), ledger.getAvailableNonBsqBalance());
+        assertEquals(Coin.valueOf(300), ledger.getUnverifiedBalance());
+        assertEquals(Coin.valueOf(500), ledger.getLockupBondsBalance());
+
+        // tx2 got confirmed and the output of tx1 got spent
+        ledger.put("tx2", new BsqBalanceLedger.TxBalance(BUILDING, 0, 0, 0, 0, 300, 0, false));
+        ledger.put("tx1", new BsqBalanceLedger.TxBalance(BUILDING, 0, 0, 0, 0, 0, 20, false));
+        assertEquals(Coin.valueOf(300), ledger.getAvailableConfirmedBalance());
+        assertEquals(Coin.ZERO, ledger.getUnverifiedBalance());
+
+        // The bond got unlocked
+        ledger.put("tx3", new BsqBalanceLedger.TxBalance(BUILDING, 0, 0, 0, 500, 0, 0, false));
+        assertEquals(Coin.ZERO, ledger.getLockupBondsBalance());
+        assertEquals(Coin.valueOf(500), ledger.getUnlockingBondsBalance());
+
+        ledger.remove("tx3");
+        ledger.remove("unknownTx");
+        assertEquals(Coin.ZERO, ledger.getUnlockingBondsBalance());
+        assertEquals(Set.of("tx1", "tx2"), ledger.getTxIds());
+    }
+
+    @Test
+    public void testDaoStateDependentTxIds() {
+        BsqBalanceLedger ledger = new BsqBalanceLedger();
+        ledger.put("pending", new BsqBalanceLedger.TxBalance(PENDING, 100, 0, 0, 0, 0, 0, false));
+        ledger.put("blindVote", new BsqBalanceLedger.TxBalance(BUILDING, 0, 200, 0, 0, 0, 0, false));
+        ledger.put("lockup", new BsqBalanceLedger.TxBalance(BUILDING, 0, 0, 300, 0, 0, 0, false));
+        ledger.put("transfer", new BsqBalanceLedger.TxBalance(BUILDING, 0, 0, 0, 0, 400, 0, false));
+        ledger.put("compensationRequest", new BsqBalanceLedger.TxBalance(BUILDING, 0, 0, 0, 0, 0, 0, true));
+        assertEquals(Set.of("pending", "blindVote", "lockup", "compensationRequest"),
+                ledger.getDaoStateDependentTxIds());
+    }
+
+    @Test
+    public void testReplaceWithRecomputedLedger() {
+        BsqBalanceLedger ledger = new BsqBalanceLedger();
+        assertFalse(ledger.isInitialized());
+        ledger.put("tx1", new BsqBalanceLedger.TxBalance(BUILDING, 0, 0, 0, 0, 1000, 0, false));
+
+        BsqBalanceLedger recomputed = new BsqBalanceLedger();
+        recomputed.put("tx1", new BsqBalanceLedger.TxBalance(BUILDING, 0, 0, 0, 0, 1000, 0, false));
+        assertTrue(ledger.hasSameTotals(recomputed));
+
+        recomputed.put("tx2", new BsqBalanceLedger.TxBalance(BUILDING, 0, 0, 0, 0, 50, 0, false));
+        assertFalse(ledger.hasSameTotals(recomputed));
+
+        ledger.replaceWith(recomputed);
+        assertTrue(ledger.isInitialized());
+        assertTrue(ledger.hasSameTotals(recomputed));
+        assertEquals(Coin.valueOf(1050), ledger.getAvailableConfirmedBalance());
+
+        // Further changes are applied to the replaced totals
+        ledger.remove("tx2");
+        assertEquals(Coin.valueOf(1000), ledger.getAvailableConfirmedBalance());
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.btc.wallet;
+
+import bisq.core.btc.setup.WalletsSetup;
+import bisq.core.dao.DaoKillSwitch;
+import bisq.core.dao.state.DaoStateService;
+import bisq.core.dao.state.model.blockchain.Block;
+import bisq.core.dao.state.model.blockchain.Tx;
+import bisq.core.dao.state.model.blockchain.TxOutput;
+import bisq.core.dao.state.model.blockchain.TxOutputKey;
+import bisq.core.dao.state.model.blockchain.TxOutputType;
+import bisq.core.dao.state.unconfirmed.UnconfirmedBsqChangeOutputListService;
+import bisq.core.provider.fee.FeeService;
+import bisq.core.user.Preferences;
+
+import bisq.common.FrameRateTimer;
+import bisq.common.UserThread;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.WalletTransaction;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.mockito.ArgumentCaptor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BsqWalletServiceTest {
+    private static final Coin ISSUANCE_AMOUNT = Coin.valueOf(50000);
+
+    private final NetworkParameters params = MainNetParams.get();
+    private DaoStateService daoStateService;
+    private BsqWalletService bsqWalletService;
+    private String txId;
+    private TxOutputKey issuanceCandidateKey;
+
+    @Before
+    public void setUp() {
+        Context.propagate(new Context(params));
+        UserThread.setTimerClass(ManualTimer.class);
+        ManualTimer.scheduledTimers.clear();
+
+        daoStateService = mock(DaoStateService.class);
+        when(daoStateService.isParseBlockChainComplete()).thenReturn(true);
+        UnconfirmedBsqChangeOutputListService unconfirmedBsqChangeOutputListService =
+                mock(UnconfirmedBsqChangeOutputListService.class);
+        when(unconfirmedBsqChangeOutputListService.getBalance()).thenReturn(Coin.ZERO);
+        WalletsSetup walletsSetup = mock(WalletsSetup.class);
+        when(walletsSetup.getParams()).thenReturn(params);
+        Wallet wallet = Wallet.createDeterministic(params, Script.ScriptType.P2PKH);
+        when(walletsSetup.getBsqWallet()).thenReturn(wallet);
+
+        bsqWalletService = new BsqWalletService(walletsSetup,
+                new BsqCoinSelector(daoStateService, unconfirmedBsqChangeOutputListService),
+                new NonBsqCoinSelector(daoStateService),
+                daoStateService,
+                unconfirmedBsqChangeOutputListService,
+                mock(Preferences.class),
+                mock(FeeService.class),
+                mock(DaoKillSwitch.class));
+        ArgumentCaptor<Runnable> setupCompletedHandler = ArgumentCaptor.forClass(Runnable.class);
+        verify(walletsSetup).addSetupCompletedHandler(setupCompletedHandler.capture());
+        setupCompletedHandler.getValue().run();
+
+        // A confirmed compensation request tx of an earlier block with the issuance candidate output to our wallet
+        Transaction tx = new Transaction(params);
+        tx.addOutput(new TransactionOutput(params, tx, Coin.valueOf(10000),
+                Address.fromKey(params, new ECKey(), Script.ScriptType.P2PKH)));
+        tx.addOutput(new TransactionOutput(params, tx, ISSUANCE_AMOUNT, wallet.freshReceiveAddress()));
+        tx.getConfidence().setAppearedAtChainHeight(100);
+        wallet.addWalletTransaction(new WalletTransaction(WalletTransaction.Pool.UNSPENT, tx));
+
+        txId = tx.getTxId().toString();
+        issuanceCandidateKey = new TxOutputKey(txId, 1);
+        TxOutput issuanceCandidate = mock(TxOutput.class);
+        when(issuanceCandidate.getTxOutputType()).thenReturn(TxOutputType.ISSUANCE_CANDIDATE_OUTPUT);
+        when(issuanceCandidate.getTxId()).thenReturn(txId);
+        when(issuanceCandidate.getKey()).thenReturn(issuanceCandidateKey);
+        when(issuanceCandidate.getValue()).thenReturn(ISSUANCE_AMOUNT.value);
+        Tx daoTx = mock(Tx.class);
+        when(daoTx.getTxOutputs()).thenReturn(List.of(issuanceCandidate));
+        when(daoStateService.getTx(txId)).thenReturn(Optional.of(daoTx));
+        when(daoStateService.containsTx(txId)).thenReturn(true);
+        // The issuance candidate output is in the DAO state but not in the UTXO set as long as it is not accepted
+        when(daoStateService.existsTxOutput(issuanceCandidateKey)).thenReturn(true);
+        when(daoStateService.getTxOutput(issuanceCandidateKey)).thenReturn(Optional.of(issuanceCandidate));
+
+        parseEmptyBlock();
+        assertEquals(Coin.ZERO, bsqWalletService.getAvailableConfirmedBalance());
+        assertEquals(Coin.ZERO, bsqWalletService.getAvailableNonBsqBalance());
+    }
+
+    @After
+    public void tearDown() {
+        UserThread.setTimerClass(FrameRateTimer.class);
+    }
+
+    @Test
+    public void testAcceptedIssuanceGetsAvailableAsBsqAtNextBlock() {
+        // The vote result phase has accepted the request, which adds the output to the UTXO set
+        when(daoStateService.isIssuanceTx(txId)).thenReturn(true);
+        when(daoStateService.isTxOutputSpendable(issuanceCandidateKey)).thenReturn(true);
+
+        parseEmptyBlock();
+        assertEquals(ISSUANCE_AMOUNT, bsqWalletService.getAvailableConfirmedBalance());
+        assertEquals(Coin.ZERO, bsqWalletService.getAvailableNonBsqBalance());
+    }
+
+    @Test
+    public void testRejectedIssuanceGetsAvailableAsBtcAtNextBlock() {
+        // The cycle is over and the request was not accepted
+        when(daoStateService.isRejectedIssuanceOutput(issuanceCandidateKey)).thenReturn(true);
+
+        parseEmptyBlock();
+        assertEquals(Coin.ZERO, bsqWalletService.getAvailableConfirmedBalance());
+        assertEquals(ISSUANCE_AMOUNT, bsqWalletService.getAvailableNonBsqBalance());
+    }
+
+    // A block without any of our txs, so only the DAO state dependent txs get evaluated again
+    private void parseEmptyBlock() {
+        Block block = mock(Block.class);
+        when(block.getTxs()).thenReturn(List.of());
+        bsqWalletService.onParseBlockCompleteAfterBatchProcessing(block);
+        ManualTimer.runScheduledTimers();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.btc.wallet;
+
+import bisq.common.Timer;
+
+import java.time.Duration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Timer for tests which only runs the scheduled actions when the test calls runScheduledTimers. Set it with
+ * UserThread.setTimerClass.
+ */
+public class ManualTimer implements Timer {
+    static final List<ManualTimer> scheduledTimers = new ArrayList<>();
+    private Runnable action;
+    boolean stopped;
+
+    public ManualTimer() {
+    }
+
+    static void runScheduledTimers() {
+        List<ManualTimer> timers = new ArrayList<>(scheduledTimers);
+        scheduledTimers.clear();
+        timers.stream().filter(timer -> !timer.stopped).forEach(timer -> timer.action.run());
+    }
+
+    @Override
+    public Timer runLater(Duration delay, Runnable action) {
+        this.action = action;
+        scheduledTimers.add(this);
+        return this;
+    }
+
+    @Override
+    public Timer runPeriodically(Duration interval, Runnable runnable) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+    }
+}
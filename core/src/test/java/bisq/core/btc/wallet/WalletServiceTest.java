@@ -0,0 +1,298 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.btc.wallet;
+
+import bisq.core.btc.listeners.AddressConfidenceListener;
+import bisq.core.btc.listeners.BalanceListener;
+import bisq.core.btc.listeners.TxConfidenceListener;
+import bisq.core.btc.setup.WalletsSetup;
+import bisq.core.provider.fee.FeeService;
+import bisq.core.user.Preferences;
+
+import bisq.common.FrameRateTimer;
+import bisq.common.UserThread;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.listeners.TransactionConfidenceEventListener;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.listeners.WalletCoinsReceivedEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mockito.ArgumentCaptor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WalletServiceTest {
+    private final NetworkParameters params = MainNetParams.get();
+    private final Address addressA = Address.fromKey(params, new ECKey(), Script.ScriptType.P2PKH);
+    private final Address addressB = Address.fromKey(params, new ECKey(), Script.ScriptType.P2PKH);
+    private final Address addressC = Address.fromKey(params, new ECKey(), Script.ScriptType.P2PKH);
+    private Wallet wallet;
+    private TestWalletService walletService;
+
+    @Before
+    public void setUp() {
+        Context.propagate(new Context(params));
+        UserThread.setTimerClass(ManualTimer.class);
+        ManualTimer.scheduledTimers.clear();
+
+        WalletsSetup walletsSetup = mock(WalletsSetup.class);
+        when(walletsSetup.getParams()).thenReturn(params);
+        wallet = mock(Wallet.class);
+        walletService = new TestWalletService(walletsSetup, wallet);
+    }
+
+    @After
+    public void tearDown() {
+        UserThread.setTimerClass(FrameRateTimer.class);
+    }
+
+    @Test
+    public void testBalanceNotificationsGetMerged() {
+        RecordingBalanceListener listener = new RecordingBalanceListener(null);
+        RecordingBalanceListener listenerA = new RecordingBalanceListener(addressA);
+        walletService.addBalanceListener(listener);
+        walletService.addBalanceListener(listenerA);
+
+        Transaction tx1 = createTx(addressA);
+        Transaction tx2 = createTx(addressA);
+        WalletCoinsReceivedEventListener walletListener = getWalletListener();
+        walletListener.onCoinsReceived(wallet, tx1, Coin.ZERO, Coin.ZERO);
+        walletListener.onCoinsReceived(wallet, tx2, Coin.ZERO, Coin.ZERO);
+        assertEquals(1, ManualTimer.scheduledTimers.size());
+        assertTrue(listener.txs.isEmpty());
+
+        ManualTimer.runScheduledTimers();
+        assertEquals(List.of(tx2), listener.txs);
+        assertEquals(List.of(tx2), listenerA.txs);
+
+        // A new event after the dispatch schedules a new notification
+        Transaction tx3 = createTx(addressA);
+        walletListener.onCoinsReceived(wallet, tx3, Coin.ZERO, Coin.ZERO);
+        assertEquals(1, ManualTimer.scheduledTimers.size());
+        ManualTimer.runScheduledTimers();
+        assertEquals(List.of(tx2, tx3), listener.txs);
+        assertEquals(List.of(tx2, tx3), listenerA.txs);
+    }
+
+    @Test
+    public void testBalanceListenersWithAddressOnlyGetNotifiedForTheirAddress() {
+        RecordingBalanceListener listener = new RecordingBalanceListener(null);
+        RecordingBalanceListener listenerA = new RecordingBalanceListener(addressA);
+        RecordingBalanceListener listenerB = new RecordingBalanceListener(addressB);
+        RecordingBalanceListener listenerC = new RecordingBalanceListener(addressC);
+        walletService.addBalanceListener(listener);
+        walletService.addBalanceListener(listenerA);
+        walletService.addBalanceListener(listenerB);
+        walletService.addBalanceListener(listenerC);
+        walletService.setBalance(addressA, Coin.valueOf(100));
+        walletService.setBalance(addressB, Coin.valueOf(200));
+
+        Transaction tx1 = createTx(addressA);
+        Transaction tx2 = createTx(addressB);
+        WalletCoinsReceivedEventListener walletListener = getWalletListener();
+        walletListener.onCoinsReceived(wallet, tx1, Coin.ZERO, Coin.ZERO);
+        walletListener.onCoinsReceived(wallet, tx2, Coin.ZERO, Coin.ZERO);
+        ManualTimer.runScheduledTimers();
+
+        assertEquals(List.of(tx2), listener.txs);
+        assertEquals(List.of(tx1), listenerA.txs);
+        assertEquals(List.of(Coin.valueOf(100)), listenerA.balances);
+        assertEquals(List.of(tx2), listenerB.txs);
+        assertEquals(List.of(Coin.valueOf(200)), listenerB.balances);
+        assertTrue(listenerC.txs.isEmpty());
+    }
+
+    @Test
+    public void testBalanceNotificationTimerGetsStoppedAtShutDown() {
+        RecordingBalanceListener listener = new RecordingBalanceListener(null);
+        walletService.addBalanceListener(listener);
+
+        getWalletListener().onCoinsReceived(wallet, createTx(addressA), Coin.ZERO, Coin.ZERO);
+        assertEquals(1, ManualTimer.scheduledTimers.size());
+
+        walletService.shutDown();
+        assertTrue(ManualTimer.scheduledTimers.get(0).stopped);
+        ManualTimer.runScheduledTimers();
+        assertTrue(listener.txs.isEmpty());
+    }
+
+    @Test
+    public void testConfidenceListenersOnlyGetNotifiedForTheirAddressOrTx() {
+        RecordingAddressConfidenceListener listenerA = new RecordingAddressConfidenceListener(addressA);
+        RecordingAddressConfidenceListener listenerB = new RecordingAddressConfidenceListener(addressB);
+        walletService.addAddressConfidenceListener(listenerA);
+        walletService.addAddressConfidenceListener(listenerB);
+
+        Transaction tx = createTx(addressA);
+        Transaction otherTx = createTx(addressB);
+        RecordingTxConfidenceListener txListener = new RecordingTxConfidenceListener(tx.getTxId().toString());
+        RecordingTxConfidenceListener otherTxListener = new RecordingTxConfidenceListener(otherTx.getTxId().toString());
+        walletService.addTxConfidenceListener(txListener);
+        walletService.addTxConfidenceListener(otherTxListener);
+
+        getConfidenceListener().onTransactionConfidenceChanged(wallet, tx);
+        assertEquals(List.of(tx.getConfidence()), listenerA.confidences);
+        assertTrue(listenerB.confidences.isEmpty());
+        assertEquals(List.of(tx.getConfidence()), txListener.confidences);
+        assertTrue(otherTxListener.confidences.isEmpty());
+    }
+
+    @Test
+    public void testConfidenceListenerAddedAfterRemovalOfLastListenerGetsNotified() {
+        RecordingAddressConfidenceListener removedListener = new RecordingAddressConfidenceListener(addressA);
+        walletService.addAddressConfidenceListener(removedListener);
+        walletService.removeAddressConfidenceListener(removedListener);
+        RecordingAddressConfidenceListener listener = new RecordingAddressConfidenceListener(addressA);
+        walletService.addAddressConfidenceListener(listener);
+
+        Transaction tx = createTx(addressA);
+        RecordingTxConfidenceListener removedTxListener = new RecordingTxConfidenceListener(tx.getTxId().toString());
+        walletService.addTxConfidenceListener(removedTxListener);
+        walletService.removeTxConfidenceListener(removedTxListener);
+        RecordingTxConfidenceListener txListener = new RecordingTxConfidenceListener(tx.getTxId().toString());
+        walletService.addTxConfidenceListener(txListener);
+
+        getConfidenceListener().onTransactionConfidenceChanged(wallet, tx);
+        assertTrue(removedListener.confidences.isEmpty());
+        assertEquals(List.of(tx.getConfidence()), listener.confidences);
+        assertTrue(removedTxListener.confidences.isEmpty());
+        assertEquals(List.of(tx.getConfidence()), txListener.confidences);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private WalletCoinsReceivedEventListener getWalletListener() {
+        ArgumentCaptor<WalletCoinsReceivedEventListener> captor =
+                ArgumentCaptor.forClass(WalletCoinsReceivedEventListener.class);
+        verify(wallet).addCoinsReceivedEventListener(captor.capture());
+        return captor.getValue();
+    }
+
+    private TransactionConfidenceEventListener getConfidenceListener() {
+        ArgumentCaptor<TransactionConfidenceEventListener> captor =
+                ArgumentCaptor.forClass(TransactionConfidenceEventListener.class);
+        verify(wallet).addTransactionConfidenceEventListener(captor.capture());
+        return captor.getValue();
+    }
+
+    private Transaction createTx(Address address) {
+        Transaction tx = new Transaction(params);
+        tx.addOutput(new TransactionOutput(params, tx, Coin.valueOf(10000), address));
+        return tx;
+    }
+
+    private static class TestWalletService extends WalletService {
+        private final Map<Address, Coin> balanceByAddress = new HashMap<>();
+
+        TestWalletService(WalletsSetup walletsSetup, Wallet wallet) {
+            super(walletsSetup, mock(Preferences.class), mock(FeeService.class));
+            this.wallet = wallet;
+            addListenersToWallet();
+        }
+
+        void setBalance(Address address, Coin balance) {
+            balanceByAddress.put(address, balance);
+        }
+
+        @Override
+        public Coin getAvailableConfirmedBalance() {
+            return Coin.ZERO;
+        }
+
+        @Override
+        public Coin getBalanceForAddress(Address address) {
+            return balanceByAddress.getOrDefault(address, Coin.ZERO);
+        }
+
+        @Override
+        String getWalletAsString(boolean includePrivKeys) {
+            return "";
+        }
+
+        @Override
+        protected boolean isDustAttackUtxo(TransactionOutput output) {
+            return false;
+        }
+    }
+
+    private static class RecordingBalanceListener extends BalanceListener {
+        private final List<Coin> balances = new ArrayList<>();
+        private final List<Transaction> txs = new ArrayList<>();
+
+        RecordingBalanceListener(Address address) {
+            super(address);
+        }
+
+        @Override
+        public void onBalanceChanged(Coin balance, Transaction tx) {
+            balances.add(balance);
+            txs.add(tx);
+        }
+    }
+
+    private static class RecordingAddressConfidenceListener extends AddressConfidenceListener {
+        private final List<TransactionConfidence> confidences = new ArrayList<>();
+
+        RecordingAddressConfidenceListener(Address address) {
+            super(address);
+        }
+
+        @Override
+        public void onTransactionConfidenceChanged(TransactionConfidence confidence) {
+            confidences.add(confidence);
+        }
+    }
+
+    private static class RecordingTxConfidenceListener extends TxConfidenceListener {
+        private final List<TransactionConfidence> confidences = new ArrayList<>();
+
+        RecordingTxConfidenceListener(String txId) {
+            super(txId);
+        }
+
+        @Override
+        public void onTransactionConfidenceChanged(TransactionConfidence confidence) {
+            confidences.add(confidence);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.core.dao.governance.votereveal;
+
+import bisq.core.dao.governance.blindvote.BlindVote;
+
+import bisq.common.util.PermutationUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BlindVoteListHasherTest {
+    // About the number of blind votes of a voting cycle
+    private static final int NUM_BLIND_VOTES = 30;
+
+    private static List<BlindVote> createBlindVotes(int numBlindVotes) {
+        Random random = new Random(1);
+        List<BlindVote> blindVotes = new ArrayList<>();
+        for (int i = 0; i < numBlindVotes; i++) {
+            byte[] encryptedVotes = new byte[1000];
+            random.nextBytes(encryptedVotes);
+            byte[] encryptedMeritList = new byte[500];
+            random.nextBytes(encryptedMeritList);
+            blindVotes.add(new BlindVote(encryptedVotes, "txId" + i, 100000 + i, encryptedMeritList,
+                    1600000000000L + i, new HashMap<>()));
+        }
+        return blindVotes;
+    }
+
+    @Test
+    public void testHashMatchesConsensusHash() {
+        List<BlindVote> blindVotes = createBlindVotes(5);
+        BlindVoteListHasher hasher = new BlindVoteListHasher(blindVotes);
+
+        Assert.assertArrayEquals(VoteRevealConsensus.getHashOfBlindVoteList(blindVotes), hasher.getHash(blindVotes));
+        List<List<BlindVote>> variations = Arrays.asList(
+                PermutationUtil.getPartialList(blindVotes, List.of(0)),
+                PermutationUtil.getPartialList(blindVotes, List.of(2, 3)),
+                PermutationUtil.getPartialList(blindVotes, List.of(4)),
+                new ArrayList<>());
+        variations.forEach(variation -> Assert.assertArrayEquals(
+                VoteRevealConsensus.getHashOfBlindVoteList(variation), hasher.getHash(variation)));
+    }
+
+    // The sequential search hashing each variation from scratch and the parallel search using the hasher must find
+    // the same variation. See FindMatchingPermutationBenchmark for the durations.
+    @Test
+    public void testFindMatchingPermutation() {
+        List<BlindVote> blindVotes = createBlindVotes(NUM_BLIND_VOTES);
+        // We have 3 blind votes which the majority has not seen, so we need to test about 4500 variations
+        List<BlindVote> majorityList = PermutationUtil.getPartialList(blindVotes, List.of(5, 15, 25));
+        byte[] majorityHash = VoteRevealConsensus.getHashOfBlindVoteList(majorityList);
+
+        BiFunction<byte[], List<BlindVote>, Boolean> predicate = (hash, variation) ->
+                Arrays.equals(hash, VoteRevealConsensus.getHashOfBlindVoteList(variation));
+        List<BlindVote> result = PermutationUtil.findMatchingPermutation(majorityHash, blindVotes, predicate, 1000000);
+        Assert.assertEquals(majorityList, result);
+
+        BlindVoteListHasher hasher = new BlindVoteListHasher(blindVotes);
+        BiFunction<byte[], List<BlindVote>, Boolean> parallelPredicate = (hash, variation) ->
+                Arrays.equals(hash, hasher.getHash(variation));
+        result = PermutationUtil.findMatchingPermutationInParallel(majorityHash, blindVotes, parallelPredicate,
+                1000000, ForkJoinPool.commonPool());
+        Assert.assertEquals(majorityList, result);
+    }
+}
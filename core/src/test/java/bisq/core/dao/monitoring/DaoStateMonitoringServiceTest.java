@@ -0,0 +1,187 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.monitoring;
+
+import bisq.core.dao.monitoring.model.DaoStateHash;
+import bisq.core.dao.monitoring.network.DaoStateNetworkService;
+import bisq.core.dao.monitoring.network.messages.GetDaoStateHashesRequest;
+import bisq.core.dao.state.DaoStateService;
+import bisq.core.dao.state.GenesisTxInfo;
+import bisq.core.dao.state.model.blockchain.Block;
+
+import bisq.network.p2p.network.Connection;
+import bisq.network.p2p.seed.SeedNodeRepository;
+
+import bisq.common.app.Capabilities;
+import bisq.common.app.Capability;
+
+import org.bitcoinj.core.Coin;
+
+import java.io.File;
+
+import java.util.List;
+
+import org.mockito.ArgumentCaptor;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DaoStateMonitoringServiceTest {
+    // Above the height of the last checkpoint, which always requires the legacy hash
+    private static final int GENESIS_HEIGHT = 600000;
+
+    private DaoStateService daoStateService;
+    private DaoStateNetworkService daoStateNetworkService;
+    private DaoStateMonitoringService daoStateMonitoringService;
+
+    @Before
+    public void setUp() {
+        daoStateService = mock(DaoStateService.class);
+        daoStateNetworkService = mock(DaoStateNetworkService.class);
+        when(daoStateService.getSerializedStateForHashChain()).thenReturn(new byte[]{1, 2, 3});
+        when(daoStateService.getSerializedStateCommitment()).thenReturn(new byte[]{4, 5, 6});
+        daoStateMonitoringService = new DaoStateMonitoringService(daoStateService,
+                daoStateNetworkService,
+                new GenesisTxInfo("fakegenesistxid", GENESIS_HEIGHT, Coin.parseCoin("2.5").value),
+                mock(SeedNodeRepository.class),
+                new File("unused"),
+                true);
+    }
+
+    private void addBlock(int height) {
+        when(daoStateService.getChainHeight()).thenReturn(height);
+        daoStateMonitoringService.createHashFromBlock(new Block(height, 1534800000, "hash" + height, null));
+    }
+
+    private DaoStateHash getLastStateHash() {
+        return daoStateMonitoringService.getDaoStateBlockChain().getLast().getMyStateHash();
+    }
+
+    private List<DaoStateHash> requestHashes(Capability... capabilities) {
+        Connection connection = mock(Connection.class);
+        when(connection.getCapabilities()).thenReturn(new Capabilities(capabilities));
+        daoStateMonitoringService.onGetStateHashRequest(connection, new GetDaoStateHashesRequest(GENESIS_HEIGHT, 1));
+
+        //noinspection unchecked
+        ArgumentCaptor<List<DaoStateHash>> captor = ArgumentCaptor.forClass(List.class);
+        verify(daoStateNetworkService).sendGetStateHashesResponse(eq(connection), anyInt(), captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    public void legacyHashIsNotComputedWithoutPeerRequiringIt() {
+        addBlock(GENESIS_HEIGHT);
+        addBlock(GENESIS_HEIGHT + 1);
+
+        verify(daoStateService, never()).getSerializedStateForHashChain();
+        Assert.assertFalse(getLastStateHash().hasLegacyHash());
+        Assert.assertNotNull(getLastStateHash().getStateCommitment());
+
+        List<DaoStateHash> hashes = requestHashes(Capability.DAO_STATE, Capability.DAO_STATE_COMMITMENT);
+        Assert.assertEquals(2, hashes.size());
+        verify(daoStateService, never()).getSerializedStateForHashChain();
+    }
+
+    @Test
+    public void legacyHashIsComputedWhilePeerRequiresIt() {
+        when(daoStateNetworkService.hasPeerRequiringLegacyStateHash()).thenReturn(true);
+        addBlock(GENESIS_HEIGHT);
+        addBlock(GENESIS_HEIGHT + 1);
+        Assert.assertTrue(getLastStateHash().hasLegacyHash());
+        Assert.assertNotNull(getLastStateHash().getStateCommitment());
+
+        // Once a block is missing the legacy hash, the chain of legacy hashes cannot be continued
+        when(daoStateNetworkService.hasPeerRequiringLegacyStateHash()).thenReturn(false);
+        addBlock(GENESIS_HEIGHT + 2);
+        addBlock(GENESIS_HEIGHT + 3);
+        when(daoStateNetworkService.hasPeerRequiringLegacyStateHash()).thenReturn(true);
+        addBlock(GENESIS_HEIGHT + 4);
+        Assert.assertFalse(getLastStateHash().hasLegacyHash());
+        verify(daoStateService, times(2)).getSerializedStateForHashChain();
+    }
+
+    @Test
+    public void legacyHashIsComputedWithoutStateCommitment() {
+        when(daoStateService.getSerializedStateCommitment()).thenReturn(null);
+        addBlock(GENESIS_HEIGHT);
+        Assert.assertTrue(getLastStateHash().hasLegacyHash());
+        Assert.assertNull(getLastStateHash().getStateCommitment());
+    }
+
+    @Test
+    public void legacyHashOfLastBlockIsAddedForPeerRequiringIt() {
+        when(daoStateNetworkService.hasPeerRequiringLegacyStateHash()).thenReturn(true);
+        addBlock(GENESIS_HEIGHT);
+        when(daoStateNetworkService.hasPeerRequiringLegacyStateHash()).thenReturn(false);
+        addBlock(GENESIS_HEIGHT + 1);
+        DaoStateHash prevStateHash = daoStateMonitoringService.getDaoStateBlockChain().getFirst().getMyStateHash();
+
+        List<DaoStateHash> hashes = requestHashes(Capability.DAO_STATE);
+        Assert.assertEquals(2, hashes.size());
+        DaoStateHash lastStateHash = hashes.get(1);
+        Assert.assertTrue(lastStateHash.hasLegacyHash());
+        Assert.assertArrayEquals(prevStateHash.getHash(), lastStateHash.getPrevHash());
+        // Peers not supporting the state commitment get the legacy hash only
+        Assert.assertNull(lastStateHash.getStateCommitment());
+
+        Assert.assertTrue(getLastStateHash().hasLegacyHash());
+        Assert.assertEquals(getLastStateHash(), daoStateMonitoringService.getDaoStateHashChain().getLast());
+    }
+
+    @Test
+    public void hashesWithoutLegacyHashAreNotSentToPeerRequiringIt() {
+        addBlock(GENESIS_HEIGHT);
+        // The state changed since the last block, so we cannot add the legacy hash anymore
+        when(daoStateService.getChainHeight()).thenReturn(GENESIS_HEIGHT + 1);
+
+        Assert.assertTrue(requestHashes(Capability.DAO_STATE).isEmpty());
+        verify(daoStateService, never()).getSerializedStateForHashChain();
+    }
+
+    @Test
+    public void stateHashesAreComparedByTheHashesBothProvide() {
+        byte[] legacyHash = new byte[]{1};
+        byte[] otherLegacyHash = new byte[]{2};
+        byte[] stateCommitment = new byte[]{3};
+        byte[] otherStateCommitment = new byte[]{4};
+        byte[] empty = new byte[0];
+
+        DaoStateHash commitmentOnly = new DaoStateHash(1, empty, empty, stateCommitment);
+        DaoStateHash legacyOnly = new DaoStateHash(1, legacyHash, empty, null);
+        Assert.assertFalse(commitmentOnly.isComparable(legacyOnly));
+
+        DaoStateHash both = new DaoStateHash(1, legacyHash, empty, stateCommitment);
+        Assert.assertTrue(both.isComparable(commitmentOnly));
+        Assert.assertTrue(both.hasEqualHash(commitmentOnly));
+        Assert.assertTrue(both.isComparable(legacyOnly));
+        Assert.assertTrue(both.hasEqualHash(legacyOnly));
+
+        Assert.assertFalse(both.hasEqualHash(new DaoStateHash(1, empty, empty, otherStateCommitment)));
+        Assert.assertFalse(both.hasEqualHash(new DaoStateHash(1, otherLegacyHash, empty, null)));
+        Assert.assertFalse(both.hasEqualHash(new DaoStateHash(1, legacyHash, empty, otherStateCommitment)));
+    }
+}
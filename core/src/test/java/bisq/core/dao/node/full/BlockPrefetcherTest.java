@@ -0,0 +1,151 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.node.full;
+
+import bisq.core.dao.node.full.rpc.LocalBitcoindClient;
+
+import bisq.common.util.Utilities;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BlockPrefetcherTest {
+    private ListeningExecutorService executor;
+    private List<RawBlock> rawBlocks;
+    private CountDownLatch completeLatch;
+    private AtomicReference<Throwable> error;
+
+    @Before
+    public void setUp() {
+        executor = Utilities.getListeningExecutorService("BlockPrefetcherTest", 4, 4, 60, new LinkedBlockingQueue<>());
+        rawBlocks = Collections.synchronizedList(new ArrayList<>());
+        completeLatch = new CountDownLatch(1);
+        error = new AtomicReference<>();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testBlocksAreDeliveredInOrder() throws InterruptedException {
+        LocalBitcoindClient client = new LocalBitcoindClient(40);
+        client.setLatencyMillis(5);
+
+        startPrefetcher(client, 10, 0, 40);
+
+        assertTrue(completeLatch.await(10, TimeUnit.SECONDS));
+        assertEquals(IntStream.rangeClosed(0, 40).boxed().collect(Collectors.toList()), getHeights());
+        assertTrue(client.getMaxConcurrentCalls().get() > 1);
+    }
+
+    @Test
+    public void testNoBlocksAreRequestedBeyondLookAheadAfterCancel() throws InterruptedException {
+        LocalBitcoindClient client = new LocalBitcoindClient(40);
+        AtomicReference<BlockPrefetcher> prefetcher = new AtomicReference<>();
+        CountDownLatch firstBlockLatch = new CountDownLatch(1);
+        BlockPrefetcher blockPrefetcher = new BlockPrefetcher(client, executor, 3, 0, 40,
+                rawBlock -> {
+                    rawBlocks.add(rawBlock);
+                    prefetcher.get().cancel();
+                    firstBlockLatch.countDown();
+                },
+                completeLatch::countDown,
+                error::set);
+        prefetcher.set(blockPrefetcher);
+        blockPrefetcher.start();
+
+        assertTrue(firstBlockLatch.await(10, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertTrue(blockPrefetcher.isCanceled());
+        assertEquals(List.of(0), getHeights());
+        assertTrue(client.getNumGetBlockCalls().get() <= 3);
+        assertEquals(1, completeLatch.getCount());
+    }
+
+    @Test
+    public void testErrorStopsDelivery() throws InterruptedException {
+        LocalBitcoindClient client = new LocalBitcoindClient(20);
+        client.setFailingBlockHeight(5);
+        CountDownLatch errorLatch = new CountDownLatch(1);
+        BlockPrefetcher blockPrefetcher = new BlockPrefetcher(client, executor, 10, 0, 20,
+                rawBlocks::add,
+                completeLatch::countDown,
+                throwable -> {
+                    error.set(throwable);
+                    errorLatch.countDown();
+                });
+        blockPrefetcher.start();
+
+        assertTrue(errorLatch.await(10, TimeUnit.SECONDS));
+        assertTrue(error.get() instanceof IOException);
+        assertEquals(List.of(0, 1, 2, 3, 4), getHeights());
+        assertEquals(1, completeLatch.getCount());
+    }
+
+    @Test
+    public void testNewPrefetcherAfterReorgDeliversNewChain() throws InterruptedException {
+        LocalBitcoindClient client = new LocalBitcoindClient(10);
+        startPrefetcher(client, 4, 0, 10);
+        assertTrue(completeLatch.await(10, TimeUnit.SECONDS));
+
+        client.reorg(5);
+        rawBlocks.clear();
+        completeLatch = new CountDownLatch(1);
+        startPrefetcher(client, 4, 5, 10);
+
+        assertTrue(completeLatch.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of(5, 6, 7, 8, 9, 10), getHeights());
+        assertEquals("block-4", rawBlocks.get(0).getPreviousBlockHash());
+        assertEquals("reorg-block-5", rawBlocks.get(0).getHash());
+        assertNull(error.get());
+    }
+
+    private void startPrefetcher(LocalBitcoindClient client, int maxBlocksAhead, int startBlockHeight, int chainHeight) {
+        new BlockPrefetcher(client, executor, maxBlocksAhead, startBlockHeight, chainHeight,
+                rawBlocks::add,
+                completeLatch::countDown,
+                error::set).start();
+    }
+
+    private List<Integer> getHeights() {
+        synchronized (rawBlocks) {
+            return rawBlocks.stream().map(RawBlock::getHeight).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.core.dao.node.full.network;
+
+import bisq.core.dao.node.full.RawBlock;
+import bisq.core.dao.node.messages.GetBlocksResponse;
+import bisq.core.dao.state.DaoStateCommitment;
+import bisq.core.dao.state.DaoStateService;
+import bisq.core.dao.state.GenesisTxInfo;
+import bisq.core.dao.state.model.DaoState;
+import bisq.core.dao.state.model.blockchain.Block;
+import bisq.core.util.coin.BsqFormatter;
+
+import org.bitcoinj.core.Coin;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RawBlockStoreTest {
+    private static final int GENESIS_HEIGHT = 100;
+
+    private DaoStateService daoStateService;
+    private RawBlockStore rawBlockStore;
+
+    @Before
+    public void setUp() {
+        daoStateService = new DaoStateService(new DaoState(),
+                new GenesisTxInfo("fakegenesistxid", GENESIS_HEIGHT, Coin.parseCoin("2.5").value),
+                new BsqFormatter());
+        rawBlockStore = new RawBlockStore(daoStateService);
+        for (int height = GENESIS_HEIGHT; height < GENESIS_HEIGHT + RawBlockStore.SEGMENT_SIZE + 10; height++) {
+            addBlock(height, "hash" + height);
+        }
+    }
+
+    private void addBlock(int height, String hash) {
+        daoStateService.onNewBlockHeight(height);
+        daoStateService.onNewBlockWithEmptyTxs(new Block(height, 1534800000 + height, hash, "hash" + (height - 1)));
+    }
+
+    private static protobuf.BaseBlock parse(ByteString serializedBlock) {
+        try {
+            return protobuf.BaseBlock.parseFrom(serializedBlock);
+        } catch (InvalidProtocolBufferException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private List<protobuf.BaseBlock> getBlocks(int fromBlockHeight, int numMaxBlocks) {
+        return rawBlockStore.getSerializedBlocks(fromBlockHeight, numMaxBlocks).stream()
+                .map(RawBlockStoreTest::parse)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Integer> getHeights(List<protobuf.BaseBlock> serializedBlocks) {
+        return serializedBlocks.stream().map(protobuf.BaseBlock::getHeight).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testGetSerializedBlocks() {
+        List<protobuf.BaseBlock> serializedBlocks = getBlocks(0, 3);
+        Assert.assertEquals(List.of(100, 101, 102), getHeights(serializedBlocks));
+        Assert.assertEquals("hash100", serializedBlocks.get(0).getHash());
+        Assert.assertTrue(serializedBlocks.get(0).hasRawBlock());
+
+        // The range spans 2 segments and gets limited by the last block
+        int lastHeight = daoStateService.getBlockHeightOfLastBlock();
+        serializedBlocks = getBlocks(lastHeight - 20, 6000);
+        Assert.assertEquals(21, serializedBlocks.size());
+        Assert.assertEquals(lastHeight, serializedBlocks.get(20).getHeight());
+        Assert.assertEquals(2, rawBlockStore.getNumSegments());
+
+        Assert.assertTrue(rawBlockStore.getSerializedBlocks(lastHeight + 1, 10).isEmpty());
+    }
+
+    @Test
+    public void testSerializedBlocksAreShared() {
+        ByteString first = rawBlockStore.getSerializedBlocks(105, 1).get(0);
+        Assert.assertSame(first, rawBlockStore.getSerializedBlocks(105, 1).get(0));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSegmentsGetEvicted() {
+        int lastHeight = GENESIS_HEIGHT + RawBlockStore.SEGMENT_SIZE * (RawBlockStore.MAX_SEGMENTS + 1);
+        for (int height = daoStateService.getBlockHeightOfLastBlock() + 1; height <= lastHeight; height++) {
+            addBlock(height, "hash" + height);
+        }
+        ByteString first = rawBlockStore.getSerializedBlocks(GENESIS_HEIGHT, 1).get(0);
+
+        rawBlockStore.getSerializedBlocks(GENESIS_HEIGHT + RawBlockStore.SEGMENT_SIZE, lastHeight);
+        Assert.assertEquals(RawBlockStore.MAX_SEGMENTS, rawBlockStore.getNumSegments());
+
+        // The first segment got evicted, so the block gets serialized again
+        ByteString firstAfterEviction = rawBlockStore.getSerializedBlocks(GENESIS_HEIGHT, 1).get(0);
+        Assert.assertNotSame(first, firstAfterEviction);
+        Assert.assertEquals(first, firstAfterEviction);
+    }
+
+    @Test
+    public void testSerializedBlocksAreParsedAsRawBlocks() throws InvalidProtocolBufferException {
+        List<ByteString> serializedBlocks = rawBlockStore.getSerializedBlocks(105, 3);
+        protobuf.NetworkEnvelope sent = GetBlocksResponse.fromSerializedBlocks(serializedBlocks, 7)
+                .toProtoNetworkEnvelope();
+        protobuf.NetworkEnvelope proto = protobuf.NetworkEnvelope.parseFrom(sent.toByteArray());
+
+        GetBlocksResponse received = (GetBlocksResponse) GetBlocksResponse.fromProto(proto.getGetBlocksResponse(),
+                proto.getMessageVersion());
+        Assert.assertEquals(7, received.getRequestNonce());
+        Assert.assertEquals(List.of(105, 106, 107), received.getBlocks().stream()
+                .map(RawBlock::getHeight)
+                .collect(Collectors.toList()));
+        Assert.assertEquals("hash106", received.getBlocks().get(1).getHash());
+    }
+
+    @Test
+    public void testReplacedBlockGetsUpdated() {
+        DaoState snapshot = daoStateService.getCopy();
+        DaoStateCommitment snapshotCommitment = daoStateService.getStateCommitmentCopy();
+        int height = daoStateService.getBlockHeightOfLastBlock() + 1;
+        addBlock(height, "orphanedHash");
+        Assert.assertEquals("orphanedHash", getBlocks(height, 1).get(0).getHash());
+
+        // Simulates a reorg where we apply the last snapshot and parse the new block
+        daoStateService.applySnapshot(snapshot, snapshotCommitment);
+        Assert.assertTrue(rawBlockStore.getSerializedBlocks(height, 1).isEmpty());
+        addBlock(height, "newHash");
+        Assert.assertEquals("newHash", getBlocks(height, 1).get(0).getHash());
+    }
+}
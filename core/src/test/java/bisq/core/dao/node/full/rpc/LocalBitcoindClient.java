@@ -0,0 +1,132 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.node.full.rpc;
+
+import bisq.core.dao.node.full.rpc.dto.DtoNetworkInfo;
+import bisq.core.dao.node.full.rpc.dto.RawDtoBlock;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Offline stand-in for Bitcoin Core serving a synthetic chain of empty blocks. Supports a simulated RPC latency,
+ * failing block requests and reorgs, so code using the BitcoindClient can be tested without a running node.
+ */
+public class LocalBitcoindClient implements BitcoindClient {
+    private final List<String> blockHashes = new ArrayList<>();
+    @Setter
+    private volatile long latencyMillis;
+    @Setter
+    private volatile int failingBlockHeight = -1;
+    @Getter
+    private final AtomicInteger numGetBlockCalls = new AtomicInteger();
+    @Getter
+    private final AtomicInteger maxConcurrentCalls = new AtomicInteger();
+    private final AtomicInteger concurrentCalls = new AtomicInteger();
+
+    public LocalBitcoindClient(int chainHeight) {
+        mineBlocks(chainHeight + 1, "");
+    }
+
+    /**
+     * Replaces the blocks from the given height on with blocks of a different hash.
+     */
+    public synchronized void reorg(int fromBlockHeight) {
+        int chainHeight = blockHashes.size() - 1;
+        blockHashes.subList(fromBlockHeight, blockHashes.size()).clear();
+        mineBlocks(chainHeight - fromBlockHeight + 1, "reorg-");
+    }
+
+    @Override
+    public RawDtoBlock getBlock(String headerHash, int verbosity) throws IOException {
+        numGetBlockCalls.incrementAndGet();
+        simulateLatency();
+        synchronized (this) {
+            int blockHeight = blockHashes.indexOf(headerHash);
+            if (blockHeight < 0) {
+                throw new IOException("Block not found: " + headerHash);
+            }
+            if (blockHeight == failingBlockHeight) {
+                throw new IOException("Simulated error at blockHeight " + blockHeight);
+            }
+            var block = new RawDtoBlock();
+            block.setHash(headerHash);
+            block.setHeight(blockHeight);
+            block.setPreviousBlockHash(blockHeight > 0 ? blockHashes.get(blockHeight - 1) : null);
+            block.setTime(1_600_000_000L + blockHeight * 600L);
+            block.setTx(new ArrayList<>());
+            return block;
+        }
+    }
+
+    @Override
+    public synchronized Integer getBlockCount() {
+        return blockHashes.size() - 1;
+    }
+
+    @Override
+    public String getBlockHash(Integer blockHeight) throws IOException {
+        simulateLatency();
+        synchronized (this) {
+            if (blockHeight < 0 || blockHeight >= blockHashes.size()) {
+                throw new IOException("Block height out of range: " + blockHeight);
+            }
+            return blockHashes.get(blockHeight);
+        }
+    }
+
+    @Override
+    public synchronized String getBestBlockHash() {
+        return blockHashes.get(blockHashes.size() - 1);
+    }
+
+    @Override
+    public DtoNetworkInfo getNetworkInfo() {
+        var networkInfo = new DtoNetworkInfo();
+        networkInfo.setVersion(200000);
+        return networkInfo;
+    }
+
+    private void mineBlocks(int numBlocks, String hashPrefix) {
+        for (int i = 0; i < numBlocks; i++) {
+            blockHashes.add(hashPrefix + "block-" + blockHashes.size());
+        }
+    }
+
+    private void simulateLatency() throws IOException {
+        int calls = concurrentCalls.incrementAndGet();
+        maxConcurrentCalls.accumulateAndGet(calls, Math::max);
+        try {
+            if (latencyMillis > 0) {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } finally {
+            concurrentCalls.decrementAndGet();
+        }
+    }
+}
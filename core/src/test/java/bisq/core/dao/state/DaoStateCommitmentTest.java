@@ -0,0 +1,128 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.core.dao.state;
+
+import bisq.core.dao.governance.param.Param;
+import bisq.core.dao.state.model.governance.ParamChange;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DaoStateCommitmentTest {
+    @Test
+    public void testOrderOfUpdatesDoesNotMatter() {
+        DaoStateCommitment.MultisetHash first = new DaoStateCommitment.MultisetHash();
+        first.add(new byte[]{1});
+        first.add(new byte[]{2});
+        first.remove(new byte[]{3});
+
+        DaoStateCommitment.MultisetHash second = new DaoStateCommitment.MultisetHash();
+        second.remove(new byte[]{3});
+        second.add(new byte[]{2});
+        second.add(new byte[]{1});
+
+        Assert.assertArrayEquals(first.getDigest(), second.getDigest());
+    }
+
+    @Test
+    public void testRootChangesWithState() {
+        DaoStateCommitment commitment = new DaoStateCommitment();
+        commitment.addConfiscatedLockupTx("txId1");
+        byte[] root = commitment.getRoot();
+
+        commitment.addConfiscatedLockupTx("txId2");
+        Assert.assertFalse(Arrays.equals(root, commitment.getRoot()));
+    }
+
+    @Test
+    public void testRemoveRevertsAdd() {
+        DaoStateCommitment.MultisetHash multisetHash = new DaoStateCommitment.MultisetHash();
+        byte[] emptyDigest = multisetHash.getDigest();
+        multisetHash.add(new byte[]{1});
+        multisetHash.add(new byte[]{2});
+        multisetHash.remove(new byte[]{1});
+        multisetHash.remove(new byte[]{2});
+        Assert.assertArrayEquals(emptyDigest, multisetHash.getDigest());
+    }
+
+    @Test
+    public void testProtoRoundTrip() {
+        DaoStateCommitment commitment = new DaoStateCommitment();
+        commitment.addConfiscatedLockupTx("txId1");
+        commitment.addConfiscatedLockupTx("txId2");
+        commitment.addParamChange(new ParamChange(Param.BONDED_ROLE_FACTOR.name(), "2000", 100));
+        DaoStateCommitment fromProto = DaoStateCommitment.fromProto(commitment.toProtoMessage());
+        Assert.assertNotNull(fromProto);
+
+        // Changes after the restore must lead to the same result as without persistence
+        commitment.addConfiscatedLockupTx("txId3");
+        fromProto.addConfiscatedLockupTx("txId3");
+        Assert.assertArrayEquals(commitment.getRoot(), fromProto.getRoot());
+    }
+
+    @Test
+    public void testUnknownComponentsAreRejected() {
+        protobuf.DaoStateCommitment proto = new DaoStateCommitment().toProtoMessage().toBuilder()
+                .addMultisetHash(protobuf.MultisetHash.getDefaultInstance())
+                .build();
+        Assert.assertNull(DaoStateCommitment.fromProto(proto));
+    }
+
+    @Test
+    public void testCopyIsNotAffectedByLaterChanges() {
+        DaoStateCommitment commitment = new DaoStateCommitment();
+        commitment.addConfiscatedLockupTx("txId1");
+        DaoStateCommitment copy = commitment.getCopy();
+        byte[] root = copy.getRoot();
+
+        commitment.addConfiscatedLockupTx("txId2");
+        Assert.assertArrayEquals(root, copy.getRoot());
+        Assert.assertFalse(Arrays.equals(root, commitment.getRoot()));
+    }
+
+    @Test
+    public void testAddAllMatchesUpdatesOfBoth() {
+        DaoStateCommitment all = new DaoStateCommitment();
+        all.addConfiscatedLockupTx("txId1");
+        all.addConfiscatedLockupTx("txId2");
+
+        DaoStateCommitment base = new DaoStateCommitment();
+        base.addConfiscatedLockupTx("txId1");
+        DaoStateCommitment changes = new DaoStateCommitment();
+        changes.addConfiscatedLockupTx("txId2");
+        base.addAll(changes);
+        Assert.assertArrayEquals(all.getRoot(), base.getRoot());
+    }
+
+    @Test
+    public void testAddAllAppliesRemovalOfElementOfOther() {
+        DaoStateCommitment.MultisetHash expected = new DaoStateCommitment.MultisetHash();
+        expected.add(new byte[]{1});
+
+        DaoStateCommitment.MultisetHash base = new DaoStateCommitment.MultisetHash();
+        base.add(new byte[]{1});
+        base.add(new byte[]{2});
+        DaoStateCommitment.MultisetHash changes = new DaoStateCommitment.MultisetHash();
+        changes.remove(new byte[]{2});
+        base.addAll(changes);
+        Assert.assertArrayEquals(expected.getDigest(), base.getDigest());
+    }
+}
@@ -17,12 +17,35 @@
 
 package bisq.core.dao.state;
 
+import bisq.core.dao.governance.param.Param;
 import bisq.core.dao.state.model.DaoState;
 import bisq.core.dao.state.model.blockchain.Block;
+import bisq.core.dao.state.model.blockchain.SpentInfo;
+import bisq.core.dao.state.model.blockchain.Tx;
+import bisq.core.dao.state.model.blockchain.TxOutput;
+import bisq.core.dao.state.model.blockchain.TxOutputKey;
+import bisq.core.dao.state.model.blockchain.TxOutputType;
+import bisq.core.dao.state.model.blockchain.TxType;
+import bisq.core.dao.state.model.governance.Cycle;
+import bisq.core.dao.state.model.governance.DaoPhase;
+import bisq.core.dao.state.model.governance.Issuance;
+import bisq.core.dao.state.model.governance.IssuanceType;
 import bisq.core.util.coin.BsqFormatter;
 
+import bisq.common.UserThread;
+
 import org.bitcoinj.core.Coin;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -69,4 +92,242 @@ public class DaoStateServiceTest {
                 stateService.isBlockHashKnown("fakeblockhash4")
         );
     }
+
+    @Test
+    public void testTxIndices() {
+        DaoState daoState = new DaoState();
+        DaoStateService stateService = new DaoStateService(
+                daoState,
+                new GenesisTxInfo("fakegenesistxid", 100, Coin.parseCoin("2.5").value),
+                new BsqFormatter());
+        Tx tradeFeeTx = createTx("tradefeetxid", protobuf.TxType.PAY_TRADE_FEE, 50);
+        Tx transferTx = createTx("transfertxid", protobuf.TxType.TRANSFER_BSQ, 0);
+        daoState.addToTxCache(tradeFeeTx);
+        daoState.addToTxCache(transferTx);
+        // Adding a tx twice must not add it twice to the indices
+        daoState.addToTxCache(tradeFeeTx);
+
+        TxOutputKey key = new TxOutputKey("transfertxid", 1);
+        Assert.assertTrue(stateService.existsTxOutput(key));
+        Assert.assertEquals(transferTx.getTxOutputs().get(1), stateService.getTxOutput(key).orElseThrow());
+        Assert.assertFalse(stateService.existsTxOutput(new TxOutputKey("transfertxid", 2)));
+        Assert.assertEquals(1, stateService.getTradeFeeTxs().size());
+        Assert.assertTrue(stateService.getTradeFeeTxs().contains(tradeFeeTx));
+        Assert.assertEquals(1, stateService.getBurntFeeTxs().size());
+        Assert.assertEquals(4, daoState.getTxOutputsByType(TxOutputType.BSQ_OUTPUT).size());
+        Assert.assertTrue(stateService.getInvalidTxs().isEmpty());
+
+        daoState.setTxCache(Map.of(transferTx.getId(), transferTx));
+        Assert.assertTrue(stateService.getTradeFeeTxs().isEmpty());
+        Assert.assertTrue(stateService.getBurntFeeTxs().isEmpty());
+        Assert.assertFalse(stateService.existsTxOutput(new TxOutputKey("tradefeetxid", 0)));
+        Assert.assertTrue(stateService.existsTxOutput(key));
+    }
+
+    @Test
+    public void testCopyIsNotAffectedByLaterChanges() {
+        DaoState daoState = new DaoState();
+        daoState.addBlock(new Block(100, 1534800000, "fakeblockhash100", null));
+        daoState.addToTxCache(createTx("tradefeetxid", protobuf.TxType.PAY_TRADE_FEE, 50));
+
+        DaoState copy = DaoState.getCopy(daoState);
+        daoState.addBlock(new Block(101, 1534800001, "fakeblockhash101", "fakeblockhash100"));
+        daoState.addToTxCache(createTx("transfertxid", protobuf.TxType.TRANSFER_BSQ, 0));
+
+        Assert.assertEquals(1, copy.getBlocks().size());
+        Assert.assertFalse(copy.getBlockHashes().contains("fakeblockhash101"));
+        Assert.assertEquals(1, copy.getTxCache().size());
+        Assert.assertTrue(copy.getTxsByType(TxType.TRANSFER_BSQ).isEmpty());
+        Assert.assertFalse(copy.getTxOutputsByKey().containsKey(new TxOutputKey("transfertxid", 0)));
+        Assert.assertEquals(DaoState.getClone(copy).getBsqStateBuilder().build(), copy.getBsqStateBuilder().build());
+    }
+
+    @Test
+    public void testStateCommitmentOfUnspentTxOutputsMatchesReset() {
+        DaoState daoState = new DaoState();
+        DaoStateService stateService = createStartedStateService(daoState);
+        byte[] initial = stateService.getSerializedStateCommitment();
+
+        TxOutput txOutput = createTxOutput("txid1", 0, 1000);
+        stateService.addUnspentTxOutput(txOutput);
+        stateService.addUnspentTxOutput(createTxOutput("txid2", 0, 2000));
+        assertStateCommitmentMatchesReset(stateService, daoState);
+        byte[] afterAdd = stateService.getSerializedStateCommitment();
+        Assert.assertFalse(Arrays.equals(initial, afterAdd));
+
+        // Replacing an output with the same key must remove the previous one from the commitment
+        stateService.addUnspentTxOutput(createTxOutput("txid1", 0, 1500));
+        assertStateCommitmentMatchesReset(stateService, daoState);
+        Assert.assertFalse(Arrays.equals(afterAdd, stateService.getSerializedStateCommitment()));
+
+        stateService.removeUnspentTxOutput(txOutput);
+        assertStateCommitmentMatchesReset(stateService, daoState);
+
+        // Removing an unknown output must not change the commitment
+        byte[] afterRemove = stateService.getSerializedStateCommitment();
+        stateService.removeUnspentTxOutput(createTxOutput("txid3", 0, 1000));
+        Assert.assertArrayEquals(afterRemove, stateService.getSerializedStateCommitment());
+
+        stateService.removeUnspentTxOutput(createTxOutput("txid2", 0, 2000));
+        assertStateCommitmentMatchesReset(stateService, daoState);
+        Assert.assertArrayEquals(initial, stateService.getSerializedStateCommitment());
+    }
+
+    @Test
+    public void testStateCommitmentOfSpentInfosAndIssuancesMatchesReset() {
+        DaoState daoState = new DaoState();
+        DaoStateService stateService = createStartedStateService(daoState);
+
+        TxOutputKey txOutputKey = new TxOutputKey("txid1", 0);
+        stateService.setSpentInfo(txOutputKey, new SpentInfo(100, "spendingtxid1", 0));
+        assertStateCommitmentMatchesReset(stateService, daoState);
+        byte[] afterSpentInfo = stateService.getSerializedStateCommitment();
+
+        stateService.setSpentInfo(txOutputKey, new SpentInfo(101, "spendingtxid2", 1));
+        assertStateCommitmentMatchesReset(stateService, daoState);
+        Assert.assertFalse(Arrays.equals(afterSpentInfo, stateService.getSerializedStateCommitment()));
+
+        stateService.addIssuance(new Issuance("issuancetxid", 100, 10000, null, IssuanceType.COMPENSATION));
+        assertStateCommitmentMatchesReset(stateService, daoState);
+        byte[] afterIssuance = stateService.getSerializedStateCommitment();
+
+        stateService.addIssuance(new Issuance("issuancetxid", 101, 20000, "pubkey", IssuanceType.REIMBURSEMENT));
+        assertStateCommitmentMatchesReset(stateService, daoState);
+        Assert.assertFalse(Arrays.equals(afterIssuance, stateService.getSerializedStateCommitment()));
+    }
+
+    @Test
+    public void testStateCommitmentOfCyclesAndParamChangesMatchesReset() {
+        DaoState daoState = new DaoState();
+        DaoStateService stateService = createStartedStateService(daoState);
+
+        stateService.addCycle(new Cycle(100, ImmutableList.of(new DaoPhase(DaoPhase.Phase.PROPOSAL, 10))));
+        assertStateCommitmentMatchesReset(stateService, daoState);
+        byte[] afterCycle = stateService.getSerializedStateCommitment();
+
+        stateService.setNewParam(105, Param.BONDED_ROLE_FACTOR, "2000");
+        Assert.assertEquals(1, daoState.getParamChangeList().size());
+        assertStateCommitmentMatchesReset(stateService, daoState);
+        Assert.assertFalse(Arrays.equals(afterCycle, stateService.getSerializedStateCommitment()));
+
+        Block block = new Block(100, 1534800000, "fakeblockhash100", null);
+        stateService.onNewBlockHeight(100);
+        stateService.onNewBlockWithEmptyTxs(block);
+        stateService.onParseBlockComplete(block);
+        assertStateCommitmentMatchesReset(stateService, daoState);
+    }
+
+    @Test
+    public void testStateCommitmentAfterApplySnapshotMatchesReset() {
+        DaoState snapshot = new DaoState();
+        DaoStateService snapshotStateService = createSnapshotStateService(snapshot);
+
+        DaoState daoState = new DaoState();
+        DaoStateService stateService = createStartedStateService(daoState);
+        // State which is not part of the snapshot must not remain in the commitment
+        stateService.addUnspentTxOutput(createTxOutput("txid3", 0, 3000));
+        stateService.applySnapshot(DaoState.getClone(snapshot), snapshotStateService.getStateCommitmentCopy());
+        assertStateCommitmentMatchesReset(stateService, daoState);
+        Assert.assertArrayEquals(snapshotStateService.getSerializedStateCommitment(),
+                stateService.getSerializedStateCommitment());
+
+        // Incremental updates after the snapshot must still match
+        stateService.removeUnspentTxOutput(createTxOutput("txid1", 0, 1000));
+        stateService.addUnspentTxOutput(createTxOutput("txid4", 1, 4000));
+        assertStateCommitmentMatchesReset(stateService, daoState);
+    }
+
+    @Test
+    public void testStateCommitmentOfSnapshotWithoutCommitmentIsComputedOffUserThread() throws Exception {
+        DaoState snapshot = new DaoState();
+        createSnapshotStateService(snapshot);
+        DaoState daoState = new DaoState();
+        DaoStateService stateService = createStartedStateService(daoState);
+
+        ExecutorService userThreadExecutor = Executors.newSingleThreadExecutor();
+        UserThread.setExecutor(userThreadExecutor);
+        try {
+            userThreadExecutor.submit(() -> {
+                // The snapshot was persisted by an old version without the commitment
+                stateService.applySnapshot(DaoState.getClone(snapshot), null);
+                // The result gets applied in a later UserThread task, so we are still waiting for it
+                Assert.assertNull(stateService.getSerializedStateCommitment());
+                Assert.assertNull(stateService.getStateCommitmentCopy());
+
+                // Changes while the commitment of the snapshot gets computed
+                stateService.removeUnspentTxOutput(createTxOutput("txid1", 0, 1000));
+                stateService.addUnspentTxOutput(createTxOutput("txid4", 1, 4000));
+            }).get();
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (userThreadExecutor.submit(stateService::getSerializedStateCommitment).get() == null &&
+                    System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            userThreadExecutor.submit(() -> assertStateCommitmentMatchesReset(stateService, daoState)).get();
+        } finally {
+            UserThread.setExecutor(MoreExecutors.directExecutor());
+            userThreadExecutor.shutdownNow();
+        }
+    }
+
+    private static DaoStateService createSnapshotStateService(DaoState snapshot) {
+        DaoStateService snapshotStateService = createStartedStateService(snapshot);
+        snapshotStateService.addCycle(new Cycle(100, ImmutableList.of(new DaoPhase(DaoPhase.Phase.PROPOSAL, 10))));
+        snapshotStateService.setNewParam(105, Param.BONDED_ROLE_FACTOR, "2000");
+        snapshotStateService.addUnspentTxOutput(createTxOutput("txid1", 0, 1000));
+        snapshotStateService.setSpentInfo(new TxOutputKey("txid2", 0), new SpentInfo(100, "txid1", 0));
+        snapshotStateService.addIssuance(new Issuance("txid1", 100, 1000, null, IssuanceType.COMPENSATION));
+        Block block = new Block(100, 1534800000, "fakeblockhash100", null);
+        snapshotStateService.onNewBlockHeight(100);
+        snapshotStateService.onNewBlockWithEmptyTxs(block);
+        snapshotStateService.onParseBlockComplete(block);
+        return snapshotStateService;
+    }
+
+    private static DaoStateService createStartedStateService(DaoState daoState) {
+        DaoStateService stateService = new DaoStateService(
+                daoState,
+                new GenesisTxInfo("fakegenesistxid", 100, Coin.parseCoin("2.5").value),
+                new BsqFormatter());
+        stateService.start();
+        return stateService;
+    }
+
+    // The incrementally updated commitment must always be the same as one computed from the whole state
+    private static void assertStateCommitmentMatchesReset(DaoStateService stateService, DaoState daoState) {
+        DaoStateCommitment daoStateCommitment = new DaoStateCommitment();
+        daoStateCommitment.reset(daoState);
+        Assert.assertArrayEquals(Bytes.concat(Ints.toByteArray(daoState.getChainHeight()), daoStateCommitment.getRoot()),
+                stateService.getSerializedStateCommitment());
+    }
+
+    private static TxOutput createTxOutput(String txId, int index, long value) {
+        return TxOutput.fromProto(protobuf.BaseTxOutput.newBuilder()
+                .setIndex(index)
+                .setValue(value)
+                .setTxId(txId)
+                .setBlockHeight(100)
+                .setTxOutput(protobuf.TxOutput.newBuilder().setTxOutputType(protobuf.TxOutputType.BSQ_OUTPUT))
+                .build());
+    }
+
+    private static Tx createTx(String txId, protobuf.TxType txType, long burntBsq) {
+        protobuf.Tx.Builder txBuilder = protobuf.Tx.newBuilder()
+                .setTxType(txType)
+                .setBurntBsq(burntBsq);
+        for (int i = 0; i < 2; i++) {
+            txBuilder.addTxOutputs(protobuf.BaseTxOutput.newBuilder()
+                    .setIndex(i)
+                    .setValue(1000)
+                    .setTxId(txId)
+                    .setBlockHeight(100)
+                    .setTxOutput(protobuf.TxOutput.newBuilder().setTxOutputType(protobuf.TxOutputType.BSQ_OUTPUT)));
+        }
+        return Tx.fromProto(protobuf.BaseTx.newBuilder()
+                .setId(txId)
+                .setBlockHeight(100)
+                .setTx(txBuilder)
+                .build());
+    }
 }
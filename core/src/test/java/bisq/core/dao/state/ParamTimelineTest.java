@@ -0,0 +1,59 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.core.dao.state;
+
+import bisq.core.dao.governance.param.Param;
+import bisq.core.dao.state.model.governance.ParamChange;
+import bisq.core.util.coin.BsqFormatter;
+
+import org.bitcoinj.core.Coin;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParamTimelineTest {
+    @Test
+    public void testGetValue() {
+        ParamTimeline paramTimeline = new ParamTimeline(new BsqFormatter());
+        paramTimeline.reset(List.of(
+                new ParamChange(Param.DEFAULT_MAKER_FEE_BSQ.name(), "0.7", 100),
+                new ParamChange(Param.THRESHOLD_ROLE.name(), "60", 150),
+                new ParamChange("REMOVED_PARAM", "1", 150),
+                new ParamChange(Param.DEFAULT_MAKER_FEE_BSQ.name(), "0.8", 200)));
+
+        Assert.assertEquals(Param.DEFAULT_MAKER_FEE_BSQ.getDefaultValue(),
+                paramTimeline.getValue(Param.DEFAULT_MAKER_FEE_BSQ, 99));
+        Assert.assertEquals("0.7", paramTimeline.getValue(Param.DEFAULT_MAKER_FEE_BSQ, 100));
+        Assert.assertEquals("0.7", paramTimeline.getValue(Param.DEFAULT_MAKER_FEE_BSQ, 199));
+        Assert.assertEquals("0.8", paramTimeline.getValue(Param.DEFAULT_MAKER_FEE_BSQ, 200));
+        Assert.assertEquals(Coin.valueOf(80), paramTimeline.getValueAsCoin(Param.DEFAULT_MAKER_FEE_BSQ, 1000));
+        Assert.assertEquals(0.6, paramTimeline.getValueAsPercentDouble(Param.THRESHOLD_ROLE, 150), 0);
+
+        // A later added change with the same activation height replaces the earlier one
+        paramTimeline.add(new ParamChange(Param.DEFAULT_MAKER_FEE_BSQ.name(), "0.9", 200));
+        Assert.assertEquals("0.9", paramTimeline.getValue(Param.DEFAULT_MAKER_FEE_BSQ, 200));
+        Assert.assertEquals(Coin.valueOf(90), paramTimeline.getValueAsCoin(Param.DEFAULT_MAKER_FEE_BSQ, 200));
+
+        paramTimeline.reset(List.of());
+        Assert.assertEquals(Param.DEFAULT_MAKER_FEE_BSQ.getDefaultValue(),
+                paramTimeline.getValue(Param.DEFAULT_MAKER_FEE_BSQ, 200));
+    }
+}
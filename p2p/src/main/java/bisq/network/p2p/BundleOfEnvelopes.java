@@ -17,6 +17,7 @@
 
 package bisq.network.p2p;
 
+import bisq.network.p2p.network.SerializedEnvelope;
 import bisq.network.p2p.storage.messages.BroadcastMessage;
 import bisq.network.p2p.storage.payload.CapabilityRequiringPayload;
 
@@ -63,11 +64,12 @@ public final class BundleOfEnvelopes extends BroadcastMessage implements Extende
     }
 
 
+    // The contained broadcast messages are usually sent to many peers, so we use their cached serialized form
     @Override
     public protobuf.NetworkEnvelope toProtoNetworkEnvelope() {
         return getNetworkEnvelopeBuilder()
                 .setBundleOfEnvelopes(protobuf.BundleOfEnvelopes.newBuilder().addAllEnvelopes(envelopes.stream()
-                        .map(NetworkEnvelope::toProtoNetworkEnvelope)
+                        .map(envelope -> SerializedEnvelope.of(envelope).getProto())
                         .collect(Collectors.toList())))
                 .build();
     }
@@ -20,4 +20,9 @@ package bisq.network.p2p;
 // Marker interface for initial data response
 public interface InitialDataResponse {
     Class<? extends InitialDataRequest> associatedRequest();
+
+    // If a response is delivered in several chunks only the last chunk completes the response
+    default boolean isFinalChunk() {
+        return true;
+    }
 }
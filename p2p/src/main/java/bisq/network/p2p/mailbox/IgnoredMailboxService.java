@@ -19,6 +19,7 @@ package bisq.network.p2p.mailbox;
 
 import bisq.network.p2p.storage.payload.MailboxStoragePayload;
 
+import bisq.common.UserThread;
 import bisq.common.persistence.PersistenceManager;
 import bisq.common.proto.persistable.PersistedDataHost;
 
@@ -64,8 +65,9 @@ public class IgnoredMailboxService implements PersistedDataHost {
         return ignoredMailboxMap.containsKey(uid);
     }
 
+    // Can be called from the mailbox decryption threads
     public void ignore(String uid, long creationTimeStamp) {
         ignoredMailboxMap.put(uid, creationTimeStamp);
-        persistenceManager.requestPersistence();
+        UserThread.execute(persistenceManager::requestPersistence);
     }
 }
@@ -53,7 +53,9 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -66,19 +68,19 @@ import java.security.PublicKey;
 import java.time.Clock;
 
 import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
-import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
@@ -112,6 +114,16 @@ import static com.google.common.base.Preconditions.checkNotNull;
 @Slf4j
 public class MailboxMessageService implements HashMapChangedListener, PersistedDataHost {
     private static final long REPUBLISH_DELAY_SEC = TimeUnit.MINUTES.toSeconds(2);
+    @VisibleForTesting
+    static final int DECRYPTION_CHUNK_SIZE = 100;
+    private static final int NUM_DECRYPTION_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    // Shared by all batches. Threads time out if not used.
+    private static final ListeningExecutorService DECRYPTION_EXECUTOR = Utilities.getListeningExecutorService(
+            "MailboxMessageService-decryption",
+            NUM_DECRYPTION_THREADS,
+            NUM_DECRYPTION_THREADS,
+            60,
+            new LinkedBlockingQueue<>());
 
     private final NetworkNode networkNode;
     private final PeerManager peerManager;
@@ -385,42 +397,51 @@ public class MailboxMessageService implements HashMapChangedListener, PersistedD
 
     private void processSingleMailboxEntry(Collection<ProtectedMailboxStorageEntry> protectedMailboxStorageEntries) {
         checkArgument(protectedMailboxStorageEntries.size() == 1);
-        var mailboxItems = new ArrayList<>(getMailboxItems(protectedMailboxStorageEntries));
+        var mailboxItems = getMailboxItems(protectedMailboxStorageEntries);
         if (mailboxItems.size() == 1) {
             handleMailboxItem(mailboxItems.get(0));
         }
     }
 
-    // We run the batch processing of all mailbox messages we have received at startup in a thread to not block the UI.
-    // For about 1000 messages decryption takes about 1 sec.
+    // We run the batch processing of all mailbox messages we have received at startup in the shared decryption pool
+    // to not block the UI. The entries are sorted by their creation date and split into chunks which get decrypted in
+    // parallel. Each chunk is applied at the UserThread as soon as it and all previous chunks are done, so the items
+    // are handled oldest first and we do not need to wait for the whole batch.
     private void threadedBatchProcessMailboxEntries(Collection<ProtectedMailboxStorageEntry> protectedMailboxStorageEntries) {
-        ListeningExecutorService executor = Utilities.getSingleThreadListeningExecutor("processMailboxEntry-" + new Random().nextInt(1000));
         long ts = System.currentTimeMillis();
-        ListenableFuture<Set<MailboxItem>> future = executor.submit(() -> {
-            var mailboxItems = getMailboxItems(protectedMailboxStorageEntries);
-            log.info("Batch processing of {} mailbox entries took {} ms",
-                    protectedMailboxStorageEntries.size(),
-                    System.currentTimeMillis() - ts);
-            return mailboxItems;
-        });
-
-        Futures.addCallback(future, new FutureCallback<>() {
-            public void onSuccess(Set<MailboxItem> decryptedMailboxMessageWithEntries) {
-                UserThread.execute(() -> decryptedMailboxMessageWithEntries.forEach(e -> handleMailboxItem(e)));
-            }
+        List<ProtectedMailboxStorageEntry> sortedEntries = protectedMailboxStorageEntries.stream()
+                .sorted(Comparator.comparingLong(ProtectedStorageEntry::getCreationTimeStamp))
+                .collect(Collectors.toList());
+        List<ListenableFuture<List<MailboxItem>>> futures = Lists.partition(sortedEntries, DECRYPTION_CHUNK_SIZE).stream()
+                .map(chunk -> DECRYPTION_EXECUTOR.submit(() -> getMailboxItems(chunk)))
+                .collect(Collectors.toList());
+
+        // Index of the next chunk to be applied. Only accessed at the UserThread.
+        AtomicInteger nextChunkIndex = new AtomicInteger();
+        futures.forEach(future -> future.addListener(() -> UserThread.execute(() -> applyDoneChunks(futures, nextChunkIndex)),
+                MoreExecutors.directExecutor()));
+
+        Futures.whenAllComplete(futures).run(() -> log.info("Batch processing of {} mailbox entries in {} chunks took {} ms",
+                protectedMailboxStorageEntries.size(),
+                futures.size(),
+                System.currentTimeMillis() - ts),
+                MoreExecutors.directExecutor());
+    }
 
-            public void onFailure(@NotNull Throwable throwable) {
-                log.error(throwable.toString());
+    private void applyDoneChunks(List<ListenableFuture<List<MailboxItem>>> futures, AtomicInteger nextChunkIndex) {
+        while (nextChunkIndex.get() < futures.size() && futures.get(nextChunkIndex.get()).isDone()) {
+            try {
+                Futures.getDone(futures.get(nextChunkIndex.getAndIncrement())).forEach(this::handleMailboxItem);
+            } catch (ExecutionException e) {
+                log.error(e.getCause().toString());
             }
-        }, MoreExecutors.directExecutor());
+        }
     }
 
-    private Set<MailboxItem> getMailboxItems(Collection<ProtectedMailboxStorageEntry> protectedMailboxStorageEntries) {
-        Set<MailboxItem> mailboxItems = new HashSet<>();
-        protectedMailboxStorageEntries.stream()
+    private List<MailboxItem> getMailboxItems(Collection<ProtectedMailboxStorageEntry> protectedMailboxStorageEntries) {
+        return protectedMailboxStorageEntries.stream()
                 .map(this::tryDecryptProtectedMailboxStorageEntry)
-                .forEach(mailboxItems::add);
-        return mailboxItems;
+                .collect(Collectors.toList());
     }
 
     private MailboxItem tryDecryptProtectedMailboxStorageEntry(ProtectedMailboxStorageEntry protectedMailboxStorageEntry) {
@@ -433,6 +454,11 @@ public class MailboxMessageService implements HashMapChangedListener, PersistedD
             // We had persisted a past failed decryption attempt on that message so we don't try again and return early
             return new MailboxItem(protectedMailboxStorageEntry, null);
         }
+        if (!isAddressedToMe(protectedMailboxStorageEntry)) {
+            // The sender sets the receivers storage signature pubKey from the same pubKeyRing they use for
+            // encryption, so if it is not our key we cannot decrypt the message and we skip the expensive attempt.
+            return new MailboxItem(protectedMailboxStorageEntry, null);
+        }
         try {
             DecryptedMessageWithPubKey decryptedMessageWithPubKey = encryptionService.decryptAndVerify(sealedAndSigned);
             checkArgument(decryptedMessageWithPubKey.getNetworkEnvelope() instanceof MailboxMessage);
@@ -448,6 +474,10 @@ public class MailboxMessageService implements HashMapChangedListener, PersistedD
         return new MailboxItem(protectedMailboxStorageEntry, null);
     }
 
+    private boolean isAddressedToMe(ProtectedMailboxStorageEntry protectedMailboxStorageEntry) {
+        return keyRing.getSignatureKeyPair().getPublic().equals(protectedMailboxStorageEntry.getReceiversPubKey());
+    }
+
     private void handleMailboxItem(MailboxItem mailboxItem) {
         String uid = mailboxItem.getUid();
         if (!mailboxItemsByUid.containsKey(uid)) {
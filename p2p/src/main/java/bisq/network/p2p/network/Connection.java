@@ -21,6 +21,7 @@ import bisq.network.p2p.BundleOfEnvelopes;
 import bisq.network.p2p.CloseConnectionMessage;
 import bisq.network.p2p.ExtendedDataSizePermission;
 import bisq.network.p2p.NodeAddress;
+import bisq.network.p2p.NonBundleableMessage;
 import bisq.network.p2p.SendersNodeAddressMessage;
 import bisq.network.p2p.SupportedCapabilitiesMessage;
 import bisq.network.p2p.peers.keepalive.messages.KeepAliveMessage;
@@ -47,7 +48,9 @@ import com.google.protobuf.InvalidProtocolBufferException;
 
 import javax.inject.Inject;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.Uninterruptibles;
 
 import javafx.beans.property.ObjectProperty;
@@ -76,9 +79,12 @@ import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -113,10 +119,31 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
     //TODO decrease limits again after testing
     private static final int SOCKET_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(180);
 
+    // The sockets provided by Tor support only blocking IO, so each connection requires a thread for reading. We
+    // share the threads of all connections so threads of closed connections get reused. For sending bundles we use
+    // one scheduler thread which hands over the blocking write to a pooled thread, so there are only threads for
+    // the writes in progress instead of one idle thread per connection.
+    // The pools are not bounded by a fixed size on purpose. The sends of a connection are executed sequentially, so
+    // each open connection uses at most one reader, one sender and one writer thread (see
+    // SynchronizedProtoOutputStream). The number of threads is therefore bounded by the number of connections, which
+    // the PeerManager keeps below its connection limit. A fixed limit would let the writes to a peer which does not
+    // read (socket writes have no timeout) stall the reads and writes of all other peers.
+    private static final ThreadPoolExecutor INPUT_HANDLER_EXECUTOR = (ThreadPoolExecutor) Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("InputHandler-%d").setDaemon(true).build());
+    private static final ExecutorService SEND_EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("Connection-send-%d").setDaemon(true).build());
+    private static final ScheduledExecutorService BUNDLE_SCHEDULER = Utilities.getScheduledThreadPoolExecutor(
+            "Connection-bundle-scheduler", 1, 1, 60);
+
     public static int getPermittedMessageSize() {
         return PERMITTED_MESSAGE_SIZE;
     }
 
+    @VisibleForTesting
+    static int getNumActiveInputHandlers() {
+        return INPUT_HANDLER_EXECUTOR.getActiveCount();
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Class fields
@@ -129,7 +156,10 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
     private final NetworkFilter networkFilter;
     @Getter
     private final String uid;
-    private final ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "Connection.java executor-service"));
+    @Nullable
+    private Future<?> inputHandlerFuture;
+    // Bundles and the close message are sent one after the other on the shared SEND_EXECUTOR
+    private final Executor sendExecutor;
     // holder of state shared between InputHandler and Connection
     @Getter
     private final Statistic statistic;
@@ -178,6 +208,8 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
         this.networkFilter = networkFilter;
         uid = UUID.randomUUID().toString();
         statistic = new Statistic();
+        //noinspection UnstableApiUsage
+        sendExecutor = MoreExecutors.newSequentialExecutor(SEND_EXECUTOR);
 
         addMessageListener(messageListener);
 
@@ -197,8 +229,8 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
             // It will not return until that header has been read.
             protoOutputStream = new SynchronizedProtoOutputStream(socket.getOutputStream(), statistic);
             protoInputStream = socket.getInputStream();
-            // We create a thread for handling inputStream data
-            singleThreadExecutor.submit(this);
+            // We use a pooled thread for handling inputStream data
+            inputHandlerFuture = INPUT_HANDLER_EXECUTOR.submit(this);
 
             if (peersNodeAddress != null) {
                 setPeersNodeAddress(peersNodeAddress);
@@ -223,7 +255,6 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
 
     private final Object lock = new Object();
     private final Queue<BundleOfEnvelopes> queueOfBundles = new ConcurrentLinkedQueue<>();
-    private final ScheduledExecutorService bundleSender = Executors.newSingleThreadScheduledExecutor();
 
     // Called from various threads
     public void sendMessage(NetworkEnvelope networkEnvelope) {
@@ -246,7 +277,10 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
             log.debug("Capability for networkEnvelope is required but not supported");
             return;
         }
-        int networkEnvelopeSize = networkEnvelope.toProtoNetworkEnvelope().getSerializedSize();
+        // We serialize only once for the size checks, the statistics and the write. Broadcast messages are serialized
+        // only once for all peers.
+        SerializedEnvelope serializedEnvelope = SerializedEnvelope.of(networkEnvelope);
+        int networkEnvelopeSize = serializedEnvelope.getSerializedSize();
         try {
             // Throttle outbound network_messages
             long now = System.currentTimeMillis();
@@ -258,7 +292,8 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
                         networkEnvelope.getClass().getSimpleName());
 
                 // check if BundleOfEnvelopes is supported
-                if (getCapabilities().containsAll(new Capabilities(Capability.BUNDLE_OF_ENVELOPES))) {
+                if (!(networkEnvelope instanceof NonBundleableMessage) &&
+                        getCapabilities().containsAll(new Capabilities(Capability.BUNDLE_OF_ENVELOPES))) {
                     synchronized (lock) {
                         // check if current envelope fits size
                         // - no? create new envelope
@@ -271,22 +306,18 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
                             // - and schedule it for sending
                             lastSendTimeStamp += getSendMsgThrottleSleep();
 
-                            bundleSender.schedule(() -> {
+                            BUNDLE_SCHEDULER.schedule(() -> sendExecutor.execute(() -> {
                                 if (!stopped) {
                                     synchronized (lock) {
                                         BundleOfEnvelopes bundle = queueOfBundles.poll();
                                         if (bundle != null && !stopped) {
-                                            NetworkEnvelope envelope;
-                                            int msgSize;
-                                            if (bundle.getEnvelopes().size() == 1) {
-                                                envelope = bundle.getEnvelopes().get(0);
-                                                msgSize = envelope.toProtoNetworkEnvelope().getSerializedSize();
-                                            } else {
-                                                envelope = bundle;
-                                                msgSize = networkEnvelopeSize;
-                                            }
+                                            NetworkEnvelope envelope = bundle.getEnvelopes().size() == 1 ?
+                                                    bundle.getEnvelopes().get(0) :
+                                                    bundle;
+                                            SerializedEnvelope serializedBundle = SerializedEnvelope.of(envelope);
+                                            int msgSize = serializedBundle.getSerializedSize();
                                             try {
-                                                protoOutputStream.writeEnvelope(envelope);
+                                                protoOutputStream.writeEnvelope(envelope, serializedBundle);
                                                 UserThread.execute(() -> messageListeners.forEach(e -> e.onMessageSent(envelope, this)));
                                                 UserThread.execute(() -> connectionStatistics.addSendMsgMetrics(System.currentTimeMillis() - ts, msgSize));
                                             } catch (Throwable t) {
@@ -300,7 +331,7 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
                                         }
                                     }
                                 }
-                            }, lastSendTimeStamp - now, TimeUnit.MILLISECONDS);
+                            }), lastSendTimeStamp - now, TimeUnit.MILLISECONDS);
                         }
 
                         // - yes? add to bucket
@@ -315,7 +346,7 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
             lastSendTimeStamp = now;
 
             if (!stopped) {
-                protoOutputStream.writeEnvelope(networkEnvelope);
+                protoOutputStream.writeEnvelope(networkEnvelope, serializedEnvelope);
                 UserThread.execute(() -> messageListeners.forEach(e -> e.onMessageSent(networkEnvelope, this)));
                 UserThread.execute(() -> connectionStatistics.addSendMsgMetrics(System.currentTimeMillis() - ts, networkEnvelopeSize));
             }
@@ -523,7 +554,7 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
                     + "\n%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%\n");
 
             if (closeConnectionReason.sendCloseMessage) {
-                new Thread(() -> {
+                sendExecutor.execute(() -> {
                     try {
                         String reason = closeConnectionReason == CloseConnectionReason.RULE_VIOLATION ?
                                 getRuleViolation().name() : closeConnectionReason.name();
@@ -540,7 +571,7 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
                         stopped = true;
                         UserThread.execute(() -> doShutDown(closeConnectionReason, shutDownCompleteHandler));
                     }
-                }, "Connection:SendCloseConnectionMessage-" + this.uid).start();
+                });
             } else {
                 stopped = true;
                 doShutDown(closeConnectionReason, shutDownCompleteHandler);
@@ -574,10 +605,11 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
                 e.printStackTrace();
             }
 
-            //noinspection UnstableApiUsage
-            MoreExecutors.shutdownAndAwaitTermination(singleThreadExecutor, 500, TimeUnit.MILLISECONDS);
-            //noinspection UnstableApiUsage
-            MoreExecutors.shutdownAndAwaitTermination(bundleSender, 500, TimeUnit.MILLISECONDS);
+            // The socket is closed so the input handler will terminate. We interrupt it in case it is blocked
+            // elsewhere. Pending bundles are not sent anymore as we are stopped.
+            if (inputHandlerFuture != null) {
+                inputHandlerFuture.cancel(true);
+            }
 
             log.debug("Connection shutdown complete {}", this.toString());
             // Use UserThread.execute as its not clear if that is called from a non-UserThread
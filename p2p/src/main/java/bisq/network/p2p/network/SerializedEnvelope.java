@@ -0,0 +1,94 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.network;
+
+import bisq.network.p2p.BundleOfEnvelopes;
+import bisq.network.p2p.storage.messages.BroadcastMessage;
+
+import bisq.common.proto.network.NetworkEnvelope;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * The serialized form of a NetworkEnvelope which is used for the size checks, the statistics and the write to the
+ * stream, so we serialize each message only once per send.
+ * <p>
+ * A broadcast message is sent to many peers. Broadcast messages are immutable, so we cache their serialized form
+ * for a short time and reuse the written bytes for all peers. The keys are held weakly and compared by identity.
+ * BundleOfEnvelopes is mutable and therefore not cached itself, but the broadcast messages it contains are.
+ */
+public final class SerializedEnvelope {
+    private static final Cache<NetworkEnvelope, SerializedEnvelope> BROADCAST_MESSAGE_CACHE = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(1000)
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .build();
+
+    public static SerializedEnvelope of(NetworkEnvelope envelope) {
+        if (envelope instanceof BroadcastMessage && !(envelope instanceof BundleOfEnvelopes)) {
+            return BROADCAST_MESSAGE_CACHE.asMap().computeIfAbsent(envelope,
+                    e -> new SerializedEnvelope(e.toProtoNetworkEnvelope(), true));
+        }
+        return new SerializedEnvelope(envelope.toProtoNetworkEnvelope(), false);
+    }
+
+    private final protobuf.NetworkEnvelope proto;
+    private final boolean reusable;
+    @Nullable
+    private volatile byte[] delimitedBytes;
+
+    private SerializedEnvelope(protobuf.NetworkEnvelope proto, boolean reusable) {
+        this.proto = proto;
+        this.reusable = reusable;
+    }
+
+    public protobuf.NetworkEnvelope getProto() {
+        return proto;
+    }
+
+    public int getSerializedSize() {
+        // Memoized by protobuf
+        return proto.getSerializedSize();
+    }
+
+    void writeDelimitedTo(OutputStream outputStream) throws IOException {
+        if (!reusable) {
+            proto.writeDelimitedTo(outputStream);
+            return;
+        }
+
+        // We might encode it concurrently for 2 peers at the first write, but that is cheaper than locking.
+        byte[] bytes = delimitedBytes;
+        if (bytes == null) {
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(getSerializedSize() + 5);
+            proto.writeDelimitedTo(byteArrayOutputStream);
+            bytes = byteArrayOutputStream.toByteArray();
+            delimitedBytes = bytes;
+        }
+        outputStream.write(bytes);
+    }
+}
@@ -19,12 +19,16 @@ package bisq.network.p2p.network;
 
 import bisq.common.proto.network.NetworkEnvelope;
 
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import java.io.OutputStream;
 
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,16 +39,26 @@ import javax.annotation.concurrent.ThreadSafe;
 class SynchronizedProtoOutputStream extends ProtoOutputStream {
     private static final Logger log = LoggerFactory.getLogger(SynchronizedProtoOutputStream.class);
 
-    private final ExecutorService executorService;
+    // The writes of all connections share the threads of that pool. The writes of one connection are executed
+    // sequentially, so we don't need one thread per connection. The pool is not bounded by a fixed size on purpose:
+    // As a connection uses at most one thread at a time, the number of threads is bounded by the number of
+    // connections (see Connection). A fixed size would let a write blocked by a peer which does not read delay the
+    // writes to all other peers.
+    private static final ExecutorService WRITE_EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("SynchronizedProtoOutputStream-%d").setDaemon(true).build());
+
+    private final Executor executor;
 
     SynchronizedProtoOutputStream(OutputStream delegate, Statistic statistic) {
         super(delegate, statistic);
-        this.executorService = Executors.newSingleThreadExecutor();
+        //noinspection UnstableApiUsage
+        this.executor = MoreExecutors.newSequentialExecutor(WRITE_EXECUTOR);
     }
 
     @Override
-    void writeEnvelope(NetworkEnvelope envelope) {
-        Future<?> future = executorService.submit(() -> super.writeEnvelope(envelope));
+    void writeEnvelope(NetworkEnvelope envelope, SerializedEnvelope serializedEnvelope) {
+        FutureTask<Void> future = new FutureTask<>(() -> super.writeEnvelope(envelope, serializedEnvelope), null);
+        executor.execute(future);
         try {
             future.get();
         } catch (InterruptedException e) {
@@ -62,7 +76,7 @@ class SynchronizedProtoOutputStream extends ProtoOutputStream {
 
     void onConnectionShutdown() {
         try {
-            executorService.shutdownNow();
+            // Closing the stream lets pending writes fail
             super.onConnectionShutdown();
         } catch (Throwable t) {
             log.error("Failed to handle connection shutdown. Throwable={}", t.toString());
@@ -35,6 +35,7 @@ import bisq.common.UserThread;
 import bisq.common.app.Capabilities;
 import bisq.common.app.Capability;
 import bisq.common.config.Config;
+import bisq.common.crypto.CryptoCache;
 import bisq.common.persistence.PersistenceManager;
 import bisq.common.proto.persistable.PersistedDataHost;
 
@@ -813,6 +814,7 @@ public final class PeerManager implements ConnectionListener, PersistedDataHost
                         .append(counter.incrementAndGet()).append(ls)
                         .append(e.getConnectionStatistics().getInfo()).append(ls));
         log.info(sb.toString());
+        log.info("Crypto cache statistics: {}", CryptoCache.getStatistics());
     }
 
     private void printConnectedPeers() {
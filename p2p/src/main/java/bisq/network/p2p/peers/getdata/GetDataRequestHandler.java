@@ -26,6 +26,7 @@ import bisq.network.p2p.storage.P2PDataStorage;
 
 import bisq.common.Timer;
 import bisq.common.UserThread;
+import bisq.common.app.Capability;
 
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
@@ -44,6 +45,8 @@ public class GetDataRequestHandler {
     private static final long TIMEOUT = 180;
 
     private static final int MAX_ENTRIES = 10000;
+    // Used if the peer supports Capability.GET_DATA_RESPONSE_CHUNKS
+    private static final int MAX_ENTRIES_PER_CHUNK = 2000;
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Listener
@@ -88,6 +91,20 @@ public class GetDataRequestHandler {
                 .map(e -> "node address " + e.getFullAddress())
                 .orElseGet(() -> "connection UID " + connection.getUid());
 
+        if (connection.getCapabilities().containsAll(Capability.GET_DATA_RESPONSE_CHUNKS)) {
+            // If the peer supports chunked responses we do not need to truncate the response as each chunk stays
+            // small. The chunks are filled from the data maps only when they get sent, and we send the next chunk only
+            // after the previous one was written to the connection. That way a slow peer does not cause that we pile
+            // up entries or serialized data in memory.
+            sendNextChunk(dataStorage.buildGetDataResponseChunks(getDataRequest,
+                    connection.getCapabilities(),
+                    MAX_ENTRIES_PER_CHUNK),
+                    connection,
+                    connectionInfo);
+            log.info("handle GetDataRequest took {} ms", System.currentTimeMillis() - ts);
+            return;
+        }
+
         AtomicBoolean wasPersistableNetworkPayloadsTruncated = new AtomicBoolean(false);
         AtomicBoolean wasProtectedStorageEntriesTruncated = new AtomicBoolean(false);
         GetDataResponse getDataResponse = dataStorage.buildGetDataResponse(
@@ -114,14 +131,45 @@ public class GetDataRequestHandler {
                 getDataResponse.getDataSet().size(),
                 getDataResponse.getPersistableNetworkPayloadSet().size());
 
-        if (timeoutTimer == null) {
-            timeoutTimer = UserThread.runAfter(() -> {  // setup before sending to avoid race conditions
-                        String errorMessage = "A timeout occurred for getDataResponse " +
-                                " on connection:" + connection;
-                        handleFault(errorMessage, CloseConnectionReason.SEND_MSG_TIMEOUT, connection);
-                    },
-                    TIMEOUT, TimeUnit.SECONDS);
-        }
+        sendResponse(getDataResponse, connection, this::onResponseSent);
+        log.info("handle GetDataRequest took {} ms", System.currentTimeMillis() - ts);
+    }
+
+    public void stop() {
+        cleanup();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void sendNextChunk(GetDataResponseChunks chunks, Connection connection, String connectionInfo) {
+        GetDataResponse chunk = chunks.next();
+        sendResponse(chunk, connection, () -> {
+            if (chunks.hasNext()) {
+                sendNextChunk(chunks, connection, connectionInfo);
+            } else {
+                log.info("We sent the getDataResponse to peer with {} in {} chunks. It contained {} " +
+                                "ProtectedStorageEntries and {} PersistableNetworkPayloads",
+                        connectionInfo,
+                        chunks.getNumChunksCreated(),
+                        chunks.getNumProtectedStorageEntries(),
+                        chunks.getNumPersistableNetworkPayloads());
+                onResponseSent();
+            }
+        });
+    }
+
+    private void sendResponse(GetDataResponse getDataResponse, Connection connection, Runnable resultHandler) {
+        // We restart the timeout for each chunk
+        stopTimeoutTimer();
+        timeoutTimer = UserThread.runAfter(() -> {  // setup before sending to avoid race conditions
+                    String errorMessage = "A timeout occurred for getDataResponse " +
+                            " on connection:" + connection;
+                    handleFault(errorMessage, CloseConnectionReason.SEND_MSG_TIMEOUT, connection);
+                },
+                TIMEOUT, TimeUnit.SECONDS);
 
         SettableFuture<Connection> future = networkNode.sendMessage(connection, getDataResponse);
         Futures.addCallback(future, new FutureCallback<>() {
@@ -130,8 +178,7 @@ public class GetDataRequestHandler {
                 if (!stopped) {
                     log.trace("Send DataResponse to {} succeeded. getDataResponse={}",
                             connection.getPeersNodeAddressOptional(), getDataResponse);
-                    cleanup();
-                    listener.onComplete();
+                    resultHandler.run();
                 } else {
                     log.trace("We have stopped already. We ignore that networkNode.sendMessage.onSuccess call.");
                 }
@@ -149,18 +196,13 @@ public class GetDataRequestHandler {
                 }
             }
         }, MoreExecutors.directExecutor());
-        log.info("handle GetDataRequest took {} ms", System.currentTimeMillis() - ts);
     }
 
-    public void stop() {
+    private void onResponseSent() {
         cleanup();
+        listener.onComplete();
     }
 
-
-    ///////////////////////////////////////////////////////////////////////////////////////////
-    // Private
-    ///////////////////////////////////////////////////////////////////////////////////////////
-
     private void handleFault(String errorMessage, CloseConnectionReason closeConnectionReason, Connection connection) {
         if (!stopped) {
             log.info(errorMessage + "\n\tcloseConnectionReason=" + closeConnectionReason);
@@ -173,6 +215,10 @@ public class GetDataRequestHandler {
 
     private void cleanup() {
         stopped = true;
+        stopTimeoutTimer();
+    }
+
+    private void stopTimeoutTimer() {
         if (timeoutTimer != null) {
             timeoutTimer.stop();
             timeoutTimer = null;
@@ -0,0 +1,126 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.peers.getdata;
+
+import bisq.network.p2p.peers.getdata.messages.GetDataResponse;
+import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import bisq.network.p2p.storage.payload.ProtectedStorageEntry;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import lombok.Getter;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Splits the data of a GetDataResponse into chunks of at most maxEntriesPerChunk entries. The entries are pulled from
+ * the given iterators only when a chunk gets created, so we never hold more than the entries and the serialized data
+ * of the chunk which is currently sent. ProtectedStorageEntries are delivered first as they contain the data the user
+ * sees first (e.g. offers). There is always at least one chunk.
+ */
+public class GetDataResponseChunks implements Iterator<GetDataResponse> {
+    private final Iterator<ProtectedStorageEntry> protectedStorageEntries;
+    private final Iterator<PersistableNetworkPayload> persistableNetworkPayloads;
+    private final int requestNonce;
+    private final boolean isGetUpdatedDataResponse;
+    private final int maxEntriesPerChunk;
+    private final boolean keySetSketchFailed;
+
+    @Getter
+    private int numChunksCreated;
+    @Getter
+    private int numProtectedStorageEntries;
+    @Getter
+    private int numPersistableNetworkPayloads;
+
+    public GetDataResponseChunks(Iterator<ProtectedStorageEntry> protectedStorageEntries,
+                                 Iterator<PersistableNetworkPayload> persistableNetworkPayloads,
+                                 int requestNonce,
+                                 boolean isGetUpdatedDataResponse,
+                                 int maxEntriesPerChunk) {
+        this(protectedStorageEntries,
+                persistableNetworkPayloads,
+                requestNonce,
+                isGetUpdatedDataResponse,
+                maxEntriesPerChunk,
+                false);
+    }
+
+    public GetDataResponseChunks(Iterator<ProtectedStorageEntry> protectedStorageEntries,
+                                 Iterator<PersistableNetworkPayload> persistableNetworkPayloads,
+                                 int requestNonce,
+                                 boolean isGetUpdatedDataResponse,
+                                 int maxEntriesPerChunk,
+                                 boolean keySetSketchFailed) {
+        checkArgument(maxEntriesPerChunk > 0, "maxEntriesPerChunk must be positive");
+        this.protectedStorageEntries = protectedStorageEntries;
+        this.persistableNetworkPayloads = persistableNetworkPayloads;
+        this.requestNonce = requestNonce;
+        this.isGetUpdatedDataResponse = isGetUpdatedDataResponse;
+        this.maxEntriesPerChunk = maxEntriesPerChunk;
+        this.keySetSketchFailed = keySetSketchFailed;
+    }
+
+    GetDataResponseChunks(GetDataResponse getDataResponse, int maxEntriesPerChunk) {
+        this(getDataResponse.getDataSet().iterator(),
+                getDataResponse.getPersistableNetworkPayloadSet().iterator(),
+                getDataResponse.getRequestNonce(),
+                getDataResponse.isGetUpdatedDataResponse(),
+                maxEntriesPerChunk,
+                getDataResponse.isKeySetSketchFailed());
+    }
+
+    @Override
+    public boolean hasNext() {
+        return numChunksCreated == 0 || hasRemainingEntries();
+    }
+
+    @Override
+    public GetDataResponse next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Set<ProtectedStorageEntry> dataSet = new HashSet<>();
+        while (dataSet.size() < maxEntriesPerChunk && protectedStorageEntries.hasNext()) {
+            dataSet.add(protectedStorageEntries.next());
+        }
+        Set<PersistableNetworkPayload> persistableNetworkPayloadSet = new HashSet<>();
+        while (dataSet.size() + persistableNetworkPayloadSet.size() < maxEntriesPerChunk &&
+                persistableNetworkPayloads.hasNext()) {
+            persistableNetworkPayloadSet.add(persistableNetworkPayloads.next());
+        }
+        numProtectedStorageEntries += dataSet.size();
+        numPersistableNetworkPayloads += persistableNetworkPayloadSet.size();
+
+        numChunksCreated++;
+        return new GetDataResponse(dataSet,
+                persistableNetworkPayloadSet,
+                requestNonce,
+                isGetUpdatedDataResponse,
+                hasRemainingEntries(),
+                keySetSketchFailed);
+    }
+
+    private boolean hasRemainingEntries() {
+        return protectedStorageEntries.hasNext() || persistableNetworkPayloads.hasNext();
+    }
+}
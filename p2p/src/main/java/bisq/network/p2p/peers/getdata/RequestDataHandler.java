@@ -31,6 +31,7 @@ import bisq.network.p2p.storage.payload.ProtectedStorageEntry;
 
 import bisq.common.Timer;
 import bisq.common.UserThread;
+import bisq.common.app.Capability;
 import bisq.common.proto.network.NetworkEnvelope;
 import bisq.common.proto.network.NetworkPayload;
 import bisq.common.util.Tuple2;
@@ -46,6 +47,7 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -91,6 +93,13 @@ class RequestDataHandler implements MessageListener {
     private Timer timeoutTimer;
     private final int nonce = new Random().nextInt();
     private boolean stopped;
+    private boolean isPreliminaryDataRequest;
+    // Set if the peer could not decode the KeySetSketch of our request. We repeat the request with our full set of
+    // keys then.
+    private boolean keySetSketchFailed;
+    // Responses might be applied asynchronously, we only complete once all chunks are received and applied
+    private int numResponsesInProcessing;
+    private boolean finalChunkReceived;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -118,27 +127,22 @@ class RequestDataHandler implements MessageListener {
 
     void requestData(NodeAddress nodeAddress, boolean isPreliminaryDataRequest) {
         peersNodeAddress = nodeAddress;
+        this.isPreliminaryDataRequest = isPreliminaryDataRequest;
         if (!stopped) {
             GetDataRequest getDataRequest;
 
+            // We only send a sketch of our keys if we know that the peer supports it. Otherwise we send all our keys.
+            boolean useKeySetSketch = !keySetSketchFailed && peerManager.findPeersCapabilities(nodeAddress)
+                    .map(capabilities -> capabilities.containsAll(Capability.KEY_SET_RECONCILIATION))
+                    .orElse(false);
             if (isPreliminaryDataRequest)
-                getDataRequest = dataStorage.buildPreliminaryGetDataRequest(nonce);
+                getDataRequest = dataStorage.buildPreliminaryGetDataRequest(nonce, useKeySetSketch);
             else
-                getDataRequest = dataStorage.buildGetUpdatedDataRequest(networkNode.getNodeAddress(), nonce);
+                getDataRequest = dataStorage.buildGetUpdatedDataRequest(networkNode.getNodeAddress(), nonce, useKeySetSketch);
 
             if (timeoutTimer == null) {
-                timeoutTimer = UserThread.runAfter(() -> {  // setup before sending to avoid race conditions
-                            if (!stopped) {
-                                String errorMessage = "A timeout occurred at sending getDataRequest:" + getDataRequest +
-                                        " on nodeAddress:" + nodeAddress;
-                                log.debug(errorMessage + " / RequestDataHandler=" + RequestDataHandler.this);
-                                handleFault(errorMessage, nodeAddress, CloseConnectionReason.SEND_MSG_TIMEOUT);
-                            } else {
-                                log.trace("We have stopped already. We ignore that timeoutTimer.run call. " +
-                                        "Might be caused by a previous networkNode.sendMessage.onFailure.");
-                            }
-                        },
-                        TIMEOUT);
+                startTimeoutTimer(() -> "A timeout occurred at sending getDataRequest:" + getDataRequest +
+                        " on nodeAddress:" + nodeAddress);
             }
 
             getDataRequestType = getDataRequest.getClass().getSimpleName();
@@ -197,11 +201,33 @@ class RequestDataHandler implements MessageListener {
                             return;
                         }
 
-                        dataStorage.processGetDataResponse(getDataResponse,
-                                connection.getPeersNodeAddressOptional().get());
+                        if (getDataResponse.isKeySetSketchFailed()) {
+                            onKeySetSketchFailed();
+                            return;
+                        }
 
-                        cleanup();
-                        listener.onComplete();
+                        numResponsesInProcessing++;
+                        dataStorage.processGetDataResponse(getDataResponse,
+                                connection.getPeersNodeAddressOptional().get(),
+                                () -> {
+                                    numResponsesInProcessing--;
+                                    maybeComplete();
+                                });
+
+                        if (getDataResponse.isHasMoreChunks()) {
+                            // We wait for the remaining chunks and apply the timeout for each chunk
+                            log.info("We received a chunk of the {} response and wait for more chunks.",
+                                    getDataRequestType);
+                            startTimeoutTimer(() -> "A timeout occurred at waiting for the next chunk of the " +
+                                    getDataRequestType + " response from nodeAddress:" + peersNodeAddress);
+                        } else {
+                            finalChunkReceived = true;
+                            if (numResponsesInProcessing > 0) {
+                                startTimeoutTimer(() -> "A timeout occurred at applying the " + getDataRequestType +
+                                        " response from nodeAddress:" + peersNodeAddress);
+                            }
+                            maybeComplete();
+                        }
                         // firstRequest = false;
                     } else {
                         log.warn("Nonce not matching. That can happen rarely if we get a response after a canceled " +
@@ -228,6 +254,30 @@ class RequestDataHandler implements MessageListener {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    private void maybeComplete() {
+        if (!stopped && finalChunkReceived && numResponsesInProcessing == 0) {
+            cleanup();
+            listener.onComplete();
+        }
+    }
+
+    private void onKeySetSketchFailed() {
+        if (keySetSketchFailed) {
+            // We have not sent a sketch with the repeated request, so the peer must not respond that way
+            handleFault("Peer " + peersNodeAddress + " responded with a failed KeySetSketch to our " +
+                            getDataRequestType + " which did not contain a KeySetSketch.",
+                    peersNodeAddress,
+                    CloseConnectionReason.RULE_VIOLATION);
+            return;
+        }
+
+        log.info("Peer {} could not decode the KeySetSketch of our {}. We repeat the request with our full set of keys.",
+                peersNodeAddress, getDataRequestType);
+        keySetSketchFailed = true;
+        networkNode.removeMessageListener(this);
+        requestData(peersNodeAddress, isPreliminaryDataRequest);
+    }
+
     private void logContents(GetDataResponse getDataResponse) {
         Set<ProtectedStorageEntry> dataSet = getDataResponse.getDataSet();
         Set<PersistableNetworkPayload> persistableNetworkPayloadSet = getDataResponse.getPersistableNetworkPayloadSet();
@@ -285,6 +335,21 @@ class RequestDataHandler implements MessageListener {
         stopTimeoutTimer();
     }
 
+    private void startTimeoutTimer(Supplier<String> errorMessageSupplier) {
+        NodeAddress nodeAddress = peersNodeAddress;
+        timeoutTimer = UserThread.runAfter(() -> {  // setup before sending to avoid race conditions
+                    if (!stopped) {
+                        String errorMessage = errorMessageSupplier.get();
+                        log.debug(errorMessage + " / RequestDataHandler=" + RequestDataHandler.this);
+                        handleFault(errorMessage, nodeAddress, CloseConnectionReason.SEND_MSG_TIMEOUT);
+                    } else {
+                        log.trace("We have stopped already. We ignore that timeoutTimer.run call. " +
+                                "Might be caused by a previous networkNode.sendMessage.onFailure.");
+                    }
+                },
+                TIMEOUT);
+    }
+
     private void stopTimeoutTimer() {
         if (timeoutTimer != null) {
             timeoutTimer.stop();
@@ -19,6 +19,7 @@ package bisq.network.p2p.peers.getdata.messages;
 
 import bisq.network.p2p.ExtendedDataSizePermission;
 import bisq.network.p2p.InitialDataRequest;
+import bisq.network.p2p.storage.KeySetSketch;
 
 import bisq.common.proto.network.NetworkEnvelope;
 
@@ -44,13 +45,21 @@ public abstract class GetDataRequest extends NetworkEnvelope implements Extended
     @Nullable
     protected final String version;
 
+    // Added after v1.5.0
+    // Sketch of the requesters keys. Only set if the peer supports Capability.KEY_SET_RECONCILIATION. If set,
+    // excludedKeys is empty and the responding node derives the missing data from the sketch.
+    @Nullable
+    protected final KeySetSketch keySetSketch;
+
     public GetDataRequest(int messageVersion,
                           int nonce,
                           Set<byte[]> excludedKeys,
-                          @Nullable String version) {
+                          @Nullable String version,
+                          @Nullable KeySetSketch keySetSketch) {
         super(messageVersion);
         this.nonce = nonce;
         this.excludedKeys = excludedKeys;
         this.version = version;
+        this.keySetSketch = keySetSketch;
     }
 }
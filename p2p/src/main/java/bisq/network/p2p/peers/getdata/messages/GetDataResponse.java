@@ -20,6 +20,7 @@ package bisq.network.p2p.peers.getdata.messages;
 import bisq.network.p2p.ExtendedDataSizePermission;
 import bisq.network.p2p.InitialDataRequest;
 import bisq.network.p2p.InitialDataResponse;
+import bisq.network.p2p.NonBundleableMessage;
 import bisq.network.p2p.SupportedCapabilitiesMessage;
 import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
 import bisq.network.p2p.storage.payload.ProtectedMailboxStorageEntry;
@@ -44,7 +45,7 @@ import org.jetbrains.annotations.NotNull;
 @EqualsAndHashCode(callSuper = true)
 @Value
 public final class GetDataResponse extends NetworkEnvelope implements SupportedCapabilitiesMessage,
-        ExtendedDataSizePermission, InitialDataResponse {
+        ExtendedDataSizePermission, InitialDataResponse, NonBundleableMessage {
     // Set of ProtectedStorageEntry objects
     private final Set<ProtectedStorageEntry> dataSet;
 
@@ -56,15 +57,51 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
     private final boolean isGetUpdatedDataResponse;
     private final Capabilities supportedCapabilities;
 
+    // Only set if the requester supports Capability.GET_DATA_RESPONSE_CHUNKS. If true more chunks with the same
+    // requestNonce will follow.
+    private final boolean hasMoreChunks;
+
+    // Only set if the requester has sent a KeySetSketch which we could not decode as the difference to our keys was
+    // too large. The response contains no data and the requester repeats the request with the full set of its keys.
+    private final boolean keySetSketchFailed;
+
     public GetDataResponse(@NotNull Set<ProtectedStorageEntry> dataSet,
                            @NotNull Set<PersistableNetworkPayload> persistableNetworkPayloadSet,
                            int requestNonce,
                            boolean isGetUpdatedDataResponse) {
+        this(dataSet,
+                persistableNetworkPayloadSet,
+                requestNonce,
+                isGetUpdatedDataResponse,
+                false);
+    }
+
+    public GetDataResponse(@NotNull Set<ProtectedStorageEntry> dataSet,
+                           @NotNull Set<PersistableNetworkPayload> persistableNetworkPayloadSet,
+                           int requestNonce,
+                           boolean isGetUpdatedDataResponse,
+                           boolean hasMoreChunks) {
+        this(dataSet,
+                persistableNetworkPayloadSet,
+                requestNonce,
+                isGetUpdatedDataResponse,
+                hasMoreChunks,
+                false);
+    }
+
+    public GetDataResponse(@NotNull Set<ProtectedStorageEntry> dataSet,
+                           @NotNull Set<PersistableNetworkPayload> persistableNetworkPayloadSet,
+                           int requestNonce,
+                           boolean isGetUpdatedDataResponse,
+                           boolean hasMoreChunks,
+                           boolean keySetSketchFailed) {
         this(dataSet,
                 persistableNetworkPayloadSet,
                 requestNonce,
                 isGetUpdatedDataResponse,
                 Capabilities.app,
+                hasMoreChunks,
+                keySetSketchFailed,
                 Version.getP2PMessageVersion());
     }
 
@@ -77,6 +114,8 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
                             int requestNonce,
                             boolean isGetUpdatedDataResponse,
                             @NotNull Capabilities supportedCapabilities,
+                            boolean hasMoreChunks,
+                            boolean keySetSketchFailed,
                             int messageVersion) {
         super(messageVersion);
 
@@ -85,6 +124,8 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
         this.requestNonce = requestNonce;
         this.isGetUpdatedDataResponse = isGetUpdatedDataResponse;
         this.supportedCapabilities = supportedCapabilities;
+        this.hasMoreChunks = hasMoreChunks;
+        this.keySetSketchFailed = keySetSketchFailed;
     }
 
     @Override
@@ -105,7 +146,9 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
                         .collect(Collectors.toList()))
                 .setRequestNonce(requestNonce)
                 .setIsGetUpdatedDataResponse(isGetUpdatedDataResponse)
-                .addAllSupportedCapabilities(Capabilities.toIntList(supportedCapabilities));
+                .addAllSupportedCapabilities(Capabilities.toIntList(supportedCapabilities))
+                .setHasMoreChunks(hasMoreChunks)
+                .setKeySetSketchFailed(keySetSketchFailed);
 
         protobuf.NetworkEnvelope proto = getNetworkEnvelopeBuilder()
                 .setGetDataResponse(builder)
@@ -127,6 +170,8 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
                 proto.getRequestNonce(),
                 proto.getIsGetUpdatedDataResponse(),
                 Capabilities.fromIntList(proto.getSupportedCapabilitiesList()),
+                proto.getHasMoreChunks(),
+                proto.getKeySetSketchFailed(),
                 messageVersion);
     }
 
@@ -134,4 +179,9 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
     public Class<? extends InitialDataRequest> associatedRequest() {
         return isGetUpdatedDataResponse ? GetUpdatedDataRequest.class : PreliminaryGetDataRequest.class;
     }
+
+    @Override
+    public boolean isFinalChunk() {
+        return !hasMoreChunks;
+    }
 }
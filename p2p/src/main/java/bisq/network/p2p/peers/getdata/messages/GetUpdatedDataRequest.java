@@ -19,6 +19,7 @@ package bisq.network.p2p.peers.getdata.messages;
 
 import bisq.network.p2p.NodeAddress;
 import bisq.network.p2p.SendersNodeAddressMessage;
+import bisq.network.p2p.storage.KeySetSketch;
 
 import bisq.common.app.Version;
 import bisq.common.proto.ProtoUtil;
@@ -46,9 +47,17 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
     public GetUpdatedDataRequest(NodeAddress senderNodeAddress,
                                  int nonce,
                                  Set<byte[]> excludedKeys) {
+        this(senderNodeAddress, nonce, excludedKeys, null);
+    }
+
+    public GetUpdatedDataRequest(NodeAddress senderNodeAddress,
+                                 int nonce,
+                                 Set<byte[]> excludedKeys,
+                                 @Nullable KeySetSketch keySetSketch) {
         this(senderNodeAddress,
                 nonce,
                 excludedKeys,
+                keySetSketch,
                 Version.VERSION,
                 Version.getP2PMessageVersion());
     }
@@ -61,12 +70,14 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
     private GetUpdatedDataRequest(NodeAddress senderNodeAddress,
                                   int nonce,
                                   Set<byte[]> excludedKeys,
+                                  @Nullable KeySetSketch keySetSketch,
                                   @Nullable String version,
                                   int messageVersion) {
         super(messageVersion,
                 nonce,
                 excludedKeys,
-                version);
+                version,
+                keySetSketch);
         this.senderNodeAddress = senderNodeAddress;
     }
 
@@ -79,22 +90,27 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
                         .map(ByteString::copyFrom)
                         .collect(Collectors.toList()));
         Optional.ofNullable(version).ifPresent(builder::setVersion);
+        Optional.ofNullable(keySetSketch).ifPresent(e -> builder.setKeySetSketch(e.toProtoMessage()));
         NetworkEnvelope proto = getNetworkEnvelopeBuilder()
                 .setGetUpdatedDataRequest(builder)
                 .build();
-        log.info("Sending a GetUpdatedDataRequest with {} kB and {} excluded key entries. Requesters version={}",
-                proto.getSerializedSize() / 1000d, excludedKeys.size(), version);
+        log.info("Sending a GetUpdatedDataRequest with {} kB and {} excluded key entries. Requesters version={}, " +
+                        "hasKeySetSketch={}",
+                proto.getSerializedSize() / 1000d, excludedKeys.size(), version, keySetSketch != null);
         return proto;
     }
 
     public static GetUpdatedDataRequest fromProto(protobuf.GetUpdatedDataRequest proto, int messageVersion) {
         Set<byte[]> excludedKeys = ProtoUtil.byteSetFromProtoByteStringList(proto.getExcludedKeysList());
         String requestersVersion = ProtoUtil.stringOrNullFromProto(proto.getVersion());
-        log.info("Received a GetUpdatedDataRequest with {} kB and {} excluded key entries. Requesters version={}",
-                proto.getSerializedSize() / 1000d, excludedKeys.size(), requestersVersion);
+        KeySetSketch keySetSketch = proto.hasKeySetSketch() ? KeySetSketch.fromProto(proto.getKeySetSketch()) : null;
+        log.info("Received a GetUpdatedDataRequest with {} kB and {} excluded key entries. Requesters version={}, " +
+                        "hasKeySetSketch={}",
+                proto.getSerializedSize() / 1000d, excludedKeys.size(), requestersVersion, keySetSketch != null);
         return new GetUpdatedDataRequest(NodeAddress.fromProto(proto.getSenderNodeAddress()),
                 proto.getNonce(),
                 excludedKeys,
+                keySetSketch,
                 requestersVersion,
                 messageVersion);
     }
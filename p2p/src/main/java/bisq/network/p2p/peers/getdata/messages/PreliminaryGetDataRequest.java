@@ -19,6 +19,7 @@ package bisq.network.p2p.peers.getdata.messages;
 
 import bisq.network.p2p.AnonymousMessage;
 import bisq.network.p2p.SupportedCapabilitiesMessage;
+import bisq.network.p2p.storage.KeySetSketch;
 
 import bisq.common.app.Capabilities;
 import bisq.common.app.Version;
@@ -45,8 +46,13 @@ public final class PreliminaryGetDataRequest extends GetDataRequest implements A
     private final Capabilities supportedCapabilities;
 
     public PreliminaryGetDataRequest(int nonce, Set<byte[]> excludedKeys) {
+        this(nonce, excludedKeys, null);
+    }
+
+    public PreliminaryGetDataRequest(int nonce, Set<byte[]> excludedKeys, @Nullable KeySetSketch keySetSketch) {
         this(nonce,
                 excludedKeys,
+                keySetSketch,
                 Version.VERSION,
                 Capabilities.app,
                 Version.getP2PMessageVersion());
@@ -59,10 +65,11 @@ public final class PreliminaryGetDataRequest extends GetDataRequest implements A
 
     private PreliminaryGetDataRequest(int nonce,
                                       Set<byte[]> excludedKeys,
+                                      @Nullable KeySetSketch keySetSketch,
                                       @Nullable String version,
                                       Capabilities supportedCapabilities,
                                       int messageVersion) {
-        super(messageVersion, nonce, excludedKeys, version);
+        super(messageVersion, nonce, excludedKeys, version, keySetSketch);
 
         this.supportedCapabilities = supportedCapabilities;
     }
@@ -76,21 +83,26 @@ public final class PreliminaryGetDataRequest extends GetDataRequest implements A
                         .map(ByteString::copyFrom)
                         .collect(Collectors.toList()));
         Optional.ofNullable(version).ifPresent(builder::setVersion);
+        Optional.ofNullable(keySetSketch).ifPresent(e -> builder.setKeySetSketch(e.toProtoMessage()));
         NetworkEnvelope proto = getNetworkEnvelopeBuilder()
                 .setPreliminaryGetDataRequest(builder)
                 .build();
-        log.info("Sending a PreliminaryGetDataRequest with {} kB and {} excluded key entries. Requesters version={}",
-                proto.getSerializedSize() / 1000d, excludedKeys.size(), version);
+        log.info("Sending a PreliminaryGetDataRequest with {} kB and {} excluded key entries. Requesters version={}, " +
+                        "hasKeySetSketch={}",
+                proto.getSerializedSize() / 1000d, excludedKeys.size(), version, keySetSketch != null);
         return proto;
     }
 
     public static PreliminaryGetDataRequest fromProto(protobuf.PreliminaryGetDataRequest proto, int messageVersion) {
         Set<byte[]> excludedKeys = ProtoUtil.byteSetFromProtoByteStringList(proto.getExcludedKeysList());
         String requestersVersion = ProtoUtil.stringOrNullFromProto(proto.getVersion());
-        log.info("Received a PreliminaryGetDataRequest with {} kB and {} excluded key entries. Requesters version={}",
-                proto.getSerializedSize() / 1000d, excludedKeys.size(), requestersVersion);
+        KeySetSketch keySetSketch = proto.hasKeySetSketch() ? KeySetSketch.fromProto(proto.getKeySetSketch()) : null;
+        log.info("Received a PreliminaryGetDataRequest with {} kB and {} excluded key entries. Requesters version={}, " +
+                        "hasKeySetSketch={}",
+                proto.getSerializedSize() / 1000d, excludedKeys.size(), requestersVersion, keySetSketch != null);
         return new PreliminaryGetDataRequest(proto.getNonce(),
                 excludedKeys,
+                keySetSketch,
                 requestersVersion,
                 Capabilities.fromIntList(proto.getSupportedCapabilitiesList()),
                 messageVersion);
@@ -0,0 +1,323 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage;
+
+import bisq.common.proto.network.NetworkPayload;
+
+import com.google.protobuf.ByteString;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Invertible bloom lookup table over the keys of our P2P data maps. It is used for reconciling the key sets of two
+ * nodes at initial data requests: Instead of sending all known keys the requester sends its sketch. The responding
+ * node subtracts it from its own sketch and decodes the difference, so the costs scale with the size of the
+ * difference and not with the size of the data stores.
+ * <p>
+ * The cells are split into NUM_PARTITIONS partitions and each key is added to exactly one cell per partition. As the
+ * cell index inside a partition is derived from the lower bits of the key's hash and the partition size is a power
+ * of 2 we can fold a sketch to any smaller partition size without knowing the keys. That way we maintain one large
+ * sketch and derive the requested size from it on demand.
+ * <p>
+ * Not thread safe. It is expected to be accessed from the UserThread only.
+ */
+@Slf4j
+@EqualsAndHashCode
+public final class KeySetSketch implements NetworkPayload {
+    public static final int NUM_PARTITIONS = 3;
+    // Max. cells per partition we accept from the network and maintain locally. 3 * 4096 cells of 45 bytes are
+    // about 550 kB.
+    public static final int MAX_CELLS_PER_PARTITION = 4096;
+    // Keys are hashes of 20 or 32 bytes. We store the key length as first byte so we can restore the key from a
+    // pure cell.
+    private static final int MAX_KEY_SIZE = 32;
+    private static final int KEY_SUM_SIZE = MAX_KEY_SIZE + 1;
+    private static final long CHECKSUM_SEED = 0x5bd1e9955bd1e995L;
+
+    @Getter
+    private final int cellsPerPartition;
+    private final int[] counts;
+    private final byte[] keySums;
+    private final long[] hashSums;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Decoded result
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Value
+    public static class Difference {
+        // Keys only contained in the sketch we have subtracted from
+        Set<P2PDataStorage.ByteArray> localOnly;
+        // Keys only contained in the subtracted sketch
+        Set<P2PDataStorage.ByteArray> remoteOnly;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public KeySetSketch(int cellsPerPartition) {
+        this(cellsPerPartition,
+                new int[NUM_PARTITIONS * cellsPerPartition],
+                new byte[NUM_PARTITIONS * cellsPerPartition * KEY_SUM_SIZE],
+                new long[NUM_PARTITIONS * cellsPerPartition]);
+    }
+
+    private KeySetSketch(int cellsPerPartition, int[] counts, byte[] keySums, long[] hashSums) {
+        checkArgument(isValidPartitionSize(cellsPerPartition),
+                "cellsPerPartition must be a power of 2 not larger than " + MAX_CELLS_PER_PARTITION);
+        int numCells = NUM_PARTITIONS * cellsPerPartition;
+        checkArgument(counts.length == numCells, "Invalid counts size");
+        checkArgument(keySums.length == numCells * KEY_SUM_SIZE, "Invalid keySums size");
+        checkArgument(hashSums.length == numCells, "Invalid hashSums size");
+        this.cellsPerPartition = cellsPerPartition;
+        this.counts = counts;
+        this.keySums = keySums;
+        this.hashSums = hashSums;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PROTO BUFFER
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public protobuf.KeySetSketch toProtoMessage() {
+        protobuf.KeySetSketch.Builder builder = protobuf.KeySetSketch.newBuilder()
+                .setCellsPerPartition(cellsPerPartition)
+                .setKeySums(ByteString.copyFrom(keySums));
+        Arrays.stream(counts).forEach(builder::addCounts);
+        Arrays.stream(hashSums).forEach(builder::addHashSums);
+        return builder.build();
+    }
+
+    public static KeySetSketch fromProto(protobuf.KeySetSketch proto) {
+        return new KeySetSketch(proto.getCellsPerPartition(),
+                proto.getCountsList().stream().mapToInt(Integer::intValue).toArray(),
+                proto.getKeySums().toByteArray(),
+                proto.getHashSumsList().stream().mapToLong(Long::longValue).toArray());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public void add(P2PDataStorage.ByteArray key) {
+        update(key.bytes, 1);
+    }
+
+    public void remove(P2PDataStorage.ByteArray key) {
+        update(key.bytes, -1);
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(keySums, (byte) 0);
+        Arrays.fill(hashSums, 0);
+    }
+
+    /**
+     * @param targetCellsPerPartition Power of 2 not larger than our own cellsPerPartition
+     * @return A new sketch with the requested partition size containing the same keys
+     */
+    public KeySetSketch fold(int targetCellsPerPartition) {
+        checkArgument(isValidPartitionSize(targetCellsPerPartition) && targetCellsPerPartition <= cellsPerPartition,
+                "Invalid targetCellsPerPartition " + targetCellsPerPartition);
+        KeySetSketch result = new KeySetSketch(targetCellsPerPartition);
+        int mask = targetCellsPerPartition - 1;
+        for (int partition = 0; partition < NUM_PARTITIONS; partition++) {
+            for (int i = 0; i < cellsPerPartition; i++) {
+                int source = partition * cellsPerPartition + i;
+                int target = partition * targetCellsPerPartition + (i & mask);
+                result.counts[target] += counts[source];
+                result.hashSums[target] ^= hashSums[source];
+                xorInto(result.keySums, target * KEY_SUM_SIZE, keySums, source * KEY_SUM_SIZE);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param other Sketch with the same partition size
+     * @return A new sketch representing the difference of our keys and the keys of other
+     */
+    public KeySetSketch subtract(KeySetSketch other) {
+        checkArgument(other.cellsPerPartition == cellsPerPartition, "Sketches must have same size");
+        KeySetSketch result = new KeySetSketch(cellsPerPartition);
+        for (int i = 0; i < counts.length; i++) {
+            result.counts[i] = counts[i] - other.counts[i];
+            result.hashSums[i] = hashSums[i] ^ other.hashSums[i];
+        }
+        for (int i = 0; i < keySums.length; i++) {
+            result.keySums[i] = (byte) (keySums[i] ^ other.keySums[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Decodes a sketch created by subtract. Returns an empty Optional if the difference is too large to get decoded
+     * with the given sketch size.
+     */
+    public Optional<Difference> decode() {
+        KeySetSketch work = new KeySetSketch(cellsPerPartition,
+                counts.clone(),
+                keySums.clone(),
+                hashSums.clone());
+        Set<P2PDataStorage.ByteArray> localOnly = new HashSet<>();
+        Set<P2PDataStorage.ByteArray> remoteOnly = new HashSet<>();
+        Deque<Integer> pureCells = new ArrayDeque<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (work.isPure(i)) {
+                pureCells.add(i);
+            }
+        }
+
+        // Bounds the peeling for malformed sketches received from the network
+        int maxIterations = 2 * counts.length;
+        while (!pureCells.isEmpty() && maxIterations-- > 0) {
+            int cell = pureCells.poll();
+            if (!work.isPure(cell)) {
+                // Got already peeled by a previous key
+                continue;
+            }
+            int count = work.counts[cell];
+            byte[] key = work.getKey(cell);
+            if (count == 1) {
+                localOnly.add(new P2PDataStorage.ByteArray(key));
+            } else {
+                remoteOnly.add(new P2PDataStorage.ByteArray(key));
+            }
+            work.update(key, -count);
+            for (int partition = 0; partition < NUM_PARTITIONS; partition++) {
+                int index = work.getCellIndex(key, partition);
+                if (work.isPure(index)) {
+                    pureCells.add(index);
+                }
+            }
+        }
+
+        if (!work.isEmpty()) {
+            log.info("Decoding the key set sketch failed. We decoded {} keys but the difference is larger than " +
+                    "the sketch capacity.", localOnly.size() + remoteOnly.size());
+            return Optional.empty();
+        }
+        return Optional.of(new Difference(localOnly, remoteOnly));
+    }
+
+    public boolean isEmpty() {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0 || hashSums[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "KeySetSketch{" +
+                "\n     cellsPerPartition=" + cellsPerPartition +
+                "\n}";
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void update(byte[] key, int delta) {
+        checkArgument(key.length > 0 && key.length <= MAX_KEY_SIZE, "Invalid key size " + key.length);
+        long checksum = hash(key, CHECKSUM_SEED);
+        for (int partition = 0; partition < NUM_PARTITIONS; partition++) {
+            int index = getCellIndex(key, partition);
+            counts[index] += delta;
+            hashSums[index] ^= checksum;
+            int offset = index * KEY_SUM_SIZE;
+            keySums[offset] ^= (byte) key.length;
+            for (int i = 0; i < key.length; i++) {
+                keySums[offset + 1 + i] ^= key[i];
+            }
+        }
+    }
+
+    private int getCellIndex(byte[] key, int partition) {
+        long hash = hash(key, partition + 1);
+        return partition * cellsPerPartition + (int) (hash & (cellsPerPartition - 1));
+    }
+
+    private boolean isPure(int cell) {
+        int count = counts[cell];
+        if (count != 1 && count != -1) {
+            return false;
+        }
+        int length = keySums[cell * KEY_SUM_SIZE];
+        if (length <= 0 || length > MAX_KEY_SIZE) {
+            return false;
+        }
+        return hashSums[cell] == hash(getKey(cell), CHECKSUM_SEED);
+    }
+
+    private byte[] getKey(int cell) {
+        int offset = cell * KEY_SUM_SIZE;
+        int length = keySums[offset];
+        return Arrays.copyOfRange(keySums, offset + 1, offset + 1 + length);
+    }
+
+    private static void xorInto(byte[] target, int targetOffset, byte[] source, int sourceOffset) {
+        for (int i = 0; i < KEY_SUM_SIZE; i++) {
+            target[targetOffset + i] ^= source[sourceOffset + i];
+        }
+    }
+
+    private static boolean isValidPartitionSize(int cellsPerPartition) {
+        return cellsPerPartition > 0 &&
+                cellsPerPartition <= MAX_CELLS_PER_PARTITION &&
+                Integer.bitCount(cellsPerPartition) == 1;
+    }
+
+    // FNV-1a with the murmur3 finalizer. The keys are hashes already, we only need a deterministic and well
+    // distributed mapping which is the same at all nodes.
+    private static long hash(byte[] key, long seed) {
+        long hash = 0xcbf29ce484222325L ^ seed;
+        for (byte b : key) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -25,6 +25,7 @@ import bisq.network.p2p.network.MessageListener;
 import bisq.network.p2p.network.NetworkNode;
 import bisq.network.p2p.peers.BroadcastHandler;
 import bisq.network.p2p.peers.Broadcaster;
+import bisq.network.p2p.peers.getdata.GetDataResponseChunks;
 import bisq.network.p2p.peers.getdata.messages.GetDataRequest;
 import bisq.network.p2p.peers.getdata.messages.GetDataResponse;
 import bisq.network.p2p.peers.getdata.messages.GetUpdatedDataRequest;
@@ -48,6 +49,7 @@ import bisq.network.p2p.storage.payload.ProtectedStoragePayload;
 import bisq.network.p2p.storage.payload.RequiresOwnerIsOnlinePayload;
 import bisq.network.p2p.storage.persistence.AppendOnlyDataStoreListener;
 import bisq.network.p2p.storage.persistence.AppendOnlyDataStoreService;
+import bisq.network.p2p.storage.persistence.CompositeMapView;
 import bisq.network.p2p.storage.persistence.HistoricalDataStoreService;
 import bisq.network.p2p.storage.persistence.PersistableNetworkPayloadStore;
 import bisq.network.p2p.storage.persistence.ProtectedDataStoreService;
@@ -77,7 +79,13 @@ import com.google.inject.name.Named;
 import javax.inject.Inject;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import org.fxmisc.easybind.EasyBind;
 import org.fxmisc.easybind.monadic.MonadicBinding;
@@ -98,21 +106,31 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
+import org.jetbrains.annotations.NotNull;
+
 import javax.annotation.Nullable;
 
 @Slf4j
@@ -126,6 +144,20 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     @VisibleForTesting
     public static final int CHECK_TTL_INTERVAL_SEC = 60;
 
+    // Size of the KeySetSketch we send with our GetDataRequests. 3 * 2048 cells are about 270 kB and can decode a
+    // difference of up to about 5000 keys.
+    @VisibleForTesting
+    static final int REQUEST_SKETCH_CELLS_PER_PARTITION = 2048;
+
+    // Hashing and signature verification of the ProtectedStorageEntries of a GetDataResponse is done in parallel if
+    // there are at least that many entries.
+    @VisibleForTesting
+    static final int MIN_ENTRIES_FOR_PARALLEL_VERIFICATION = 100;
+    private static final int NUM_VERIFICATION_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final ListeningExecutorService VERIFICATION_EXECUTOR = Utilities.getListeningExecutorService(
+            "P2PDataStorage-verification", NUM_VERIFICATION_THREADS, NUM_VERIFICATION_THREADS, 60,
+            new LinkedBlockingQueue<>());
+
     private boolean initialRequestApplied = false;
 
     private final Broadcaster broadcaster;
@@ -136,6 +168,8 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     @Getter
     private final Map<ByteArray, ProtectedStorageEntry> map = new ConcurrentHashMap<>();
     private final Set<HashMapChangedListener> hashMapChangedListeners = new CopyOnWriteArraySet<>();
+    // Sketch of all keys of our map and of the appendOnlyDataStoreService. Gets updated at each add/remove operation.
+    private final KeySetSketch keySetSketch = new KeySetSketch(KeySetSketch.MAX_CELLS_PER_PARTITION);
     private Timer removeExpiredEntriesTimer;
 
     private final PersistenceManager<SequenceNumberMap> persistenceManager;
@@ -219,6 +253,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
                 (a, b, c) -> a && b && c);
         readFromResourcesCompleteBinding.subscribe((observable, oldValue, newValue) -> {
             if (newValue) {
+                rebuildKeySetSketch();
                 completeHandler.run();
             }
         });
@@ -239,6 +274,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         resourceDataStoreService.readFromResourcesSync(postFix);
 
         map.putAll(protectedDataStoreService.getMap());
+        rebuildKeySetSketch();
     }
 
     // We get added mailbox message data from MailboxMessageService. We want to add those early so we can get it added
@@ -246,7 +282,9 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     public void addProtectedMailboxStorageEntryToMap(ProtectedStorageEntry protectedStorageEntry) {
         ProtectedStoragePayload protectedStoragePayload = protectedStorageEntry.getProtectedStoragePayload();
         ByteArray hashOfPayload = get32ByteHashAsByteArray(protectedStoragePayload);
-        map.put(hashOfPayload, protectedStorageEntry);
+        if (map.put(hashOfPayload, protectedStorageEntry) == null) {
+            keySetSketch.add(hashOfPayload);
+        }
         log.trace("## addProtectedMailboxStorageEntryToMap hashOfPayload={}, map={}", hashOfPayload, printMap());
     }
 
@@ -259,14 +297,42 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
      * Returns a PreliminaryGetDataRequest that can be sent to a peer node to request missing Payload data.
      */
     public PreliminaryGetDataRequest buildPreliminaryGetDataRequest(int nonce) {
-        return new PreliminaryGetDataRequest(nonce, getKnownPayloadHashes());
+        return buildPreliminaryGetDataRequest(nonce, false);
+    }
+
+    /**
+     * Returns a PreliminaryGetDataRequest that can be sent to a peer node to request missing Payload data.
+     * If useKeySetSketch is true we send a sketch of our keys instead of the full set of known keys. Must only be
+     * used if the peer supports Capability.KEY_SET_RECONCILIATION.
+     */
+    public PreliminaryGetDataRequest buildPreliminaryGetDataRequest(int nonce, boolean useKeySetSketch) {
+        return useKeySetSketch ?
+                new PreliminaryGetDataRequest(nonce, new HashSet<>(), getKeySetSketchForRequest()) :
+                new PreliminaryGetDataRequest(nonce, getKnownPayloadHashes());
     }
 
     /**
      * Returns a GetUpdatedDataRequest that can be sent to a peer node to request missing Payload data.
      */
     public GetUpdatedDataRequest buildGetUpdatedDataRequest(NodeAddress senderNodeAddress, int nonce) {
-        return new GetUpdatedDataRequest(senderNodeAddress, nonce, getKnownPayloadHashes());
+        return buildGetUpdatedDataRequest(senderNodeAddress, nonce, false);
+    }
+
+    /**
+     * Returns a GetUpdatedDataRequest that can be sent to a peer node to request missing Payload data.
+     * If useKeySetSketch is true we send a sketch of our keys instead of the full set of known keys. Must only be
+     * used if the peer supports Capability.KEY_SET_RECONCILIATION.
+     */
+    public GetUpdatedDataRequest buildGetUpdatedDataRequest(NodeAddress senderNodeAddress,
+                                                            int nonce,
+                                                            boolean useKeySetSketch) {
+        return useKeySetSketch ?
+                new GetUpdatedDataRequest(senderNodeAddress, nonce, new HashSet<>(), getKeySetSketchForRequest()) :
+                new GetUpdatedDataRequest(senderNodeAddress, nonce, getKnownPayloadHashes());
+    }
+
+    private KeySetSketch getKeySetSketchForRequest() {
+        return keySetSketch.fold(REQUEST_SKETCH_CELLS_PER_PARTITION);
     }
 
     /**
@@ -294,7 +360,8 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     }
 
     /**
-     * Returns a GetDataResponse object that contains the Payloads known locally, but not remotely.
+     * Returns a GetDataResponse object that contains the Payloads known locally, but not remotely. If the requester
+     * has sent a KeySetSketch we could not decode, the response contains no data but has keySetSketchFailed set.
      */
     public GetDataResponse buildGetDataResponse(
             GetDataRequest getDataRequest,
@@ -303,25 +370,27 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
             AtomicBoolean wasProtectedStorageEntriesTruncated,
             Capabilities peerCapabilities) {
 
-        Set<P2PDataStorage.ByteArray> excludedKeysAsByteArray =
-                P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(getDataRequest.getExcludedKeys());
+        DataResponseMaps dataResponseMaps = getDataResponseMaps(getDataRequest);
+        if (dataResponseMaps.keySetSketchFailed) {
+            return new GetDataResponse(new HashSet<>(),
+                    new HashSet<>(),
+                    getDataRequest.getNonce(),
+                    getDataRequest instanceof GetUpdatedDataRequest,
+                    false,
+                    true);
+        }
 
-        // Pre v 1.4.0 requests do not have set the requesters version field so it is null.
-        // The methods in HistoricalDataStoreService will return all historical data in that case.
-        // mapForDataResponse contains the filtered by version data from HistoricalDataStoreService as well as all other
-        // maps of the remaining appendOnlyDataStoreServices.
-        Map<ByteArray, PersistableNetworkPayload> mapForDataResponse = getMapForDataResponse(getDataRequest.getVersion());
         Set<PersistableNetworkPayload> filteredPersistableNetworkPayloads =
                 filterKnownHashes(
-                        mapForDataResponse,
+                        dataResponseMaps.persistableNetworkPayloadMap,
                         Function.identity(),
-                        excludedKeysAsByteArray,
+                        dataResponseMaps.excludedKeys,
                         peerCapabilities,
                         maxEntriesPerType,
                         wasPersistableNetworkPayloadsTruncated);
         log.info("{} PersistableNetworkPayload entries remained after filtered by excluded keys. " +
                         "Original map had {} entries.",
-                filteredPersistableNetworkPayloads.size(), mapForDataResponse.size());
+                filteredPersistableNetworkPayloads.size(), dataResponseMaps.persistableNetworkPayloadMap.size());
         log.trace("## buildGetDataResponse filteredPersistableNetworkPayloadHashes={}",
                 filteredPersistableNetworkPayloads.stream()
                         .map(e -> Utilities.encodeToHex(e.getHash()))
@@ -329,15 +398,15 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
 
         Set<ProtectedStorageEntry> filteredProtectedStorageEntries =
                 filterKnownHashes(
-                        map,
+                        dataResponseMaps.protectedStorageEntryMap,
                         ProtectedStorageEntry::getProtectedStoragePayload,
-                        excludedKeysAsByteArray,
+                        dataResponseMaps.excludedKeys,
                         peerCapabilities,
                         maxEntriesPerType,
                         wasProtectedStorageEntriesTruncated);
         log.info("{} ProtectedStorageEntry entries remained after filtered by excluded keys. " +
                         "Original map had {} entries.",
-                filteredProtectedStorageEntries.size(), map.size());
+                filteredProtectedStorageEntries.size(), dataResponseMaps.protectedStorageEntryMap.size());
         log.trace("## buildGetDataResponse filteredProtectedStorageEntryHashes={}",
                 filteredProtectedStorageEntries.stream()
                         .map(e -> get32ByteHashAsByteArray((e.getProtectedStoragePayload())))
@@ -350,6 +419,129 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
                 getDataRequest instanceof GetUpdatedDataRequest);
     }
 
+    /**
+     * Returns the response to the given request as chunks of at most maxEntriesPerChunk entries. Other than
+     * buildGetDataResponse we do not collect the entries upfront but filter them from the maps while the chunks get
+     * created, and we do not truncate the response. Must be used from the UserThread only as the chunks are created
+     * from the live maps. If the requester has sent a KeySetSketch we could not decode, there is only one chunk
+     * without data which has keySetSketchFailed set.
+     */
+    public GetDataResponseChunks buildGetDataResponseChunks(GetDataRequest getDataRequest,
+                                                            Capabilities peerCapabilities,
+                                                            int maxEntriesPerChunk) {
+        DataResponseMaps dataResponseMaps = getDataResponseMaps(getDataRequest);
+        return new GetDataResponseChunks(
+                filterKnownHashesLazily(
+                        dataResponseMaps.protectedStorageEntryMap,
+                        ProtectedStorageEntry::getProtectedStoragePayload,
+                        dataResponseMaps.excludedKeys,
+                        peerCapabilities),
+                filterKnownHashesLazily(
+                        dataResponseMaps.persistableNetworkPayloadMap,
+                        Function.identity(),
+                        dataResponseMaps.excludedKeys,
+                        peerCapabilities),
+                getDataRequest.getNonce(),
+                getDataRequest instanceof GetUpdatedDataRequest,
+                maxEntriesPerChunk,
+                dataResponseMaps.keySetSketchFailed);
+    }
+
+    private static class DataResponseMaps {
+        private final Set<ByteArray> excludedKeys;
+        private final Map<ByteArray, PersistableNetworkPayload> persistableNetworkPayloadMap;
+        private final Map<ByteArray, ProtectedStorageEntry> protectedStorageEntryMap;
+        private final boolean keySetSketchFailed;
+
+        DataResponseMaps(Set<ByteArray> excludedKeys,
+                         Map<ByteArray, PersistableNetworkPayload> persistableNetworkPayloadMap,
+                         Map<ByteArray, ProtectedStorageEntry> protectedStorageEntryMap,
+                         boolean keySetSketchFailed) {
+            this.excludedKeys = excludedKeys;
+            this.persistableNetworkPayloadMap = persistableNetworkPayloadMap;
+            this.protectedStorageEntryMap = protectedStorageEntryMap;
+            this.keySetSketchFailed = keySetSketchFailed;
+        }
+    }
+
+    // Returns the maps with the candidates for the response and the keys which are known by the requester
+    private DataResponseMaps getDataResponseMaps(GetDataRequest getDataRequest) {
+        Set<P2PDataStorage.ByteArray> excludedKeysAsByteArray;
+        Map<ByteArray, PersistableNetworkPayload> mapForDataResponse;
+        Map<ByteArray, ProtectedStorageEntry> protectedStorageEntryMap;
+        KeySetSketch requestersKeySetSketch = getDataRequest.getKeySetSketch();
+        Optional<KeySetSketch.Difference> difference = Optional.ofNullable(requestersKeySetSketch)
+                .flatMap(this::reconcileKeySets);
+        if (requestersKeySetSketch != null && !difference.isPresent()) {
+            // The requester has sent a sketch but the difference was too large to be decoded. As the request does
+            // not contain the excluded keys we would have to deliver all our data, so we deliver nothing and let the
+            // requester repeat the request with its full set of keys.
+            return new DataResponseMaps(new HashSet<>(), new HashMap<>(), new HashMap<>(), true);
+        }
+
+        if (difference.isPresent()) {
+            // The requester has sent a sketch of its keys and we could decode the difference to our keys. We only
+            // need to look up the entries the requester is missing.
+            excludedKeysAsByteArray = new HashSet<>();
+            mapForDataResponse = new HashMap<>();
+            protectedStorageEntryMap = new HashMap<>();
+            difference.get().getLocalOnly().forEach(key -> {
+                PersistableNetworkPayload persistableNetworkPayload = appendOnlyDataStoreService.get(key);
+                if (persistableNetworkPayload != null) {
+                    mapForDataResponse.put(key, persistableNetworkPayload);
+                } else {
+                    ProtectedStorageEntry protectedStorageEntry = map.get(key);
+                    if (protectedStorageEntry != null) {
+                        protectedStorageEntryMap.put(key, protectedStorageEntry);
+                    }
+                }
+            });
+        } else {
+            excludedKeysAsByteArray = P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(getDataRequest.getExcludedKeys());
+
+            // Pre v 1.4.0 requests do not have set the requesters version field so it is null.
+            // The methods in HistoricalDataStoreService will return all historical data in that case.
+            // mapForDataResponse contains the filtered by version data from HistoricalDataStoreService as well as all other
+            // maps of the remaining appendOnlyDataStoreServices.
+            mapForDataResponse = getMapForDataResponse(getDataRequest.getVersion());
+            protectedStorageEntryMap = map;
+        }
+        return new DataResponseMaps(excludedKeysAsByteArray, mapForDataResponse, protectedStorageEntryMap, false);
+    }
+
+    private Optional<KeySetSketch.Difference> reconcileKeySets(KeySetSketch requestersKeySetSketch) {
+        long ts = System.currentTimeMillis();
+        Optional<KeySetSketch.Difference> difference = keySetSketch.fold(requestersKeySetSketch.getCellsPerPartition())
+                .subtract(requestersKeySetSketch)
+                .decode();
+        if (difference.isPresent()) {
+            log.info("Reconciling key sets took {} ms. The requester is missing {} entries and has {} entries we " +
+                            "do not have.",
+                    System.currentTimeMillis() - ts,
+                    difference.get().getLocalOnly().size(),
+                    difference.get().getRemoteOnly().size());
+        } else {
+            log.warn("Reconciling key sets failed as the difference was too large for the requesters sketch " +
+                    "size. We ask the requester to repeat the request with its full set of keys.");
+        }
+        return difference;
+    }
+
+    private void rebuildKeySetSketch() {
+        long ts = System.currentTimeMillis();
+        keySetSketch.clear();
+        appendOnlyDataStoreService.getServices().forEach(service -> {
+            if (service instanceof HistoricalDataStoreService) {
+                ((HistoricalDataStoreService<? extends PersistableNetworkPayloadStore>) service).getMapOfAllData()
+                        .keySet().forEach(keySetSketch::add);
+            } else {
+                service.getMap().keySet().forEach(keySetSketch::add);
+            }
+        });
+        map.keySet().forEach(keySetSketch::add);
+        log.info("Rebuilding the key set sketch took {} ms", System.currentTimeMillis() - ts);
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Utils for collecting the exclude hashes
@@ -375,8 +567,10 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         return map;
     }
 
+    // Returns a read only view of the maps of all appendOnlyDataStoreServices. The HistoricalDataStoreServices deliver
+    // cached views as well, so we do not copy any data here.
     public Map<ByteArray, PersistableNetworkPayload> getMapForDataResponse(String requestersVersion) {
-        Map<ByteArray, PersistableNetworkPayload> map = new HashMap<>();
+        List<Map<ByteArray, PersistableNetworkPayload>> maps = new ArrayList<>();
         appendOnlyDataStoreService.getServices()
                 .forEach(service -> {
                     Map<ByteArray, PersistableNetworkPayload> serviceMap;
@@ -386,11 +580,11 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
                     } else {
                         serviceMap = service.getMap();
                     }
-                    map.putAll(serviceMap);
+                    maps.add(serviceMap);
                     log.info("We added {} entries from {} to be filtered by excluded keys",
                             serviceMap.size(), service.getClass().getSimpleName());
                 });
-        return map;
+        return new CompositeMapView<>(maps);
     }
 
     /**
@@ -407,48 +601,142 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
 
         log.info("Num knownHashes {}", knownHashes.size());
 
-        Set<Map.Entry<ByteArray, T>> entries = toFilter.entrySet();
-        List<T> dateSortedTruncatablePayloads = entries.stream()
-                .filter(entry -> entry.getValue() instanceof DateSortedTruncatablePayload)
-                .filter(entry -> !knownHashes.contains(entry.getKey()))
-                .map(Map.Entry::getValue)
-                .filter(payload -> shouldTransmitPayloadToPeer(peerCapabilities, objToPayload.apply(payload)))
-                .sorted(Comparator.comparing(payload -> ((DateSortedTruncatablePayload) payload).getDate()))
-                .collect(Collectors.toList());
-        log.info("Num filtered dateSortedTruncatablePayloads {}", dateSortedTruncatablePayloads.size());
-        if (!dateSortedTruncatablePayloads.isEmpty()) {
-            int maxItems = ((DateSortedTruncatablePayload) dateSortedTruncatablePayloads.get(0)).maxItems();
-            if (dateSortedTruncatablePayloads.size() > maxItems) {
-                int fromIndex = dateSortedTruncatablePayloads.size() - maxItems;
-                int toIndex = dateSortedTruncatablePayloads.size();
-                dateSortedTruncatablePayloads = dateSortedTruncatablePayloads.subList(fromIndex, toIndex);
-                log.info("Num truncated dateSortedTruncatablePayloads {}", dateSortedTruncatablePayloads.size());
+        // We iterate the map only once. The non-dateSortedTruncatablePayloads are added directly to the result, the
+        // dateSortedTruncatablePayloads are collected in a min-heap by date which never holds more than maxItems
+        // entries, so we keep the newest without sorting all of them.
+        Set<T> filteredResults = new HashSet<>();
+        NewestDateSortedTruncatablePayloads<T> newestDateSortedTruncatablePayloads = new NewestDateSortedTruncatablePayloads<>();
+        Map<Capabilities, Boolean> shouldTransmitByRequiredCapabilities = new HashMap<>();
+        for (Map.Entry<ByteArray, T> entry : toFilter.entrySet()) {
+            if (knownHashes.contains(entry.getKey())) {
+                continue;
+            }
+
+            T value = entry.getValue();
+            if (!shouldTransmitPayloadToPeer(peerCapabilities, objToPayload.apply(value),
+                    shouldTransmitByRequiredCapabilities)) {
+                continue;
             }
-        }
 
-        List<T> filteredResults = entries.stream()
-                .filter(entry -> !(entry.getValue() instanceof DateSortedTruncatablePayload))
-                .filter(entry -> !knownHashes.contains(entry.getKey()))
-                .map(Map.Entry::getValue)
-                .filter(payload -> shouldTransmitPayloadToPeer(peerCapabilities, objToPayload.apply(payload)))
-                .collect(Collectors.toList());
+            if (value instanceof DateSortedTruncatablePayload) {
+                newestDateSortedTruncatablePayloads.offer(value);
+            } else if (filteredResults.size() < maxEntries) {
+                filteredResults.add(value);
+            } else {
+                outTruncated.set(true);
+            }
+        }
         log.info("Num filtered non-dateSortedTruncatablePayloads {}", filteredResults.size());
 
-        // The non-dateSortedTruncatablePayloads have higher prio, so we added dateSortedTruncatablePayloads
-        // after those so in case we need to truncate we first truncate the dateSortedTruncatablePayloads.
-        filteredResults.addAll(dateSortedTruncatablePayloads);
+        // The non-dateSortedTruncatablePayloads have higher prio, so we add the dateSortedTruncatablePayloads
+        // after those so in case we need to truncate we truncate the dateSortedTruncatablePayloads. We add the
+        // newest first, so we drop the oldest if we need to truncate.
+        if (newestDateSortedTruncatablePayloads.getNumOffered() > 0) {
+            List<T> dateSortedTruncatablePayloads = newestDateSortedTruncatablePayloads.getNewestFirst();
+            for (T payload : dateSortedTruncatablePayloads) {
+                if (filteredResults.size() >= maxEntries) {
+                    outTruncated.set(true);
+                    break;
+                }
+                filteredResults.add(payload);
+            }
+        }
 
-        if (filteredResults.size() > maxEntries) {
-            filteredResults = filteredResults.subList(0, maxEntries);
-            outTruncated.set(true);
+        if (outTruncated.get()) {
             log.info("Num truncated filteredResults {}", filteredResults.size());
         } else {
             log.info("Num filteredResults {}", filteredResults.size());
         }
 
-        return new HashSet<>(filteredResults);
+        return filteredResults;
+    }
+
+    /**
+     * Lazy variant of filterKnownHashes without truncation of the result. The returned iterator filters the
+     * non-dateSortedTruncatablePayloads while it is consumed. The newest dateSortedTruncatablePayloads are only
+     * collected once those are exhausted, so we never hold more than maxItems of them in memory.
+     */
+    static private <T extends NetworkPayload> Iterator<T> filterKnownHashesLazily(
+            Map<ByteArray, T> toFilter,
+            Function<T, ? extends NetworkPayload> objToPayload,
+            Set<ByteArray> knownHashes,
+            Capabilities peerCapabilities) {
+
+        log.info("Num knownHashes {}", knownHashes.size());
+
+        Map<Capabilities, Boolean> shouldTransmitByRequiredCapabilities = new HashMap<>();
+        Predicate<Map.Entry<ByteArray, T>> shouldTransmit = entry -> !knownHashes.contains(entry.getKey()) &&
+                shouldTransmitPayloadToPeer(peerCapabilities, objToPayload.apply(entry.getValue()),
+                        shouldTransmitByRequiredCapabilities);
+
+        Supplier<Iterator<T>> nonDateSortedTruncatablePayloads = () -> Iterators.transform(
+                Iterators.filter(toFilter.entrySet().iterator(),
+                        entry -> !(entry.getValue() instanceof DateSortedTruncatablePayload) && shouldTransmit.test(entry)),
+                Map.Entry::getValue);
+        Supplier<Iterator<T>> dateSortedTruncatablePayloads = () -> {
+            NewestDateSortedTruncatablePayloads<T> newestDateSortedTruncatablePayloads = new NewestDateSortedTruncatablePayloads<>();
+            toFilter.entrySet().stream()
+                    .filter(entry -> entry.getValue() instanceof DateSortedTruncatablePayload)
+                    .filter(shouldTransmit)
+                    .forEach(entry -> newestDateSortedTruncatablePayloads.offer(entry.getValue()));
+            return newestDateSortedTruncatablePayloads.getNewestFirst().iterator();
+        };
+
+        // The non-dateSortedTruncatablePayloads have higher prio, so we deliver them first as in filterKnownHashes.
+        return Iterators.concat(Stream.of(nonDateSortedTruncatablePayloads, dateSortedTruncatablePayloads)
+                .map(Supplier::get)
+                .iterator());
+    }
+
+    /**
+     * Collects the newest maxItems dateSortedTruncatablePayloads in a min-heap by date. The maxItems are taken from the
+     * first offered payload as all payloads of one map are of the same type.
+     */
+    private static class NewestDateSortedTruncatablePayloads<T extends NetworkPayload> {
+        @Nullable
+        private PriorityQueue<T> heap;
+        private int maxItems;
+        @Getter
+        private int numOffered;
+
+        void offer(T value) {
+            if (heap == null) {
+                maxItems = ((DateSortedTruncatablePayload) value).maxItems();
+                heap = new PriorityQueue<>(Math.max(1, Math.min(maxItems, 1024)),
+                        Comparator.<T, Date>comparing(payload -> ((DateSortedTruncatablePayload) payload).getDate()));
+            }
+            numOffered++;
+            if (heap.size() < maxItems) {
+                heap.add(value);
+            } else if (maxItems > 0 && isNewer(value, heap.peek())) {
+                heap.poll();
+                heap.add(value);
+            }
+        }
+
+        List<T> getNewestFirst() {
+            if (heap == null) {
+                return new ArrayList<>();
+            }
+
+            log.info("Num filtered dateSortedTruncatablePayloads {}", numOffered);
+            if (numOffered > maxItems) {
+                log.info("Num truncated dateSortedTruncatablePayloads {}", heap.size());
+            }
+
+            List<T> result = new ArrayList<>(heap.size());
+            while (!heap.isEmpty()) {
+                result.add(heap.poll());
+            }
+            Collections.reverse(result);
+            return result;
+        }
     }
 
+    private static boolean isNewer(NetworkPayload payload, NetworkPayload other) {
+        return ((DateSortedTruncatablePayload) payload).getDate()
+                .after(((DateSortedTruncatablePayload) other).getDate());
+    }
 
     private Set<byte[]> getKeysAsByteSet(Map<ByteArray, ? extends PersistablePayload> map) {
         return map.keySet().stream()
@@ -458,8 +746,12 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
 
     /**
      * Returns true if a Payload should be transmit to a peer given the peer's supported capabilities.
+     * The results of the capability checks are cached in shouldTransmitByRequiredCapabilities as usually all payloads
+     * of one type require the same capabilities.
      */
-    private static boolean shouldTransmitPayloadToPeer(Capabilities peerCapabilities, NetworkPayload payload) {
+    private static boolean shouldTransmitPayloadToPeer(Capabilities peerCapabilities,
+                                                       NetworkPayload payload,
+                                                       Map<Capabilities, Boolean> shouldTransmitByRequiredCapabilities) {
 
         // Sanity check to ensure this isn't used outside P2PDataStorage
         if (!(payload instanceof ProtectedStoragePayload || payload instanceof PersistableNetworkPayload))
@@ -470,7 +762,9 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
             return true;
 
         // Otherwise, only transmit the Payload if the peer supports all capabilities required by the payload
-        boolean shouldTransmit = peerCapabilities.containsAll(((CapabilityRequiringPayload) payload).getRequiredCapabilities());
+        boolean shouldTransmit = shouldTransmitByRequiredCapabilities.computeIfAbsent(
+                ((CapabilityRequiringPayload) payload).getRequiredCapabilities(),
+                peerCapabilities::containsAll);
 
         if (!shouldTransmit) {
             log.debug("We do not send the message to the peer because they do not support the required capability for that message type.\n" +
@@ -485,18 +779,21 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
      * or domain listeners.
      */
     public void processGetDataResponse(GetDataResponse getDataResponse, NodeAddress sender) {
+        processGetDataResponse(getDataResponse, sender, () -> {
+        });
+    }
+
+    /**
+     * Processes a GetDataResponse message and updates internal state. Does not broadcast updates to the P2P network
+     * or domain listeners. The ProtectedStorageEntries of large responses are verified on the verification threads
+     * and applied on the UserThread afterwards. The completeHandler is called once all data is applied.
+     */
+    public void processGetDataResponse(GetDataResponse getDataResponse, NodeAddress sender, Runnable completeHandler) {
         final Set<ProtectedStorageEntry> dataSet = getDataResponse.getDataSet();
         Set<PersistableNetworkPayload> persistableNetworkPayloadSet = getDataResponse.getPersistableNetworkPayloadSet();
 
-        long ts2 = System.currentTimeMillis();
-        dataSet.forEach(e -> {
-            // We don't broadcast here (last param) as we are only connected to the seed node and would be pointless
-            addProtectedStorageEntry(e, sender, null, false);
-
-        });
-        log.info("Processing {} protectedStorageEntries took {} ms.", dataSet.size(), this.clock.millis() - ts2);
-
-        ts2 = this.clock.millis();
+        // We process the PersistableNetworkPayloads first as the ProtectedStorageEntries might get applied later
+        long ts2 = this.clock.millis();
         persistableNetworkPayloadSet.forEach(e -> {
             if (e instanceof ProcessOncePersistableNetworkPayload) {
                 // We use an optimized method as many checks are not required in that case to avoid
@@ -520,8 +817,16 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
 
         // We only process PersistableNetworkPayloads implementing ProcessOncePersistableNetworkPayload once. It can cause performance
         // issues and since the data is rarely out of sync it is not worth it to apply them from multiple peers during
-        // startup.
-        initialRequestApplied = true;
+        // startup. If the response is delivered in chunks we wait for the last chunk.
+        if (getDataResponse.isFinalChunk()) {
+            initialRequestApplied = true;
+        }
+
+        long ts3 = this.clock.millis();
+        addProtectedStorageEntriesFromGetDataResponse(dataSet, sender, () -> {
+            log.info("Processing {} protectedStorageEntries took {} ms.", dataSet.size(), this.clock.millis() - ts3);
+            completeHandler.run();
+        });
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -676,7 +981,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         }
 
         ByteArray hashAsByteArray = new ByteArray(payload.getHash());
-        boolean payloadHashAlreadyInStore = appendOnlyDataStoreService.getMap().containsKey(hashAsByteArray);
+        boolean payloadHashAlreadyInStore = appendOnlyDataStoreService.containsKey(hashAsByteArray);
 
         // Store already knows about this payload. Ignore it unless the caller specifically requests a republish.
         if (payloadHashAlreadyInStore && !reBroadcast) {
@@ -694,7 +999,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
 
         // Add the payload and publish the state update to the appendOnlyDataStoreListeners
         if (!payloadHashAlreadyInStore) {
-            appendOnlyDataStoreService.put(hashAsByteArray, payload);
+            putToAppendOnlyDataStore(hashAsByteArray, payload);
             appendOnlyDataStoreListeners.forEach(e -> e.onAdded(payload));
         }
 
@@ -705,16 +1010,18 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         return true;
     }
 
-    // When we receive initial data we skip several checks to improve performance. We requested only missing entries so we
-    // do not need to check again if the item is contained in the map, which is a bit slow as the map can be very large.
-    // Overwriting an entry would be also no issue. We also skip notifying listeners as we get called before the domain
+    // When we receive initial data we skip several checks to improve performance. We requested only missing entries so
+    // usually the item is not contained in our store. We only do the cheap lookup at the services to keep our
+    // keySetSketch consistent. We also skip notifying listeners as we get called before the domain
     // is ready so no listeners are set anyway. We might get called twice from a redundant call later, so listeners
     // might be added then but as we have the data already added calling them would be irrelevant as well.
     private void addPersistableNetworkPayloadFromInitialRequest(PersistableNetworkPayload payload) {
         byte[] hash = payload.getHash();
         if (payload.verifyHashSize()) {
             ByteArray hashAsByteArray = new ByteArray(hash);
-            appendOnlyDataStoreService.put(hashAsByteArray, payload);
+            if (!appendOnlyDataStoreService.containsKey(hashAsByteArray)) {
+                putToAppendOnlyDataStore(hashAsByteArray, payload);
+            }
         } else {
             log.warn("We got a hash exceeding our permitted size");
         }
@@ -744,7 +1051,90 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
 
         log.trace("## call addProtectedStorageEntry hash={}, map={}", hashOfPayload, printMap());
 
-        // We do that check early as it is a very common case for returning, so we return early
+        if (!isNewProtectedStorageEntry(protectedStorageEntry, hashOfPayload, sender)) {
+            return false;
+        }
+
+        // Verify the ProtectedStorageEntry is well formed and valid for the add operation
+        if (!protectedStorageEntry.isValidForAddOperation()) {
+            log.trace("## !isValidForAddOperation hash={}", hashOfPayload);
+            return false;
+        }
+
+        if (!applyProtectedStorageEntry(protectedStorageEntry, hashOfPayload, true)) {
+            return false;
+        }
+
+        // Optionally, broadcast the add/update depending on the calling environment
+        if (allowBroadcast) {
+            broadcaster.broadcast(new AddDataMessage(protectedStorageEntry), sender, listener);
+            log.trace("## broadcasted ProtectedStorageEntry. hash={}", hashOfPayload);
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds the ProtectedStorageEntries of a GetDataResponse. The hashes and signatures of the entries are computed in
+     * parallel on the verification threads, the results are applied in continuations on the UserThread so we do not
+     * block it meanwhile. The verified entries are applied in the order of the data set and the listeners get notified
+     * once with all added entries. We don't broadcast here as we are only connected to the seed node and it would be
+     * pointless.
+     */
+    private void addProtectedStorageEntriesFromGetDataResponse(Collection<ProtectedStorageEntry> dataSet,
+                                                               @Nullable NodeAddress sender,
+                                                               Runnable completeHandler) {
+        List<ProtectedStorageEntry> entries = new ArrayList<>(dataSet);
+        mapInParallel(entries, entry -> get32ByteHashAsByteArray(entry.getProtectedStoragePayload()), hashes -> {
+            // We only verify the entries which would get added, at repeated requests most entries are known already
+            List<ProtectedStorageEntry> candidates = new ArrayList<>();
+            List<ByteArray> hashesOfCandidates = new ArrayList<>();
+            for (int i = 0; i < entries.size(); i++) {
+                if (isNewProtectedStorageEntry(entries.get(i), hashes.get(i), sender)) {
+                    candidates.add(entries.get(i));
+                    hashesOfCandidates.add(hashes.get(i));
+                }
+            }
+            mapInParallel(candidates, ProtectedStorageEntry::isValidForAddOperation, validForAddOperation -> {
+                applyVerifiedProtectedStorageEntries(candidates, hashesOfCandidates, validForAddOperation, sender);
+                completeHandler.run();
+            });
+        });
+    }
+
+    private void applyVerifiedProtectedStorageEntries(List<ProtectedStorageEntry> candidates,
+                                                      List<ByteArray> hashesOfCandidates,
+                                                      List<Boolean> validForAddOperation,
+                                                      @Nullable NodeAddress sender) {
+        List<ProtectedStorageEntry> addedEntries = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            ProtectedStorageEntry candidate = candidates.get(i);
+            ByteArray hashOfPayload = hashesOfCandidates.get(i);
+            if (!validForAddOperation.get(i)) {
+                log.trace("## !isValidForAddOperation hash={}", hashOfPayload);
+                continue;
+            }
+
+            // We check again as the data set might contain multiple entries for the same payload and the map might have
+            // changed while the entries got verified
+            if (isNewProtectedStorageEntry(candidate, hashOfPayload, sender) &&
+                    applyProtectedStorageEntry(candidate, hashOfPayload, false)) {
+                addedEntries.add(candidate);
+            }
+        }
+
+        if (!addedEntries.isEmpty()) {
+            hashMapChangedListeners.forEach(e -> e.onAdded(addedEntries));
+        }
+    }
+
+    // Checks which do not require the verification of the signature. We do them first as it is a very common case
+    // for returning.
+    private boolean isNewProtectedStorageEntry(ProtectedStorageEntry protectedStorageEntry,
+                                               ByteArray hashOfPayload,
+                                               @Nullable NodeAddress sender) {
+        ProtectedStoragePayload protectedStoragePayload = protectedStorageEntry.getProtectedStoragePayload();
+
         // If we have seen a more recent operation for this payload and we have a payload locally, ignore it
         ProtectedStorageEntry storedEntry = map.get(hashOfPayload);
         if (storedEntry != null && !hasSequenceNrIncreased(protectedStorageEntry.getSequenceNumber(), hashOfPayload)) {
@@ -775,40 +1165,73 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
             return false;
         }
 
-        // Verify the ProtectedStorageEntry is well formed and valid for the add operation
-        if (!protectedStorageEntry.isValidForAddOperation()) {
-            log.trace("## !isValidForAddOperation hash={}", hashOfPayload);
-            return false;
-        }
+        return true;
+    }
 
+    // Applies an entry which is valid for the add operation
+    private boolean applyProtectedStorageEntry(ProtectedStorageEntry protectedStorageEntry,
+                                               ByteArray hashOfPayload,
+                                               boolean notifyListeners) {
         // If we have already seen an Entry with the same hash, verify the metadata is equal
+        ProtectedStorageEntry storedEntry = map.get(hashOfPayload);
         if (storedEntry != null && !protectedStorageEntry.matchesRelevantPubKey(storedEntry)) {
             log.trace("## !matchesRelevantPubKey hash={}", hashOfPayload);
             return false;
         }
 
         // This is an updated entry. Record it and signal listeners.
-        map.put(hashOfPayload, protectedStorageEntry);
-        hashMapChangedListeners.forEach(e -> e.onAdded(Collections.singletonList(protectedStorageEntry)));
+        if (map.put(hashOfPayload, protectedStorageEntry) == null) {
+            keySetSketch.add(hashOfPayload);
+        }
+        if (notifyListeners) {
+            hashMapChangedListeners.forEach(e -> e.onAdded(Collections.singletonList(protectedStorageEntry)));
+        }
 
-        // Record the updated sequence number and persist it. Higher delay so we can batch more items.
-        sequenceNumberMap.put(hashOfPayload, new MapValue(protectedStorageEntry.getSequenceNumber(), this.clock.millis()));
-        requestPersistence();
+        // Record the updated sequence number and persist it
+        putSequenceNumber(hashOfPayload, new MapValue(protectedStorageEntry.getSequenceNumber(), this.clock.millis()));
 
         log.trace("## ProtectedStorageEntry added to map. hash={}, map={}", hashOfPayload, printMap());
 
-        // Optionally, broadcast the add/update depending on the calling environment
-        if (allowBroadcast) {
-            broadcaster.broadcast(new AddDataMessage(protectedStorageEntry), sender, listener);
-            log.trace("## broadcasted ProtectedStorageEntry. hash={}", hashOfPayload);
-        }
         // Persist ProtectedStorageEntries carrying PersistablePayload payloads
-        if (protectedStoragePayload instanceof PersistablePayload)
+        if (protectedStorageEntry.getProtectedStoragePayload() instanceof PersistablePayload)
             protectedDataStoreService.put(hashOfPayload, protectedStorageEntry);
 
         return true;
     }
 
+    // Maps the items on the verification threads if there are enough of them and passes the result to the
+    // resultHandler on the UserThread. Small lists are mapped and handled directly.
+    private static <T, R> void mapInParallel(List<T> items, Function<T, R> function, Consumer<List<R>> resultHandler) {
+        if (items.size() < MIN_ENTRIES_FOR_PARALLEL_VERIFICATION) {
+            resultHandler.accept(items.stream().map(function).collect(Collectors.toList()));
+            return;
+        }
+
+        int batchSize = (items.size() + NUM_VERIFICATION_THREADS - 1) / NUM_VERIFICATION_THREADS;
+        List<ListenableFuture<List<R>>> futures = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += batchSize) {
+            List<T> batch = items.subList(from, Math.min(items.size(), from + batchSize));
+            futures.add(VERIFICATION_EXECUTOR.submit(() ->
+                    batch.stream().map(function).collect(Collectors.toList())));
+        }
+
+        Futures.addCallback(Futures.allAsList(futures), new FutureCallback<>() {
+            @Override
+            public void onSuccess(List<List<R>> batchResults) {
+                List<R> result = new ArrayList<>(items.size());
+                batchResults.forEach(result::addAll);
+                UserThread.execute(() -> resultHandler.accept(result));
+            }
+
+            @Override
+            public void onFailure(@NotNull Throwable throwable) {
+                log.error("Mapping {} items in parallel failed. We map them on the UserThread.", items.size(), throwable);
+                UserThread.execute(() ->
+                        resultHandler.accept(items.stream().map(function).collect(Collectors.toList())));
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
     /**
      * We do not do all checks as it is used for republishing existing mailbox messages from seed nodes which
      * only got stored if they had been valid when we received them.
@@ -880,8 +1303,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         map.put(hashOfPayload, updatedEntry);
 
         // Record the latest sequence number and persist it
-        sequenceNumberMap.put(hashOfPayload, new MapValue(updatedEntry.getSequenceNumber(), this.clock.millis()));
-        requestPersistence();
+        putSequenceNumber(hashOfPayload, new MapValue(updatedEntry.getSequenceNumber(), this.clock.millis()));
 
         // Always broadcast refreshes
         broadcaster.broadcast(refreshTTLMessage, sender);
@@ -916,8 +1338,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
             return false;
 
         // Record the latest sequence number and persist it
-        sequenceNumberMap.put(hashOfPayload, new MapValue(protectedStorageEntry.getSequenceNumber(), this.clock.millis()));
-        requestPersistence();
+        putSequenceNumber(hashOfPayload, new MapValue(protectedStorageEntry.getSequenceNumber(), this.clock.millis()));
 
         // Update that we have seen this AddOncePayload so the next time it is seen it fails verification
         if (protectedStoragePayload instanceof AddOncePayload) {
@@ -1010,6 +1431,15 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    private void putToAppendOnlyDataStore(ByteArray hashAsByteArray, PersistableNetworkPayload payload) {
+        appendOnlyDataStoreService.put(hashAsByteArray, payload);
+        // Some services (e.g. TradeStatistics2StorageService) do not expose their data, so we only add the key to our
+        // sketch if it is visible in the store.
+        if (appendOnlyDataStoreService.containsKey(hashAsByteArray)) {
+            keySetSketch.add(hashAsByteArray);
+        }
+    }
+
     private void removeFromMapAndDataStore(ProtectedStorageEntry protectedStorageEntry, ByteArray hashOfPayload) {
         removeFromMapAndDataStore(Collections.singletonList(Maps.immutableEntry(hashOfPayload, protectedStorageEntry)));
     }
@@ -1024,7 +1454,9 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
             ProtectedStorageEntry protectedStorageEntry = entry.getValue();
 
             log.trace("## removeFromMapAndDataStore: hashOfPayload={}, map before remove={}", hashOfPayload, printMap());
-            map.remove(hashOfPayload);
+            if (map.remove(hashOfPayload) != null) {
+                keySetSketch.remove(hashOfPayload);
+            }
             log.trace("## removeFromMapAndDataStore: map after remove={}", printMap());
 
             // We inform listeners even the entry was not found in our map
@@ -1074,6 +1506,12 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         persistenceManager.requestPersistence();
     }
 
+    // We only append the changed entry to the journal instead of writing the whole map
+    private void putSequenceNumber(ByteArray hashOfPayload, MapValue mapValue) {
+        sequenceNumberMap.put(hashOfPayload, mapValue);
+        persistenceManager.appendDelta(SequenceNumberMap.delta(hashOfPayload, mapValue));
+    }
+
     public static ByteArray get32ByteHashAsByteArray(NetworkPayload data) {
         return new ByteArray(P2PDataStorage.get32ByteHash(data));
     }
@@ -33,6 +33,8 @@ import java.util.stream.Collectors;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+
 /**
  * Used for PersistableNetworkPayload data which gets appended to a map storage.
  */
@@ -87,6 +89,22 @@ public class AppendOnlyDataStoreService {
                 .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
 
+    // Avoids the copy of all maps at getMap if we only need to look up a single entry.
+    public boolean containsKey(P2PDataStorage.ByteArray hash) {
+        return services.stream().anyMatch(service -> service.containsKey(hash));
+    }
+
+    @Nullable
+    public PersistableNetworkPayload get(P2PDataStorage.ByteArray hash) {
+        for (MapStoreService<? extends PersistableNetworkPayloadStore<? extends PersistableNetworkPayload>, PersistableNetworkPayload> service : services) {
+            PersistableNetworkPayload payload = service.get(hash);
+            if (payload != null) {
+                return payload;
+            }
+        }
+        return null;
+    }
+
     public void put(P2PDataStorage.ByteArray hashAsByteArray, PersistableNetworkPayload payload) {
         services.stream()
                 .filter(service -> service.canHandle(payload))
@@ -0,0 +1,438 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage.persistence;
+
+import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+
+import bisq.common.UserThread;
+import bisq.common.proto.ProtoResolver;
+import bisq.common.proto.persistable.PersistablePayload;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Append-only log of the entries added to or removed from a map store since the last write of the whole store.
+ * Adding an entry writes only the serialized entry and removing an entry writes only its hash as tombstone instead of
+ * the whole store. The log is split into segments: At compaction we close the current segment and delete the closed
+ * segments once a store containing their changes was written to disk.
+ * <p>
+ * Each record is a record type byte followed by a length delimited protobuf message for added entries or the
+ * length delimited hash for removed entries. At startup the segments are read and replayed into the store in the
+ * order they got written. A truncated record at the end of a segment (e.g. after a crash) is ignored.
+ * <p>
+ * The records get serialized on the caller thread and all file operations are done on the writeExecutor, which is the
+ * write to disk thread of the store's PersistenceManager. So they are ordered with the writes of the whole store. All
+ * records which are pending at a write are written with a single write and synced to disk together, so adding many
+ * entries at once (e.g. from a GetDataResponse) results in a single write.
+ * <p>
+ * The API methods are expected to be called from the UserThread only.
+ */
+@Slf4j
+public class AppendOnlyPayloadLog<R extends PersistablePayload> {
+    private static final String SEGMENT_INFIX = "_log_";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte ADDED_RECORD = 0;
+    private static final byte REMOVED_RECORD = 1;
+
+    public interface Decoder<R> {
+        R decode(byte[] serialized) throws IOException;
+    }
+
+    public static Decoder<PersistableNetworkPayload> persistableNetworkPayloadDecoder(ProtoResolver resolver) {
+        return serialized -> PersistableNetworkPayload.fromProto(
+                protobuf.PersistableNetworkPayload.parseFrom(serialized), resolver);
+    }
+
+    private final File storageDir;
+    private final String fileName;
+    private final Decoder<R> decoder;
+    private final Executor writeExecutor;
+    // Called on the UserThread if a record could not be written. The record is lost unless the whole store gets written.
+    private final Runnable writeErrorHandler;
+
+    // Accessed from the UserThread only
+    // Closed segments with their number of records
+    private final Map<File, Integer> closedSegments = new LinkedHashMap<>();
+    @Nullable
+    private File currentSegment;
+    private int nextSegmentIndex;
+    private int numRecordsInCurrentSegment;
+
+    // Records and segment closings which are not processed by the writeExecutor yet
+    private final Queue<PendingRecord> pendingRecords = new ConcurrentLinkedQueue<>();
+
+    // Accessed from the writeExecutor only
+    @Nullable
+    private File openSegment;
+    @Nullable
+    private FileOutputStream fileOutputStream;
+    @Nullable
+    private CodedOutputStream outputStream;
+    // Segment where a write failed. We do not append to it anymore as it might end with an incomplete record.
+    @Nullable
+    private File failedSegment;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public AppendOnlyPayloadLog(File storageDir,
+                                String fileName,
+                                Decoder<R> decoder,
+                                Executor writeExecutor,
+                                Runnable writeErrorHandler) {
+        this.storageDir = storageDir;
+        this.fileName = fileName;
+        this.decoder = decoder;
+        this.writeExecutor = writeExecutor;
+        this.writeErrorHandler = writeErrorHandler;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Reads the records of the existing segments on the writeExecutor and passes them in the order they got written
+     * to the consumers on the UserThread. The added entries are passed to addedConsumer, the hashes of the removed
+     * entries to removedConsumer. Must be called before the first append.
+     */
+    public void replay(Consumer<R> addedConsumer, Consumer<byte[]> removedConsumer, Runnable completeHandler) {
+        // Listing the segments is cheap. We do it right away so that appends during the replay go to a new segment.
+        List<File> segments = initSegments();
+        writeExecutor.execute(() -> {
+            long ts = System.currentTimeMillis();
+            Map<File, List<Record<R>>> recordsBySegment = readSegments(segments);
+            long readDuration = System.currentTimeMillis() - ts;
+            UserThread.execute(() -> {
+                applyRecords(recordsBySegment, addedConsumer, removedConsumer);
+                int numRecords = getNumRecords();
+                if (numRecords > 0) {
+                    log.info("Replaying {} records from {} segments of the {} log took {} ms. Reading them took {} ms.",
+                            numRecords, segments.size(), fileName, System.currentTimeMillis() - ts, readDuration);
+                }
+                completeHandler.run();
+            });
+        });
+    }
+
+    // Reads the segments on the caller thread. Only used by tests.
+    @VisibleForTesting
+    public void replaySync(Consumer<R> addedConsumer, Consumer<byte[]> removedConsumer) {
+        applyRecords(readSegments(initSegments()), addedConsumer, removedConsumer);
+    }
+
+    public void append(R payload) {
+        appendRecord(ADDED_RECORD, payload.toProtoMessage().toByteArray());
+    }
+
+    /**
+     * Appends a tombstone for the entry with the given hash. At replay the entry gets removed again, even if it was
+     * contained in the persisted store.
+     */
+    public void appendRemoved(byte[] hash) {
+        appendRecord(REMOVED_RECORD, hash);
+    }
+
+    /**
+     * Closes the current segment. Later appends go to a new segment. Must be called right before the store gets
+     * persisted, so the closed segments contain only entries which are contained in the store as well.
+     */
+    public void closeCurrentSegment() {
+        if (currentSegment != null) {
+            closedSegments.put(currentSegment, numRecordsInCurrentSegment);
+            numRecordsInCurrentSegment = 0;
+            currentSegment = null;
+            pendingRecords.add(PendingRecord.CLOSE_SEGMENT);
+            writeExecutor.execute(this::processPendingRecords);
+        }
+    }
+
+    public List<File> getClosedSegments() {
+        return new ArrayList<>(closedSegments.keySet());
+    }
+
+    /**
+     * Deletes the given closed segments. Must be called only after a store containing their entries was written to
+     * disk.
+     */
+    public void deleteSegments(List<File> segments) {
+        segments.forEach(closedSegments::remove);
+        writeExecutor.execute(() -> segments.forEach(segment -> {
+            if (segment.exists() && !segment.delete()) {
+                log.warn("Could not delete log segment {}", segment);
+            }
+        }));
+    }
+
+    /**
+     * Writes all pending records, syncs them to disk and closes the open segment file. Later records get appended to
+     * the same segment again. Must be called on the writeExecutor, e.g. at shut down.
+     */
+    public void flushAndClose() {
+        processPendingRecords();
+        closeOutputStream();
+    }
+
+    public int getNumRecords() {
+        return closedSegments.values().stream().mapToInt(Integer::intValue).sum() + numRecordsInCurrentSegment;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void appendRecord(byte recordType, byte[] serialized) {
+        if (currentSegment == null) {
+            currentSegment = new File(storageDir, fileName + SEGMENT_INFIX + nextSegmentIndex++);
+        }
+        numRecordsInCurrentSegment++;
+        pendingRecords.add(new PendingRecord(currentSegment, recordType, serialized));
+        writeExecutor.execute(this::processPendingRecords);
+    }
+
+    private List<File> initSegments() {
+        List<File> segments = getExistingSegments();
+        closedSegments.clear();
+        segments.forEach(segment -> closedSegments.put(segment, 0));
+        nextSegmentIndex = segments.stream()
+                .mapToInt(AppendOnlyPayloadLog::getSegmentIndex)
+                .max()
+                .orElse(-1) + 1;
+        return segments;
+    }
+
+    private Map<File, List<Record<R>>> readSegments(List<File> segments) {
+        Map<File, List<Record<R>>> recordsBySegment = new LinkedHashMap<>();
+        segments.forEach(segment -> recordsBySegment.put(segment, readSegment(segment)));
+        return recordsBySegment;
+    }
+
+    private void applyRecords(Map<File, List<Record<R>>> recordsBySegment,
+                              Consumer<R> addedConsumer,
+                              Consumer<byte[]> removedConsumer) {
+        recordsBySegment.forEach((segment, records) -> {
+            // The segment might have been compacted and deleted already if appends happened during the replay
+            if (closedSegments.containsKey(segment)) {
+                closedSegments.put(segment, records.size());
+            }
+            records.forEach(record -> {
+                if (record.payload != null) {
+                    addedConsumer.accept(record.payload);
+                } else {
+                    removedConsumer.accept(record.removedHash);
+                }
+            });
+        });
+    }
+
+    // Runs on the writeExecutor. All records which got added while the previous write was in progress get written and
+    // synced to disk together.
+    private void processPendingRecords() {
+        boolean requiresSync = false;
+        PendingRecord pendingRecord;
+        while ((pendingRecord = pendingRecords.poll()) != null) {
+            if (pendingRecord == PendingRecord.CLOSE_SEGMENT) {
+                if (requiresSync) {
+                    syncOutputStream();
+                    requiresSync = false;
+                }
+                closeOutputStream();
+            } else {
+                requiresSync |= writeRecord(pendingRecord);
+            }
+        }
+        if (requiresSync) {
+            syncOutputStream();
+        }
+    }
+
+    private boolean writeRecord(PendingRecord pendingRecord) {
+        if (pendingRecord.segment.equals(failedSegment)) {
+            return false;
+        }
+        try {
+            if (!pendingRecord.segment.equals(openSegment)) {
+                closeOutputStream();
+                openSegment = pendingRecord.segment;
+                fileOutputStream = new FileOutputStream(openSegment, true);
+                outputStream = CodedOutputStream.newInstance(fileOutputStream, BUFFER_SIZE);
+            }
+            outputStream.writeRawByte(pendingRecord.recordType);
+            outputStream.writeUInt32NoTag(pendingRecord.serialized.length);
+            outputStream.writeRawBytes(pendingRecord.serialized);
+            return true;
+        } catch (IOException e) {
+            log.error("Appending to the {} log failed.", fileName, e);
+            onWriteFailed();
+            return false;
+        }
+    }
+
+    private void syncOutputStream() {
+        if (outputStream == null) {
+            return;
+        }
+
+        try {
+            outputStream.flush();
+            checkNotNull(fileOutputStream).getFD().sync();
+        } catch (IOException e) {
+            log.error("Syncing the {} log failed.", fileName, e);
+            onWriteFailed();
+        }
+    }
+
+    private void onWriteFailed() {
+        failedSegment = openSegment;
+        closeOutputStream();
+        UserThread.execute(writeErrorHandler);
+    }
+
+    private void closeOutputStream() {
+        if (fileOutputStream == null) {
+            return;
+        }
+
+        try {
+            checkNotNull(outputStream).flush();
+            fileOutputStream.getFD().sync();
+        } catch (IOException e) {
+            log.error("Flushing the {} log segment failed.", fileName, e);
+        }
+        try {
+            fileOutputStream.close();
+        } catch (IOException e) {
+            log.error("Closing the {} log segment failed.", fileName, e);
+        }
+        fileOutputStream = null;
+        outputStream = null;
+        openSegment = null;
+    }
+
+    private List<File> getExistingSegments() {
+        String prefix = fileName + SEGMENT_INFIX;
+        File[] files = storageDir.listFiles((dir, name) -> name.startsWith(prefix) &&
+                name.substring(prefix.length()).matches("\\d+"));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        List<File> segments = new ArrayList<>(Arrays.asList(files));
+        segments.sort(Comparator.comparingInt(AppendOnlyPayloadLog::getSegmentIndex));
+        return segments;
+    }
+
+    // Runs on the writeExecutor
+    private List<Record<R>> readSegment(File segment) {
+        List<Record<R>> records = new ArrayList<>();
+        try (FileInputStream fileInputStream = new FileInputStream(segment)) {
+            CodedInputStream inputStream = CodedInputStream.newInstance(fileInputStream, BUFFER_SIZE);
+            while (!inputStream.isAtEnd()) {
+                byte recordType = inputStream.readRawByte();
+                Optional<byte[]> record = readRecord(inputStream);
+                if (!record.isPresent()) {
+                    log.warn("The log segment {} ends with an incomplete record. We ignore it.", segment);
+                    break;
+                }
+                if (recordType == ADDED_RECORD) {
+                    records.add(new Record<>(decoder.decode(record.get()), null));
+                } else if (recordType == REMOVED_RECORD) {
+                    records.add(new Record<>(null, record.get()));
+                } else {
+                    log.error("The log segment {} contains an unknown record type {}. We ignore the remaining records.",
+                            segment, recordType);
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            log.error("Reading the log segment {} failed after {} records.", segment, records.size(), e);
+        }
+        return records;
+    }
+
+    private static Optional<byte[]> readRecord(CodedInputStream inputStream) {
+        try {
+            int size = inputStream.readRawVarint32();
+            return Optional.of(inputStream.readRawBytes(size));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static int getSegmentIndex(File segment) {
+        String name = segment.getName();
+        return Integer.parseInt(name.substring(name.lastIndexOf(SEGMENT_INFIX) + SEGMENT_INFIX.length()));
+    }
+
+    // Either an added entry or the hash of a removed entry
+    private static final class Record<R> {
+        @Nullable
+        private final R payload;
+        @Nullable
+        private final byte[] removedHash;
+
+        private Record(@Nullable R payload, @Nullable byte[] removedHash) {
+            this.payload = payload;
+            this.removedHash = removedHash;
+        }
+    }
+
+    // A serialized record which is not written yet or the marker for closing the open segment
+    private static final class PendingRecord {
+        private static final PendingRecord CLOSE_SEGMENT = new PendingRecord(null, (byte) -1, null);
+
+        private final File segment;
+        private final byte recordType;
+        private final byte[] serialized;
+
+        private PendingRecord(File segment, byte recordType, byte[] serialized) {
+            this.segment = segment;
+            this.recordType = recordType;
+            this.serialized = serialized;
+        }
+    }
+}
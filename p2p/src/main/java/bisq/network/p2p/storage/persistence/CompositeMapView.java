@@ -0,0 +1,109 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage.persistence;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read only view over a list of maps with disjoint key sets. Changes of the underlying maps are visible in the view.
+ * Used to deliver the data of several stores without copying them into a new map. Iterating does not allocate
+ * any objects per entry.
+ */
+public class CompositeMapView<K, V> extends AbstractMap<K, V> {
+    private final List<Map<K, ? extends V>> maps;
+    private final Set<Entry<K, V>> entrySet = new EntrySet();
+
+    public CompositeMapView(List<? extends Map<K, ? extends V>> maps) {
+        this.maps = List.copyOf(maps);
+    }
+
+    @Override
+    public V get(Object key) {
+        for (Map<K, ? extends V> map : maps) {
+            V value = map.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return maps.stream().anyMatch(map -> map.containsKey(key));
+    }
+
+    @Override
+    public int size() {
+        return maps.stream().mapToInt(Map::size).sum();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return maps.stream().allMatch(Map::isEmpty);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return entrySet;
+    }
+
+    private class EntrySet extends AbstractSet<Entry<K, V>> {
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return CompositeMapView.this.size();
+        }
+    }
+
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private final Iterator<Map<K, ? extends V>> mapsIterator = maps.iterator();
+        private Iterator<? extends Entry<K, ? extends V>> current = null;
+
+        @Override
+        public boolean hasNext() {
+            while (current == null || !current.hasNext()) {
+                if (!mapsIterator.hasNext()) {
+                    return false;
+                }
+                current = mapsIterator.next().entrySet().iterator();
+            }
+            return true;
+        }
+
+        // The entries are exposed as Entry<K, V>. As the view does not support modifications that is safe.
+        @SuppressWarnings("unchecked")
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return (Entry<K, V>) current.next();
+        }
+    }
+}
@@ -20,20 +20,37 @@ package bisq.network.p2p.storage.persistence;
 import bisq.network.p2p.storage.P2PDataStorage;
 import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
 
+import bisq.common.UserThread;
 import bisq.common.app.DevEnv;
 import bisq.common.app.Version;
 import bisq.common.persistence.PersistenceManager;
+import bisq.common.util.Utilities;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import java.io.File;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Collectors;
 
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nullable;
+
 /**
  * Manages historical data stores tagged with the release versions.
  * New data is added to the default map in the store (live data). Historical data is created from resource files.
@@ -42,9 +59,42 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 public abstract class HistoricalDataStoreService<T extends PersistableNetworkPayloadStore<? extends PersistableNetworkPayload>> extends MapStoreService<T, PersistableNetworkPayload> {
-    private ImmutableMap<String, PersistableNetworkPayloadStore<? extends PersistableNetworkPayload>> storesByVersion;
-    // Cache to avoid that we have to recreate the historical data at each request
-    private ImmutableMap<P2PDataStorage.ByteArray, PersistableNetworkPayload> allHistoricalPayloads;
+    private static final int NUM_READ_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    // Shared by all historical data stores to limit the number of threads parsing resource files at startup
+    private static final ListeningExecutorService READ_EXECUTOR = Utilities.getListeningExecutorService(
+            "HistoricalDataStoreService-read",
+            NUM_READ_THREADS,
+            NUM_READ_THREADS,
+            30,
+            new LinkedBlockingQueue<>());
+
+    // The historical payloads by version. The maps are disjoint, a payload is only contained in the map of the
+    // oldest version where it appeared.
+    private ImmutableMap<String, ImmutableMap<P2PDataStorage.ByteArray, PersistableNetworkPayload>> historicalPayloadsByVersion =
+            ImmutableMap.of();
+    // View over all historical maps to avoid that we have to recreate the historical data at each request
+    private Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> allHistoricalPayloads = Map.of();
+    // Cache of the views we deliver at getMapSinceVersion by the historical versions they contain. As the historical
+    // data does not change after readFromResources and the live data is accessed by reference we can reuse the views.
+    // The number of entries is limited by the number of historical versions.
+    private final Map<List<String>, Map<P2PDataStorage.ByteArray, PersistableNetworkPayload>> mapSinceVersionCache =
+            new ConcurrentHashMap<>();
+
+    @Value
+    private static class HistoricalStore {
+        String version;
+        @Nullable
+        PersistableNetworkPayloadStore<? extends PersistableNetworkPayload> store;
+        long startTime;
+    }
+
+    @Value
+    private static class HistoricalIndex {
+        ImmutableMap<String, ImmutableMap<P2PDataStorage.ByteArray, PersistableNetworkPayload>> payloadsByVersion;
+        long parseDuration;
+        long indexDuration;
+    }
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -60,36 +110,12 @@ public abstract class HistoricalDataStoreService<T extends PersistableNetworkPay
     // API
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    // We give back a map of our live map and all historical maps newer than the requested version.
+    // We give back a read only view of our live map and all historical maps newer than the requested version.
     // If requestersVersion is null we return all historical data.
     public Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMapSinceVersion(String requestersVersion) {
-        // We add all our live data
-        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> result = new HashMap<>(store.getMap());
-
-        // If we have a store with a newer version than the requesters version we will add those as well.
-        storesByVersion.entrySet().stream()
-                .filter(entry -> {
-                    // Old nodes not sending the version will get delivered all data
-                    if (requestersVersion == null) {
-                        log.info("The requester did not send a version. This is expected for not updated nodes.");
-                        return true;
-                    }
-
-                    // Otherwise we only add data if the requesters version is older then
-                    // the version of the particular store.
-                    String storeVersion = entry.getKey();
-                    boolean newVersion = Version.isNewVersion(storeVersion, requestersVersion);
-                    String details = newVersion ?
-                            "As our historical store is a newer version we add the data to our result map." :
-                            "As the requester version is not older as our historical store we do not " +
-                                    "add the data to the result map.";
-                    log.info("The requester had version {}. Our historical data store has version {}.\n{}",
-                            requestersVersion, storeVersion, details);
-                    return newVersion;
-                })
-                .map(e -> e.getValue().getMap())
-                .forEach(result::putAll);
-
+        List<String> versions = getHistoricalVersionsSince(requestersVersion);
+        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> result = mapSinceVersionCache.computeIfAbsent(versions,
+                this::createMapOfVersions);
         log.info("We found {} entries since requesters version {}",
                 result.size(), requestersVersion);
         return result;
@@ -99,13 +125,11 @@ public abstract class HistoricalDataStoreService<T extends PersistableNetworkPay
         return store.getMap();
     }
 
+    // Returns a read only view of the live data and all historical data.
     public Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMapOfAllData() {
-        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> result = new HashMap<>(getMapOfLiveData());
-        result.putAll(allHistoricalPayloads);
-        return result;
+        return new CompositeMapView<>(List.of(getMapOfLiveData(), allHistoricalPayloads));
     }
 
-
     ///////////////////////////////////////////////////////////////////////////////////////////
     // MapStoreService
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -124,7 +148,7 @@ public abstract class HistoricalDataStoreService<T extends PersistableNetworkPay
         }
 
         getMapOfLiveData().put(hash, payload);
-        requestPersistence();
+        persistAddedEntry(payload);
     }
 
     @Override
@@ -137,33 +161,73 @@ public abstract class HistoricalDataStoreService<T extends PersistableNetworkPay
         // So it will be always null. We still keep the return type as we override the method from MapStoreService which
         // follow the Map.putIfAbsent signature.
         getMapOfLiveData().put(hash, payload);
-        requestPersistence();
+        persistAddedEntry(payload);
         return null;
     }
 
 
+    @Override
+    boolean containsKey(P2PDataStorage.ByteArray hash) {
+        return anyMapContainsKey(hash);
+    }
+
+    @Override
+    protected Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMapOfAddedEntries() {
+        return getMapOfLiveData();
+    }
+
+    @Override
+    PersistableNetworkPayload get(P2PDataStorage.ByteArray hash) {
+        PersistableNetworkPayload payload = getMapOfLiveData().get(hash);
+        return payload != null ? payload : allHistoricalPayloads.get(hash);
+    }
+
     @Override
     protected void readFromResources(String postFix, Runnable completeHandler) {
+        long ts = System.currentTimeMillis();
+        // We start parsing the historical resource files in parallel with reading the live data store
+        List<ListenableFuture<HistoricalStore>> futures = Version.HISTORICAL_RESOURCE_FILE_VERSION_TAGS.stream()
+                .map(version -> READ_EXECUTOR.submit(() -> readHistoricalStoreFromResources(version, postFix)))
+                .collect(Collectors.toList());
+        ListenableFuture<HistoricalIndex> indexFuture = Futures.transform(Futures.allAsList(futures),
+                this::createHistoricalIndex,
+                READ_EXECUTOR);
+
         readStore(persisted -> {
             log.info("We have created the {} store for the live data and filled it with {} entries from the persisted data.",
                     getFileName(), getMapOfLiveData().size());
 
-            // Now we add our historical data stores.
-            Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> allHistoricalPayloads = new HashMap<>();
-            Map<String, PersistableNetworkPayloadStore<? extends PersistableNetworkPayload>> storesByVersion = new HashMap<>();
-            AtomicInteger numFiles = new AtomicInteger(Version.HISTORICAL_RESOURCE_FILE_VERSION_TAGS.size());
-            Version.HISTORICAL_RESOURCE_FILE_VERSION_TAGS.forEach(version -> readHistoricalStoreFromResources(version,
-                    postFix,
-                    allHistoricalPayloads,
-                    storesByVersion,
-                    () -> {
-                        if (numFiles.decrementAndGet() == 0) {
-                            // At last iteration we set the immutable map
-                            this.allHistoricalPayloads = ImmutableMap.copyOf(allHistoricalPayloads);
-                            this.storesByVersion = ImmutableMap.copyOf(storesByVersion);
-                            completeHandler.run();
-                        }
-                    }));
+            Futures.addCallback(indexFuture, new FutureCallback<>() {
+                @Override
+                public void onSuccess(HistoricalIndex index) {
+                    UserThread.execute(() -> {
+                        applyHistoricalIndex(index);
+                        log.info("Reading the historical data of {} took {} ms in total. " +
+                                        "Parsing the files in parallel took {} ms, building the index took {} ms.",
+                                getFileName(), System.currentTimeMillis() - ts, index.getParseDuration(),
+                                index.getIndexDuration());
+                        completeHandler.run();
+                    });
+                }
+
+                @Override
+                public void onFailure(@NotNull Throwable throwable) {
+                    // Failures of single stores are handled at readHistoricalStoreFromResources, so we only get here
+                    // if building the index failed. We must not continue without the historical data as we would
+                    // deliver and accept it as live data, so we read and merge the stores sequentially instead.
+                    log.error("Reading the historical data of {} in parallel failed. We read it sequentially.",
+                            getFileName(), throwable);
+                    UserThread.execute(() -> {
+                        List<HistoricalStore> historicalStores = Version.HISTORICAL_RESOURCE_FILE_VERSION_TAGS.stream()
+                                .map(version -> readHistoricalStoreFromResources(version, postFix))
+                                .collect(Collectors.toList());
+                        applyHistoricalIndex(createHistoricalIndex(historicalStores));
+                        log.info("Reading the historical data of {} took {} ms in total.",
+                                getFileName(), System.currentTimeMillis() - ts);
+                        completeHandler.run();
+                    });
+                }
+            }, MoreExecutors.directExecutor());
         });
     }
 
@@ -172,40 +236,109 @@ public abstract class HistoricalDataStoreService<T extends PersistableNetworkPay
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private void readHistoricalStoreFromResources(String version,
-                                                  String postFix,
-                                                  Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> allHistoricalPayloads,
-                                                  Map<String, PersistableNetworkPayloadStore<? extends PersistableNetworkPayload>> storesByVersion,
-                                                  Runnable completeHandler) {
+    // Returns the versions of our historical stores which are newer than the requesters version.
+    private List<String> getHistoricalVersionsSince(String requestersVersion) {
+        return historicalPayloadsByVersion.keySet().stream()
+                .filter(storeVersion -> {
+                    // Old nodes not sending the version will get delivered all data
+                    if (requestersVersion == null) {
+                        log.info("The requester did not send a version. This is expected for not updated nodes.");
+                        return true;
+                    }
 
-        String fileName = getFileName() + "_" + version;
-        boolean wasCreatedFromResources = makeFileFromResourceFile(fileName, postFix);
+                    // Otherwise we only add data if the requesters version is older then
+                    // the version of the particular store.
+                    boolean newVersion = Version.isNewVersion(storeVersion, requestersVersion);
+                    String details = newVersion ?
+                            "As our historical store is a newer version we add the data to our result map." :
+                            "As the requester version is not older as our historical store we do not " +
+                                    "add the data to the result map.";
+                    log.info("The requester had version {}. Our historical data store has version {}.\n{}",
+                            requestersVersion, storeVersion, details);
+                    return newVersion;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> createMapOfVersions(List<String> versions) {
+        // We add all our live data and the historical data of the given versions
+        List<Map<P2PDataStorage.ByteArray, PersistableNetworkPayload>> maps = new ArrayList<>();
+        maps.add(getMapOfLiveData());
+        versions.forEach(version -> maps.add(historicalPayloadsByVersion.get(version)));
+        return new CompositeMapView<>(maps);
+    }
+
+    // We remove payloads which are contained in an older store already, so the maps have disjoint key sets and can be
+    // used in a CompositeMapView. Stores which could not be read are skipped. Called on a READ_EXECUTOR thread, or on
+    // the UserThread if we fall back to the sequential read.
+    private HistoricalIndex createHistoricalIndex(List<HistoricalStore> historicalStores) {
+        long ts = System.currentTimeMillis();
+        long parseDuration = ts - historicalStores.stream()
+                .mapToLong(HistoricalStore::getStartTime)
+                .min()
+                .orElse(ts);
+        ImmutableMap.Builder<String, ImmutableMap<P2PDataStorage.ByteArray, PersistableNetworkPayload>> builder =
+                ImmutableMap.builder();
+        Set<P2PDataStorage.ByteArray> keysOfOlderVersions = new HashSet<>();
+        // The futures are in the order of HISTORICAL_RESOURCE_FILE_VERSION_TAGS, so older versions come first
+        historicalStores.stream()
+                .filter(historicalStore -> historicalStore.getStore() != null)
+                .forEach(historicalStore -> {
+                    ImmutableMap.Builder<P2PDataStorage.ByteArray, PersistableNetworkPayload> mapBuilder =
+                            ImmutableMap.builder();
+                    historicalStore.getStore().getMap().forEach((key, payload) -> {
+                        if (keysOfOlderVersions.add(key)) {
+                            mapBuilder.put(key, payload);
+                        }
+                    });
+                    builder.put(historicalStore.getVersion(), mapBuilder.build());
+                });
+        return new HistoricalIndex(builder.build(), parseDuration, System.currentTimeMillis() - ts);
+    }
 
-        // If resource file does not exist we do not create a new store as it would never get filled.
-        persistenceManager.readPersisted(fileName, persisted -> {
-                    storesByVersion.put(version, persisted);
-                    allHistoricalPayloads.putAll(persisted.getMap());
-                    log.info("We have read from {} {} historical items.", fileName, persisted.getMap().size());
-                    pruneStore(persisted, version);
-                    completeHandler.run();
-                },
-                completeHandler::run);
+    private void applyHistoricalIndex(HistoricalIndex index) {
+        historicalPayloadsByVersion = index.getPayloadsByVersion();
+        allHistoricalPayloads = new CompositeMapView<>(new ArrayList<>(historicalPayloadsByVersion.values()));
+        mapSinceVersionCache.clear();
+        pruneLiveData();
+    }
+
+    // Called on a READ_EXECUTOR thread, or on the UserThread at the sequential fallback. If the store cannot be read we
+    // return a HistoricalStore without a store, so the index gets built from the other stores.
+    private HistoricalStore readHistoricalStoreFromResources(String version, String postFix) {
+        long ts = System.currentTimeMillis();
+        String fileName = getFileName() + "_" + version;
+        try {
+            makeFileFromResourceFile(fileName, postFix);
+
+            // If resource file does not exist we do not create a new store as it would never get filled.
+            T persisted = persistenceManager.getPersisted(fileName);
+            if (persisted != null) {
+                log.info("We have read from {} {} historical items in {} ms.",
+                        fileName, persisted.getMap().size(), System.currentTimeMillis() - ts);
+            }
+            return new HistoricalStore(version, persisted, ts);
+        } catch (Throwable t) {
+            log.error("Reading the historical data store {} failed. We continue without it.", fileName, t);
+            return new HistoricalStore(version, null, ts);
+        }
     }
 
-    private void pruneStore(PersistableNetworkPayloadStore<? extends PersistableNetworkPayload> historicalStore,
-                            String version) {
+    // We remove the live data which is contained in the historical data already. We do it in one pass after all
+    // historical stores are read.
+    private void pruneLiveData() {
         Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> mapOfLiveData = getMapOfLiveData();
         int preLive = mapOfLiveData.size();
-        mapOfLiveData.keySet().removeAll(historicalStore.getMap().keySet());
+        mapOfLiveData.keySet().removeIf(allHistoricalPayloads::containsKey);
         int postLive = mapOfLiveData.size();
         if (preLive > postLive) {
-            log.info("We pruned data from our live data store which are already contained in the historical data store with version {}. " +
+            log.info("We pruned data from our live data store which are already contained in the historical data stores. " +
                             "The live map had {} entries before pruning and has {} entries afterwards.",
-                    version, preLive, postLive);
+                    preLive, postLive);
+            requestPersistence();
         } else {
-            log.info("No pruning from historical data store with version {} was applied", version);
+            log.info("No pruning from historical data stores was applied");
         }
-        requestPersistence();
     }
 
     private boolean anyMapContainsKey(P2PDataStorage.ByteArray hash) {
@@ -18,6 +18,7 @@
 package bisq.network.p2p.storage.persistence;
 
 import bisq.network.p2p.storage.P2PDataStorage;
+import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
 
 import bisq.common.persistence.PersistenceManager;
 import bisq.common.proto.persistable.PersistableEnvelope;
@@ -25,18 +26,35 @@ import bisq.common.proto.persistable.PersistablePayload;
 
 import java.io.File;
 
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * Handles persisted data which is stored in a map.
+ * <p>
+ * Subclasses can enable an append-only log for added and removed entries. Then adding an entry only appends it to the
+ * log and removing an entry only appends a tombstone instead of requesting a write of the whole store. Once the log
+ * gets large we write the whole store and delete the log segments which got included.
  *
  * @param <T>
  * @param <R>
  */
 @Slf4j
 public abstract class MapStoreService<T extends PersistableEnvelope, R extends PersistablePayload> extends StoreService<T> {
+    // Number of log records after which we write the whole store
+    private static final int MAX_LOG_RECORDS = 10000;
+
+    @Nullable
+    private AppendOnlyPayloadLog<R> appendOnlyLog;
+    private int compactAtNumLogRecords = MAX_LOG_RECORDS;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -58,22 +76,132 @@ public abstract class MapStoreService<T extends PersistableEnvelope, R extends P
 
     void put(P2PDataStorage.ByteArray hash, R payload) {
         getMap().put(hash, payload);
-        requestPersistence();
+        persistAddedEntry(payload);
     }
 
     protected R putIfAbsent(P2PDataStorage.ByteArray hash, R payload) {
         R previous = getMap().putIfAbsent(hash, payload);
-        requestPersistence();
+        if (previous == null) {
+            persistAddedEntry(payload);
+        }
         return previous;
     }
 
     R remove(P2PDataStorage.ByteArray hash) {
-        R result = getMap().remove(hash);
-        requestPersistence();
+        // Same map as the replay removes from. For historical stores only the live data can be removed.
+        R result = getMapOfAddedEntries().remove(hash);
+        if (appendOnlyLog != null) {
+            // The persisted store or the log might contain the removed entry, so we add a tombstone which removes it
+            // again at replay.
+            appendOnlyLog.appendRemoved(hash.bytes);
+            maybeCompactAppendOnlyLog();
+        } else {
+            requestPersistence();
+        }
         return result;
     }
 
     boolean containsKey(P2PDataStorage.ByteArray hash) {
         return getMap().containsKey(hash);
     }
+
+    R get(P2PDataStorage.ByteArray hash) {
+        return getMap().get(hash);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Protected
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // The map new entries are added to
+    protected Map<P2PDataStorage.ByteArray, R> getMapOfAddedEntries() {
+        return getMap();
+    }
+
+    // Must be called before the store is read.
+    protected void enableAppendOnlyLog(AppendOnlyPayloadLog.Decoder<R> decoder) {
+        // The log is written on the write to disk thread of the persistenceManager, so appends, compaction and the
+        // deletion of compacted segments happen in the order they got requested. If a write fails we compact the log,
+        // so the lost records get written with the whole store.
+        appendOnlyLog = new AppendOnlyPayloadLog<>(new File(absolutePathOfStorageDir),
+                getFileName(),
+                decoder,
+                persistenceManager::executeOnWriteToDiskThread,
+                this::compactAppendOnlyLog);
+        persistenceManager.addFlushTask(appendOnlyLog::flushAndClose);
+    }
+
+    protected void persistAddedEntry(R payload) {
+        if (appendOnlyLog != null) {
+            appendOnlyLog.append(payload);
+            maybeCompactAppendOnlyLog();
+        } else {
+            requestPersistence();
+        }
+    }
+
+    @Override
+    protected void readStore(Consumer<T> consumer) {
+        super.readStore(persisted -> {
+            if (appendOnlyLog != null) {
+                // The segments are read on the write to disk thread and replayed on the user thread
+                appendOnlyLog.replay(this::addReplayedEntry,
+                        this::removeReplayedEntry,
+                        () -> consumer.accept(persisted));
+            } else {
+                consumer.accept(persisted);
+            }
+        });
+    }
+
+    @Override
+    protected void readStoreSync() {
+        super.readStoreSync();
+        if (appendOnlyLog != null) {
+            appendOnlyLog.replaySync(this::addReplayedEntry, this::removeReplayedEntry);
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void addReplayedEntry(R payload) {
+        getMapOfAddedEntries().putIfAbsent(getHashAsByteArray(payload), payload);
+    }
+
+    private void removeReplayedEntry(byte[] hash) {
+        getMapOfAddedEntries().remove(new P2PDataStorage.ByteArray(hash));
+    }
+
+    private void maybeCompactAppendOnlyLog() {
+        if (checkNotNull(appendOnlyLog).getNumRecords() >= compactAtNumLogRecords) {
+            compactAppendOnlyLog();
+        }
+    }
+
+    private void compactAppendOnlyLog() {
+        // If the write fails or gets skipped (e.g. before all services are initialized) we keep the segments and try
+        // again after the next MAX_LOG_RECORDS records.
+        AppendOnlyPayloadLog<R> payloadLog = checkNotNull(appendOnlyLog);
+        compactAtNumLogRecords = payloadLog.getNumRecords() + MAX_LOG_RECORDS;
+
+        // The store gets serialized at the persistNow call on the user thread, so all entries of the closed segments
+        // are contained in it. The closing of the segment and the write of the store are both done on the write to
+        // disk thread in that order. We delete the segments only once the store is written.
+        payloadLog.closeCurrentSegment();
+        List<File> segments = payloadLog.getClosedSegments();
+        persistenceManager.persistNow(null, () -> {
+            payloadLog.deleteSegments(segments);
+            compactAtNumLogRecords = payloadLog.getNumRecords() + MAX_LOG_RECORDS;
+        });
+    }
+
+    private P2PDataStorage.ByteArray getHashAsByteArray(R payload) {
+        checkArgument(payload instanceof PersistableNetworkPayload,
+                "The append-only log supports only PersistableNetworkPayloads");
+        return new P2PDataStorage.ByteArray(((PersistableNetworkPayload) payload).getHash());
+    }
 }
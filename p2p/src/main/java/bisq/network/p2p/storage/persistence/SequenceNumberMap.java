@@ -19,7 +19,7 @@ package bisq.network.p2p.storage.persistence;
 
 import bisq.network.p2p.storage.P2PDataStorage;
 
-import bisq.common.proto.persistable.PersistableEnvelope;
+import bisq.common.persistence.JournaledEnvelope;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -33,8 +33,11 @@ import lombok.Setter;
  * This class was not generalized to HashMapPersistable (like we did with #ListPersistable) because
  * in protobuffer the map construct can't be anything, so the straightforward mapping was not possible.
  * Hence this Persistable class.
+ * <p>
+ * The map changes at each added, refreshed or removed ProtectedStorageEntry, so we persist the changes as deltas
+ * containing only the changed entry.
  */
-public class SequenceNumberMap implements PersistableEnvelope {
+public class SequenceNumberMap implements JournaledEnvelope<SequenceNumberMap> {
     @Getter
     @Setter
     private Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> map = new ConcurrentHashMap<>();
@@ -42,6 +45,10 @@ public class SequenceNumberMap implements PersistableEnvelope {
     public SequenceNumberMap() {
     }
 
+    public static SequenceNumberMap delta(P2PDataStorage.ByteArray key, P2PDataStorage.MapValue value) {
+        return new SequenceNumberMap(Map.of(key, value));
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // PROTO BUFFER
@@ -92,4 +99,11 @@ public class SequenceNumberMap implements PersistableEnvelope {
     public void put(P2PDataStorage.ByteArray key, P2PDataStorage.MapValue value) {
         map.put(key, value);
     }
+
+    // Sequence numbers only increase, so we never replace an entry with an older one from the journal.
+    @Override
+    public void applyDelta(SequenceNumberMap delta) {
+        delta.map.forEach((key, value) -> map.merge(key, value,
+                (current, update) -> update.sequenceNr >= current.sequenceNr ? update : current));
+    }
 }
@@ -0,0 +1,256 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.mailbox;
+
+import bisq.network.crypto.EncryptionService;
+import bisq.network.p2p.DecryptedMessageWithPubKey;
+import bisq.network.p2p.NodeAddress;
+import bisq.network.p2p.PrefixedSealedAndSignedMessage;
+import bisq.network.p2p.network.NetworkNode;
+import bisq.network.p2p.peers.PeerManager;
+import bisq.network.p2p.storage.P2PDataStorage;
+import bisq.network.p2p.storage.payload.MailboxStoragePayload;
+import bisq.network.p2p.storage.payload.ProtectedMailboxStorageEntry;
+import bisq.network.p2p.storage.payload.ProtectedStorageEntry;
+
+import bisq.common.UserThread;
+import bisq.common.crypto.KeyRing;
+import bisq.common.crypto.SealedAndSigned;
+import bisq.common.crypto.Sig;
+import bisq.common.persistence.PersistenceManager;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+
+import java.time.Clock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MailboxMessageServiceTest {
+    private static KeyPair signatureKeyPair;
+
+    private EncryptionService encryptionService;
+    private IgnoredMailboxService ignoredMailboxService;
+    private MailboxMessageService mailboxMessageService;
+    // Uids of the decrypted messages in the order the listener got called
+    private final List<String> receivedUids = new CopyOnWriteArrayList<>();
+    private CountDownLatch receivedLatch;
+    // Single threaded like in the application. Counts the tasks to verify that each chunk gets applied in one task.
+    private ExecutorService userThreadExecutor;
+    private final AtomicInteger numUserThreadTasks = new AtomicInteger();
+
+    @BeforeClass
+    public static void setUpClass() {
+        signatureKeyPair = Sig.generateKeyPair();
+    }
+
+    @Before
+    public void setUp() {
+        userThreadExecutor = Executors.newSingleThreadExecutor();
+        UserThread.setExecutor(task -> {
+            numUserThreadTasks.incrementAndGet();
+            userThreadExecutor.execute(task);
+        });
+
+        NetworkNode networkNode = mock(NetworkNode.class);
+        when(networkNode.getNodeAddress()).thenReturn(new NodeAddress("localhost", 9999));
+        KeyRing keyRing = mock(KeyRing.class);
+        when(keyRing.getSignatureKeyPair()).thenReturn(signatureKeyPair);
+        encryptionService = mock(EncryptionService.class);
+        ignoredMailboxService = mock(IgnoredMailboxService.class);
+
+        //noinspection unchecked
+        mailboxMessageService = new MailboxMessageService(networkNode,
+                mock(PeerManager.class),
+                mock(P2PDataStorage.class),
+                encryptionService,
+                ignoredMailboxService,
+                mock(PersistenceManager.class),
+                keyRing,
+                Clock.systemDefaultZone(),
+                false);
+        mailboxMessageService.addDecryptedMailboxListener((decryptedMessageWithPubKey, senderNodeAddress) -> {
+            receivedUids.add(((PrefixedSealedAndSignedMessage) decryptedMessageWithPubKey.getNetworkEnvelope()).getUid());
+            receivedLatch.countDown();
+        });
+    }
+
+    @After
+    public void tearDown() {
+        UserThread.setExecutor(MoreExecutors.directExecutor());
+        userThreadExecutor.shutdownNow();
+    }
+
+    private static String uid(int id) {
+        return "uid-" + id;
+    }
+
+    // The creation date increases with the id
+    private ProtectedMailboxStorageEntry createEntry(int id, PublicKey receiversPubKey) throws Exception {
+        SealedAndSigned sealedAndSigned = mock(SealedAndSigned.class);
+        PrefixedSealedAndSignedMessage prefixedSealedAndSignedMessage = mock(PrefixedSealedAndSignedMessage.class);
+        when(prefixedSealedAndSignedMessage.getUid()).thenReturn(uid(id));
+        when(prefixedSealedAndSignedMessage.getSealedAndSigned()).thenReturn(sealedAndSigned);
+
+        MailboxStoragePayload mailboxStoragePayload = mock(MailboxStoragePayload.class);
+        when(mailboxStoragePayload.getPrefixedSealedAndSignedMessage()).thenReturn(prefixedSealedAndSignedMessage);
+        when(mailboxStoragePayload.toProtoMessage()).thenReturn(protobuf.StoragePayload.getDefaultInstance());
+
+        ProtectedMailboxStorageEntry entry = mock(ProtectedMailboxStorageEntry.class);
+        when(entry.getMailboxStoragePayload()).thenReturn(mailboxStoragePayload);
+        when(entry.getProtectedStoragePayload()).thenReturn(mailboxStoragePayload);
+        when(entry.getReceiversPubKey()).thenReturn(receiversPubKey);
+        when(entry.getCreationTimeStamp()).thenReturn(1000L * id);
+
+        // We use the message as decrypted content as well, so the listener gets the same uid
+        when(encryptionService.decryptAndVerify(sealedAndSigned))
+                .thenReturn(new DecryptedMessageWithPubKey(prefixedSealedAndSignedMessage, signatureKeyPair.getPublic()));
+        return entry;
+    }
+
+    private List<ProtectedStorageEntry> createEntriesAddressedToMe(int numEntries) throws Exception {
+        List<ProtectedStorageEntry> entries = new ArrayList<>();
+        for (int id = 0; id < numEntries; id++) {
+            entries.add(createEntry(id, signatureKeyPair.getPublic()));
+        }
+        return entries;
+    }
+
+    private void awaitReceived() throws InterruptedException {
+        Assert.assertTrue(receivedLatch.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void entriesNotAddressedToMeAreNotDecrypted() throws Exception {
+        List<ProtectedStorageEntry> entries = new ArrayList<>();
+        List<ProtectedMailboxStorageEntry> notAddressedToMe = new ArrayList<>();
+        for (int id = 0; id < 10; id++) {
+            if (id % 2 == 0) {
+                entries.add(createEntry(id, signatureKeyPair.getPublic()));
+            } else {
+                ProtectedMailboxStorageEntry entry = createEntry(id, mock(PublicKey.class));
+                notAddressedToMe.add(entry);
+                entries.add(entry);
+            }
+        }
+        receivedLatch = new CountDownLatch(5);
+
+        mailboxMessageService.onAdded(entries);
+        awaitReceived();
+
+        Assert.assertEquals(List.of(uid(0), uid(2), uid(4), uid(6), uid(8)), receivedUids);
+        verify(encryptionService, times(5)).decryptAndVerify(any());
+        for (ProtectedMailboxStorageEntry entry : notAddressedToMe) {
+            verify(encryptionService, never()).decryptAndVerify(
+                    entry.getMailboxStoragePayload().getPrefixedSealedAndSignedMessage().getSealedAndSigned());
+        }
+        // We did not try to decrypt them, so we do not need to remember a failed attempt
+        verify(ignoredMailboxService, never()).ignore(anyString(), anyLong());
+    }
+
+    @Test
+    public void entriesAreDecryptedInChunks() throws Exception {
+        int chunkSize = MailboxMessageService.DECRYPTION_CHUNK_SIZE;
+        int numEntries = 2 * chunkSize + chunkSize / 2;
+        List<ProtectedStorageEntry> entries = createEntriesAddressedToMe(numEntries);
+        Map<String, String> decryptionThreadByUid = new ConcurrentHashMap<>();
+        for (ProtectedStorageEntry entry : entries) {
+            PrefixedSealedAndSignedMessage message = ((ProtectedMailboxStorageEntry) entry).getMailboxStoragePayload()
+                    .getPrefixedSealedAndSignedMessage();
+            DecryptedMessageWithPubKey decrypted = encryptionService.decryptAndVerify(message.getSealedAndSigned());
+            when(encryptionService.decryptAndVerify(message.getSealedAndSigned())).thenAnswer(invocation -> {
+                decryptionThreadByUid.put(message.getUid(), Thread.currentThread().getName());
+                return decrypted;
+            });
+        }
+        receivedLatch = new CountDownLatch(numEntries);
+
+        mailboxMessageService.onAdded(entries);
+        awaitReceived();
+
+        // All entries of a chunk are decrypted in one task
+        for (int chunkStart = 0; chunkStart < numEntries; chunkStart += chunkSize) {
+            String thread = decryptionThreadByUid.get(uid(chunkStart));
+            for (int id = chunkStart; id < Math.min(chunkStart + chunkSize, numEntries); id++) {
+                Assert.assertEquals(thread, decryptionThreadByUid.get(uid(id)));
+            }
+        }
+        Assert.assertNotEquals(Thread.currentThread().getName(), decryptionThreadByUid.get(uid(0)));
+
+        // Each done chunk triggers one task at the UserThread. Those are executed after the futures have completed,
+        // so they might be counted after the last item was received.
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (numUserThreadTasks.get() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(3, numUserThreadTasks.get());
+    }
+
+    @Test
+    public void itemsAreHandledInOrderOfCreationDate() throws Exception {
+        int numEntries = 3 * MailboxMessageService.DECRYPTION_CHUNK_SIZE;
+        List<ProtectedStorageEntry> entries = createEntriesAddressedToMe(numEntries);
+        // The first chunk is done last if there are several decryption threads
+        ProtectedMailboxStorageEntry oldest = (ProtectedMailboxStorageEntry) entries.get(0);
+        SealedAndSigned sealedAndSignedOfOldest = oldest.getMailboxStoragePayload()
+                .getPrefixedSealedAndSignedMessage()
+                .getSealedAndSigned();
+        DecryptedMessageWithPubKey decryptedOldest = encryptionService.decryptAndVerify(sealedAndSignedOfOldest);
+        when(encryptionService.decryptAndVerify(sealedAndSignedOfOldest)).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return decryptedOldest;
+        });
+        Collections.shuffle(entries);
+        receivedLatch = new CountDownLatch(numEntries);
+
+        mailboxMessageService.onAdded(entries);
+        awaitReceived();
+
+        Assert.assertEquals(IntStream.range(0, numEntries).mapToObj(MailboxMessageServiceTest::uid).collect(Collectors.toList()),
+                receivedUids);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.network;
+
+import bisq.common.proto.network.NetworkProtoResolver;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import java.io.IOException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.mockito.Mockito.mock;
+
+public class ConnectionTest {
+    private ServerSocket serverSocket;
+    // The socket of the peer, which does not send anything, so the input handler of the connection blocks at reading
+    private Socket peerSocket;
+    private Connection connection;
+    private int numActiveInputHandlersBefore;
+
+    @Before
+    public void setUp() throws IOException, InterruptedException {
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+        peerSocket = serverSocket.accept();
+
+        numActiveInputHandlersBefore = Connection.getNumActiveInputHandlers();
+        connection = new Connection(socket,
+                mock(MessageListener.class),
+                mock(ConnectionListener.class),
+                null,
+                mock(NetworkProtoResolver.class),
+                null);
+        awaitNumActiveInputHandlers(numActiveInputHandlersBefore + 1);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        peerSocket.close();
+        serverSocket.close();
+    }
+
+    private static void awaitNumActiveInputHandlers(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (Connection.getNumActiveInputHandlers() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(expected, Connection.getNumActiveInputHandlers());
+    }
+
+    private void shutDown(CloseConnectionReason closeConnectionReason) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        connection.shutDown(closeConnectionReason, latch::countDown);
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shutDownReleasesInputHandler() throws InterruptedException, IOException {
+        shutDown(CloseConnectionReason.CLOSE_REQUESTED_BY_PEER);
+
+        Assert.assertTrue(connection.isStopped());
+        awaitNumActiveInputHandlers(numActiveInputHandlersBefore);
+        // The peer did not get a close message
+        Assert.assertEquals(-1, peerSocket.getInputStream().read());
+    }
+
+    @Test
+    public void shutDownWithCloseMessageReleasesInputHandler() throws InterruptedException, IOException {
+        shutDown(CloseConnectionReason.APP_SHUT_DOWN);
+
+        awaitNumActiveInputHandlers(numActiveInputHandlersBefore);
+        protobuf.NetworkEnvelope proto = protobuf.NetworkEnvelope.parseDelimitedFrom(peerSocket.getInputStream());
+        Assert.assertNotNull(proto);
+        Assert.assertEquals(CloseConnectionReason.APP_SHUT_DOWN.name(), proto.getCloseConnectionMessage().getReason());
+        Assert.assertEquals(-1, peerSocket.getInputStream().read());
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.network;
+
+import bisq.network.p2p.BundleOfEnvelopes;
+import bisq.network.p2p.peers.keepalive.messages.Ping;
+import bisq.network.p2p.storage.messages.RefreshOfferMessage;
+
+import bisq.common.proto.network.NetworkEnvelope;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.mockito.Mockito.mock;
+
+public class SerializedEnvelopeTest {
+
+    // Keeps the byte arrays which got written, so we can check if the same array was written again
+    private static class RecordingOutputStream extends OutputStream {
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private final List<byte[]> writtenArrays = new ArrayList<>();
+
+        @Override
+        public void write(int b) {
+            written.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            writtenArrays.add(b);
+            written.write(b, off, len);
+        }
+    }
+
+    private static RefreshOfferMessage createBroadcastMessage(int sequenceNumber) {
+        return new RefreshOfferMessage(new byte[]{1, 2, 3}, new byte[]{4, 5, 6}, new byte[]{7, 8, 9}, sequenceNumber);
+    }
+
+    private static byte[] getExpectedBytes(NetworkEnvelope envelope) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        envelope.toProtoNetworkEnvelope().writeDelimitedTo(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] getWrittenBytes(SerializedEnvelope serializedEnvelope) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        serializedEnvelope.writeDelimitedTo(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @Test
+    public void writtenBytesOfBroadcastMessageEqualProtoBytes() throws IOException {
+        RefreshOfferMessage message = createBroadcastMessage(1);
+        SerializedEnvelope serializedEnvelope = SerializedEnvelope.of(message);
+
+        byte[] expected = getExpectedBytes(message);
+        // The first write encodes the bytes, the second one uses the encoded bytes
+        Assert.assertArrayEquals(expected, getWrittenBytes(serializedEnvelope));
+        Assert.assertArrayEquals(expected, getWrittenBytes(serializedEnvelope));
+        Assert.assertEquals(message.toProtoNetworkEnvelope().getSerializedSize(), serializedEnvelope.getSerializedSize());
+    }
+
+    @Test
+    public void writtenBytesOfOtherMessagesEqualProtoBytes() throws IOException {
+        Ping ping = new Ping(1, 2);
+        Assert.assertArrayEquals(getExpectedBytes(ping), getWrittenBytes(SerializedEnvelope.of(ping)));
+
+        BundleOfEnvelopes bundle = new BundleOfEnvelopes();
+        bundle.add(createBroadcastMessage(1));
+        bundle.add(createBroadcastMessage(2));
+        Assert.assertArrayEquals(getExpectedBytes(bundle), getWrittenBytes(SerializedEnvelope.of(bundle)));
+    }
+
+    @Test
+    public void broadcastMessageIsCached() {
+        RefreshOfferMessage message = createBroadcastMessage(1);
+        Assert.assertSame(SerializedEnvelope.of(message), SerializedEnvelope.of(message));
+
+        // The cache compares by identity
+        Assert.assertNotSame(SerializedEnvelope.of(message), SerializedEnvelope.of(createBroadcastMessage(1)));
+    }
+
+    @Test
+    public void nonBroadcastMessageBypassesCache() {
+        Ping ping = new Ping(1, 2);
+        Assert.assertNotSame(SerializedEnvelope.of(ping), SerializedEnvelope.of(ping));
+    }
+
+    @Test
+    public void bundleOfEnvelopesBypassesCache() throws IOException {
+        RefreshOfferMessage message = createBroadcastMessage(1);
+        BundleOfEnvelopes bundle = new BundleOfEnvelopes();
+        bundle.add(message);
+        SerializedEnvelope serializedBundle = SerializedEnvelope.of(bundle);
+        Assert.assertNotSame(serializedBundle, SerializedEnvelope.of(bundle));
+
+        // The bundle is mutable, so a later send must contain the added envelope
+        bundle.add(createBroadcastMessage(2));
+        SerializedEnvelope serializedBundleAfterAdd = SerializedEnvelope.of(bundle);
+        Assert.assertEquals(1, serializedBundle.getProto().getBundleOfEnvelopes().getEnvelopesCount());
+        Assert.assertEquals(2, serializedBundleAfterAdd.getProto().getBundleOfEnvelopes().getEnvelopesCount());
+        Assert.assertArrayEquals(getExpectedBytes(bundle), getWrittenBytes(serializedBundleAfterAdd));
+
+        // The contained broadcast messages use their cached serialized form
+        Assert.assertSame(SerializedEnvelope.of(message).getProto(),
+                serializedBundleAfterAdd.getProto().getBundleOfEnvelopes().getEnvelopes(0));
+    }
+
+    @Test
+    public void sendToSecondPeerReusesWrittenBytes() throws IOException {
+        RefreshOfferMessage message = createBroadcastMessage(1);
+        RecordingOutputStream peer1 = new RecordingOutputStream();
+        RecordingOutputStream peer2 = new RecordingOutputStream();
+
+        new ProtoOutputStream(peer1, mock(Statistic.class)).writeEnvelope(message);
+        new ProtoOutputStream(peer2, mock(Statistic.class)).writeEnvelope(message);
+
+        byte[] expected = getExpectedBytes(message);
+        Assert.assertArrayEquals(expected, peer1.written.toByteArray());
+        Assert.assertArrayEquals(expected, peer2.written.toByteArray());
+        Assert.assertEquals(1, peer1.writtenArrays.size());
+        Assert.assertEquals(1, peer2.writtenArrays.size());
+        Assert.assertSame(peer1.writtenArrays.get(0), peer2.writtenArrays.get(0));
+    }
+
+    @Test
+    public void sendOfNonBroadcastMessageDoesNotReuseWrittenBytes() throws IOException {
+        Ping ping = new Ping(1, 2);
+        RecordingOutputStream peer1 = new RecordingOutputStream();
+        RecordingOutputStream peer2 = new RecordingOutputStream();
+
+        new ProtoOutputStream(peer1, mock(Statistic.class)).writeEnvelope(ping);
+        new ProtoOutputStream(peer2, mock(Statistic.class)).writeEnvelope(ping);
+
+        byte[] expected = getExpectedBytes(ping);
+        Assert.assertArrayEquals(expected, peer1.written.toByteArray());
+        Assert.assertArrayEquals(expected, peer2.written.toByteArray());
+    }
+}
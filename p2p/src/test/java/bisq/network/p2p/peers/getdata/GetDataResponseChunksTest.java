@@ -0,0 +1,96 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.peers.getdata;
+
+import bisq.network.p2p.peers.getdata.messages.GetDataResponse;
+import bisq.network.p2p.storage.mocks.PersistableNetworkPayloadStub;
+import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import bisq.network.p2p.storage.payload.ProtectedStorageEntry;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.mockito.Mockito.mock;
+
+public class GetDataResponseChunksTest {
+
+    private static GetDataResponse buildResponse(int numProtectedStorageEntries, int numPersistableNetworkPayloads) {
+        Set<ProtectedStorageEntry> dataSet = new HashSet<>();
+        for (int i = 0; i < numProtectedStorageEntries; i++) {
+            dataSet.add(mock(ProtectedStorageEntry.class));
+        }
+        Set<PersistableNetworkPayload> persistableNetworkPayloadSet = new HashSet<>();
+        for (int i = 0; i < numPersistableNetworkPayloads; i++) {
+            persistableNetworkPayloadSet.add(new PersistableNetworkPayloadStub(new byte[]{(byte) i, (byte) (i >> 8)}));
+        }
+        return new GetDataResponse(dataSet, persistableNetworkPayloadSet, 1, false);
+    }
+
+    private static List<GetDataResponse> getChunks(GetDataResponse getDataResponse, int maxEntriesPerChunk) {
+        List<GetDataResponse> chunks = new ArrayList<>();
+        new GetDataResponseChunks(getDataResponse, maxEntriesPerChunk).forEachRemaining(chunks::add);
+        return chunks;
+    }
+
+    @Test
+    public void emptyResponse_singleFinalChunk() {
+        List<GetDataResponse> chunks = getChunks(buildResponse(0, 0), 10);
+
+        Assert.assertEquals(1, chunks.size());
+        Assert.assertTrue(chunks.get(0).isFinalChunk());
+        Assert.assertTrue(chunks.get(0).getDataSet().isEmpty());
+        Assert.assertTrue(chunks.get(0).getPersistableNetworkPayloadSet().isEmpty());
+    }
+
+    @Test
+    public void chunksAreBoundedAndContainAllEntries() {
+        GetDataResponse getDataResponse = buildResponse(25, 38);
+        List<GetDataResponse> chunks = getChunks(getDataResponse, 10);
+
+        Assert.assertEquals(7, chunks.size());
+        Set<ProtectedStorageEntry> dataSet = new HashSet<>();
+        Set<PersistableNetworkPayload> persistableNetworkPayloadSet = new HashSet<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            GetDataResponse chunk = chunks.get(i);
+            Assert.assertTrue(chunk.getDataSet().size() + chunk.getPersistableNetworkPayloadSet().size() <= 10);
+            Assert.assertEquals(i == chunks.size() - 1, chunk.isFinalChunk());
+            Assert.assertEquals(getDataResponse.getRequestNonce(), chunk.getRequestNonce());
+            dataSet.addAll(chunk.getDataSet());
+            persistableNetworkPayloadSet.addAll(chunk.getPersistableNetworkPayloadSet());
+        }
+        Assert.assertEquals(getDataResponse.getDataSet(), dataSet);
+        Assert.assertEquals(getDataResponse.getPersistableNetworkPayloadSet(), persistableNetworkPayloadSet);
+    }
+
+    @Test
+    public void protectedStorageEntriesAreSentFirst() {
+        List<GetDataResponse> chunks = getChunks(buildResponse(5, 5), 4);
+
+        Assert.assertEquals(3, chunks.size());
+        Assert.assertEquals(4, chunks.get(0).getDataSet().size());
+        Assert.assertTrue(chunks.get(0).getPersistableNetworkPayloadSet().isEmpty());
+        Assert.assertEquals(1, chunks.get(1).getDataSet().size());
+        Assert.assertEquals(3, chunks.get(1).getPersistableNetworkPayloadSet().size());
+        Assert.assertEquals(2, chunks.get(2).getPersistableNetworkPayloadSet().size());
+    }
+}
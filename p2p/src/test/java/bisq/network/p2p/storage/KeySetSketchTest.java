@@ -0,0 +1,93 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KeySetSketchTest {
+    private final Random random = new Random(1);
+
+    private P2PDataStorage.ByteArray randomKey(int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return new P2PDataStorage.ByteArray(bytes);
+    }
+
+    @Test
+    public void addAndRemoveResultsInEmptySketch() {
+        KeySetSketch sketch = new KeySetSketch(16);
+        P2PDataStorage.ByteArray key = randomKey(32);
+        sketch.add(key);
+        Assert.assertFalse(sketch.isEmpty());
+        sketch.remove(key);
+        Assert.assertTrue(sketch.isEmpty());
+    }
+
+    @Test
+    public void decodeDifference() {
+        KeySetSketch local = new KeySetSketch(KeySetSketch.MAX_CELLS_PER_PARTITION);
+        KeySetSketch remote = new KeySetSketch(KeySetSketch.MAX_CELLS_PER_PARTITION);
+        for (int i = 0; i < 20000; i++) {
+            P2PDataStorage.ByteArray key = randomKey(i % 2 == 0 ? 32 : 20);
+            local.add(key);
+            remote.add(key);
+        }
+        Set<P2PDataStorage.ByteArray> localOnly = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            P2PDataStorage.ByteArray key = randomKey(32);
+            local.add(key);
+            localOnly.add(key);
+        }
+        Set<P2PDataStorage.ByteArray> remoteOnly = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            P2PDataStorage.ByteArray key = randomKey(20);
+            remote.add(key);
+            remoteOnly.add(key);
+        }
+
+        // The remote sketch gets sent with a smaller size, so we have to fold ours before subtracting
+        KeySetSketch remoteFolded = KeySetSketch.fromProto(remote.fold(1024).toProtoMessage());
+        Optional<KeySetSketch.Difference> difference = local.fold(1024).subtract(remoteFolded).decode();
+
+        Assert.assertTrue(difference.isPresent());
+        Assert.assertEquals(localOnly, difference.get().getLocalOnly());
+        Assert.assertEquals(remoteOnly, difference.get().getRemoteOnly());
+    }
+
+    @Test
+    public void decodeFailsIfDifferenceExceedsCapacity() {
+        KeySetSketch local = new KeySetSketch(64);
+        KeySetSketch remote = new KeySetSketch(64);
+        for (int i = 0; i < 1000; i++) {
+            local.add(randomKey(32));
+        }
+
+        Assert.assertFalse(local.subtract(remote).decode().isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPartitionSizeIsRejected() {
+        new KeySetSketch(1000);
+    }
+}
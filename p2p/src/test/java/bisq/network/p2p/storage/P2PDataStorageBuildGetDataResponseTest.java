@@ -20,12 +20,14 @@ package bisq.network.p2p.storage;
 import bisq.network.p2p.NodeAddress;
 import bisq.network.p2p.TestUtils;
 import bisq.network.p2p.network.NetworkNode;
+import bisq.network.p2p.peers.getdata.GetDataResponseChunks;
 import bisq.network.p2p.peers.getdata.messages.GetDataRequest;
 import bisq.network.p2p.peers.getdata.messages.GetDataResponse;
 import bisq.network.p2p.peers.getdata.messages.GetUpdatedDataRequest;
 import bisq.network.p2p.peers.getdata.messages.PreliminaryGetDataRequest;
 import bisq.network.p2p.storage.mocks.PersistableNetworkPayloadStub;
 import bisq.network.p2p.storage.payload.CapabilityRequiringPayload;
+import bisq.network.p2p.storage.payload.DateSortedTruncatablePayload;
 import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
 import bisq.network.p2p.storage.payload.ProtectedStorageEntry;
 import bisq.network.p2p.storage.payload.ProtectedStoragePayload;
@@ -39,8 +41,12 @@ import com.google.protobuf.Message;
 import java.security.KeyPair;
 import java.security.NoSuchAlgorithmException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -95,6 +101,26 @@ public class P2PDataStorageBuildGetDataResponseTest {
             }
         }
 
+        static class DateSortedTruncatablePNPStub extends PersistableNetworkPayloadStub
+                implements DateSortedTruncatablePayload {
+            final Date date;
+
+            DateSortedTruncatablePNPStub(long time, byte[] hash) {
+                super(hash);
+                this.date = new Date(time);
+            }
+
+            @Override
+            public Date getDate() {
+                return date;
+            }
+
+            @Override
+            public int maxItems() {
+                return 2;
+            }
+        }
+
         /**
          * Generates a unique ProtectedStorageEntry that is valid for add. This is used to initialize P2PDataStorage state
          * so the tests can validate the correct behavior. Adds of identical payloads with different sequence numbers
@@ -212,6 +238,103 @@ public class P2PDataStorageBuildGetDataResponseTest {
             Assert.assertTrue(getDataResponse.getDataSet().isEmpty());
         }
 
+        // TESTCASE: Given a GetDataRequest w/o known DateSortedTruncatablePayloads, send back only the newest maxItems
+        @Test
+        public void buildGetDataResponse_unknownDateSortedTruncatablePNPSendBackNewest() {
+            PersistableNetworkPayload oldest = new DateSortedTruncatablePNPStub(1000, new byte[]{1});
+            PersistableNetworkPayload middle = new DateSortedTruncatablePNPStub(2000, new byte[]{2});
+            PersistableNetworkPayload newest = new DateSortedTruncatablePNPStub(3000, new byte[]{3});
+            PersistableNetworkPayload notTruncatable = new PersistableNetworkPayloadStub(new byte[]{4});
+
+            this.testState.mockedStorage.addPersistableNetworkPayload(
+                    middle, this.localNodeAddress, false);
+            this.testState.mockedStorage.addPersistableNetworkPayload(
+                    newest, this.localNodeAddress, false);
+            this.testState.mockedStorage.addPersistableNetworkPayload(
+                    oldest, this.localNodeAddress, false);
+            this.testState.mockedStorage.addPersistableNetworkPayload(
+                    notTruncatable, this.localNodeAddress, false);
+
+            GetDataRequest getDataRequest =
+                    this.buildGetDataRequest(1, new HashSet<>());
+
+            AtomicBoolean outPNPTruncated = new AtomicBoolean(false);
+            AtomicBoolean outPSETruncated = new AtomicBoolean(false);
+            Capabilities peerCapabilities = new Capabilities();
+            GetDataResponse getDataResponse = this.testState.mockedStorage.buildGetDataResponse(
+                    getDataRequest, 10, outPNPTruncated, outPSETruncated, peerCapabilities);
+
+            Assert.assertFalse(outPNPTruncated.get());
+            Assert.assertFalse(outPSETruncated.get());
+            Assert.assertEquals(new HashSet<>(Arrays.asList(middle, newest, notTruncatable)),
+                    getDataResponse.getPersistableNetworkPayloadSet());
+            Assert.assertTrue(getDataResponse.getDataSet().isEmpty());
+        }
+
+        // TESTCASE: Given a GetDataRequest w/o known DateSortedTruncatablePayloads, drop the oldest at truncation
+        @Test
+        public void buildGetDataResponse_unknownDateSortedTruncatablePNPSendBackTruncation() {
+            PersistableNetworkPayload older = new DateSortedTruncatablePNPStub(1000, new byte[]{1});
+            PersistableNetworkPayload newer = new DateSortedTruncatablePNPStub(2000, new byte[]{2});
+            PersistableNetworkPayload notTruncatable = new PersistableNetworkPayloadStub(new byte[]{3});
+
+            this.testState.mockedStorage.addPersistableNetworkPayload(
+                    older, this.localNodeAddress, false);
+            this.testState.mockedStorage.addPersistableNetworkPayload(
+                    newer, this.localNodeAddress, false);
+            this.testState.mockedStorage.addPersistableNetworkPayload(
+                    notTruncatable, this.localNodeAddress, false);
+
+            GetDataRequest getDataRequest =
+                    this.buildGetDataRequest(1, new HashSet<>());
+
+            AtomicBoolean outPNPTruncated = new AtomicBoolean(false);
+            AtomicBoolean outPSETruncated = new AtomicBoolean(false);
+            Capabilities peerCapabilities = new Capabilities();
+            GetDataResponse getDataResponse = this.testState.mockedStorage.buildGetDataResponse(
+                    getDataRequest, 2, outPNPTruncated, outPSETruncated, peerCapabilities);
+
+            Assert.assertTrue(outPNPTruncated.get());
+            Assert.assertEquals(new HashSet<>(Arrays.asList(newer, notTruncatable)),
+                    getDataResponse.getPersistableNetworkPayloadSet());
+        }
+
+        // TESTCASE: Given a GetDataRequest w/o known PNP, chunks deliver all unknown entries without truncation and
+        // the newest maxItems DateSortedTruncatablePayloads after the other entries
+        @Test
+        public void buildGetDataResponseChunks_unknownPNPSendBackAllInChunks() {
+            PersistableNetworkPayload oldest = new DateSortedTruncatablePNPStub(1000, new byte[]{1});
+            PersistableNetworkPayload middle = new DateSortedTruncatablePNPStub(2000, new byte[]{2});
+            PersistableNetworkPayload newest = new DateSortedTruncatablePNPStub(3000, new byte[]{3});
+            PersistableNetworkPayload notTruncatable1 = new PersistableNetworkPayloadStub(new byte[]{4});
+            PersistableNetworkPayload notTruncatable2 = new PersistableNetworkPayloadStub(new byte[]{5});
+            PersistableNetworkPayload known = new PersistableNetworkPayloadStub(new byte[]{6});
+
+            Arrays.asList(middle, newest, oldest, notTruncatable1, notTruncatable2, known)
+                    .forEach(payload -> this.testState.mockedStorage.addPersistableNetworkPayload(
+                            payload, this.localNodeAddress, false));
+
+            GetDataRequest getDataRequest =
+                    this.buildGetDataRequest(1, new HashSet<>(Collections.singletonList(known.getHash())));
+
+            GetDataResponseChunks chunks = this.testState.mockedStorage.buildGetDataResponseChunks(
+                    getDataRequest, new Capabilities(), 1);
+
+            List<PersistableNetworkPayload> delivered = new ArrayList<>();
+            while (chunks.hasNext()) {
+                GetDataResponse chunk = chunks.next();
+                Assert.assertEquals(1, chunk.getRequestNonce());
+                Assert.assertEquals(!chunks.hasNext(), chunk.isFinalChunk());
+                delivered.addAll(chunk.getPersistableNetworkPayloadSet());
+            }
+
+            Assert.assertEquals(4, chunks.getNumChunksCreated());
+            Assert.assertEquals(4, chunks.getNumPersistableNetworkPayloads());
+            Assert.assertEquals(new HashSet<>(Arrays.asList(notTruncatable1, notTruncatable2)),
+                    new HashSet<>(delivered.subList(0, 2)));
+            Assert.assertEquals(Arrays.asList(newest, middle), delivered.subList(2, 4));
+        }
+
         // TESTCASE: Given a GetDataRequest w/o known PNP, don't send more than truncation limit
         @Test
         public void buildGetDataResponse_unknownPNPSendBackTruncation() {
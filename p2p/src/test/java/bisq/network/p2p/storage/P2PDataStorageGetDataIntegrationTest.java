@@ -17,9 +17,12 @@
 
 package bisq.network.p2p.storage;
 
+import bisq.network.p2p.NodeAddress;
 import bisq.network.p2p.TestUtils;
+import bisq.network.p2p.peers.getdata.GetDataResponseChunks;
 import bisq.network.p2p.peers.getdata.messages.GetDataRequest;
 import bisq.network.p2p.peers.getdata.messages.GetDataResponse;
+import bisq.network.p2p.peers.getdata.messages.PreliminaryGetDataRequest;
 import bisq.network.p2p.storage.mocks.PersistableExpirableProtectedStoragePayloadStub;
 import bisq.network.p2p.storage.mocks.ProtectedStoragePayloadStub;
 import bisq.network.p2p.storage.payload.ProtectedStorageEntry;
@@ -31,6 +34,7 @@ import java.security.KeyPair;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 
+import java.util.HashSet;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Assert;
@@ -91,6 +95,99 @@ public class P2PDataStorageGetDataIntegrationTest {
                 beforeState, onSeedNode, true, true, false, true);
     }
 
+    // TESTCASE: Basic synchronization works if the client sends a KeySetSketch instead of the excluded keys
+    @Test
+    public void basicSynchronizationWorksWithKeySetSketch() throws NoSuchAlgorithmException {
+        TestState seedNodeTestState = new TestState();
+        P2PDataStorage seedNode = seedNodeTestState.mockedStorage;
+
+        TestState clientNodeTestState = new TestState();
+        P2PDataStorage clientNode = clientNodeTestState.mockedStorage;
+
+        ProtectedStorageEntry onSeedNode = getProtectedStorageEntry();
+        seedNode.addProtectedStorageEntry(onSeedNode, null, null);
+
+        GetDataRequest getDataRequest = clientNode.buildPreliminaryGetDataRequest(1, true);
+        Assert.assertNotNull(getDataRequest.getKeySetSketch());
+        Assert.assertTrue(getDataRequest.getExcludedKeys().isEmpty());
+
+        GetDataResponse getDataResponse = seedNode.buildGetDataResponse(
+                getDataRequest, 1, new AtomicBoolean(), new AtomicBoolean(), new Capabilities());
+
+        TestState.SavedTestState beforeState = clientNodeTestState.saveTestState(onSeedNode);
+        clientNode.processGetDataResponse(getDataResponse, null);
+
+        clientNodeTestState.verifyProtectedStorageAdd(
+                beforeState, onSeedNode, true, true, false, true);
+    }
+
+    // TESTCASE: Entries known to both nodes are not delivered if the client sends a KeySetSketch
+    @Test
+    public void keySetSketchExcludesKnownEntries() throws NoSuchAlgorithmException {
+        TestState seedNodeTestState = new TestState();
+        P2PDataStorage seedNode = seedNodeTestState.mockedStorage;
+
+        TestState clientNodeTestState = new TestState();
+        P2PDataStorage clientNode = clientNodeTestState.mockedStorage;
+
+        ProtectedStorageEntry onBoth = getProtectedStorageEntry();
+        seedNode.addProtectedStorageEntry(onBoth, null, null);
+        clientNode.addProtectedStorageEntry(onBoth, null, null);
+
+        ProtectedStorageEntry onSeedNode = getProtectedStorageEntry();
+        seedNode.addProtectedStorageEntry(onSeedNode, null, null);
+
+        GetDataRequest getDataRequest = clientNode.buildGetUpdatedDataRequest(
+                new NodeAddress("peer", 10), 1, true);
+
+        GetDataResponse getDataResponse = seedNode.buildGetDataResponse(
+                getDataRequest, 10, new AtomicBoolean(), new AtomicBoolean(), new Capabilities());
+
+        Assert.assertEquals(1, getDataResponse.getDataSet().size());
+        Assert.assertTrue(getDataResponse.getDataSet().contains(onSeedNode));
+    }
+
+    // TESTCASE: If the seed node cannot decode the KeySetSketch it delivers nothing and reports the failure, so the
+    // client can repeat the request with its full set of keys
+    @Test
+    public void keySetSketchFailureIsReported() throws NoSuchAlgorithmException {
+        TestState seedNodeTestState = new TestState();
+        P2PDataStorage seedNode = seedNodeTestState.mockedStorage;
+
+        TestState clientNodeTestState = new TestState();
+        P2PDataStorage clientNode = clientNodeTestState.mockedStorage;
+
+        ProtectedStorageEntry onBoth = getProtectedStorageEntry();
+        seedNode.addProtectedStorageEntry(onBoth, null, null);
+        clientNode.addProtectedStorageEntry(onBoth, null, null);
+
+        ProtectedStorageEntry onSeedNode = getProtectedStorageEntry();
+        seedNode.addProtectedStorageEntry(onSeedNode, null, null);
+        seedNode.addProtectedStorageEntry(getProtectedStorageEntry(), null, null);
+
+        // A sketch with a single cell per partition cannot decode a difference of 2 keys
+        GetDataRequest getDataRequest = new PreliminaryGetDataRequest(1, new HashSet<>(), new KeySetSketch(1));
+
+        GetDataResponse getDataResponse = seedNode.buildGetDataResponse(
+                getDataRequest, 10, new AtomicBoolean(), new AtomicBoolean(), new Capabilities());
+        Assert.assertTrue(getDataResponse.isKeySetSketchFailed());
+        Assert.assertTrue(getDataResponse.getDataSet().isEmpty());
+        Assert.assertTrue(getDataResponse.getPersistableNetworkPayloadSet().isEmpty());
+
+        GetDataResponseChunks chunks = seedNode.buildGetDataResponseChunks(getDataRequest, new Capabilities(), 10);
+        GetDataResponse chunk = chunks.next();
+        Assert.assertFalse(chunks.hasNext());
+        Assert.assertTrue(chunk.isKeySetSketchFailed());
+        Assert.assertTrue(chunk.getDataSet().isEmpty());
+
+        getDataResponse = seedNode.buildGetDataResponse(clientNode.buildPreliminaryGetDataRequest(1, false),
+                10, new AtomicBoolean(), new AtomicBoolean(), new Capabilities());
+        Assert.assertFalse(getDataResponse.isKeySetSketchFailed());
+        Assert.assertEquals(2, getDataResponse.getDataSet().size());
+        Assert.assertTrue(getDataResponse.getDataSet().contains(onSeedNode));
+        Assert.assertFalse(getDataResponse.getDataSet().contains(onBoth));
+    }
+
     // TESTCASE: Synchronization after peer restart works for in-memory ProtectedStorageEntrys
     @Test
     public void basicSynchronizationWorksAfterRestartTransient() throws NoSuchAlgorithmException {
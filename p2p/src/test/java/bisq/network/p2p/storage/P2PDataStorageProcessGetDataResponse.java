@@ -27,18 +27,35 @@ import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
 import bisq.network.p2p.storage.payload.ProtectedStorageEntry;
 import bisq.network.p2p.storage.payload.ProtectedStoragePayload;
 
+import bisq.common.UserThread;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
 import java.security.KeyPair;
 import java.security.NoSuchAlgorithmException;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.mockito.ArgumentCaptor;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.mockito.MockitoAnnotations;
@@ -84,16 +101,53 @@ public class P2PDataStorageProcessGetDataResponse {
 
         ProtectedStoragePayload protectedStoragePayload = new ProtectedStoragePayloadStub(ownerKeys.getPublic());
 
+        return getProtectedStorageEntry(protectedStoragePayload, 1, true);
+    }
+
+    private static ProtectedStorageEntry getProtectedStorageEntry(ProtectedStoragePayload protectedStoragePayload,
+                                                                  int sequenceNumber,
+                                                                  boolean validForAdd) {
         ProtectedStorageEntry stub = mock(ProtectedStorageEntry.class);
-        when(stub.getOwnerPubKey()).thenReturn(ownerKeys.getPublic());
-        when(stub.isValidForAddOperation()).thenReturn(true);
+        when(stub.getOwnerPubKey()).thenReturn(protectedStoragePayload.getOwnerPubKey());
+        when(stub.isValidForAddOperation()).thenReturn(validForAdd);
         when(stub.matchesRelevantPubKey(any(ProtectedStorageEntry.class))).thenReturn(true);
-        when(stub.getSequenceNumber()).thenReturn(1);
+        when(stub.getSequenceNumber()).thenReturn(sequenceNumber);
         when(stub.getProtectedStoragePayload()).thenReturn(protectedStoragePayload);
 
         return stub;
     }
 
+    // Enough entries so that the hashes and signatures get verified in parallel
+    private List<ProtectedStorageEntry> getProtectedStorageEntriesForParallelAdd() throws NoSuchAlgorithmException {
+        List<ProtectedStorageEntry> entries = new ArrayList<>();
+        for (int i = 0; i < P2PDataStorage.MIN_ENTRIES_FOR_PARALLEL_VERIFICATION; i++) {
+            entries.add(getProtectedStorageEntryForAdd());
+        }
+        return entries;
+    }
+
+    // Registers a listener and returns the entries it got notified about. Verifies that onAdded was called once.
+    private Collection<ProtectedStorageEntry> processAndCaptureAddedEntries(GetDataResponse getDataResponse)
+            throws InterruptedException {
+        HashMapChangedListener listener = mock(HashMapChangedListener.class);
+        this.testState.mockedStorage.addHashMapChangedListener(listener);
+        // Large responses get applied asynchronously
+        CountDownLatch latch = new CountDownLatch(1);
+        this.testState.mockedStorage.processGetDataResponse(getDataResponse, this.peerNodeAddress, latch::countDown);
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<ProtectedStorageEntry>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(listener, times(1)).onAdded(captor.capture());
+        return captor.getValue();
+    }
+
+    private void assertStored(ProtectedStorageEntry protectedStorageEntry) {
+        P2PDataStorage.ByteArray hash =
+                P2PDataStorage.get32ByteHashAsByteArray(protectedStorageEntry.getProtectedStoragePayload());
+        Assert.assertEquals(protectedStorageEntry, this.testState.mockedStorage.getMap().get(hash));
+    }
+
     static class LazyPersistableNetworkPayloadStub extends PersistableNetworkPayloadStub
             implements ProcessOncePersistableNetworkPayload {
 
@@ -260,4 +314,106 @@ public class P2PDataStorageProcessGetDataResponse {
         this.testState.verifyProtectedStorageAdd(
                 beforeState, protectedStorageEntry, true, true, false, true);
     }
+
+    // TESTCASE: Many new PSEs are added and the listeners get notified once with all of them
+    @Test
+    public void processGetDataResponse_manyNewPSEsNotifyListenersOnce() throws NoSuchAlgorithmException, InterruptedException {
+        List<ProtectedStorageEntry> entries = getProtectedStorageEntriesForParallelAdd();
+        GetDataResponse getDataResponse = buildGetDataResponse(entries, Collections.emptyList());
+
+        Collection<ProtectedStorageEntry> addedEntries = processAndCaptureAddedEntries(getDataResponse);
+
+        Assert.assertEquals(new HashSet<>(entries), new HashSet<>(addedEntries));
+        Assert.assertEquals(entries.size(), addedEntries.size());
+        entries.forEach(this::assertStored);
+    }
+
+    // TESTCASE: If the data set contains several entries for the same payload only one of them gets added
+    @Test
+    public void processGetDataResponse_duplicatePayloadsInDataSetAreAddedOnce() throws NoSuchAlgorithmException, InterruptedException {
+        List<ProtectedStorageEntry> entries = getProtectedStorageEntriesForParallelAdd();
+        ProtectedStorageEntry duplicate = getProtectedStorageEntry(entries.get(0).getProtectedStoragePayload(), 1, true);
+        List<ProtectedStorageEntry> dataSet = new ArrayList<>(entries);
+        dataSet.add(duplicate);
+        GetDataResponse getDataResponse = buildGetDataResponse(dataSet, Collections.emptyList());
+
+        Collection<ProtectedStorageEntry> addedEntries = processAndCaptureAddedEntries(getDataResponse);
+
+        Assert.assertEquals(entries.size(), addedEntries.size());
+        boolean originalAdded = addedEntries.contains(entries.get(0));
+        Assert.assertNotEquals(originalAdded, addedEntries.contains(duplicate));
+        assertStored(originalAdded ? entries.get(0) : duplicate);
+        Assert.assertEquals(entries.size(), this.testState.mockedStorage.getMap().size());
+    }
+
+    // TESTCASE: An entry with an invalid signature does not prevent the valid entries from being added
+    @Test
+    public void processGetDataResponse_invalidSignatureAmongValidEntriesIsNotAdded() throws NoSuchAlgorithmException, InterruptedException {
+        List<ProtectedStorageEntry> entries = getProtectedStorageEntriesForParallelAdd();
+        KeyPair ownerKeys = TestUtils.generateKeyPair();
+        // isValidForAddOperation returns false if the signature is invalid
+        ProtectedStorageEntry invalid = getProtectedStorageEntry(new ProtectedStoragePayloadStub(ownerKeys.getPublic()),
+                1, false);
+        List<ProtectedStorageEntry> dataSet = new ArrayList<>(entries);
+        dataSet.add(entries.size() / 2, invalid);
+        GetDataResponse getDataResponse = buildGetDataResponse(dataSet, Collections.emptyList());
+
+        Collection<ProtectedStorageEntry> addedEntries = processAndCaptureAddedEntries(getDataResponse);
+
+        Assert.assertEquals(new HashSet<>(entries), new HashSet<>(addedEntries));
+        Assert.assertFalse(addedEntries.contains(invalid));
+        P2PDataStorage.ByteArray hashOfInvalid =
+                P2PDataStorage.get32ByteHashAsByteArray(invalid.getProtectedStoragePayload());
+        Assert.assertNull(this.testState.mockedStorage.getMap().get(hashOfInvalid));
+        verify(invalid).isValidForAddOperation();
+    }
+
+    // TESTCASE: A known entry is not replaced by an entry with a lower sequence number and that entry is not verified
+    @Test
+    public void processGetDataResponse_knownEntryWithLowerSequenceNumberIsIgnored() throws NoSuchAlgorithmException, InterruptedException {
+        KeyPair ownerKeys = TestUtils.generateKeyPair();
+        ProtectedStoragePayload protectedStoragePayload = new ProtectedStoragePayloadStub(ownerKeys.getPublic());
+        ProtectedStorageEntry known = getProtectedStorageEntry(protectedStoragePayload, 2, true);
+        Assert.assertTrue(this.testState.mockedStorage.addProtectedStorageEntry(known, this.peerNodeAddress, null));
+
+        List<ProtectedStorageEntry> entries = getProtectedStorageEntriesForParallelAdd();
+        ProtectedStorageEntry lowerSequenceNumber = getProtectedStorageEntry(protectedStoragePayload, 1, true);
+        List<ProtectedStorageEntry> dataSet = new ArrayList<>(entries);
+        dataSet.add(lowerSequenceNumber);
+        GetDataResponse getDataResponse = buildGetDataResponse(dataSet, Collections.emptyList());
+
+        Collection<ProtectedStorageEntry> addedEntries = processAndCaptureAddedEntries(getDataResponse);
+
+        Assert.assertEquals(new HashSet<>(entries), new HashSet<>(addedEntries));
+        assertStored(known);
+        // The sequence number check happens before the verification of the signature
+        verify(lowerSequenceNumber, never()).isValidForAddOperation();
+    }
+
+    // TESTCASE: The UserThread is not blocked while the PSEs of a large response get verified
+    @Test
+    public void processGetDataResponse_manyNewPSEsDoNotBlockUserThread()
+            throws NoSuchAlgorithmException, InterruptedException {
+        BlockingQueue<Runnable> userThreadTasks = new LinkedBlockingQueue<>();
+        UserThread.setExecutor(userThreadTasks::add);
+        try {
+            List<ProtectedStorageEntry> entries = getProtectedStorageEntriesForParallelAdd();
+            GetDataResponse getDataResponse = buildGetDataResponse(entries, Collections.emptyList());
+
+            AtomicBoolean completed = new AtomicBoolean();
+            this.testState.mockedStorage.processGetDataResponse(getDataResponse, this.peerNodeAddress,
+                    () -> completed.set(true));
+            // The entries get applied by the tasks the verification threads pass to the UserThread
+            Assert.assertTrue(this.testState.mockedStorage.getMap().isEmpty());
+
+            while (!completed.get()) {
+                Runnable task = userThreadTasks.poll(10, TimeUnit.SECONDS);
+                Assert.assertNotNull(task);
+                task.run();
+            }
+            entries.forEach(this::assertStored);
+        } finally {
+            UserThread.setExecutor(MoreExecutors.directExecutor());
+        }
+    }
 }
@@ -0,0 +1,149 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage.mocks;
+
+import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import bisq.network.p2p.storage.persistence.AppendOnlyPayloadLog;
+import bisq.network.p2p.storage.persistence.HistoricalDataStoreService;
+import bisq.network.p2p.storage.persistence.PersistableNetworkPayloadStore;
+
+import bisq.common.Payload;
+import bisq.common.file.CorruptedStorageFileHandler;
+import bisq.common.persistence.PersistenceManager;
+import bisq.common.proto.persistable.PersistableEnvelope;
+import bisq.common.proto.persistable.PersistablePayload;
+import bisq.common.proto.persistable.PersistenceProtoResolver;
+
+import com.google.protobuf.ByteString;
+
+import java.io.File;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * HistoricalDataStoreService with a real PersistenceManager and an append-only log which can be used in tests of the
+ * persistence. The payloads and stores are serialized with the AccountAgeWitness protos.
+ */
+public class HistoricalDataStoreServiceFake extends HistoricalDataStoreService<HistoricalDataStoreServiceFake.TestStore> {
+    public static final String FILE_NAME = "TestStore";
+
+    public static class TestPayload implements PersistableNetworkPayload {
+        private final byte[] hash;
+
+        public TestPayload(int id) {
+            this(new byte[]{(byte) id});
+        }
+
+        public TestPayload(byte[] hash) {
+            this.hash = hash;
+        }
+
+        @Override
+        public protobuf.PersistableNetworkPayload toProtoMessage() {
+            return protobuf.PersistableNetworkPayload.newBuilder()
+                    .setAccountAgeWitness(toAccountAgeWitnessProto())
+                    .build();
+        }
+
+        private protobuf.AccountAgeWitness toAccountAgeWitnessProto() {
+            return protobuf.AccountAgeWitness.newBuilder().setHash(ByteString.copyFrom(hash)).build();
+        }
+
+        @Override
+        public byte[] getHash() {
+            return hash;
+        }
+
+        @Override
+        public boolean verifyHashSize() {
+            return true;
+        }
+    }
+
+    public static class TestStore extends PersistableNetworkPayloadStore<TestPayload> {
+        public TestStore() {
+        }
+
+        public TestStore(Collection<TestPayload> collection) {
+            super(collection);
+        }
+
+        @Override
+        public protobuf.PersistableEnvelope toProtoMessage() {
+            return protobuf.PersistableEnvelope.newBuilder()
+                    .setAccountAgeWitnessStore(protobuf.AccountAgeWitnessStore.newBuilder()
+                            .addAllItems(map.values().stream()
+                                    .map(payload -> ((TestPayload) payload).toAccountAgeWitnessProto())
+                                    .collect(Collectors.toList())))
+                    .build();
+        }
+    }
+
+    public static final PersistenceProtoResolver PERSISTENCE_PROTO_RESOLVER = new PersistenceProtoResolver() {
+        @Override
+        public PersistableEnvelope fromProto(protobuf.PersistableEnvelope proto) {
+            return new TestStore(proto.getAccountAgeWitnessStore().getItemsList().stream()
+                    .map(item -> new TestPayload(item.getHash().toByteArray()))
+                    .collect(Collectors.toList()));
+        }
+
+        @Override
+        public PersistablePayload fromProto(protobuf.PersistableNetworkPayload proto) {
+            return new TestPayload(proto.getAccountAgeWitness().getHash().toByteArray());
+        }
+
+        @Override
+        public Payload fromProto(protobuf.PaymentAccountPayload proto) {
+            throw new UnsupportedOperationException("Only AccountAgeWitness payloads are supported");
+        }
+    };
+
+    public HistoricalDataStoreServiceFake(File storageDir) {
+        super(storageDir, new PersistenceManager<>(storageDir,
+                PERSISTENCE_PROTO_RESOLVER,
+                mock(CorruptedStorageFileHandler.class)));
+        enableAppendOnlyLog(AppendOnlyPayloadLog.persistableNetworkPayloadDecoder(PERSISTENCE_PROTO_RESOLVER));
+    }
+
+    public PersistenceManager<TestStore> getPersistenceManager() {
+        return persistenceManager;
+    }
+
+    @Override
+    public String getFileName() {
+        return FILE_NAME;
+    }
+
+    @Override
+    protected void initializePersistenceManager() {
+        persistenceManager.initialize(store, PersistenceManager.Source.NETWORK);
+    }
+
+    @Override
+    public boolean canHandle(PersistableNetworkPayload payload) {
+        return payload instanceof TestPayload;
+    }
+
+    @Override
+    protected TestStore createStore() {
+        return new TestStore();
+    }
+}
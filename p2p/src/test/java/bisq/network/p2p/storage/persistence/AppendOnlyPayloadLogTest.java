@@ -0,0 +1,218 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage.persistence;
+
+import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+
+import com.google.protobuf.ByteString;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AppendOnlyPayloadLogTest {
+    private File storageDir;
+    private int numWriteErrors;
+
+    // Minimal payload which can be serialized. We use the AccountAgeWitness proto as container for the hash.
+    private static class TestPayload implements PersistableNetworkPayload {
+        private final byte[] hash;
+
+        TestPayload(int id) {
+            this(new byte[]{(byte) id});
+        }
+
+        TestPayload(byte[] hash) {
+            this.hash = hash;
+        }
+
+        @Override
+        public protobuf.PersistableNetworkPayload toProtoMessage() {
+            return protobuf.PersistableNetworkPayload.newBuilder()
+                    .setAccountAgeWitness(protobuf.AccountAgeWitness.newBuilder().setHash(ByteString.copyFrom(hash)))
+                    .build();
+        }
+
+        @Override
+        public byte[] getHash() {
+            return hash;
+        }
+
+        @Override
+        public boolean verifyHashSize() {
+            return true;
+        }
+    }
+
+    private static final AppendOnlyPayloadLog.Decoder<PersistableNetworkPayload> DECODER = serialized ->
+            new TestPayload(protobuf.PersistableNetworkPayload.parseFrom(serialized)
+                    .getAccountAgeWitness().getHash().toByteArray());
+
+    @Before
+    public void setUp() throws IOException {
+        storageDir = Files.createTempDirectory("storage").toFile();
+    }
+
+    // The UserThread executes on the caller thread in tests, so with a direct write executor the log is synchronous
+    private AppendOnlyPayloadLog<PersistableNetworkPayload> createLog() {
+        return createLog(MoreExecutors.directExecutor());
+    }
+
+    private AppendOnlyPayloadLog<PersistableNetworkPayload> createLog(Executor writeExecutor) {
+        return new AppendOnlyPayloadLog<>(storageDir, "TestStore", DECODER, writeExecutor, () -> numWriteErrors++);
+    }
+
+    // Returns the ids of the added entries and the negated ids of the removed entries in the replayed order
+    private static List<Integer> replay(AppendOnlyPayloadLog<PersistableNetworkPayload> payloadLog) {
+        List<Integer> ids = new ArrayList<>();
+        AtomicBoolean completed = new AtomicBoolean();
+        payloadLog.replay(payload -> ids.add((int) payload.getHash()[0]),
+                hash -> ids.add(-hash[0]),
+                () -> completed.set(true));
+        Assert.assertTrue(completed.get());
+        return ids;
+    }
+
+    @Test
+    public void replayReturnsAppendedEntries() {
+        AppendOnlyPayloadLog<PersistableNetworkPayload> payloadLog = createLog();
+        replay(payloadLog);
+        payloadLog.append(new TestPayload(1));
+        payloadLog.append(new TestPayload(2));
+        Assert.assertEquals(2, payloadLog.getNumRecords());
+
+        AppendOnlyPayloadLog<PersistableNetworkPayload> restarted = createLog();
+        Assert.assertEquals(Arrays.asList(1, 2), replay(restarted));
+        Assert.assertEquals(2, restarted.getNumRecords());
+
+        // After a restart we append to a new segment
+        restarted.append(new TestPayload(3));
+        Assert.assertEquals(Arrays.asList(1, 2, 3), replay(createLog()));
+    }
+
+    @Test
+    public void deleteSegmentsKeepsLaterAppends() {
+        AppendOnlyPayloadLog<PersistableNetworkPayload> payloadLog = createLog();
+        replay(payloadLog);
+        payloadLog.append(new TestPayload(1));
+        payloadLog.closeCurrentSegment();
+        List<File> compacted = payloadLog.getClosedSegments();
+        payloadLog.append(new TestPayload(2));
+
+        payloadLog.deleteSegments(compacted);
+
+        Assert.assertEquals(1, payloadLog.getNumRecords());
+        Assert.assertEquals(List.of(2), replay(createLog()));
+    }
+
+    @Test
+    public void removedEntriesAreReplayedInOrder() {
+        AppendOnlyPayloadLog<PersistableNetworkPayload> payloadLog = createLog();
+        replay(payloadLog);
+        payloadLog.append(new TestPayload(1));
+        payloadLog.appendRemoved(new byte[]{1});
+        payloadLog.appendRemoved(new byte[]{2});
+        payloadLog.append(new TestPayload(1));
+        Assert.assertEquals(4, payloadLog.getNumRecords());
+
+        Assert.assertEquals(Arrays.asList(1, -1, -2, 1), replay(createLog()));
+    }
+
+    @Test
+    public void incompleteRecordIsIgnored() throws IOException {
+        AppendOnlyPayloadLog<PersistableNetworkPayload> payloadLog = createLog();
+        replay(payloadLog);
+        payloadLog.append(new TestPayload(1));
+        payloadLog.append(new TestPayload(2));
+        payloadLog.closeCurrentSegment();
+
+        File segment = payloadLog.getClosedSegments().get(0);
+        try (FileChannel channel = FileChannel.open(segment.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        Assert.assertEquals(List.of(1), replay(createLog()));
+    }
+
+    @Test
+    public void fileOperationsRunOnTheWriteExecutorInOrder() {
+        Queue<Runnable> writeTasks = new ConcurrentLinkedQueue<>();
+        AppendOnlyPayloadLog<PersistableNetworkPayload> payloadLog = createLog(writeTasks::add);
+        replay(payloadLog, writeTasks);
+        payloadLog.append(new TestPayload(1));
+        payloadLog.closeCurrentSegment();
+        List<File> compacted = payloadLog.getClosedSegments();
+        payloadLog.append(new TestPayload(2));
+        payloadLog.deleteSegments(compacted);
+
+        // Nothing is written on the caller thread
+        Assert.assertEquals(1, payloadLog.getNumRecords());
+        Assert.assertEquals(0, storageDir.list().length);
+
+        writeTasks.forEach(Runnable::run);
+        Assert.assertEquals(List.of(2), replay(createLog()));
+        Assert.assertEquals(0, numWriteErrors);
+    }
+
+    @Test
+    public void flushAndCloseWritesPendingRecords() {
+        Queue<Runnable> writeTasks = new ConcurrentLinkedQueue<>();
+        AppendOnlyPayloadLog<PersistableNetworkPayload> payloadLog = createLog(writeTasks::add);
+        replay(payloadLog, writeTasks);
+        payloadLog.append(new TestPayload(1));
+        payloadLog.appendRemoved(new byte[]{1});
+
+        // At shut down the flush task might run before the queued write tasks
+        payloadLog.flushAndClose();
+        Assert.assertEquals(Arrays.asList(1, -1), replay(createLog()));
+
+        // Later appends are written to the same segment again
+        writeTasks.forEach(Runnable::run);
+        payloadLog.append(new TestPayload(2));
+        payloadLog.flushAndClose();
+        Assert.assertEquals(Arrays.asList(1, -1, 2), replay(createLog()));
+    }
+
+    private static void replay(AppendOnlyPayloadLog<PersistableNetworkPayload> payloadLog, Queue<Runnable> writeTasks) {
+        payloadLog.replay(payload -> {
+        }, hash -> {
+        }, () -> {
+        });
+        Runnable task;
+        while ((task = writeTasks.poll()) != null) {
+            task.run();
+        }
+    }
+}
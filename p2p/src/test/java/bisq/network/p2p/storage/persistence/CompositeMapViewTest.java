@@ -0,0 +1,61 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage.persistence;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompositeMapViewTest {
+
+    @Test
+    public void viewContainsEntriesOfAllMaps() {
+        Map<String, Integer> live = new HashMap<>(Map.of("a", 1));
+        Map<String, Integer> historical = Map.of("b", 2, "c", 3);
+        Map<String, Integer> view = new CompositeMapView<>(List.of(live, historical));
+
+        Assert.assertEquals(3, view.size());
+        Assert.assertEquals(Integer.valueOf(2), view.get("b"));
+        Assert.assertTrue(view.containsKey("a"));
+        Assert.assertFalse(view.containsKey("d"));
+        Assert.assertEquals(new HashSet<>(List.of("a", "b", "c")), new HashSet<>(view.keySet()));
+    }
+
+    @Test
+    public void viewReflectsChangesOfUnderlyingMaps() {
+        Map<String, Integer> live = new HashMap<>();
+        Map<String, Integer> view = new CompositeMapView<>(List.of(live, Map.of("b", 2)));
+
+        live.put("a", 1);
+
+        Assert.assertEquals(2, view.size());
+        Set<Integer> values = new HashSet<>(view.values());
+        Assert.assertEquals(Set.of(1, 2), values);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void viewIsReadOnly() {
+        Map<String, Integer> view = new CompositeMapView<>(List.of(new HashMap<String, Integer>()));
+        view.put("a", 1);
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage.persistence;
+
+import bisq.network.p2p.storage.P2PDataStorage;
+import bisq.network.p2p.storage.mocks.HistoricalDataStoreServiceFake;
+import bisq.network.p2p.storage.mocks.HistoricalDataStoreServiceFake.TestPayload;
+import bisq.network.p2p.storage.mocks.HistoricalDataStoreServiceFake.TestStore;
+import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+
+import bisq.common.app.DevEnv;
+import bisq.common.app.Version;
+
+import java.nio.file.Files;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HistoricalDataStoreServiceTest {
+    // We use the first historical versions, the resource files of the later versions do not exist
+    private static final List<String> VERSIONS = Version.HISTORICAL_RESOURCE_FILE_VERSION_TAGS.subList(0, 3);
+
+    private File storageDir;
+    private HistoricalDataStoreServiceFake service;
+    // The content of the historical stores by version and of the persisted live store
+    private final Map<String, List<TestPayload>> historicalPayloadsByVersion = new LinkedHashMap<>();
+    private final List<TestPayload> livePayloads = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        storageDir = Files.createTempDirectory("storage").toFile();
+
+        // The stores overlap with each other and with the live data
+        Random random = new Random(1);
+        for (String version : VERSIONS) {
+            historicalPayloadsByVersion.put(version, createPayloads(random, 100, 400));
+            writeStore(HistoricalDataStoreServiceFake.FILE_NAME + "_" + version, historicalPayloadsByVersion.get(version));
+        }
+        livePayloads.addAll(createPayloads(random, 100, 500));
+        writeStore(HistoricalDataStoreServiceFake.FILE_NAME, livePayloads);
+    }
+
+    @After
+    public void tearDown() {
+        if (service != null) {
+            service.getPersistenceManager().shutdown();
+        }
+    }
+
+    private static List<TestPayload> createPayloads(Random random, int numPayloads, int maxId) {
+        return random.ints(0, maxId)
+                .distinct()
+                .limit(numPayloads)
+                .mapToObj(id -> new TestPayload(new byte[]{(byte) (id >> 8), (byte) id}))
+                .collect(Collectors.toList());
+    }
+
+    private void writeStore(String fileName, List<TestPayload> payloads) throws IOException {
+        try (FileOutputStream outputStream = new FileOutputStream(new File(storageDir, fileName))) {
+            new TestStore(payloads).toProtoMessage().writeDelimitedTo(outputStream);
+        }
+    }
+
+    private void readFromResources() throws InterruptedException {
+        service = new HistoricalDataStoreServiceFake(storageDir);
+        CountDownLatch latch = new CountDownLatch(1);
+        // The resource files do not exist, so only the files written at setUp are read
+        service.readFromResources("_TEST", latch::countDown);
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    private static Set<P2PDataStorage.ByteArray> getKeys(List<TestPayload> payloads) {
+        return payloads.stream()
+                .map(payload -> new P2PDataStorage.ByteArray(payload.getHash()))
+                .collect(Collectors.toSet());
+    }
+
+    // The historical maps as created by the previous sequential implementation. The data of each store is only
+    // contained in the map of the oldest version which has it.
+    private Map<String, Set<P2PDataStorage.ByteArray>> getExpectedHistoricalKeysByVersion() {
+        Map<String, Set<P2PDataStorage.ByteArray>> result = new HashMap<>();
+        Set<P2PDataStorage.ByteArray> keysOfOlderVersions = new HashSet<>();
+        historicalPayloadsByVersion.forEach((version, payloads) -> {
+            Set<P2PDataStorage.ByteArray> keys = getKeys(payloads);
+            keys.removeAll(keysOfOlderVersions);
+            keysOfOlderVersions.addAll(keys);
+            result.put(version, keys);
+        });
+        return result;
+    }
+
+    // The live data as pruned by the previous sequential implementation after reading each historical store
+    private Set<P2PDataStorage.ByteArray> getExpectedLiveKeys() {
+        Set<P2PDataStorage.ByteArray> keys = getKeys(livePayloads);
+        historicalPayloadsByVersion.values().forEach(payloads -> keys.removeAll(getKeys(payloads)));
+        return keys;
+    }
+
+    private Set<P2PDataStorage.ByteArray> getExpectedKeysSinceVersion(String requestersVersion) {
+        Set<P2PDataStorage.ByteArray> keys = getExpectedLiveKeys();
+        getExpectedHistoricalKeysByVersion().forEach((version, historicalKeys) -> {
+            if (requestersVersion == null || Version.isNewVersion(version, requestersVersion)) {
+                keys.addAll(historicalKeys);
+            }
+        });
+        return keys;
+    }
+
+    @Test
+    public void liveDataIsPrunedByHistoricalData() throws InterruptedException {
+        readFromResources();
+
+        Set<P2PDataStorage.ByteArray> expectedLiveKeys = getExpectedLiveKeys();
+        Assert.assertTrue(expectedLiveKeys.size() < livePayloads.size());
+        Assert.assertEquals(expectedLiveKeys, service.getMapOfLiveData().keySet());
+    }
+
+    @Test
+    public void mapSinceVersionMatchesSequentialBehaviour() throws InterruptedException {
+        readFromResources();
+
+        List<String> requestersVersions = new ArrayList<>(Arrays.asList(null, "1.0.0", "9.9.9"));
+        requestersVersions.addAll(VERSIONS);
+        for (String requestersVersion : requestersVersions) {
+            Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> map = service.getMapSinceVersion(requestersVersion);
+            Set<P2PDataStorage.ByteArray> expectedKeys = getExpectedKeysSinceVersion(requestersVersion);
+            Assert.assertEquals(expectedKeys, new HashMap<>(map).keySet());
+            // The maps of the view are disjoint, so no entry is counted twice
+            Assert.assertEquals(expectedKeys.size(), map.size());
+            // The cached view is reused
+            Assert.assertSame(map, service.getMapSinceVersion(requestersVersion));
+        }
+
+        Set<P2PDataStorage.ByteArray> allKeys = getExpectedKeysSinceVersion(null);
+        Assert.assertEquals(allKeys.size(), service.getMapOfAllData().size());
+        allKeys.forEach(key -> Assert.assertTrue(service.containsKey(key)));
+    }
+
+    @Test
+    public void historicalDataIsNotAddedToLiveData() throws InterruptedException {
+        readFromResources();
+
+        TestPayload historicalPayload = historicalPayloadsByVersion.get(VERSIONS.get(1)).get(0);
+        P2PDataStorage.ByteArray hash = new P2PDataStorage.ByteArray(historicalPayload.getHash());
+        service.putIfAbsent(hash, historicalPayload);
+        Assert.assertFalse(service.getMapOfLiveData().containsKey(hash));
+
+        // Live data added later is contained in the cached views
+        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> mapSinceLastVersion =
+                service.getMapSinceVersion(VERSIONS.get(2));
+        TestPayload newPayload = new TestPayload(new byte[]{9, 9, 9});
+        P2PDataStorage.ByteArray newHash = new P2PDataStorage.ByteArray(newPayload.getHash());
+        service.putIfAbsent(newHash, newPayload);
+        Assert.assertTrue(service.getMapOfLiveData().containsKey(newHash));
+        Assert.assertTrue(mapSinceLastVersion.containsKey(newHash));
+    }
+
+    @Test
+    public void historicalDataOfReadableStoresIsUsedIfOneStoreFails() throws InterruptedException, IOException {
+        // A corrupted store makes the PersistenceManager throw in dev mode
+        String corruptedVersion = VERSIONS.get(1);
+        try (FileOutputStream outputStream = new FileOutputStream(new File(storageDir,
+                HistoricalDataStoreServiceFake.FILE_NAME + "_" + corruptedVersion))) {
+            outputStream.write(new byte[]{16, 10, 127});
+        }
+        historicalPayloadsByVersion.remove(corruptedVersion);
+
+        DevEnv.setDevMode(true);
+        try {
+            readFromResources();
+        } finally {
+            DevEnv.setDevMode(false);
+        }
+
+        Assert.assertEquals(getExpectedLiveKeys(), service.getMapOfLiveData().keySet());
+        Set<P2PDataStorage.ByteArray> allKeys = getExpectedKeysSinceVersion(null);
+        Assert.assertEquals(allKeys, new HashMap<>(service.getMapSinceVersion(null)).keySet());
+        Assert.assertEquals(allKeys.size(), service.getMapOfAllData().size());
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage.persistence;
+
+import bisq.network.p2p.storage.P2PDataStorage;
+import bisq.network.p2p.storage.mocks.HistoricalDataStoreServiceFake;
+import bisq.network.p2p.storage.mocks.HistoricalDataStoreServiceFake.TestPayload;
+
+import java.nio.file.Files;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MapStoreServiceAppendOnlyLogTest {
+    private File storageDir;
+    // The service whose write to disk thread gets shut down after the test
+    private HistoricalDataStoreServiceFake openService;
+
+    @Before
+    public void setUp() throws IOException {
+        storageDir = Files.createTempDirectory("storage").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        shutDownOpenService();
+    }
+
+    private HistoricalDataStoreServiceFake createService() {
+        shutDownOpenService();
+        openService = new HistoricalDataStoreServiceFake(storageDir);
+        openService.readStoreSync();
+        return openService;
+    }
+
+    private void shutDownOpenService() {
+        if (openService != null) {
+            openService.getPersistenceManager().shutdown();
+            openService = null;
+        }
+    }
+
+    // All file operations of the log are done on the write to disk thread in the order they got requested
+    private static void awaitWrites(HistoricalDataStoreServiceFake service) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        service.getPersistenceManager().executeOnWriteToDiskThread(latch::countDown);
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    private static P2PDataStorage.ByteArray hash(int id) {
+        return new P2PDataStorage.ByteArray(new byte[]{(byte) id});
+    }
+
+    private static void add(HistoricalDataStoreServiceFake service, int id) {
+        service.putIfAbsent(hash(id), new TestPayload(id));
+    }
+
+    @Test
+    public void replayAppliesTombstonesInOrder() throws InterruptedException {
+        HistoricalDataStoreServiceFake service = createService();
+        add(service, 1);
+        add(service, 2);
+        service.remove(hash(1));
+        add(service, 3);
+        service.remove(hash(3));
+        // An entry added again after its tombstone must be contained after the replay
+        add(service, 3);
+        // A tombstone of an unknown entry is ignored
+        service.remove(hash(4));
+        Assert.assertEquals(Set.of(hash(2), hash(3)), service.getMapOfLiveData().keySet());
+        awaitWrites(service);
+
+        HistoricalDataStoreServiceFake restarted = createService();
+        Assert.assertEquals(Set.of(hash(2), hash(3)), restarted.getMapOfLiveData().keySet());
+
+        // Tombstones written after a restart remove entries replayed from older segments
+        restarted.remove(hash(2));
+        add(restarted, 5);
+        awaitWrites(restarted);
+        Assert.assertEquals(Set.of(hash(3), hash(5)), createService().getMapOfLiveData().keySet());
+    }
+
+    @Test
+    public void readStoreReplaysBeforeConsumerIsCalled() throws InterruptedException {
+        HistoricalDataStoreServiceFake service = createService();
+        add(service, 1);
+        add(service, 2);
+        service.remove(hash(2));
+        awaitWrites(service);
+        shutDownOpenService();
+
+        HistoricalDataStoreServiceFake restarted = new HistoricalDataStoreServiceFake(storageDir);
+        openService = restarted;
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicBoolean replayed = new AtomicBoolean();
+        // The UserThread executes on the calling thread in tests, so the consumer gets called on the write thread
+        restarted.readStore(persisted -> {
+            replayed.set(restarted.getMapOfLiveData().keySet().equals(Set.of(hash(1))));
+            latch.countDown();
+        });
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(replayed.get());
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage.persistence;
+
+import bisq.network.p2p.storage.P2PDataStorage;
+
+import bisq.common.Payload;
+import bisq.common.file.CorruptedStorageFileHandler;
+import bisq.common.persistence.PersistenceManager;
+import bisq.common.proto.persistable.PersistableEnvelope;
+import bisq.common.proto.persistable.PersistablePayload;
+import bisq.common.proto.persistable.PersistenceProtoResolver;
+
+import java.nio.file.Files;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests the journaled mode of the PersistenceManager with the SequenceNumberMap, which is its only adopter so far.
+ */
+public class SequenceNumberMapJournalTest {
+    private static final String FILE_NAME = "SequenceNumberMap";
+
+    private static final PersistenceProtoResolver PERSISTENCE_PROTO_RESOLVER = new PersistenceProtoResolver() {
+        @Override
+        public PersistableEnvelope fromProto(protobuf.PersistableEnvelope proto) {
+            return SequenceNumberMap.fromProto(proto.getSequenceNumberMap());
+        }
+
+        @Override
+        public PersistablePayload fromProto(protobuf.PersistableNetworkPayload proto) {
+            throw new UnsupportedOperationException("Only the SequenceNumberMap is supported");
+        }
+
+        @Override
+        public Payload fromProto(protobuf.PaymentAccountPayload proto) {
+            throw new UnsupportedOperationException("Only the SequenceNumberMap is supported");
+        }
+    };
+
+    private File storageDir;
+    private File storageFile;
+    private File journalFile;
+    // The manager whose write to disk thread gets shut down after the test
+    private PersistenceManager<SequenceNumberMap> openManager;
+
+    @Before
+    public void setUp() throws IOException {
+        storageDir = Files.createTempDirectory("storage").toFile();
+        storageFile = new File(storageDir, FILE_NAME);
+        journalFile = new File(storageDir, FILE_NAME + "_journal");
+        // Deltas are only journaled and data is only written after all services have been initialized
+        PersistenceManager.onAllServicesInitialized();
+    }
+
+    @After
+    public void tearDown() {
+        shutDownOpenManager();
+    }
+
+    private PersistenceManager<SequenceNumberMap> createManager(SequenceNumberMap sequenceNumberMap) {
+        shutDownOpenManager();
+        openManager = new PersistenceManager<>(storageDir,
+                PERSISTENCE_PROTO_RESOLVER,
+                mock(CorruptedStorageFileHandler.class));
+        openManager.initialize(sequenceNumberMap, FILE_NAME, PersistenceManager.Source.PRIVATE_LOW_PRIO);
+        return openManager;
+    }
+
+    private void shutDownOpenManager() {
+        if (openManager != null) {
+            openManager.shutdown();
+            openManager = null;
+        }
+    }
+
+    // Reads the persisted data like at a restart
+    private SequenceNumberMap readPersisted() {
+        return createManager(new SequenceNumberMap()).getPersisted();
+    }
+
+    // The journal and the writes of the whole map are processed in order on the write to disk thread
+    private static void awaitWrites(PersistenceManager<SequenceNumberMap> manager) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        manager.executeOnWriteToDiskThread(latch::countDown);
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    // Returns whether the whole map was written
+    private static boolean persistNow(PersistenceManager<SequenceNumberMap> manager) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicBoolean written = new AtomicBoolean();
+        manager.persistNow(latch::countDown, () -> written.set(true));
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        return written.get();
+    }
+
+    private static P2PDataStorage.ByteArray key(int id) {
+        return new P2PDataStorage.ByteArray(new byte[]{(byte) id});
+    }
+
+    private static P2PDataStorage.MapValue mapValue(int sequenceNr) {
+        return P2PDataStorage.MapValue.fromProto(protobuf.MapValue.newBuilder()
+                .setSequenceNr(sequenceNr)
+                .setTimeStamp(sequenceNr * 1000L)
+                .build());
+    }
+
+    private static void put(PersistenceManager<SequenceNumberMap> manager,
+                            SequenceNumberMap sequenceNumberMap,
+                            int id,
+                            int sequenceNr) {
+        sequenceNumberMap.put(key(id), mapValue(sequenceNr));
+        manager.appendDelta(SequenceNumberMap.delta(key(id), mapValue(sequenceNr)));
+    }
+
+    @Test
+    public void deltasAreAppliedToPersistedMap() throws InterruptedException {
+        SequenceNumberMap sequenceNumberMap = new SequenceNumberMap();
+        PersistenceManager<SequenceNumberMap> manager = createManager(sequenceNumberMap);
+        put(manager, sequenceNumberMap, 1, 1);
+        put(manager, sequenceNumberMap, 2, 1);
+        Assert.assertTrue(persistNow(manager));
+
+        put(manager, sequenceNumberMap, 2, 2);
+        put(manager, sequenceNumberMap, 3, 1);
+        awaitWrites(manager);
+        Assert.assertTrue(journalFile.exists());
+
+        SequenceNumberMap persisted = readPersisted();
+        Assert.assertNotNull(persisted);
+        Assert.assertEquals(sequenceNumberMap.getMap(), persisted.getMap());
+    }
+
+    @Test
+    public void deltasAreReplayedWithoutStoreFile() throws InterruptedException {
+        SequenceNumberMap sequenceNumberMap = new SequenceNumberMap();
+        PersistenceManager<SequenceNumberMap> manager = createManager(sequenceNumberMap);
+        put(manager, sequenceNumberMap, 1, 1);
+        put(manager, sequenceNumberMap, 2, 1);
+        put(manager, sequenceNumberMap, 1, 2);
+        awaitWrites(manager);
+        Assert.assertFalse(storageFile.exists());
+
+        SequenceNumberMap persisted = readPersisted();
+        Assert.assertNotNull(persisted);
+        Assert.assertEquals(sequenceNumberMap.getMap(), persisted.getMap());
+    }
+
+    @Test
+    public void truncatedTrailingRecordIsDroppedAndLaterDeltasAreReadable() throws InterruptedException, IOException {
+        SequenceNumberMap sequenceNumberMap = new SequenceNumberMap();
+        PersistenceManager<SequenceNumberMap> manager = createManager(sequenceNumberMap);
+        put(manager, sequenceNumberMap, 1, 1);
+        put(manager, sequenceNumberMap, 2, 1);
+        awaitWrites(manager);
+        shutDownOpenManager();
+        long validLength = journalFile.length();
+
+        // Simulates a crash in the middle of appending a record
+        byte[] record = SequenceNumberMap.delta(key(3), mapValue(1)).toProtoMessage().toByteArray();
+        try (FileOutputStream outputStream = new FileOutputStream(journalFile, true)) {
+            outputStream.write(record.length);
+            outputStream.write(Arrays.copyOf(record, record.length / 2));
+        }
+
+        SequenceNumberMap persisted = readPersisted();
+        Assert.assertNotNull(persisted);
+        Assert.assertEquals(sequenceNumberMap.getMap(), persisted.getMap());
+        Assert.assertEquals(validLength, journalFile.length());
+
+        // The deltas appended after the restart follow the last complete record
+        manager = createManager(persisted);
+        put(manager, persisted, 4, 1);
+        awaitWrites(manager);
+
+        sequenceNumberMap.put(key(4), mapValue(1));
+        SequenceNumberMap persistedAfterRestart = readPersisted();
+        Assert.assertNotNull(persistedAfterRestart);
+        Assert.assertEquals(sequenceNumberMap.getMap(), persistedAfterRestart.getMap());
+    }
+
+    @Test
+    public void journalIsClearedOnlyAfterSuccessfulWrite() throws InterruptedException, IOException {
+        SequenceNumberMap sequenceNumberMap = new SequenceNumberMap();
+        PersistenceManager<SequenceNumberMap> manager = createManager(sequenceNumberMap);
+        put(manager, sequenceNumberMap, 1, 1);
+        put(manager, sequenceNumberMap, 2, 1);
+
+        // A non-empty directory at the path of the store file lets the rename of the written temp file fail
+        Assert.assertTrue(storageFile.mkdir());
+        Assert.assertTrue(new File(storageFile, "blocker").createNewFile());
+        Assert.assertFalse(persistNow(manager));
+        Assert.assertTrue(journalFile.exists());
+        Assert.assertTrue(journalFile.length() > 0);
+
+        Assert.assertTrue(new File(storageFile, "blocker").delete());
+        Assert.assertTrue(storageFile.delete());
+        Assert.assertTrue(persistNow(manager));
+        Assert.assertFalse(journalFile.exists());
+
+        SequenceNumberMap persisted = readPersisted();
+        Assert.assertNotNull(persisted);
+        Assert.assertEquals(sequenceNumberMap.getMap(), persisted.getMap());
+    }
+}